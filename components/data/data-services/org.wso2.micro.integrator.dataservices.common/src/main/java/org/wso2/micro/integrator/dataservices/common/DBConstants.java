@@ -404,12 +404,17 @@ public final class DBConstants {
         public static final String DATASOURCE_PROPS = "dataSourceProps";
         public static final String FORCE_STORED_PROC = "forceStoredProc";
         public static final String FORCE_JDBC_BATCH_REQUESTS = "forceJDBCBatchRequests";
+        public static final String MAX_BATCH_SIZE = "maxBatchSize";
+        public static final String MAX_BATCH_CHARS = "maxBatchChars";
+        public static final String ADAPTIVE_BATCH_SIZE = "adaptiveBatchSize";
+        public static final String READ_ONLY = "readOnly";
         public static final String QUERY_TIMEOUT = "queryTimeout";
         public static final String AUTO_COMMIT = "autoCommit";
         public static final String FETCH_DIRECTION = "fetchDirection";
         public static final String FETCH_SIZE = "fetchSize";
         public static final String MAX_FIELD_SIZE = "maxFieldSize";
         public static final String MAX_ROWS = "maxRows";        
+        public static final String STATEMENT_CACHE_SIZE = "statementCacheSize";
         public static final String DYNAMIC_USER_AUTH_CLASS = "dynamicUserAuthClass";
         public static final String DYNAMIC_USER_AUTH_MAPPING = "dynamicUserAuthMapping";
         public static final String USERNAME_WILDCARD = "*";
@@ -652,6 +657,8 @@ public final class DBConstants {
         public static final String MAX_ROW_COUNT = "maxrowcount";
         public static final String HAS_HEADER = "hasheader";
         public static final String HEADER_ROW = "headerrow";
+        /* integer, the number of cells of parsed sheets kept in memory, 0 disables caching */
+        public static final String SHEET_CACHE_SIZE = "excel_sheet_cache_size";
     }
 
     /**
@@ -678,6 +685,7 @@ public final class DBConstants {
         public static final String AUTH_SOURCE = "mongoDB_auth_source";
         public static final String CONNECTIONS_PER_HOST = "mongoDB_connectionsPerHost";
         public static final String THREADS_ALLOWED_TO_BLOCK_CONN_MULTIPLIER = "mongoDB_threadsAllowedToBlockForConnectionMultiplier";
+        public static final String BATCH_SIZE = "mongoDB_batch_size";
         public static final String RESULT_COLUMN_NAME = "Document";
 
         public static class MongoOperationLabels {
@@ -839,6 +847,8 @@ public final class DBConstants {
         public static final String ENABLE_BOXCARRING = "enableBoxcarring";
         public static final String DISABLE_STREAMING = "disableStreaming";
         public static final String DISABLE_LEGACY_BOXCARRING_MODE = "disableLegacyBoxcarringMode";
+        public static final String ENABLE_PARALLEL_QUERY_EXECUTION = "enableParallelQueryExecution";
+        public static final String ENABLE_TYPED_JSON_OUTPUT = "enableTypedJsonOutput";
         public static final String RETURN_REQUEST_STATUS = "returnRequestStatus";
         public static final String SERVICE_STATUS = "serviceStatus";
         public static final String BASE_URI = "baseURI";
@@ -1029,6 +1039,22 @@ public final class DBConstants {
         public static final String FETCH_DIRECTION_REVERSE = "reverse";
     }
 
+    /**
+     * Query level properties of the query result cache.
+     */
+    public static final class ResultCache {
+
+        private ResultCache() {
+            throw new AssertionError();
+        }
+
+        /* time to live of the cached results in seconds, the cache is enabled when it is set */
+        public static final String TIMEOUT = "resultCacheTimeout";
+        /* maximum number of rows kept in the cache of a query */
+        public static final String SIZE = "resultCacheSize";
+        public static final long DEFAULT_SIZE = 10000;
+    }
+
     /**
      * SQL query types that are non-stored procedures.
      */
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core;
+
+import org.apache.axiom.om.OMDataSource;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.om.OMSourcedElement;
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.json.gson.JsonFormatter;
+import org.wso2.micro.integrator.dataservices.core.engine.DSOMDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * This class represents the JSON message formatter of data services, which writes the results of the data service
+ * requests directly as JSON, without generating XML to be converted. Responses other than the results of data
+ * service requests, such as faults, are formatted by the Axis2 JSON formatter. This is used by setting the
+ * "dsJsonFormatter" parameter of the Axis2 configuration to this class.
+ * <p>
+ * The results are written directly only for the data services which set the "enableTypedJsonOutput" attribute,
+ * as the output differs from the JSON converted from XML, as described in {@link
+ * org.wso2.micro.integrator.dataservices.core.engine.JSONStreamWriter}. The results of the other data services
+ * are formatted by the Axis2 JSON formatter as before.
+ */
+public class DBJsonMessageFormatter extends JsonFormatter {
+
+    @Override
+    public byte[] getBytes(MessageContext msgContext, OMOutputFormat format) throws AxisFault {
+        DSOMDataSource dataSource = this.getJSONDataSource(msgContext);
+        if (dataSource == null) {
+            return super.getBytes(msgContext, format);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        this.serialize(dataSource, format, output);
+        return output.toByteArray();
+    }
+
+    @Override
+    public void writeTo(MessageContext msgContext, OMOutputFormat format, OutputStream output,
+                        boolean preserve) throws AxisFault {
+        DSOMDataSource dataSource = this.getJSONDataSource(msgContext);
+        if (dataSource == null) {
+            super.writeTo(msgContext, format, output, preserve);
+        } else {
+            this.serialize(dataSource, format, output);
+        }
+    }
+
+    private void serialize(DSOMDataSource dataSource, OMOutputFormat format,
+                           OutputStream output) throws AxisFault {
+        Charset charset = format.getCharSetEncoding() != null ?
+                Charset.forName(format.getCharSetEncoding()) : StandardCharsets.UTF_8;
+        try {
+            dataSource.serializeJSON(output, charset);
+        } catch (XMLStreamException e) {
+            throw DBUtils.createAxisFault(e);
+        }
+    }
+
+    /**
+     * Returns the data source of the result in the message, if it can be written directly as JSON. The result is not
+     * written directly if it has already been built, as that would execute the request again.
+     */
+    private DSOMDataSource getJSONDataSource(MessageContext msgContext) {
+        if (msgContext.isProcessingFault() || msgContext.getEnvelope() == null) {
+            return null;
+        }
+        OMElement element = msgContext.getEnvelope().getBody().getFirstElement();
+        if (!(element instanceof OMSourcedElement) || ((OMSourcedElement) element).isExpanded()) {
+            return null;
+        }
+        OMDataSource dataSource = ((OMSourcedElement) element).getDataSource();
+        if (dataSource instanceof DSOMDataSource && ((DSOMDataSource) dataSource).isJSONSupported()) {
+            return (DSOMDataSource) dataSource;
+        }
+        return null;
+    }
+
+}
@@ -547,6 +547,18 @@ public class DBUtils {
         }
     }
 
+    /**
+     * Returns the local file referred by the given data source path, or null if the path is a
+     * http location or a registry path, or the file does not exist.
+     */
+    public static File getLocalFileFromPath(String path) {
+        if (path.startsWith("http://") || isRegistryPath(path)) {
+            return null;
+        }
+        File file = new File(path);
+        return file.isFile() ? file : null;
+    }
+
     /**
      * Creates and returns an InputStream from the file path / http location given.
      *
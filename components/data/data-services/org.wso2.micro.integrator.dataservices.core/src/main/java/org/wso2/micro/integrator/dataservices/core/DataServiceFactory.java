@@ -118,6 +118,20 @@ public class DataServiceFactory {
                 disableLegacyBoxcarringMode = Boolean.parseBoolean(disableLegacyBoxcarringModeStr);
             }
 
+            boolean parallelQueryExecution = false;
+            String parallelQueryExecutionStr =
+                    dbsElement.getAttributeValue(new QName(DBSFields.ENABLE_PARALLEL_QUERY_EXECUTION));
+            if (parallelQueryExecutionStr != null) {
+                parallelQueryExecution = Boolean.parseBoolean(parallelQueryExecutionStr);
+            }
+
+            boolean typedJsonOutput = false;
+            String typedJsonOutputStr =
+                    dbsElement.getAttributeValue(new QName(DBSFields.ENABLE_TYPED_JSON_OUTPUT));
+            if (typedJsonOutputStr != null) {
+                typedJsonOutput = Boolean.parseBoolean(typedJsonOutputStr);
+            }
+
             /* txManagerName property */
             String userTxJNDIName = dbsElement.getAttributeValue(
                     new QName(DBSFields.TRANSACTION_MANAGER_JNDI_NAME));
@@ -147,6 +161,12 @@ public class DataServiceFactory {
             /* set disable legacy boxcarring mode */
             dataService.setDisableLegacyBoxcarringMode(disableLegacyBoxcarringMode);
 
+            /* set parallel query execution */
+            dataService.setParallelQueryExecution(parallelQueryExecution);
+
+            /* set typed JSON output */
+            dataService.setTypedJsonOutput(typedJsonOutput);
+
             /* set transports */
             String transports = dbsElement.getAttributeValue(new QName(DBSFields.TRANSPORTS));
             if (transports != null && !transports.isEmpty()) {
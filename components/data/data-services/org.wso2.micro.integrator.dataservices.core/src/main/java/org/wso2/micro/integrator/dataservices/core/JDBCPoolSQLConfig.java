@@ -37,6 +37,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.UUID;
 
 /**
  * This class represents a Tomcat JDBC Pool based SQL data source configuration.
@@ -45,6 +46,11 @@ public class JDBCPoolSQLConfig extends SQLConfig {
 
 	private DataSource dataSource;
 
+	/* the key of the statement cache statistics shared by the interceptors of this pool */
+	private final String statementCacheStatsKey = UUID.randomUUID().toString();
+
+	private StatementCacheStatsInterceptor.Statistics statementCacheStats;
+
 	public JDBCPoolSQLConfig(DataService dataService, String configId, String type, Map<String, String> properties,
                              boolean odataEnable) throws DataServiceFault {
 		super(dataService, configId, type, RDBMSUtils.convertConfigPropsFromV2toV3(properties), odataEnable);
@@ -85,11 +91,24 @@ public class JDBCPoolSQLConfig extends SQLConfig {
 		return this.getDataSource().getIdle();
 	}
 
+	@Override
+	public long getStatementCacheHitCount() {
+		return this.statementCacheStats == null ? -1 : this.statementCacheStats.getHitCount();
+	}
+
+	@Override
+	public long getStatementCacheMissCount() {
+		return this.statementCacheStats == null ? -1 : this.statementCacheStats.getMissCount();
+	}
+
 	@Override
 	public void close() {
 		if (this.dataSource != null) {
 			this.dataSource.close();
-		}		
+		}
+		if (this.statementCacheStats != null) {
+			StatementCacheStatsInterceptor.unregister(this.statementCacheStatsKey);
+		}
 	}
 	
 	private RDBMSConfiguration createConfigFromProps(Map<String, String> props)
@@ -137,12 +156,23 @@ public class JDBCPoolSQLConfig extends SQLConfig {
 		props.remove(RDBMS.MAX_WAIT);
 		props.remove(RDBMS.DYNAMIC_USER_AUTH_CLASS);
 		props.remove(RDBMS.DYNAMIC_USER_AUTH_MAPPING);
+		props.remove(RDBMS.STATEMENT_CACHE_SIZE);
 	}
 	
 	private void handlePostConfigInit(RDBMSConfiguration config) {
 		if (this.getPrimaryDynAuth() != null) {
 			config.setAlternateUsernameAllowed(true);
 		}
+		if (this.isStatementCacheEnabled()) {
+			/* the pool caches the statements behind its connection proxies, so the other interceptors still apply */
+			String interceptors = config.getJdbcInterceptors();
+			config.setJdbcInterceptors((DBUtils.isEmptyString(interceptors) ? "" :
+					interceptors + RDBMSDataSourceConstants.JDBC_INTERCEPTOR_SEPARATOR) +
+					StatementCacheStatsInterceptor.class.getName() + "(prepared=true,callable=true,max=" +
+					this.getStatementCacheSize() + "," + StatementCacheStatsInterceptor.STATS_KEY + "=" +
+					this.statementCacheStatsKey + ")");
+			this.statementCacheStats = StatementCacheStatsInterceptor.register(this.statementCacheStatsKey);
+		}
 	}
 
 	@Override
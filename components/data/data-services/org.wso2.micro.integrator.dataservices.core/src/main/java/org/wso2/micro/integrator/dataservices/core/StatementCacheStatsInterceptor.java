@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core;
+
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+import org.apache.tomcat.jdbc.pool.interceptor.StatementCache;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The jdbc-pool StatementCache interceptor, which also counts the statement cache hits and misses. The pool creates
+ * an interceptor for each connection, so the counters are shared between them through the statistics registered
+ * with the key given in the "statsKey" interceptor property.
+ */
+public class StatementCacheStatsInterceptor extends StatementCache {
+
+	public static final String STATS_KEY = "statsKey";
+
+	private static final Map<String, Statistics> statisticsMap = new ConcurrentHashMap<String, Statistics>();
+
+	private Statistics statistics;
+
+	public static Statistics register(String key) {
+		Statistics statistics = new Statistics();
+		statisticsMap.put(key, statistics);
+		return statistics;
+	}
+
+	public static void unregister(String key) {
+		statisticsMap.remove(key);
+	}
+
+	@Override
+	public void setProperties(Map<String, InterceptorProperty> properties) {
+		super.setProperties(properties);
+		InterceptorProperty key = properties.get(STATS_KEY);
+		if (key != null) {
+			this.statistics = statisticsMap.get(key.getValue());
+		}
+	}
+
+	@Override
+	public CachedStatement isCached(Method method, Object[] args) {
+		CachedStatement statement = super.isCached(method, args);
+		if (this.statistics != null) {
+			if (statement != null) {
+				this.statistics.hitCount.incrementAndGet();
+			} else {
+				this.statistics.missCount.incrementAndGet();
+			}
+		}
+		return statement;
+	}
+
+	/**
+	 * The statement cache hit and miss counts of a connection pool.
+	 */
+	public static class Statistics {
+
+		private final AtomicLong hitCount = new AtomicLong();
+
+		private final AtomicLong missCount = new AtomicLong();
+
+		public long getHitCount() {
+			return hitCount.get();
+		}
+
+		public long getMissCount() {
+			return missCount.get();
+		}
+
+	}
+
+}
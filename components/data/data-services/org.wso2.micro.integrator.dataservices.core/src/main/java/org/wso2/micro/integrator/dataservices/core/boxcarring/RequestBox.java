@@ -18,15 +18,34 @@
 package org.wso2.micro.integrator.dataservices.core.boxcarring;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.axiom.om.OMElement;
-import org.apache.commons.io.output.NullOutputStream;
+import org.apache.axiom.om.impl.llom.OMSourcedElementImpl;
+import org.wso2.micro.integrator.dataservices.common.DBConstants;
 import org.wso2.micro.integrator.dataservices.core.DBUtils;
 import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.description.query.Query;
+import org.wso2.micro.integrator.dataservices.core.dispatch.BatchDataServiceRequest;
 import org.wso2.micro.integrator.dataservices.core.dispatch.DataServiceRequest;
+import org.wso2.micro.integrator.dataservices.core.dispatch.SingleDataServiceRequest;
+import org.wso2.micro.integrator.dataservices.core.engine.CallQuery;
+import org.wso2.micro.integrator.dataservices.core.engine.DSOMDataSource;
+import org.wso2.micro.integrator.dataservices.core.engine.DataService;
+import org.wso2.micro.integrator.dataservices.core.engine.OutputElement;
+import org.wso2.micro.integrator.dataservices.core.engine.OutputElementGroup;
+import org.wso2.micro.integrator.dataservices.core.engine.ParallelQueryExecutor;
+import org.wso2.micro.integrator.dataservices.core.engine.ParamValue;
+import org.wso2.micro.integrator.dataservices.core.engine.StaticOutputElement;
+import org.wso2.micro.integrator.dataservices.core.engine.XMLStreamWriterBuffer;
 
 /**
  * Represents a boxcarring session service request group.
@@ -55,35 +74,203 @@ public class RequestBox {
 	 * This is called when a boxcarring session is over, 
 	 * and the stored requests will be executed,
 	 * the result of the last operation is returned.
+	 * Consecutive requests of the same batch capable operation are executed as a single
+	 * batch request, and the leading read-only requests are executed in parallel,
+	 * if parallel query execution is enabled for the data service. The results of the
+	 * requests other than the last are consumed without serializing them.
 	 */
 	public synchronized OMElement execute() throws DataServiceFault {
-		OMElement result;
+		OMElement result = null;
 		List<DataServiceRequest> reqList = this.getRequests();
 		int n = reqList.size();
-		OMElement resultElement = null;
-		for (int i = 0; i < n; i++) {
-			result = reqList.get(i).dispatch();
-			if (result != null) {
-				try {
-					/* if it's the last request, return the result,
-					 * getXMLStreamReader() method will execute the actual request */
-					if (i == (n - 1)) {
-						resultElement = DBUtils.cloneAndReturnBuiltElement(result);
-						return DBUtils.wrapBoxCarringResponse(resultElement);
-					} else {
-					    /* process the result of the request, no need to cache the data */
-					    result.serializeAndConsume(new NullOutputStream());
-					}
-				} catch (XMLStreamException e) {
-					throw new DataServiceFault(e, "Error in request box result serializing");
-				}
+		if (n == 0) {
+			return null;
+		}
+		int i = this.executeParallelRequests(reqList);
+		while (i < n) {
+			int batchEnd = this.getBatchEnd(reqList, i);
+			if (batchEnd - i > 1) {
+				result = this.createBatchRequest(reqList.subList(i, batchEnd)).dispatch();
+				i = batchEnd;
 			} else {
-				if (i == (n - 1)) {
-					return DBUtils.wrapBoxCarringResponse(resultElement);
+				result = reqList.get(i).dispatch();
+				i++;
+			}
+			if (i < n) {
+				/* process the result of the request, no need to keep the data */
+				consumeResult(result);
+			}
+		}
+		if (result == null) {
+			return DBUtils.wrapBoxCarringResponse(null);
+		}
+		/* it's the last request, return the result,
+		 * getXMLStreamReader() method will execute the actual request */
+		OMElement resultElement = DBUtils.cloneAndReturnBuiltElement(result);
+		return DBUtils.wrapBoxCarringResponse(resultElement);
+	}
+
+	/**
+	 * Executes the result of a request, which is not needed, by writing it to a writer which
+	 * discards the result. A result which is already built, has already been executed.
+	 */
+	private static void consumeResult(OMElement result) throws DataServiceFault {
+		if (!(result instanceof OMSourcedElementImpl) || ((OMSourcedElementImpl) result).isExpanded()) {
+			return;
+		}
+		DSOMDataSource dsomDS = (DSOMDataSource) ((OMSourcedElementImpl) result).getDataSource();
+		try {
+			dsomDS.execute(XMLStreamWriterBuffer.createDiscardingWriter());
+		} catch (XMLStreamException e) {
+			throw new DataServiceFault(e, "Error in request box result processing");
+		}
+	}
+
+	/**
+	 * Executes the read-only requests at the start of the request box in parallel. These requests
+	 * are executed before any data is changed in the request box, hence they do not have to share
+	 * the connections of the request box, and their results are not needed, unless they export
+	 * values to the other requests.
+	 *
+	 * @return the index of the first request, which is not executed yet
+	 */
+	private int executeParallelRequests(List<DataServiceRequest> reqList) throws DataServiceFault {
+		int end = 0;
+		/* the last request is always executed in the request box, since its result is returned */
+		while (end < reqList.size() - 1 && isParallelRequest(reqList.get(end))) {
+			end++;
+		}
+		if (end < 2) {
+			return 0;
+		}
+		List<Future<Object>> results = new ArrayList<Future<Object>>(end);
+		for (int i = 0; i < end; i++) {
+			final DataServiceRequest request = reqList.get(i);
+			results.add(ParallelQueryExecutor.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws DataServiceFault {
+					consumeResult(request.dispatch());
+					return null;
+				}
+			}));
+		}
+		for (Future<Object> result : results) {
+			ParallelQueryExecutor.getResult(result);
+		}
+		return end;
+	}
+
+	private static boolean isParallelRequest(DataServiceRequest request) {
+		if (!(request instanceof SingleDataServiceRequest)
+				|| !request.getDataService().isParallelQueryExecution()
+				|| isInExternalDTX(request.getDataService())) {
+			return false;
+		}
+		Query query = request.getDataService().getCallableRequest(
+				request.getRequestName()).getCallQuery().getQuery();
+		return isReadOnlyWithoutExports(query, new HashSet<Query>());
+	}
+
+	/**
+	 * Checks whether the request box joined a distributed transaction, which was not begun for the request box
+	 * itself. The transaction begun for the request box does not prevent the parallel execution, since the leading
+	 * read-only requests are executed before any data is changed in it, but the requests of a transaction begun by
+	 * the caller have to see its changes.
+	 */
+	private static boolean isInExternalDTX(DataService dataService) {
+		return dataService.isInDTX() && !dataService.getDSSTxManager().isDTXInitiatedByUS();
+	}
+
+	/**
+	 * Checks whether the given query, and the queries nested in its result, do not change data,
+	 * and do not export values to the other requests.
+	 */
+	private static boolean isReadOnlyWithoutExports(Query query, Set<Query> visited) {
+		if (!visited.add(query)) {
+			return true;
+		}
+		if (query.isWriteQuery()) {
+			return false;
+		}
+		return !query.hasResult()
+				|| isReadOnlyWithoutExports(query.getResult().getDefaultElementGroup(), visited);
+	}
+
+	private static boolean isReadOnlyWithoutExports(OutputElementGroup group, Set<Query> visited) {
+		for (StaticOutputElement attribute : group.getAttributeEntries()) {
+			if (attribute.getExport() != null) {
+				return false;
+			}
+		}
+		for (OutputElement element : group.getAllElements()) {
+			if (element instanceof StaticOutputElement) {
+				if (((StaticOutputElement) element).getExport() != null) {
+					return false;
+				}
+			} else if (element instanceof CallQuery) {
+				if (!isReadOnlyWithoutExports(((CallQuery) element).getQuery(), visited)) {
+					return false;
+				}
+			} else if (element instanceof OutputElementGroup) {
+				if (!isReadOnlyWithoutExports((OutputElementGroup) element, visited)) {
+					return false;
 				}
 			}
 		}
-		return null;
+		return true;
+	}
+
+	/**
+	 * Returns the end index of the consecutive requests starting from the given index, which can
+	 * be executed as a single batch request, i.e. requests of the same operation which does not
+	 * return a result, and has an equivalent batch operation.
+	 */
+	private int getBatchEnd(List<DataServiceRequest> reqList, int start) {
+		DataServiceRequest first = reqList.get(start);
+		if (!isBatchableRequest(first)) {
+			return start + 1;
+		}
+		int end = start + 1;
+		while (end < reqList.size() && isBatchableRequest(reqList.get(end))
+				&& first.getRequestName().equals(reqList.get(end).getRequestName())
+				&& isSameUser(first, reqList.get(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	private static boolean isBatchableRequest(DataServiceRequest request) {
+		if (!(request instanceof SingleDataServiceRequest)) {
+			return false;
+		}
+		DataService dataService = request.getDataService();
+		String requestName = request.getRequestName();
+		return dataService.getCallableRequest(
+				requestName + DBConstants.BATCH_OPERATON_NAME_SUFFIX) != null
+				&& !dataService.hasResultForRequest(requestName)
+				&& dataService.getCallableRequest(requestName).getCallQuery().getQuery().isWriteQuery();
+	}
+
+	private static boolean isSameUser(DataServiceRequest req1, DataServiceRequest req2) {
+		return req1.getUser() == null ? req2.getUser() == null : req1.getUser().equals(req2.getUser());
+	}
+
+	/**
+	 * Creates a batch request with the parameters of the given requests, so the JDBC batch
+	 * update support of the queries is used on the connections of the request box.
+	 */
+	protected BatchDataServiceRequest createBatchRequest(
+			List<DataServiceRequest> batch) throws DataServiceFault {
+		DataServiceRequest first = batch.get(0);
+		List<Map<String, ParamValue>> batchParams = new ArrayList<Map<String, ParamValue>>(batch.size());
+		for (DataServiceRequest request : batch) {
+			batchParams.add(new HashMap<String, ParamValue>(((SingleDataServiceRequest) request).getParams()));
+		}
+		BatchDataServiceRequest batchRequest = new BatchDataServiceRequest(first.getDataService(),
+				first.getRequestName() + DBConstants.BATCH_OPERATON_NAME_SUFFIX, batchParams);
+		batchRequest.setUser(first.getUser());
+		batchRequest.setUserRoles(first.getUserRoles());
+		return batchRequest;
 	}
 	
 }
@@ -28,9 +28,12 @@ import org.wso2.micro.integrator.dataservices.core.engine.DataService;
 import org.wso2.micro.integrator.dataservices.core.odata.ODataDataHandler;
 import org.wso2.micro.integrator.dataservices.core.odata.ODataServiceFault;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -58,6 +61,8 @@ public class CSVConfig extends Config {
 
     private Map<Integer, String> columnMappings;
 
+    private volatile CSVFileIndex fileIndex;
+
     public CSVConfig(DataService dataService, String configId, Map<String, String> properties, boolean odataEnable)
             throws DataServiceFault {
         super(dataService, configId, DataSourceTypes.CSV, properties, odataEnable);
@@ -133,6 +138,12 @@ public class CSVConfig extends Config {
 
     private CSVReader createCSVReader(int skipLineNo)
             throws IOException, DataServiceFault {
+        CSVFileIndex index = this.getFileIndex();
+        if (index != null) {
+            /* seek directly to the first line to be read */
+            InputStreamReader insr = new InputStreamReader(index.openStream(skipLineNo));
+            return new CSVReader(insr, this.getColumnSeparator(), CSVConfig.DEFAULT_QUOTE_CHAR);
+        }
         InputStream ins = DBUtils.getInputStreamFromPath(
                 this.getCsvDataSourcePath());
         InputStreamReader insr = new InputStreamReader(ins);
@@ -140,6 +151,39 @@ public class CSVConfig extends Config {
                              CSVConfig.DEFAULT_QUOTE_CHAR, skipLineNo);
     }
 
+    /**
+     * Returns the line index of the CSV file, if the data source is a local file. The index is
+     * created on first use, and re-created when the file is modified.
+     */
+    private CSVFileIndex getFileIndex() throws IOException {
+        File file = DBUtils.getLocalFileFromPath(this.getCsvDataSourcePath());
+        if (file == null || !CSVFileIndex.isIndexable(file) || !isLineBreakCompatible(Charset.defaultCharset())) {
+            return null;
+        }
+        CSVFileIndex index = this.fileIndex;
+        if (index == null || !index.isValid(file)) {
+            synchronized (this) {
+                index = this.fileIndex;
+                if (index == null || !index.isValid(file)) {
+                    index = CSVFileIndex.create(file);
+                    this.fileIndex = index;
+                    if (log.isDebugEnabled()) {
+                        log.debug("Created line index of CSV file: " + file.getAbsolutePath());
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Lines are found by searching for the line break bytes, which is only possible if the charset
+     * encodes them as single bytes, as ASCII based charsets do.
+     */
+    private static boolean isLineBreakCompatible(Charset charset) {
+        return Arrays.equals("\r\n".getBytes(charset), new byte[] {'\r', '\n'});
+    }
+
     private String[] getHeader() throws IOException, DataServiceFault {
         if (!this.isHasHeader()) {
             return null;
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.description.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The offsets of the lines in a CSV file. This allows a reader to be positioned at any line without
+ * reading the preceding content of the file. The file is read through a file channel positioned at
+ * the line, rather than a memory mapping, so a file which is truncated or rewritten while it is read
+ * only ends the stream early, as with a plain stream. An index is only valid as long as the
+ * modification time and the size of the file are the same as when it was created.
+ */
+final class CSVFileIndex {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File file;
+
+    private final long lastModified;
+
+    private final long length;
+
+    private final int[] lineOffsets;
+
+    private final int lineCount;
+
+    private CSVFileIndex(File file, long lastModified, long length, int[] lineOffsets, int lineCount) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.lineOffsets = lineOffsets;
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Checks if a file can be indexed, the offsets of the index are integers, hence the size of the file
+     * is limited to the largest integer.
+     */
+    static boolean isIndexable(File file) {
+        return file.length() <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Reads the given file and records the offsets of its lines. The lines are separated the same way
+     * as {@link java.io.BufferedReader#readLine()} does, i.e. by a line feed, a carriage return or a
+     * carriage return followed by a line feed.
+     */
+    static CSVFileIndex create(File file) throws IOException {
+        long lastModified = file.lastModified();
+        int[] lineOffsets = new int[1024];
+        int lineCount = 0;
+        int lineStart = 0;
+        int position = 0;
+        boolean carriageReturn = false;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                byte b;
+                while (buffer.hasRemaining()) {
+                    b = buffer.get();
+                    if (b == '\n' && carriageReturn) {
+                        /* the line feed of a carriage return line feed pair */
+                        lineStart = position + 1;
+                    } else if (b == '\n' || b == '\r') {
+                        if (lineCount == lineOffsets.length) {
+                            lineOffsets = Arrays.copyOf(lineOffsets, lineCount * 2);
+                        }
+                        lineOffsets[lineCount++] = lineStart;
+                        lineStart = position + 1;
+                    }
+                    carriageReturn = b == '\r';
+                    position++;
+                }
+                buffer.clear();
+            }
+        }
+        if (lineStart < position) {
+            /* the last line is not terminated */
+            if (lineCount == lineOffsets.length) {
+                lineOffsets = Arrays.copyOf(lineOffsets, lineCount + 1);
+            }
+            lineOffsets[lineCount++] = lineStart;
+        }
+        return new CSVFileIndex(file, lastModified, position, lineOffsets, lineCount);
+    }
+
+    boolean isValid(File file) {
+        return file.lastModified() == this.lastModified && file.length() == this.length;
+    }
+
+    /**
+     * Opens a stream over the content of the file, starting from the given zero based line. The stream
+     * must be closed, to close the file channel it reads from.
+     */
+    InputStream openStream(int line) throws IOException {
+        FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+        try {
+            channel.position(line < this.lineCount ? this.lineOffsets[line] : this.length);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return Channels.newInputStream(channel);
+    }
+
+}
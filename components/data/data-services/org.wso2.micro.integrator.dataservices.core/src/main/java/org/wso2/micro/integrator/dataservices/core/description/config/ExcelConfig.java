@@ -20,6 +20,9 @@ package org.wso2.micro.integrator.dataservices.core.description.config;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.wso2.micro.integrator.dataservices.common.DBConstants;
@@ -30,8 +33,14 @@ import org.wso2.micro.integrator.dataservices.core.engine.DataService;
 import org.wso2.micro.integrator.dataservices.core.odata.ODataDataHandler;
 import org.wso2.micro.integrator.dataservices.core.odata.ODataServiceFault;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -42,11 +51,32 @@ public class ExcelConfig extends Config {
 	private static final Log log = LogFactory.getLog(
             ExcelConfig.class);
 	
+	private static final int DEFAULT_SHEET_CACHE_SIZE = 100000;
+
 	private String excelDataSourcePath;
 
-	public ExcelConfig(DataService dataService, String configId, Map<String, String> properties, boolean odataEnable) {
+	private int sheetCacheSize;
+
+	/* parsed sheets of a local workbook file, keyed by the lower case sheet name, in LRU order */
+	private final Map<String, CachedSheet> sheetCache = new LinkedHashMap<String, CachedSheet>(16, 0.75f, true);
+
+	private int cachedCells;
+
+	public ExcelConfig(DataService dataService, String configId, Map<String, String> properties, boolean odataEnable)
+			throws DataServiceFault {
 		super(dataService, configId, DataSourceTypes.EXCEL, properties, odataEnable);
 		this.excelDataSourcePath = this.getProperty(DBConstants.Excel.DATASOURCE).trim();
+		String tmpSheetCacheSize = this.getProperty(DBConstants.Excel.SHEET_CACHE_SIZE);
+		if (!DBUtils.isEmptyString(tmpSheetCacheSize)) {
+			try {
+				this.sheetCacheSize = Integer.parseInt(tmpSheetCacheSize.trim());
+			} catch (NumberFormatException e) {
+				throw new DataServiceFault(e, "Invalid sheet cache size value in config: " + tmpSheetCacheSize +
+				                           ", sheet cache size should be an integer value");
+			}
+		} else {
+			this.sheetCacheSize = DEFAULT_SHEET_CACHE_SIZE;
+		}
 	}
 
 	public String getExcelDataSourcePath() {
@@ -58,15 +88,113 @@ public class ExcelConfig extends Config {
 		Workbook wb = WorkbookFactory.create(ins);
 		return wb;
 	}
+
+	/**
+	 * Passes the rows of the given sheet to the handler, starting from the given zero based row index
+	 * and ending at the first missing or empty row, or when the handler does not want any more rows.
+	 * OOXML workbooks are streamed rather than loaded in to memory, and the rows of sheets of a local
+	 * workbook file are cached, within the configured number of cells, until the file is modified.
+	 */
+	public void readSheet(String sheetName, int startRow, RowHandler handler) throws DataServiceFault {
+		File file = DBUtils.getLocalFileFromPath(this.getExcelDataSourcePath());
+		String key = sheetName.toLowerCase(Locale.ENGLISH);
+		boolean cacheable = file != null && this.sheetCacheSize > 0;
+		long lastModified = 0, length = 0;
+		if (cacheable) {
+			lastModified = file.lastModified();
+			length = file.length();
+			CachedSheet cachedSheet = this.getCachedSheet(key, lastModified, length);
+			if (cachedSheet != null) {
+				cachedSheet.read(startRow, handler);
+				return;
+			}
+		}
+		SheetRowReader rowReader = new SheetRowReader(startRow, handler, cacheable ? this.sheetCacheSize : 0);
+		this.readWorkbookSheet(file, sheetName, rowReader);
+		if (rowReader.getRows() != null) {
+			this.putCachedSheet(key, new CachedSheet(lastModified, length, rowReader.getRows(),
+					rowReader.getCells()));
+		}
+	}
+
+	private void readWorkbookSheet(File file, String sheetName, ExcelSheetReader.RowCallback callback)
+			throws DataServiceFault {
+		InputStream ins = null;
+		OPCPackage pkg = null;
+		try {
+			if (file != null && FileMagic.valueOf(file) == FileMagic.OOXML) {
+				pkg = OPCPackage.open(file, PackageAccess.READ);
+			} else {
+				ins = FileMagic.prepareToCheckMagic(DBUtils.getInputStreamFromPath(this.getExcelDataSourcePath()));
+				if (FileMagic.valueOf(ins) == FileMagic.OOXML) {
+					pkg = OPCPackage.open(ins);
+				} else {
+					ExcelSheetReader.readSheet(WorkbookFactory.create(ins), sheetName, callback);
+					return;
+				}
+			}
+			ExcelSheetReader.streamSheet(pkg, sheetName, callback);
+		} catch (DataServiceFault e) {
+			throw e;
+		} catch (Exception e) {
+			throw new DataServiceFault(e, "Error in reading Excel workbook: " + this.getExcelDataSourcePath());
+		} finally {
+			if (pkg != null) {
+				pkg.revert();
+			}
+			if (ins != null) {
+				try {
+					ins.close();
+				} catch (IOException ignore) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private synchronized CachedSheet getCachedSheet(String key, long lastModified, long length) {
+		CachedSheet cachedSheet = this.sheetCache.get(key);
+		if (cachedSheet != null && (cachedSheet.lastModified != lastModified || cachedSheet.length != length)) {
+			/* the workbook has changed, so are its other sheets */
+			this.sheetCache.clear();
+			this.cachedCells = 0;
+			return null;
+		}
+		return cachedSheet;
+	}
+
+	private synchronized void putCachedSheet(String key, CachedSheet cachedSheet) {
+		CachedSheet previous = this.sheetCache.remove(key);
+		if (previous != null) {
+			this.cachedCells -= previous.cells;
+		}
+		Iterator<CachedSheet> itr = this.sheetCache.values().iterator();
+		while (itr.hasNext() && this.cachedCells + cachedSheet.cells > this.sheetCacheSize) {
+			this.cachedCells -= itr.next().cells;
+			itr.remove();
+		}
+		this.sheetCache.put(key, cachedSheet);
+		this.cachedCells += cachedSheet.cells;
+	}
 	
 	@Override
 	public boolean isActive() {
+		InputStream ins = null;
 		try {
-			Workbook wb = this.createWorkbook();
-			return wb != null;
+			ins = FileMagic.prepareToCheckMagic(DBUtils.getInputStreamFromPath(this.getExcelDataSourcePath()));
+			FileMagic fileMagic = FileMagic.valueOf(ins);
+			return fileMagic == FileMagic.OOXML || fileMagic == FileMagic.OLE2;
 		} catch (Exception e) {
 			log.error("Error in checking Excel config availability", e);
 			return false;
+		} finally {
+			if (ins != null) {
+				try {
+					ins.close();
+				} catch (IOException ignore) {
+					// ignore
+				}
+			}
 		}
 	}
 	
@@ -84,5 +212,112 @@ public class ExcelConfig extends Config {
 	public boolean isResultSetFieldsCaseSensitive() {
 		return false;
 	}
-	
+
+	/**
+	 * Receives the rows read from a sheet.
+	 */
+	public interface RowHandler {
+
+		/**
+		 * @param data The cell values of the row
+		 * @return true if more rows are required
+		 */
+		boolean handleRow(String[] data) throws DataServiceFault;
+
+	}
+
+	/**
+	 * Hands over the consecutive rows starting from a given row to a {@link RowHandler}, while optionally
+	 * collecting all the rows of the sheet to be cached, until a given number of cells is exceeded.
+	 */
+	private static class SheetRowReader implements ExcelSheetReader.RowCallback {
+
+		private final RowHandler handler;
+
+		private final int maxCells;
+
+		private int nextRow;
+
+		private boolean reading = true;
+
+		private List<String[]> rows;
+
+		private int cells;
+
+		public SheetRowReader(int startRow, RowHandler handler, int maxCells) {
+			this.nextRow = startRow;
+			this.handler = handler;
+			this.maxCells = maxCells;
+			if (maxCells > 0) {
+				this.rows = new ArrayList<String[]>();
+			}
+		}
+
+		@Override
+		public boolean accept(int rowIndex, String[] data) throws DataServiceFault {
+			if (this.rows != null) {
+				this.cells += data != null ? data.length : 1;
+				if (this.cells > this.maxCells) {
+					/* too large to be cached */
+					this.rows = null;
+				} else {
+					while (this.rows.size() < rowIndex) {
+						this.rows.add(null);
+					}
+					this.rows.add(data);
+				}
+			}
+			if (this.reading && rowIndex >= this.nextRow) {
+				if (rowIndex > this.nextRow || data == null) {
+					this.reading = false;
+				} else {
+					this.reading = this.handler.handleRow(data);
+					this.nextRow++;
+				}
+			}
+			return this.reading || this.rows != null;
+		}
+
+		public List<String[]> getRows() {
+			return rows;
+		}
+
+		public int getCells() {
+			return cells;
+		}
+
+	}
+
+	/**
+	 * The rows of a sheet, along with the state of the workbook file they were read from.
+	 */
+	private static class CachedSheet {
+
+		private final long lastModified;
+
+		private final long length;
+
+		private final List<String[]> rows;
+
+		private final int cells;
+
+		public CachedSheet(long lastModified, long length, List<String[]> rows, int cells) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.rows = rows;
+			this.cells = cells;
+		}
+
+		public void read(int startRow, RowHandler handler) throws DataServiceFault {
+			String[] data;
+			for (int i = startRow; i < this.rows.size(); i++) {
+				data = this.rows.get(i);
+				if (data == null || !handler.handleRow(data)) {
+					break;
+				}
+			}
+		}
+
+	}
+
 }
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.description.config;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the rows of an Excel sheet as string arrays. OOXML (.xlsx) workbooks are streamed through
+ * the SAX event model, so only the row being processed is held in memory, while other workbooks
+ * are read through the POI user model.
+ */
+final class ExcelSheetReader {
+
+    private static final String FORMULA_VALUE = "{formula}";
+
+    private ExcelSheetReader() {
+    }
+
+    /**
+     * Receives the rows of a sheet in the order they appear in it.
+     */
+    interface RowCallback {
+
+        /**
+         * @param rowIndex The zero based index of the row
+         * @param data The values of the row, or null if the row does not contain any cells
+         * @return true to continue reading the sheet, false to stop
+         */
+        boolean accept(int rowIndex, String[] data) throws DataServiceFault;
+
+    }
+
+    /**
+     * Reads the given sheet of a workbook which is loaded in to memory.
+     */
+    static void readSheet(Workbook workbook, String sheetName, RowCallback callback)
+            throws DataServiceFault {
+        Sheet sheet = workbook.getSheet(sheetName);
+        if (sheet == null) {
+            throw new DataServiceFault("Excel sheet named '" + sheetName + "' does not exist");
+        }
+        for (int i = 0; i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            if (row != null && !callback.accept(i, extractRowData(row))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Streams the given sheet of an OOXML workbook.
+     */
+    static void streamSheet(OPCPackage pkg, String sheetName, RowCallback callback)
+            throws DataServiceFault {
+        InputStream sheetIn = null;
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            XSSFReader.SheetIterator itr = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (itr.hasNext()) {
+                InputStream in = itr.next();
+                if (sheetName.equalsIgnoreCase(itr.getSheetName())) {
+                    sheetIn = in;
+                    break;
+                }
+                in.close();
+            }
+            if (sheetIn == null) {
+                throw new DataServiceFault("Excel sheet named '" + sheetName + "' does not exist");
+            }
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+            xmlReader.setContentHandler(new SheetHandler(new ReadOnlySharedStringsTable(pkg), callback));
+            xmlReader.parse(new InputSource(sheetIn));
+        } catch (StopReadingException e) {
+            /* the callback is done with the sheet */
+        } catch (SAXException e) {
+            if (e.getException() instanceof DataServiceFault) {
+                throw (DataServiceFault) e.getException();
+            }
+            throw new DataServiceFault(e, "Error in reading Excel sheet '" + sheetName + "'");
+        } catch (DataServiceFault e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DataServiceFault(e, "Error in reading Excel sheet '" + sheetName + "'");
+        } finally {
+            if (sheetIn != null) {
+                try {
+                    sheetIn.close();
+                } catch (Exception ignore) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    static String[] extractRowData(Row row) {
+        if (row == null || row.getLastCellNum() == -1) {
+            return null;
+        }
+        String[] data = new String[row.getLastCellNum()];
+        Cell cell;
+        for (int i = 0; i < data.length; i++) {
+            cell = row.getCell(i);
+            if (cell == null) {
+                data[i] = "";
+                continue;
+            }
+            switch (cell.getCellType()) {
+                case STRING:
+                    data[i] = cell.getRichStringCellValue().getString();
+                    break;
+                case BLANK:
+                    data[i] = "";
+                    break;
+                case BOOLEAN:
+                    data[i] = String.valueOf(cell.getBooleanCellValue());
+                    break;
+                case FORMULA:
+                    data[i] = FORMULA_VALUE;
+                    break;
+                case NUMERIC:
+                    data[i] = processNumericValue(cell.getNumericCellValue());
+                    break;
+            }
+        }
+        return data;
+    }
+
+    private static String processNumericValue(double val) {
+        if (val == (long) val) {
+            return String.valueOf((long) val);
+        } else {
+            return String.valueOf(val);
+        }
+    }
+
+    /**
+     * Signals that the callback does not need any more rows.
+     */
+    private static class StopReadingException extends SAXException {
+
+        private static final long serialVersionUID = 1L;
+
+    }
+
+    /**
+     * SAX handler of a worksheet part, which produces the same values for the cells as
+     * {@link #extractRowData(Row)} does for the user model.
+     */
+    private static class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable sharedStrings;
+
+        private final RowCallback callback;
+
+        private final List<String> rowData = new ArrayList<String>();
+
+        private final StringBuilder text = new StringBuilder();
+
+        private int rowIndex = -1;
+
+        private int columnIndex;
+
+        private String cellType;
+
+        private boolean formula;
+
+        private boolean hasValue;
+
+        private boolean inValue;
+
+        private boolean inInlineString;
+
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, RowCallback callback) {
+            this.sharedStrings = sharedStrings;
+            this.callback = callback;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("row".equals(localName)) {
+                String ref = attributes.getValue("r");
+                this.rowIndex = ref != null ? Integer.parseInt(ref) - 1 : this.rowIndex + 1;
+                this.rowData.clear();
+                this.columnIndex = -1;
+            } else if ("c".equals(localName)) {
+                String ref = attributes.getValue("r");
+                this.columnIndex = ref != null ? toColumnIndex(ref) : this.columnIndex + 1;
+                this.cellType = attributes.getValue("t");
+                this.formula = false;
+                this.hasValue = false;
+                this.text.setLength(0);
+            } else if ("f".equals(localName)) {
+                this.formula = true;
+            } else if ("v".equals(localName)) {
+                this.inValue = true;
+                this.hasValue = true;
+            } else if ("is".equals(localName)) {
+                this.inInlineString = true;
+                this.hasValue = true;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (this.inValue || this.inInlineString) {
+                this.text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if ("v".equals(localName)) {
+                this.inValue = false;
+            } else if ("is".equals(localName)) {
+                this.inInlineString = false;
+            } else if ("c".equals(localName)) {
+                while (this.rowData.size() <= this.columnIndex) {
+                    this.rowData.add("");
+                }
+                this.rowData.set(this.columnIndex, this.getCellValue());
+            } else if ("row".equals(localName)) {
+                String[] data = this.rowData.isEmpty() ? null :
+                        this.rowData.toArray(new String[this.rowData.size()]);
+                boolean proceed;
+                try {
+                    proceed = this.callback.accept(this.rowIndex, data);
+                } catch (DataServiceFault e) {
+                    throw new SAXException(e);
+                }
+                if (!proceed) {
+                    throw new StopReadingException();
+                }
+            }
+        }
+
+        private String getCellValue() {
+            if (this.formula) {
+                return FORMULA_VALUE;
+            }
+            String value = this.text.toString();
+            if ("s".equals(this.cellType)) {
+                return this.hasValue ? this.sharedStrings.getItemAt(
+                        Integer.parseInt(value.trim())).getString() : "";
+            } else if ("b".equals(this.cellType)) {
+                return this.hasValue ? String.valueOf("1".equals(value) || "true".equals(value)) : "";
+            } else if ("e".equals(this.cellType)) {
+                return null;
+            } else if ("inlineStr".equals(this.cellType) || "str".equals(this.cellType) ||
+                    "d".equals(this.cellType)) {
+                return value;
+            }
+            return this.hasValue ? processNumericValue(Double.parseDouble(value)) : "";
+        }
+
+        private static int toColumnIndex(String ref) {
+            int column = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+
+    }
+
+}
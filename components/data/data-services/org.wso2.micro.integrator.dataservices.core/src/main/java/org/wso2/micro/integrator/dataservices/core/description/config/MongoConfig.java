@@ -53,6 +53,11 @@ public class MongoConfig extends Config {
 
     private Jongo jongo;
 
+    /**
+     * Number of documents fetched by a query cursor in one round trip, 0 uses the server default.
+     */
+    private int batchSize;
+
     public MongoConfig(DataService dataService, String configId, Map<String, String> properties, boolean odataEnable)
             throws DataServiceFault {
         super(dataService, configId, DBConstants.DataSourceTypes.MONGODB, properties, odataEnable);
@@ -78,6 +83,10 @@ public class MongoConfig extends Config {
             }
             this.getMongoClient().getDatabase(database);
             this.jongo = new Jongo(this.getMongoClient().getDB(database));
+            String batchSizeParam = properties.get(DBConstants.MongoDB.BATCH_SIZE);
+            if (!DBUtils.isEmptyString(batchSizeParam)) {
+                this.batchSize = Integer.parseInt(batchSizeParam.trim());
+            }
         } catch (Exception e) {
             throw new DataServiceFault(e, DBConstants.FaultCodes.CONNECTION_UNAVAILABLE_ERROR, e.getMessage());
         }
@@ -219,6 +228,10 @@ public class MongoConfig extends Config {
         return jongo;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     @Override
     public boolean isResultSetFieldsCaseSensitive() {
         return true;
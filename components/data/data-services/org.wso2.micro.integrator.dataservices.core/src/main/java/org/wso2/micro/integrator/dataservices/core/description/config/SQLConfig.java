@@ -59,6 +59,8 @@ public abstract class SQLConfig extends Config {
 	private DynamicUserAuthenticator primaryDynAuth;
 	
 	private DynamicUserAuthenticator secondaryDynAuth;
+
+	private int statementCacheSize;
 	
 	/**
 	 * This is used to keep the enlisted XADatasource objects
@@ -76,6 +78,7 @@ public abstract class SQLConfig extends Config {
 		this.validationQuery = this.getProperty(RDBMS.VALIDATION_QUERY);
 		this.processAutoCommitValue();
 		this.processDynamicAuth();
+		this.processStatementCacheSize();
 	}
 	
 	private void processDynamicAuth() throws DataServiceFault {
@@ -131,6 +134,18 @@ public abstract class SQLConfig extends Config {
 		}
 	}
 	
+	private void processStatementCacheSize() throws DataServiceFault {
+		String cacheSizeProp = this.getProperty(RDBMS.STATEMENT_CACHE_SIZE);
+		if (!DBUtils.isEmptyString(cacheSizeProp)) {
+			try {
+				this.statementCacheSize = Integer.parseInt(cacheSizeProp.trim());
+			} catch (NumberFormatException e) {
+				throw new DataServiceFault(e, "Invalid statement cache size value in config: " + cacheSizeProp +
+				                           ", statement cache size should be an integer value");
+			}
+		}
+	}
+
 	public DynamicUserAuthenticator getPrimaryDynAuth() {
 		return primaryDynAuth;
 	}
@@ -168,7 +183,36 @@ public abstract class SQLConfig extends Config {
 	public String getValidationQuery() {
 		return validationQuery;
 	}
-	
+
+	public boolean isStatementCacheEnabled() {
+		return statementCacheSize > 0;
+	}
+
+	/**
+	 * Returns the maximum number of prepared and callable statements cached by the connection pool. Statements are
+	 * only cached by the pools created for the data service, the pools of Carbon and JNDI data sources are expected
+	 * to configure the StatementCache JDBC interceptor themselves.
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * Returns the number of statements served from the statement cache of the connection pool, or -1 when the
+	 * statement cache statistics are not available.
+	 */
+	public long getStatementCacheHitCount() {
+		return -1;
+	}
+
+	/**
+	 * Returns the number of statements not found in the statement cache of the connection pool, or -1 when the
+	 * statement cache statistics are not available.
+	 */
+	public long getStatementCacheMissCount() {
+		return -1;
+	}
+
 	public Object[] createConnection() throws SQLException, DataServiceFault {
 		return this.createConnection(null, null);
 	}
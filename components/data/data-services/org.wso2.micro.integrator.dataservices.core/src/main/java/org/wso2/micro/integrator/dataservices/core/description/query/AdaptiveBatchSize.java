@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.description.query;
+
+/**
+ * This class decides when the statements added to the JDBC batch of a query are executed, so a large batch request
+ * can be executed in several parts, instead of keeping all of its rows in the driver until the end. A part is
+ * executed once it has the current maximum number of rows, or the total length of its parameter values reaches the
+ * maximum number of characters. When adaptive, the maximum number of rows starts small and is doubled while the
+ * throughput of the executed parts improves, and halved when the throughput drops, within the configured maximum.
+ * Without any limit, which is the default, the batch is executed as a whole at the last request.
+ */
+public class AdaptiveBatchSize {
+
+    /**
+     * The smallest number of rows the batch size is reduced to.
+     */
+    private static final int MIN_BATCH_SIZE = 16;
+
+    /**
+     * The number of rows an adaptive batch size starts with.
+     */
+    private static final int INITIAL_BATCH_SIZE = 128;
+
+    /**
+     * The throughput must change by more than this ratio, for the batch size to be changed.
+     */
+    private static final double THROUGHPUT_TOLERANCE = 0.1;
+
+    private final int maxRows;
+
+    private final long maxChars;
+
+    private final boolean adaptive;
+
+    private volatile int currentRows;
+
+    /* the throughput of the executed parts at the current batch size, in rows per millisecond */
+    private double lastThroughput;
+
+    /**
+     * @param maxRows  the maximum number of rows of a part, where a non-positive value means no limit
+     * @param maxChars the maximum total length of the parameter values of a part, where a non-positive value means
+     *                 no limit
+     * @param adaptive whether the number of rows is adapted to the throughput, which requires a maximum number of rows
+     */
+    public AdaptiveBatchSize(int maxRows, long maxChars, boolean adaptive) {
+        this.maxRows = Math.max(maxRows, 0);
+        this.maxChars = Math.max(maxChars, 0);
+        this.adaptive = adaptive && this.maxRows > 0;
+        this.currentRows = this.adaptive ? Math.min(INITIAL_BATCH_SIZE, this.maxRows) : this.maxRows;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public long getMaxChars() {
+        return maxChars;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public int getCurrentRows() {
+        return currentRows;
+    }
+
+    /**
+     * Checks whether the batch is executed in parts at all, which is the case if any limit is set.
+     */
+    public boolean isLimited() {
+        return this.maxRows > 0 || this.maxChars > 0;
+    }
+
+    /**
+     * Checks whether a batch with the given number of rows and total length of parameter values must be executed now.
+     */
+    public boolean isFull(int rows, long chars) {
+        return (this.currentRows > 0 && rows >= this.currentRows) || (this.maxChars > 0 && chars >= this.maxChars);
+    }
+
+    /**
+     * Records the execution of a batch part, and adapts the batch size to its throughput.
+     *
+     * @param rows  the number of rows in the executed part
+     * @param nanos the time taken to execute the part, in nanoseconds
+     */
+    public synchronized void recordExecution(int rows, long nanos) {
+        if (!this.adaptive || rows < this.currentRows) {
+            /* only the parts which were executed because they were full show the effect of the batch size */
+            return;
+        }
+        double throughput = rows / Math.max(nanos / 1000000.0, 0.001);
+        if (this.lastThroughput == 0 || throughput > this.lastThroughput * (1 + THROUGHPUT_TOLERANCE)) {
+            this.currentRows = Math.min(this.currentRows * 2, this.maxRows);
+        } else if (throughput < this.lastThroughput * (1 - THROUGHPUT_TOLERANCE)) {
+            this.currentRows = Math.max(this.currentRows / 2, Math.min(MIN_BATCH_SIZE, this.maxRows));
+        }
+        this.lastThroughput = throughput;
+    }
+
+}
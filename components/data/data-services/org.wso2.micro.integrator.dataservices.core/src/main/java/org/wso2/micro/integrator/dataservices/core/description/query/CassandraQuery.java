@@ -25,6 +25,7 @@ import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
 import org.apache.axis2.databinding.utils.ConverterUtil;
 import org.apache.commons.codec.binary.Base64;
 import org.wso2.micro.integrator.dataservices.common.DBConstants;
@@ -44,6 +45,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Future;
 
 /**
  * This class represents Cassandra-CQL data services query implementation.
@@ -265,7 +267,14 @@ public class CassandraQuery extends ExpressionQuery {
             Row row;
             DataEntry dataEntry;
             ColumnDefinitions defs = rs.getColumnDefinitions();
+            int prefetchThreshold = this.getFetchSize(rs) / 2;
+            Future<ResultSet> prefetch = null;
             while (itr.hasNext()) {
+                if ((prefetch == null || prefetch.isDone()) && rs.getAvailableWithoutFetching() <= prefetchThreshold
+                        && !rs.isFullyFetched()) {
+                    /* fetch the next page in the background, while the rows of the current page are written */
+                    prefetch = rs.fetchMoreResults();
+                }
                 row = itr.next();
                 dataEntry = this.getDataEntryFromRow(row, defs);
                 this.writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
@@ -273,6 +282,18 @@ public class CassandraQuery extends ExpressionQuery {
         }
     }
 
+    /**
+     * Returns the page size of the given result set, which is the fetch size of its statement, or the default
+     * fetch size of the cluster if the statement does not set one.
+     */
+    private int getFetchSize(ResultSet rs) {
+        Statement statement = rs.getExecutionInfo().getStatement();
+        if (statement != null && statement.getFetchSize() > 0) {
+            return statement.getFetchSize();
+        }
+        return this.getSession().getCluster().getConfiguration().getQueryOptions().getFetchSize();
+    }
+
     private DataEntry getDataEntryFromRow(Row row, ColumnDefinitions defs) throws DataServiceFault {
         boolean useColumnNumbers = this.isUsingColumnNumbers();
         DataType columnType;
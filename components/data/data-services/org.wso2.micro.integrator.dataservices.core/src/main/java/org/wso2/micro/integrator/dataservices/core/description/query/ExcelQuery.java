@@ -17,11 +17,6 @@
  */
 package org.wso2.micro.integrator.dataservices.core.description.query;
 
-import org.apache.poi.hssf.usermodel.HSSFCell;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
 import org.wso2.micro.integrator.dataservices.core.DBUtils;
 import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
 import org.wso2.micro.integrator.dataservices.core.description.config.ExcelConfig;
@@ -92,50 +87,16 @@ public class ExcelQuery extends Query {
         if (!this.isHasHeader()) {
             return null;
         }
-        Workbook wb = this.getConfig().createWorkbook();
-        Sheet sheet = wb.getSheet(this.getWorkbookName());
-        return this.extractRowData(sheet.getRow(this.getHeaderRow() - 1));
-    }
-
-    private String[] extractRowData(Row row) {
-        if (row == null || row.getLastCellNum() == -1) {
-            return null;
-        }
-        String[] data = new String[row.getLastCellNum()];
-        Cell cell;
-        for (int i = 0; i < data.length; i++) {
-            cell = row.getCell(i);
-            if (cell == null) {
-                data[i] = "";
-                continue;
-            }
-            switch (cell.getCellType()) {
-                case STRING:
-                    data[i] = cell.getRichStringCellValue().getString();
-                    break;
-                case BLANK:
-                    data[i] = "";
-                    break;
-                case BOOLEAN:
-                    data[i] = String.valueOf(cell.getBooleanCellValue());
-                    break;
-                case FORMULA:
-                    data[i] = "{formula}";
-                    break;
-                case NUMERIC:
-                    data[i] = processNumericValue(cell.getNumericCellValue());
-                    break;
-            }
-        }
-        return data;
-    }
-
-    private String processNumericValue(double val) {
-        if (val == (long) val) {
-            return String.valueOf((long) val);
-        } else {
-            return String.valueOf(val);
-        }
+        final String[][] header = new String[1][];
+        this.getConfig().readSheet(this.getWorkbookName(), this.getHeaderRow() - 1,
+                new ExcelConfig.RowHandler() {
+                    @Override
+                    public boolean handleRow(String[] data) {
+                        header[0] = data;
+                        return false;
+                    }
+                });
+        return header[0];
     }
 
     public ExcelConfig getConfig() {
@@ -164,38 +125,34 @@ public class ExcelQuery extends Query {
 
     public Object runPreQuery(InternalParamCollection params, int queryLevel)
             throws DataServiceFault {
-        try {
-            Workbook wb = this.getConfig().createWorkbook();
-            return wb.getSheet(this.getWorkbookName());
-        } catch (Exception e) {
-            throw new DataServiceFault(e, "Error in ExcelQuery.runQuery.");
-        }
+        /* the sheet is read while writing the result, so its rows don't have to be held in memory */
+        return this.getWorkbookName();
     }
 
     @Override
-    public void runPostQuery(Object result, XMLStreamWriter xmlWriter,
-                             InternalParamCollection params, int queryLevel) throws DataServiceFault {
-        Sheet sheet = (Sheet) result;
-        int maxCount = this.getMaxRowCount();
-        int i = this.getStartingRow() - 1;
-        int count = 0;
-        DataEntry dataEntry;
-        String[] record;
-        Map<Integer, String> columnsMap = this.getColumnMappings();
-        boolean useColumnNumbers = this.isUsingColumnNumbers();
-        while ((record = this.extractRowData(sheet.getRow(i))) != null) {
-            if (maxCount != -1 && count >= maxCount) {
-                break;
-            }
-            dataEntry = new DataEntry();
-            for (int j = 0; j < record.length; j++) {
-                dataEntry.addValue(useColumnNumbers ? Integer.toString(j + 1) :
-                        columnsMap.get(j + 1), new ParamValue(record[j]));
+    public void runPostQuery(Object result, final XMLStreamWriter xmlWriter,
+                             final InternalParamCollection params, final int queryLevel) throws DataServiceFault {
+        final int maxCount = this.getMaxRowCount();
+        final Map<Integer, String> columnsMap = this.getColumnMappings();
+        final boolean useColumnNumbers = this.isUsingColumnNumbers();
+        this.getConfig().readSheet((String) result, this.getStartingRow() - 1, new ExcelConfig.RowHandler() {
+
+            private int count = 0;
+
+            @Override
+            public boolean handleRow(String[] record) throws DataServiceFault {
+                if (maxCount != -1 && count >= maxCount) {
+                    return false;
+                }
+                DataEntry dataEntry = new DataEntry();
+                for (int j = 0; j < record.length; j++) {
+                    dataEntry.addValue(useColumnNumbers ? Integer.toString(j + 1) :
+                            columnsMap.get(j + 1), new ParamValue(record[j]));
+                }
+                writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
+                count++;
+                return maxCount == -1 || count < maxCount;
             }
-            this.writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
-            i++;
-            count++;
-
-        }
+        });
     }
 }
@@ -17,11 +17,14 @@
  */
 package org.wso2.micro.integrator.dataservices.core.description.query;
 
+import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.util.JSON;
 import org.apache.commons.lang.StringUtils;
+import org.jongo.Find;
 import org.jongo.Jongo;
 import org.jongo.MongoCollection;
+import org.jongo.QueryModifier;
 import org.jongo.ResultHandler;
 import org.jongo.Update;
 import org.json.JSONArray;
@@ -47,6 +50,8 @@ import org.wso2.micro.integrator.dataservices.core.engine.QueryParam;
 import org.wso2.micro.integrator.dataservices.core.engine.Result;
 import org.wso2.micro.integrator.dataservices.core.engine.StaticOutputElement;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -94,18 +99,28 @@ public class MongoQuery extends Query {
         DataEntry dataEntry;
         DataRow currentRow;
         String tmpVal;
-        while (queryResult != null && queryResult.hasNext()) {
-            currentRow = queryResult.next();
-            tmpVal = currentRow.getValueAt(DBConstants.MongoDB.RESULT_COLUMN_NAME);
-            // if tmpVal is not a json then the query is a count query therefore we add count as the column name.
-
-            List<OutputElement> elements = this.getResult().getDefaultElementGroup().getAllElements();
-            List<String> totalParamList = new ArrayList<>();
-            for (OutputElement element : elements) {
-                addInnerElements(element, totalParamList);
+        List<String> totalParamList = null;
+        try {
+            while (queryResult != null && queryResult.hasNext()) {
+                currentRow = queryResult.next();
+                tmpVal = currentRow.getValueAt(DBConstants.MongoDB.RESULT_COLUMN_NAME);
+                // if tmpVal is not a json then the query is a count query therefore we add count as the column name.
+
+                if (totalParamList == null) {
+                    List<OutputElement> elements = this.getResult().getDefaultElementGroup().getAllElements();
+                    totalParamList = new ArrayList<>();
+                    for (OutputElement element : elements) {
+                        addInnerElements(element, totalParamList);
+                    }
+                }
+                dataEntry = wrapMongoRow(tmpVal, totalParamList);
+                this.writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
+            }
+        } finally {
+            if (queryResult instanceof MongoQueryResult) {
+                /* release the server side cursor, even if the result was not fully read */
+                ((MongoQueryResult) queryResult).close();
             }
-            dataEntry = wrapMongoRow(tmpVal, totalParamList);
-            this.writeResultEntry(xmlWriter, dataEntry, params, queryLevel);
         }
     }
 
@@ -394,15 +409,27 @@ public class MongoQuery extends Query {
         }
 
         private Iterator<String> doFind(MongoCollection collection, String opQuery, Object[] parameters) {
+            Find find;
             if (opQuery != null) {
                 if (parameters.length > 0) {
-                    return collection.find(opQuery, parameters).map(MongoResultMapper.getInstance()).iterator();
+                    find = collection.find(opQuery, parameters);
                 } else {
-                    return collection.find(opQuery).map(MongoResultMapper.getInstance()).iterator();
+                    find = collection.find(opQuery);
                 }
             } else {
-                return collection.find().map(MongoResultMapper.getInstance()).iterator();
+                find = collection.find();
+            }
+            final int batchSize = config.getBatchSize();
+            if (batchSize > 0) {
+                /* the cursor fetches the documents in batches, as they are written to the result */
+                find = find.with(new QueryModifier() {
+                    @Override
+                    public void modify(DBCursor cursor) {
+                        cursor.batchSize(batchSize);
+                    }
+                });
             }
+            return find.map(MongoResultMapper.getInstance()).iterator();
         }
 
         private Iterator<String> isExist(MongoCollection collection) {
@@ -547,6 +574,16 @@ public class MongoQuery extends Query {
                 return new FixedDataRow(values);
             }
         }
+
+        public void close() throws DataServiceFault {
+            if (this.dataIterator instanceof Closeable) {
+                try {
+                    ((Closeable) this.dataIterator).close();
+                } catch (IOException e) {
+                    throw new DataServiceFault(e, "Error in closing the Mongo cursor: " + e.getMessage());
+                }
+            }
+        }
     }
 
 }
@@ -48,8 +48,10 @@ import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents a query in a data service.
@@ -82,6 +84,8 @@ public abstract class Query extends XMLWriterHelper {
 	
 	private boolean useColumnNumbers;
 
+	private QueryResultCache resultCache;
+
 	private static ThreadLocal<Object> queryPreprocessObjects = new ThreadLocal<Object>() {
 	    @Override
 	    public Object initialValue() {
@@ -110,6 +114,22 @@ public abstract class Query extends XMLWriterHelper {
         }
     };
 
+	/* true if a query which modifies data has been executed in the current request */
+	private static ThreadLocal<Boolean> writeExecuted = new ThreadLocal<Boolean>() {
+        @Override
+        public Boolean initialValue() {
+            return false;
+        }
+    };
+
+	/* the data services modified in the current transaction, which may span the requests of a request box */
+	private static ThreadLocal<Set<DataService>> uncommittedWrites = new ThreadLocal<Set<DataService>>() {
+        @Override
+        public Set<DataService> initialValue() {
+            return new HashSet<DataService>();
+        }
+    };
+
 	public Query(DataService dataService, String queryId,
                  List<QueryParam> queryParams, Result result, String configId,
                  EventTrigger inputEventTrigger, EventTrigger outputEventTrigger,
@@ -190,6 +210,48 @@ public abstract class Query extends XMLWriterHelper {
 		return useColumnNumbers;
 	}
 
+	public QueryResultCache getResultCache() {
+		return resultCache;
+	}
+
+	public void setResultCache(QueryResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * Returns true if the results of this query can be cached, i.e. it is a read-only query.
+	 * Concrete implementations which support result caching must override this.
+	 */
+	public boolean isResultCacheable() {
+		return false;
+	}
+
+	/**
+	 * Returns true if this query modifies data, where the cached results of the data service
+	 * have to be invalidated after executing it.
+	 */
+	public boolean isWriteQuery() {
+		return !this.hasResult();
+	}
+
+	/**
+	 * Returns true if the results of this query depend on the current user, other than
+	 * by the query parameters.
+	 */
+	protected boolean isUserSpecificResult() {
+		return false;
+	}
+
+	private QueryResultCache getActiveResultCache() {
+		/* a read following a write sees the uncommitted changes of this thread, which must not be shared, and so
+		 * may a read in a distributed transaction, of the writes done in its earlier requests */
+		if (this.resultCache != null && this.isResultCacheable() && !Query.isWriteExecuted()
+				&& !this.getDataService().isInDTX()) {
+			return this.resultCache;
+		}
+		return null;
+	}
+
 	/**
 	 * Converts the parameter map passed into the query, to InternalParam objects,
 	 * where they are created by taking in information also that is mentioned in
@@ -285,6 +347,7 @@ public abstract class Query extends XMLWriterHelper {
 		this.preprocessParams(params);
 		/* extract parameters, to be used internally in queries */
 		InternalParamCollection internalParams = this.extractParams(params);
+		QueryResultCache resultCache = this.getActiveResultCache();
 		boolean error = true;
         Object result;
         try {
@@ -298,7 +361,26 @@ public abstract class Query extends XMLWriterHelper {
                 this.processContentFiltering();
                 /* process input events */
                 this.processInputEvents(internalParams);
-                result = this.runPreQuery(internalParams, queryLevel);
+                if (this.isWriteQuery()) {
+                    writeExecuted.set(true);
+                    uncommittedWrites.get().add(this.getDataService());
+                }
+                List<DataEntry> cachedEntries = null;
+                if (resultCache != null) {
+                    cachedEntries = resultCache.get(resultCache.createKey(internalParams,
+                            this.isUserSpecificResult()));
+                }
+                if (cachedEntries != null) {
+                    result = new CachedQueryResult(cachedEntries);
+                } else if (resultCache != null) {
+                    long generation = resultCache.getGeneration();
+                    result = new CollectableQueryResult(this.runPreQuery(internalParams, queryLevel), generation);
+                } else {
+                    result = this.runPreQuery(internalParams, queryLevel);
+                    if (this.isWriteQuery()) {
+                        this.getDataService().clearResultCaches();
+                    }
+                }
                 Query.addQueryPreprocessedObject(result);
             }
             if (secondary) {
@@ -307,7 +389,28 @@ public abstract class Query extends XMLWriterHelper {
                 Query.resetCurrentInternalParams();
                 Query.setQueryPreprocessingInitial(true);
                 result = Query.getAndRemoveQueryPreprocessObject();
-                this.runPostQuery(result, xmlWriter, internalParams, queryLevel);
+                if (result instanceof CachedQueryResult) {
+                    for (DataEntry dataEntry : ((CachedQueryResult) result).getEntries()) {
+                        this.writeResultEntry(xmlWriter, dataEntry, internalParams, queryLevel);
+                    }
+                } else if (result instanceof CollectableQueryResult && resultCache == null) {
+                    /* a write has been executed after the query, hence its result is not cached */
+                    this.runPostQuery(((CollectableQueryResult) result).getResult(), xmlWriter, internalParams,
+                            queryLevel);
+                } else if (result instanceof CollectableQueryResult) {
+                    CollectableQueryResult collectableResult = (CollectableQueryResult) result;
+                    List<Object> cacheKey = resultCache.createKey(internalParams, this.isUserSpecificResult());
+                    boolean completed = false;
+                    resultCache.startCollecting(collectableResult.getGeneration());
+                    try {
+                        this.runPostQuery(collectableResult.getResult(), xmlWriter, internalParams, queryLevel);
+                        completed = true;
+                    } finally {
+                        resultCache.finishCollecting(cacheKey, completed);
+                    }
+                } else {
+                    this.runPostQuery(result, xmlWriter, internalParams, queryLevel);
+                }
             }
             error = false;
         } finally {
@@ -351,6 +454,7 @@ public abstract class Query extends XMLWriterHelper {
 	        }
 	        TLConnectionStore.closeAll();
         }
+        Query.finishTransaction();
 	}
 	
 	private OMElement createOMElementFromInputParams(InternalParamCollection params) {
@@ -418,6 +522,10 @@ public abstract class Query extends XMLWriterHelper {
 	 */
 	public void writeResultEntry(XMLStreamWriter xmlWriter, DataEntry dataEntry,
                                  InternalParamCollection ipc, int queryLevel) throws DataServiceFault {
+		/* keep the entry, if the result of this query is being cached */
+		if (this.resultCache != null) {
+			this.resultCache.collect(dataEntry);
+		}
 		/* increment query level */
 		queryLevel++;
 		
@@ -509,6 +617,33 @@ public abstract class Query extends XMLWriterHelper {
 	    queryPreprocessObjects.set(new Object());
 	    setQueryPreprocessingInitial(false);
 	    setQueryPreprocessingSecondary(false);
+	    writeExecuted.set(false);
+	}
+
+	/**
+	 * Returns true if a query which modifies data has been executed in the current request, or in the current
+	 * transaction, where its changes may not be committed yet, and so are visible only to the connections of the
+	 * current thread.
+	 */
+	public static boolean isWriteExecuted() {
+	    return writeExecuted.get() || !uncommittedWrites.get().isEmpty();
+	}
+
+	/**
+	 * Invalidates the cached results of the data services modified in the current transaction, once it has been
+	 * committed or rolled back. The results read by other requests while the changes were not committed, or before
+	 * they were rolled back, are dropped here. In a distributed transaction, the XA connections are only committed
+	 * by the transaction manager later on, so the results are dropped again once the transaction is completed.
+	 */
+	public static void finishTransaction() {
+	    Set<DataService> dataServices = uncommittedWrites.get();
+	    for (final DataService dataService : dataServices) {
+	        dataService.clearResultCaches();
+	        if (dataService.isInDTX()) {
+	            dataService.getDSSTxManager().runAfterCompletion(dataService::clearResultCaches);
+	        }
+	    }
+	    dataServices.clear();
 	}
 
         public static InternalParamCollection getCurrentInternalParams() {
@@ -523,4 +658,47 @@ public abstract class Query extends XMLWriterHelper {
              currentInternalParams.set(params);
         }
 
+	/**
+	 * This class represents a query result served from the result cache, in place of the
+	 * result of the first execution phase.
+	 */
+	private static class CachedQueryResult {
+
+		private List<DataEntry> entries;
+
+		public CachedQueryResult(List<DataEntry> entries) {
+			this.entries = entries;
+		}
+
+		public List<DataEntry> getEntries() {
+			return entries;
+		}
+
+	}
+
+	/**
+	 * This class represents the result of the first execution phase of a query, whose rows are
+	 * to be cached, together with the generation of the result cache when the query was executed.
+	 */
+	private static class CollectableQueryResult {
+
+		private Object result;
+
+		private long generation;
+
+		public CollectableQueryResult(Object result, long generation) {
+			this.result = result;
+			this.generation = generation;
+		}
+
+		public Object getResult() {
+			return result;
+		}
+
+		public long getGeneration() {
+			return generation;
+		}
+
+	}
+
 }
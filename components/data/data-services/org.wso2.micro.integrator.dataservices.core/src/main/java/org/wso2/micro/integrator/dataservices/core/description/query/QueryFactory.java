@@ -31,6 +31,7 @@ import org.wso2.micro.integrator.dataservices.common.DBConstants.JNDI;
 import org.wso2.micro.integrator.dataservices.common.DBConstants.QueryParamTypes;
 import org.wso2.micro.integrator.dataservices.common.DBConstants.QueryTypes;
 import org.wso2.micro.integrator.dataservices.common.DBConstants.RDBMS;
+import org.wso2.micro.integrator.dataservices.common.DBConstants.ResultCache;
 import org.wso2.micro.integrator.dataservices.common.DBConstants.ResultTypes;
 import org.wso2.micro.integrator.dataservices.common.RDBMSUtils;
 import org.wso2.micro.integrator.dataservices.core.engine.CallQuery.WithParam;
@@ -114,9 +115,33 @@ public class QueryFactory {
 			throw new DataServiceFault("Invalid configType: " +
 					sourceType + " in :- \n" + queryEl);
 		}
+		processResultCacheProps(dataService, query);
 		return query;
 	}
 
+	private static void processResultCacheProps(DataService dataService, Query query) throws DataServiceFault {
+		Map<String, String> props = query.getAdvancedProperties();
+		if (props == null) {
+			return;
+		}
+		String timeoutStr = props.get(ResultCache.TIMEOUT);
+		if (DBUtils.isEmptyString(timeoutStr)) {
+			return;
+		}
+		long timeout, size;
+		try {
+			timeout = Long.parseLong(timeoutStr.trim());
+			String sizeStr = props.get(ResultCache.SIZE);
+			size = DBUtils.isEmptyString(sizeStr) ? ResultCache.DEFAULT_SIZE : Long.parseLong(sizeStr.trim());
+		} catch (NumberFormatException e) {
+			throw new DataServiceFault(e, "Invalid result cache configuration in query: " + query.getQueryId() +
+					", result cache timeout and size should be integer values");
+		}
+		if (timeout > 0 && size > 0) {
+			query.setResultCache(new QueryResultCache(dataService.getName(), query.getQueryId(), timeout, size));
+		}
+	}
+
 	private static String getConfigId(OMElement queryEl) {
 		String configId = queryEl.getAttributeValue(new QName(DBSFields.USE_CONFIG));
 		if (configId == null) {
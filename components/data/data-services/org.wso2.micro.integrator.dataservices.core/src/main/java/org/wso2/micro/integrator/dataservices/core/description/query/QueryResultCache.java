@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.description.query;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.caching.impl.CacheBuilderImpl;
+import org.wso2.carbon.caching.impl.CachingConstants;
+import org.wso2.carbon.caching.impl.Weigher;
+import org.wso2.micro.integrator.dataservices.core.DataServiceUser;
+import org.wso2.micro.integrator.dataservices.core.engine.DataEntry;
+import org.wso2.micro.integrator.dataservices.core.engine.DataService;
+import org.wso2.micro.integrator.dataservices.core.engine.InternalParam;
+import org.wso2.micro.integrator.dataservices.core.engine.InternalParamCollection;
+import org.wso2.micro.integrator.dataservices.core.engine.ParamValue;
+
+import javax.cache.Cache;
+import javax.cache.CacheBuilder;
+import javax.cache.CacheConfiguration;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.Status;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents the result cache of a read-only query. The result rows of a query are cached against the
+ * query parameters in a local javax.cache cache, which is bounded by a time to live and by the total number of
+ * cached rows.
+ */
+public class QueryResultCache {
+
+    private static final Log log = LogFactory.getLog(QueryResultCache.class);
+
+    private static final String RESULT_CACHE_MANAGER = "DSS_RESULT_CACHE_MANAGER";
+
+    private static final String RESULT_CACHE_PREFIX = "DSS_RESULT_CACHE_";
+
+    /* marks a parameter value which cannot be a part of a cache key */
+    private static final Object UNCACHEABLE_VALUE = new Object();
+
+    private final String cacheName;
+
+    private final long timeout;
+
+    private final long maxRows;
+
+    private volatile Cache<List<Object>, List<DataEntry>> cache;
+
+    private final ThreadLocal<ResultCollector> resultCollectors = new ThreadLocal<ResultCollector>();
+
+    /* incremented on each invalidation, results read before an invalidation are not cached */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param serviceName The name of the data service
+     * @param queryId     The id of the query
+     * @param timeout     Time to live of the cached results in seconds
+     * @param maxRows     Maximum number of rows kept in the cache
+     */
+    public QueryResultCache(String serviceName, String queryId, long timeout, long maxRows) {
+        this.cacheName = CachingConstants.LOCAL_CACHE_PREFIX + RESULT_CACHE_PREFIX + serviceName + "_" + queryId;
+        this.timeout = timeout;
+        this.maxRows = maxRows;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public long getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Creates the cache key for the given query parameters.
+     *
+     * @param params       The query parameters
+     * @param userSpecific Whether the result depends on the current user
+     * @return The cache key, or null if the parameters cannot be used as a key
+     */
+    public List<Object> createKey(InternalParamCollection params, boolean userSpecific) {
+        List<Object> key = new ArrayList<Object>();
+        if (userSpecific) {
+            DataServiceUser user = DataService.getCurrentUser();
+            key.add(user != null ? user.getUsername() : null);
+        }
+        Object value;
+        for (InternalParam param : params.getParams()) {
+            value = normalizeValue(param.getValue());
+            if (value == UNCACHEABLE_VALUE) {
+                return null;
+            }
+            key.add(param.getName());
+            key.add(value);
+        }
+        return key;
+    }
+
+    private static Object normalizeValue(ParamValue value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.getValueType() == ParamValue.PARAM_VALUE_SCALAR) {
+            return value.getScalarValue();
+        } else if (value.getValueType() == ParamValue.PARAM_VALUE_ARRAY) {
+            List<Object> values = new ArrayList<Object>();
+            Object element;
+            for (ParamValue arrayElement : value.getArrayValue()) {
+                element = normalizeValue(arrayElement);
+                if (element == UNCACHEABLE_VALUE) {
+                    return UNCACHEABLE_VALUE;
+                }
+                values.add(element);
+            }
+            return values;
+        }
+        /* UDT values do not have a value based identity, the result is not cached */
+        return UNCACHEABLE_VALUE;
+    }
+
+    /**
+     * Returns the cached result rows for the given key.
+     */
+    public List<DataEntry> get(List<Object> key) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            return this.getCache().get(key);
+        } catch (Exception e) {
+            log.warn("Error in reading the result cache '" + this.cacheName + "': " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the current generation of the cache, which changes whenever the cached results are invalidated.
+     * It must be read before executing the query whose results are to be cached.
+     */
+    public long getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Starts collecting the result rows written by the current thread.
+     *
+     * @param generation The generation of the cache when the query was executed
+     */
+    public void startCollecting(long generation) {
+        this.resultCollectors.set(new ResultCollector(this.resultCollectors.get(), generation));
+    }
+
+    /**
+     * Adds a result row to the rows being collected by the current thread, if any.
+     */
+    public void collect(DataEntry dataEntry) {
+        ResultCollector collector = this.resultCollectors.get();
+        if (collector != null) {
+            collector.add(dataEntry, this.maxRows);
+        }
+    }
+
+    /**
+     * Stops collecting the result rows of the current thread, and caches them if required.
+     *
+     * @param key   The cache key
+     * @param store Whether the collected rows should be cached, i.e. the query completed successfully, they are
+     *              not cached if the cache has been invalidated since the query was executed
+     */
+    public void finishCollecting(List<Object> key, boolean store) {
+        ResultCollector collector = this.resultCollectors.get();
+        if (collector == null) {
+            return;
+        }
+        if (collector.previous != null) {
+            this.resultCollectors.set(collector.previous);
+        } else {
+            this.resultCollectors.remove();
+        }
+        if (store && key != null && collector.entries != null && collector.generation == this.generation.get()) {
+            try {
+                Cache<List<Object>, List<DataEntry>> currentCache = this.getCache();
+                currentCache.put(key, Collections.unmodifiableList(collector.entries));
+                if (collector.generation != this.generation.get()) {
+                    /* invalidated while being cached, the removal of all entries may have been missed */
+                    currentCache.remove(key);
+                }
+            } catch (Exception e) {
+                log.warn("Error in writing to the result cache '" + this.cacheName + "': " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached results.
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        Cache<List<Object>, List<DataEntry>> currentCache = this.cache;
+        if (currentCache != null && currentCache.getStatus() == Status.STARTED) {
+            currentCache.removeAll();
+        }
+    }
+
+    private Cache<List<Object>, List<DataEntry>> getCache() {
+        Cache<List<Object>, List<DataEntry>> currentCache = this.cache;
+        if (currentCache == null || currentCache.getStatus() != Status.STARTED) {
+            synchronized (this) {
+                currentCache = this.cache;
+                if (currentCache == null || currentCache.getStatus() != Status.STARTED) {
+                    currentCache = this.createCache();
+                    this.cache = currentCache;
+                }
+            }
+        }
+        return currentCache;
+    }
+
+    private Cache<List<Object>, List<DataEntry>> createCache() {
+        CacheManager cacheManager = Caching.getCacheManagerFactory().getCacheManager(RESULT_CACHE_MANAGER);
+        /* a cache of an earlier deployment of the service may exist, remove it, so it can be reconfigured */
+        cacheManager.removeCache(this.cacheName);
+        CacheBuilder<List<Object>, List<DataEntry>> cacheBuilder = cacheManager.createCacheBuilder(this.cacheName);
+        CacheConfiguration.Duration duration = new CacheConfiguration.Duration(TimeUnit.SECONDS, this.timeout);
+        cacheBuilder.setExpiry(CacheConfiguration.ExpiryType.MODIFIED, duration)
+                .setExpiry(CacheConfiguration.ExpiryType.ACCESSED, duration)
+                .setStoreByValue(false);
+        if (cacheBuilder instanceof CacheBuilderImpl) {
+            ((CacheBuilderImpl<List<Object>, List<DataEntry>>) cacheBuilder).setMaxWeight(
+                    new Weigher<List<Object>, List<DataEntry>>() {
+                        @Override
+                        public long weigh(List<Object> key, List<DataEntry> value) {
+                            return value.size() + 1;
+                        }
+                    }, this.maxRows);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Created result cache '" + this.cacheName + "' with timeout " + this.timeout +
+                      "s and maximum " + this.maxRows + " rows");
+        }
+        return cacheBuilder.build();
+    }
+
+    /**
+     * This class collects the result rows of a single query execution.
+     */
+    private static class ResultCollector {
+
+        private final ResultCollector previous;
+
+        private final long generation;
+
+        private List<DataEntry> entries = new ArrayList<DataEntry>();
+
+        private ResultCollector(ResultCollector previous, long generation) {
+            this.previous = previous;
+            this.generation = generation;
+        }
+
+        private void add(DataEntry dataEntry, long maxRows) {
+            if (this.entries == null) {
+                return;
+            }
+            if (this.entries.size() >= maxRows) {
+                /* the result is larger than the whole cache, it is not cached */
+                this.entries = null;
+            } else {
+                this.entries.add(dataEntry);
+            }
+        }
+    }
+
+}
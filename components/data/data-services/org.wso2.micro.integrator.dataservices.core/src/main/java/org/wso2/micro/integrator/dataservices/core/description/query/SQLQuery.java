@@ -79,9 +79,12 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 /**
@@ -97,6 +100,30 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
 
     public static final int ORACLE_REF_CURSOR_TYPE = -10;
 
+    /**
+     * The maximum number of rows executed at once in a batch request with an adaptive batch size, if not set.
+     */
+    private static final int DEFAULT_ADAPTIVE_MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Leading keywords of the statements which don't modify data.
+     */
+    private static final Set<String> READ_KEYWORDS = new HashSet<>(Arrays.asList(
+            "SELECT", "VALUES", "TABLE", "SHOW", "DESCRIBE", "DESC", "EXPLAIN"));
+
+    /**
+     * Leading keywords of the statements which modify data or the schema.
+     */
+    private static final Set<String> WRITE_KEYWORDS = new HashSet<>(Arrays.asList(
+            "INSERT", "UPDATE", "DELETE", "MERGE", "UPSERT", "REPLACE", "CREATE", "ALTER", "DROP", "TRUNCATE",
+            "RENAME", "GRANT", "REVOKE", "COMMENT"));
+
+    /**
+     * Keywords of the data modifying statements, which can be a part of a common table expression.
+     */
+    private static final Set<String> DML_KEYWORDS = new HashSet<>(Arrays.asList(
+            "INSERT", "UPDATE", "DELETE", "MERGE"));
+
     private SQLConfig config;
 
     private int queryType;
@@ -147,6 +174,13 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
 
     private boolean forceJDBCBatchReqs;
 
+    /**
+     * Whether the query is read-only as configured, or null to infer it from the query.
+     */
+    private Boolean readOnly;
+
+    private AdaptiveBatchSize batchSize = new AdaptiveBatchSize(0, 0, false);
+
     private Calendar calendar;
 
     private boolean timeConvertEnabled = true;
@@ -168,6 +202,11 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         }
     };
 
+    /**
+     * thread local variable to keep the rows added to the batch, which are not executed yet
+     */
+    private ThreadLocal<PendingBatch> pendingBatch = new ThreadLocal<PendingBatch>();
+
     public SQLQuery(DataService dataService, String queryId, String configId, boolean returnGeneratedKeys,
                     boolean returnUpdatedRowCount, String[] keyColumns, String query, List<QueryParam> queryParams,
                     Result result, EventTrigger inputEventTrigger, EventTrigger outputEventTrigger,
@@ -416,6 +455,10 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         return forceJDBCBatchReqs;
     }
 
+    public AdaptiveBatchSize getBatchSize() {
+        return batchSize;
+    }
+
     private void processAdvancedProps(Map<String, String> props) throws DataServiceFault {
         if (props == null) {
             return;
@@ -535,6 +578,41 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         if (!DBUtils.isEmptyString(forceJDBCBatchRequests)) {
             this.forceJDBCBatchReqs = Boolean.parseBoolean(forceJDBCBatchRequests);
         }
+        /* batch size, a batch request is executed in parts only if a limit is set */
+        boolean adaptiveBatchSize = Boolean.parseBoolean(props.get(RDBMS.ADAPTIVE_BATCH_SIZE));
+        int maxBatchSize = adaptiveBatchSize ? DEFAULT_ADAPTIVE_MAX_BATCH_SIZE : 0;
+        String maxBatchSizeProp = props.get(RDBMS.MAX_BATCH_SIZE);
+        if (!DBUtils.isEmptyString(maxBatchSizeProp)) {
+            maxBatchSizeProp = maxBatchSizeProp.trim();
+            try {
+                maxBatchSize = Integer.parseInt(maxBatchSizeProp);
+                if (maxBatchSize <= 0) {
+                    throw new DataServiceFault("Invalid maximum batch size: " + maxBatchSizeProp
+                            + ", maximum batch size should be a positive integer");
+                }
+            } catch (NumberFormatException e) {
+                throw new DataServiceFault(e, "Invalid maximum batch size: " + maxBatchSizeProp
+                        + ", maximum batch size should be a positive integer");
+            }
+        }
+        long maxBatchChars = 0;
+        String maxBatchCharsProp = props.get(RDBMS.MAX_BATCH_CHARS);
+        if (!DBUtils.isEmptyString(maxBatchCharsProp)) {
+            maxBatchCharsProp = maxBatchCharsProp.trim();
+            try {
+                maxBatchChars = Long.parseLong(maxBatchCharsProp);
+            } catch (NumberFormatException e) {
+                throw new DataServiceFault(e, "Invalid maximum batch characters: " + maxBatchCharsProp
+                        + ", maximum batch characters should be an integer, where a non-positive value means no "
+                        + "limit");
+            }
+        }
+        /* read-only */
+        String readOnlyProp = props.get(RDBMS.READ_ONLY);
+        if (!DBUtils.isEmptyString(readOnlyProp)) {
+            this.readOnly = Boolean.parseBoolean(readOnlyProp.trim());
+        }
+        this.batchSize = new AdaptiveBatchSize(maxBatchSize, maxBatchChars, adaptiveBatchSize);
     }
 
     public boolean isHasFetchDirection() {
@@ -730,6 +808,62 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 .getBatchRequestCount()));
     }
 
+    /**
+     * Checks whether the batch can be executed in several parts, which is not possible when the generated keys
+     * or the updated row count of the batch are written out, since those are only available for the last part.
+     */
+    private boolean isPartialBatchExecutionSupported() {
+        return !this.isReturnGeneratedKeys() && !this.isReturnUpdatedRowCount();
+    }
+
+    /**
+     * Keeps track of a row added to the JDBC batch, and executes the batch rows added so far, if the batch size
+     * limits are reached before the last request of the batch.
+     */
+    private void addedToBatch(PreparedStatement stmt, InternalParamCollection params) throws SQLException {
+        if (!this.getBatchSize().isLimited()) {
+            return;
+        }
+        PendingBatch batch = this.pendingBatch.get();
+        if (batch == null || this.isJDBCFirstBatchRequest()) {
+            batch = new PendingBatch();
+            this.pendingBatch.set(batch);
+        }
+        batch.rows++;
+        for (InternalParam param : params.getParams()) {
+            ParamValue value = param.getValue();
+            String strValue = value != null ? value.getValueAsString() : null;
+            if (strValue != null) {
+                batch.chars += strValue.length();
+            }
+        }
+        if (!this.isJDBCLastBatchRequest() && this.isPartialBatchExecutionSupported()
+                && this.getBatchSize().isFull(batch.rows, batch.chars)) {
+            this.executeBatch(stmt);
+        }
+    }
+
+    /**
+     * Executes the rows of the JDBC batch, which are not executed yet.
+     */
+    private void executeBatch(PreparedStatement stmt) throws SQLException {
+        PendingBatch batch = this.pendingBatch.get();
+        long start = System.nanoTime();
+        stmt.executeBatch();
+        long time = System.nanoTime() - start;
+        if (batch == null) {
+            return;
+        }
+        this.getBatchSize().recordExecution(batch.rows, time);
+        if (log.isDebugEnabled()) {
+            log.debug("Executed a JDBC batch of " + batch.rows + " rows (" + batch.chars + " parameter characters) for"
+                    + " query '" + this.getQueryId() + "' in " + (time / 1000000.0) + " ms, next batch size: "
+                    + this.getBatchSize().getCurrentRows() + " rows, ThreadID - " + Thread.currentThread().getId());
+        }
+        batch.rows = 0;
+        batch.chars = 0;
+    }
+
     private void writeOutGeneratedKeys(Statement stmt, XMLStreamWriter xmlWriter,
                                        InternalParamCollection params, int queryLevel) throws DataServiceFault, SQLException {
         ResultSet krs = null;
@@ -790,7 +924,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 if (this.isJDBCBatchRequest()) {
                     /* if this is the last one, execute the full batch */
                     if (this.isJDBCLastBatchRequest()) {
-                        stmt.executeBatch();
+                        this.executeBatch(stmt);
                     }
                 } else {
                     /* normal update operation */
@@ -938,7 +1072,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 if (this.isJDBCBatchRequest()) {
                     /* if this is the last one, execute the full batch */
                     if (this.isJDBCLastBatchRequest()) {
-                        stmt.executeBatch();
+                        this.executeBatch(stmt);
                     }
                 } else {
                     stmt.executeUpdate();
@@ -1050,7 +1184,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 // ignore
             }
         }
-        /* close the statement */
+        /* close the statement, which returns it to the statement cache of the pool, if enabled */
         if (stmt != null) {
             try {
                 stmt.close();
@@ -1456,15 +1590,24 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
             }
 
             if (!inTheMiddleOfABatch) {
+                /*
+                 * a statement from the statement cache of the pool may have been used by a query with other
+                 * settings, so the settings which affect the results are reset when they are not set
+                 */
+                boolean resetSettings = this.getConfig().isStatementCacheEnabled();
                 /* set query timeout */
                 if (this.isHasQueryTimeout()) {
                     stmt.setQueryTimeout(this.getQueryTimeout());
+                } else if (resetSettings) {
+                    stmt.setQueryTimeout(0);
                 }
                 /* adding the try catch to avoid setting this for jdbc drivers that do not implement this method. */
                 try {
                     /* set fetch direction */
                     if (this.isHasFetchDirection()) {
                         stmt.setFetchDirection(this.getFetchDirection());
+                    } else if (resetSettings) {
+                        stmt.setFetchDirection(ResultSet.FETCH_FORWARD);
                     }
                     /* set fetch size - user's setting */
                     if (this.isHasFetchSize()) {
@@ -1479,6 +1622,8 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                          */
                         if (!this.hasOutParams() && this.getFetchSizeProperty().isChangeFetchSize()) {
                             stmt.setFetchSize(this.getFetchSizeProperty().getFetchSize());
+                        } else if (resetSettings) {
+                            stmt.setFetchSize(0);
                         }
                     }
                 } catch (Throwable e) {
@@ -1487,10 +1632,14 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
                 /* set max field size */
                 if (this.isHasMaxFieldSize()) {
                     stmt.setMaxFieldSize(this.getMaxFieldSize());
+                } else if (resetSettings) {
+                    stmt.setMaxFieldSize(0);
                 }
                 /* set max rows */
                 if (this.isHasMaxRows()) {
                     stmt.setMaxRows(this.getMaxRows());
+                } else if (resetSettings) {
+                    stmt.setMaxRows(0);
                 }
             }
 
@@ -1525,6 +1674,7 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
             /* if we are in JDBC batch processing mode, batch it! */
             if (this.isJDBCBatchRequest()) {
                 stmt.addBatch();
+                this.addedToBatch(stmt, params);
             }
 
             return stmt;
@@ -2397,10 +2547,124 @@ public class SQLQuery extends ExpressionQuery implements BatchRequestParticipant
         }
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return this.getQueryType() == SQLQuery.DS_QUERY_TYPE_NORMAL && this.hasResult() && !this.hasOutParams() &&
+               !this.isReturnGeneratedKeys() && !this.isReturnUpdatedRowCount() && !this.isWriteQuery();
+    }
+
+    /**
+     * Returns true if the query modifies data. This can be set with the "readOnly" query property, otherwise it is
+     * inferred from the query with {@link #isWriteStatement(String)}, where a query which can't be classified, such
+     * as a stored procedure call, is considered to modify data.
+     */
+    @Override
+    public boolean isWriteQuery() {
+        if (this.readOnly != null) {
+            return !this.readOnly;
+        }
+        Boolean write = isWriteStatement(this.getQuery());
+        return write == null || write;
+    }
+
+    /**
+     * Classifies an SQL statement by its leading keyword, after skipping any comments and opening parentheses.
+     * INSERT, UPDATE, DELETE, MERGE and DDL statements modify data, whereas SELECT, VALUES, SHOW and EXPLAIN
+     * statements don't. A statement with common table expressions modifies data only if it contains an INSERT,
+     * UPDATE, DELETE or MERGE keyword.
+     *
+     * @param sql The SQL statement
+     * @return true if the statement modifies data, false if it doesn't, or null if it can't be classified
+     */
+    public static Boolean isWriteStatement(String sql) {
+        int index = skipIgnorable(sql, 0);
+        String keyword = readKeyword(sql, index);
+        if (READ_KEYWORDS.contains(keyword)) {
+            return Boolean.FALSE;
+        } else if (WRITE_KEYWORDS.contains(keyword)) {
+            return Boolean.TRUE;
+        } else if ("WITH".equals(keyword)) {
+            index += keyword.length();
+            while ((index = skipIgnorable(sql, index)) < sql.length()) {
+                char c = sql.charAt(index);
+                if (c == '\'' || c == '"') {
+                    int end = sql.indexOf(c, index + 1);
+                    index = end < 0 ? sql.length() : end + 1;
+                } else if (Character.isLetter(c)) {
+                    keyword = readKeyword(sql, index);
+                    if (DML_KEYWORDS.contains(keyword)) {
+                        return Boolean.TRUE;
+                    }
+                    index += keyword.length();
+                } else if (Character.isLetterOrDigit(c) || c == '_') {
+                    while (index < sql.length() && (Character.isLetterOrDigit(sql.charAt(index))
+                            || sql.charAt(index) == '_')) {
+                        index++;
+                    }
+                } else {
+                    index++;
+                }
+            }
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the first character from the given index, which is not a whitespace, a comment or an
+     * opening parenthesis.
+     */
+    private static int skipIgnorable(String sql, int index) {
+        while (index < sql.length()) {
+            char c = sql.charAt(index);
+            if (Character.isWhitespace(c) || c == '(') {
+                index++;
+            } else if (sql.startsWith("--", index)) {
+                int end = sql.indexOf('\n', index);
+                index = end < 0 ? sql.length() : end + 1;
+            } else if (sql.startsWith("/*", index)) {
+                int end = sql.indexOf("*/", index + 2);
+                index = end < 0 ? sql.length() : end + 2;
+            } else {
+                break;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Reads the word starting at the given index in upper case, which is empty if there is no word at the index.
+     */
+    private static String readKeyword(String sql, int index) {
+        int end = index;
+        while (end < sql.length() && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '_')) {
+            end++;
+        }
+        return sql.substring(index, end).toUpperCase(Locale.ENGLISH);
+    }
+
+    @Override
+    protected boolean isUserSpecificResult() {
+        /* the database credentials, hence the visible data, may differ between users */
+        return this.getConfig().getPrimaryDynAuth() != null;
+    }
+
     @Override
     public void releaseBatchRequestResources() {
         /* clear the TL batch prepared statement */
         this.batchPreparedStatement.set(null);
+        this.pendingBatch.set(null);
+    }
+
+    /**
+     * The number of rows, and their estimated size, added to the JDBC batch and not executed yet.
+     */
+    private static class PendingBatch {
+
+        private int rows;
+
+        private long chars;
+
     }
 
     private void setAutoCommit(Connection conn, boolean autoCommit) throws SQLException {
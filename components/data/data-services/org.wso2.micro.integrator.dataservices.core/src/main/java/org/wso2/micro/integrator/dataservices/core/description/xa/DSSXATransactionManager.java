@@ -18,6 +18,8 @@
 package org.wso2.micro.integrator.dataservices.core.description.xa;
 
 import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 
 import org.apache.commons.logging.Log;
@@ -119,4 +121,35 @@ public class DSSXATransactionManager {
 		}
 	}
 		
+	/**
+	 * Runs the given task once the current distributed transaction is completed, i.e. committed or rolled back.
+	 * Returns false, without running the task, if it can't be registered with an active transaction.
+	 */
+	public boolean runAfterCompletion(final Runnable task) {
+		TransactionManager txManager = getTransactionManager();
+		if (txManager == null) {
+			return false;
+		}
+		try {
+			Transaction tx = txManager.getTransaction();
+			if (tx == null) {
+				return false;
+			}
+			tx.registerSynchronization(new Synchronization() {
+				@Override
+				public void beforeCompletion() {
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					task.run();
+				}
+			});
+			return true;
+		} catch (Exception e) {
+			log.warn("Error from transaction manager when registering a synchronization: " + e.getMessage(), e);
+			return false;
+		}
+	}
+
 }
@@ -24,6 +24,7 @@ import java.util.Map;
 import org.apache.axiom.om.OMElement;
 import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
 import org.wso2.micro.integrator.dataservices.core.TLConnectionStore;
+import org.wso2.micro.integrator.dataservices.core.description.query.Query;
 import org.wso2.micro.integrator.dataservices.core.engine.DataService;
 import org.wso2.micro.integrator.dataservices.core.engine.ParamValue;
 
@@ -142,6 +143,7 @@ public class BatchDataServiceRequest extends DataServiceRequest {
             }
             TLConnectionStore.closeAll();
         }
+	    Query.finishTransaction();
 	}
 
 }
@@ -27,6 +27,7 @@ import org.wso2.micro.integrator.dataservices.core.DSSessionManager;
 import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
 import org.wso2.micro.integrator.dataservices.core.TLConnectionStore;
 import org.wso2.micro.integrator.dataservices.core.boxcarring.TLParamStore;
+import org.wso2.micro.integrator.dataservices.core.description.query.Query;
 
 /**
  * Boxcarring data service request for service call grouping.
@@ -88,27 +89,32 @@ public class BoxcarringDataServiceRequest extends DataServiceRequest {
 	}
 	
 	private void finalizeTx(boolean error) throws DataServiceFault {
-        if (error) {
-            if (this.getDataService().isInDTX()) {
-                TLConnectionStore.rollbackNonXAConns();
-                TLConnectionStore.closeAll();
-                if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
-                    this.getDataService().getDSSTxManager().rollback();
+        try {
+            if (error) {
+                if (this.getDataService().isInDTX()) {
+                    TLConnectionStore.rollbackNonXAConns();
+                    TLConnectionStore.closeAll();
+                    if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
+                        this.getDataService().getDSSTxManager().rollback();
+                    }
+                } else {
+                    TLConnectionStore.rollbackAll();
+                    TLConnectionStore.closeAll();
                 }
             } else {
-                TLConnectionStore.rollbackAll();
+                if (this.getDataService().isInDTX()) {
+                    TLConnectionStore.commitNonXAConns();
+                } else {
+                    TLConnectionStore.commitAll();
+                }
                 TLConnectionStore.closeAll();
+                if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
+                    this.getDataService().getDSSTxManager().commit();
+                }
             }
-        } else {
-            if (this.getDataService().isInDTX()) {
-                TLConnectionStore.commitNonXAConns();
-            } else {
-                TLConnectionStore.commitAll();
-            }
-            TLConnectionStore.closeAll();
-            if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
-                this.getDataService().getDSSTxManager().commit();
-            }
+        } finally {
+            /* the cached results are invalidated even if the commit fails */
+            Query.finishTransaction();
         }
     }
 	
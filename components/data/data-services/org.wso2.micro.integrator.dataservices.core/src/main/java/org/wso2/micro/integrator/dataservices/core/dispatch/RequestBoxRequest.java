@@ -22,6 +22,7 @@ import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
 import org.wso2.micro.integrator.dataservices.core.TLConnectionStore;
 import org.wso2.micro.integrator.dataservices.core.boxcarring.RequestBox;
 import org.wso2.micro.integrator.dataservices.core.boxcarring.TLParamStore;
+import org.wso2.micro.integrator.dataservices.core.description.query.Query;
 import org.wso2.micro.integrator.dataservices.core.engine.DataService;
 
 /**
@@ -63,6 +64,7 @@ public class RequestBoxRequest extends DataServiceRequest {
         try {
             DispatchStatus.setBoxcarringRequest();
             if (!this.getDataService().isInDTX()) {
+                /* a transaction begun here still lets the request box run its leading read-only requests in parallel */
                 this.getDataService().getDSSTxManager().begin();
             }
             OMElement lastRequestResult = this.requestBox.execute();
@@ -82,27 +84,32 @@ public class RequestBoxRequest extends DataServiceRequest {
      * @throws DataServiceFault
      */
     private void finalizeTx(boolean error) throws DataServiceFault {
-        if (error) {
-            if (this.getDataService().isInDTX()) {
-                TLConnectionStore.rollbackNonXAConns();
-                TLConnectionStore.closeAll();
-                if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
-                    this.getDataService().getDSSTxManager().rollback();
+        try {
+            if (error) {
+                if (this.getDataService().isInDTX()) {
+                    TLConnectionStore.rollbackNonXAConns();
+                    TLConnectionStore.closeAll();
+                    if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
+                        this.getDataService().getDSSTxManager().rollback();
+                    }
+                } else {
+                    TLConnectionStore.rollbackAll();
+                    TLConnectionStore.closeAll();
                 }
             } else {
-                TLConnectionStore.rollbackAll();
+                if (this.getDataService().isInDTX()) {
+                    TLConnectionStore.commitNonXAConns();
+                } else {
+                    TLConnectionStore.commitAll();
+                }
                 TLConnectionStore.closeAll();
+                if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
+                    this.getDataService().getDSSTxManager().commit();
+                }
             }
-        } else {
-            if (this.getDataService().isInDTX()) {
-                TLConnectionStore.commitNonXAConns();
-            } else {
-                TLConnectionStore.commitAll();
-            }
-            TLConnectionStore.closeAll();
-            if (this.getDataService().getDSSTxManager().isDTXInitiatedByUS()) {
-                this.getDataService().getDSSTxManager().commit();
-            }
+        } finally {
+            /* the cached results are invalidated even if the commit fails */
+            Query.finishTransaction();
         }
     }
 }
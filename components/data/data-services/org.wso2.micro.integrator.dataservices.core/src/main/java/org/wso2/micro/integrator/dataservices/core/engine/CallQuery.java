@@ -269,7 +269,34 @@ public class CallQuery extends OutputElement {
     @Override
     protected void executeElement(XMLStreamWriter xmlWriter, ExternalParamCollection params,
                                   int queryLevel, boolean escapeNonPrintableChar) throws DataServiceFault {
+        this.executeQuery(xmlWriter, this.extractQueryParams(params), queryLevel);
+    }
 
+    /**
+     * Evaluates the parameters to be passed into the query of this call-query, using the
+     * given external parameters. The temporary values added to the external parameters while
+     * evaluating the default values are cleared afterwards, so the same external parameters can
+     * be used for the next call-query.
+     */
+    public Map<String, ParamValue> extractQueryParams(ExternalParamCollection params)
+            throws DataServiceFault {
+        /* handle default values */
+        this.processDefaultValues(params);
+        try {
+            /* convert/filter params according to the WithParams */
+            return this.extractParams(params);
+        } finally {
+            /* clear temp values */
+            params.clearTempValues();
+        }
+    }
+
+    /**
+     * Executes the query of this call-query with the given query parameters, and writes the
+     * result, along with its wrapper element, to the given writer.
+     */
+    public void executeQuery(XMLStreamWriter xmlWriter, Map<String, ParamValue> qparams,
+                             int queryLevel) throws DataServiceFault {
         try {
 			/* start write result wrapper */
             if (this.isHasResult()) {
@@ -277,14 +304,8 @@ public class CallQuery extends OutputElement {
                         this.getQuery().getResult().getResultType());
             }
 
-			 /* handle default values */
-            this.processDefaultValues(params);
-		    /* convert/filter params according to the WithParams */
-            Map<String, ParamValue> qparams = extractParams(params);
 		    /* execute query */
             this.getQuery().execute(xmlWriter, qparams, queryLevel);
-		    /* clear temp values */
-            params.clearTempValues();
 
 			/* end write result wrapper */
             if (this.isHasResult() && this.getResultWrapper() != null) {
@@ -21,6 +21,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Map;
 
 import javax.xml.stream.XMLStreamException;
@@ -30,6 +31,7 @@ import javax.xml.stream.XMLStreamWriter;
 import org.apache.axiom.om.OMDataSource;
 import org.apache.axiom.om.OMOutputFormat;
 import org.apache.commons.io.output.NullOutputStream;
+import org.wso2.micro.integrator.dataservices.common.DBConstants;
 import org.wso2.micro.integrator.dataservices.core.DBUtils;import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
 
 /**
@@ -105,6 +107,30 @@ public class DSOMDataSource implements OMDataSource {
 		this.execute(xmlWriter);
 	}
 
+	/**
+	 * Checks whether the result of the current request can be written directly as JSON,
+	 * which is the case for XML results of the data services with typed JSON output enabled.
+	 * The typed JSON output is not identical to the JSON converted from XML, hence it is opt-in.
+	 */
+	public boolean isJSONSupported() {
+		if (!this.getDataService().isTypedJsonOutput()) {
+			return false;
+		}
+		CallQuery callQuery = this.getDataService().getCallableRequest(
+				this.getOpName()).getCallQuery();
+		return callQuery.isHasResult() && callQuery.getQuery().getResult().getResultType() ==
+				DBConstants.ResultTypes.XML;
+	}
+
+	/**
+	 * Writes the result of the current request directly as JSON, without generating XML.
+	 */
+	public void serializeJSON(OutputStream output, Charset charset) throws XMLStreamException {
+		JSONStreamWriter jsonWriter = new JSONStreamWriter(output, charset);
+		this.execute(jsonWriter);
+		jsonWriter.close();
+	}
+
 	public XMLStreamReader getReader() throws XMLStreamException {
 		ByteArrayOutputStream byteOut = new ByteArrayOutputStream(XMLREADER_DEFAULT_MESSAGE_SIZE);
 		XMLStreamWriter xmlWriter = DBUtils.getXMLOutputFactory().createXMLStreamWriter(byteOut);
@@ -170,6 +170,16 @@ public class DataService implements AxisResources {
      */
     private boolean disableLegacyBoxcarringMode;
 
+    /**
+     * flag to check if the independent call-queries of a result are executed in parallel
+     */
+    private boolean parallelQueryExecution;
+
+    /**
+     * Whether the results are written directly as typed JSON to the clients which accept JSON.
+     */
+    private boolean typedJsonOutput;
+
     /**
      * The tenant to which this service belongs to.
      */
@@ -361,6 +371,22 @@ public class DataService implements AxisResources {
         this.disableStreaming = disableStreaming;
     }
 
+    public boolean isParallelQueryExecution() {
+        return parallelQueryExecution;
+    }
+
+    public void setParallelQueryExecution(boolean parallelQueryExecution) {
+        this.parallelQueryExecution = parallelQueryExecution;
+    }
+
+    public boolean isTypedJsonOutput() {
+        return typedJsonOutput;
+    }
+
+    public void setTypedJsonOutput(boolean typedJsonOutput) {
+        this.typedJsonOutput = typedJsonOutput;
+    }
+
     public boolean isDisableLegacyBoxcarringMode() {
         return this.disableLegacyBoxcarringMode;
     }
@@ -536,6 +562,17 @@ public class DataService implements AxisResources {
         this.getQueries().put(query.getQueryId(), query);
     }
 
+    /**
+     * Invalidates the cached results of all the queries in this data service.
+     */
+    public void clearResultCaches() {
+        for (Query query : this.getQueries().values()) {
+            if (query.getResultCache() != null) {
+                query.getResultCache().clear();
+            }
+        }
+    }
+
     public SecretResolver getSecretResolver() {
         return secretResolver;
     }
@@ -73,6 +73,14 @@ public class DataServiceSerializer {
         /* set 'disableLegacyBoxcarringMode' attribute */
         dataEl.addAttribute(DBSFields.DISABLE_LEGACY_BOXCARRING_MODE,
                             Boolean.toString(dataService.isDisableLegacyBoxcarringMode()), null);
+        /* set 'enableParallelQueryExecution' attribute */
+        if (dataService.isParallelQueryExecution()) {
+            dataEl.addAttribute(DBSFields.ENABLE_PARALLEL_QUERY_EXECUTION, Boolean.TRUE.toString(), null);
+        }
+        /* set 'enableTypedJsonOutput' attribute */
+        if (dataService.isTypedJsonOutput()) {
+            dataEl.addAttribute(DBSFields.ENABLE_TYPED_JSON_OUTPUT, Boolean.TRUE.toString(), null);
+        }
         /* set 'transports' attribute */
         StringBuilder stringBuilder = new StringBuilder("");
 		for (String transport : dataService.getTransports()) {
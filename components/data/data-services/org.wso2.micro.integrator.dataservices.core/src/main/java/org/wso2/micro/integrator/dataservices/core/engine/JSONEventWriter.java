@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.engine;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Represents a writer, which accepts the JSON specific events used by {@link XMLWriterHelper}
+ * when a result is written directly as JSON.
+ */
+interface JSONEventWriter {
+
+    /**
+     * Starts a JSON object, which is an item of an array if it is repeated.
+     *
+     * @param name     the name of the object
+     * @param repeated whether objects of the same name are repeated, and hence written in an array
+     */
+    void writeStartObject(String name, boolean repeated) throws XMLStreamException;
+
+    /**
+     * Writes a field of the current JSON object, of which the type is derived from the given XSD type.
+     *
+     * @param name     the name of the field
+     * @param value    the value of the field, an array value is written as a JSON array
+     * @param xsdType  the XSD type of the value
+     * @param repeated whether fields of the same name are repeated, and hence written in an array
+     */
+    void writeValue(String name, ParamValue value, QName xsdType, boolean repeated) throws XMLStreamException;
+
+}
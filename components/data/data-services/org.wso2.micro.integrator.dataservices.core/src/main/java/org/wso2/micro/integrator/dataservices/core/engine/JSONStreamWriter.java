@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.engine;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * This class writes the result of a data service directly as JSON, without generating XML in between. The output
+ * elements write the objects, arrays and values of the result through the JSON specific methods of this class, which
+ * are used by {@link XMLWriterHelper}, while the plain XML events are mapped to JSON objects and string values.
+ * Namespaces, comments and processing instructions have no JSON representation, hence they are ignored.
+ * <p>
+ * The output differs from the JSON converted from XML as follows, hence it is only used for the data services with
+ * the "enableTypedJsonOutput" attribute set.
+ * <ul>
+ * <li>Repeated elements, such as the rows of a result, are always written as arrays, even with a single item.</li>
+ * <li>Values of the numeric and boolean XSD types are written as JSON numbers and booleans.</li>
+ * <li>Nil values are written as JSON nulls, while absent values are written as empty strings, as empty elements
+ * would be.</li>
+ * </ul>
+ */
+public class JSONStreamWriter implements XMLStreamWriter, JSONEventWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().configure(
+            JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    /**
+     * The XSD types of which the values are written as JSON numbers.
+     */
+    private static final Set<String> NUMERIC_TYPES = new HashSet<String>(Arrays.asList("integer", "int", "long",
+            "short", "byte", "decimal", "double", "float", "nonNegativeInteger", "nonPositiveInteger",
+            "positiveInteger", "negativeInteger", "unsignedLong", "unsignedInt", "unsignedShort", "unsignedByte"));
+
+    private static final String BOOLEAN_TYPE = "boolean";
+
+    private final JsonGenerator generator;
+
+    private final Deque<Frame> frames = new ArrayDeque<Frame>();
+
+    private boolean ended;
+
+    public JSONStreamWriter(OutputStream output, Charset charset) throws XMLStreamException {
+        try {
+            this.generator = JSON_FACTORY.createGenerator(new OutputStreamWriter(output, charset));
+            this.generator.writeStartObject();
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in creating the JSON generator", e);
+        }
+        Frame root = new Frame(null, null, false);
+        root.object = true;
+        this.frames.push(root);
+    }
+
+    @Override
+    public void writeStartObject(String name, boolean repeated) throws XMLStreamException {
+        Frame frame = new Frame(this.frames.peek(), name, repeated);
+        this.frames.push(frame);
+        this.startObject(frame);
+    }
+
+    @Override
+    public void writeValue(String name, ParamValue value, QName xsdType,
+                           boolean repeated) throws XMLStreamException {
+        Frame current = this.frames.peek();
+        this.startObject(current);
+        try {
+            this.startField(current, name, repeated);
+            if (value == null) {
+                this.generator.writeString("");
+            } else if (value.getArrayValue() == null && value.getScalarValue() == null && value.getUdt() == null) {
+                this.generator.writeNull();
+            } else if (value.getValueType() == ParamValue.PARAM_VALUE_ARRAY) {
+                this.generator.writeStartArray();
+                for (ParamValue val : value.getArrayValue()) {
+                    this.writeScalar(val.toString(), xsdType);
+                }
+                this.generator.writeEndArray();
+            } else {
+                this.writeScalar(value.toString(), xsdType);
+            }
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in writing the JSON field '" + name + "'", e);
+        }
+    }
+
+    private void writeScalar(String value, QName xsdType) throws IOException {
+        String type = xsdType != null ? xsdType.getLocalPart() : null;
+        if (value != null && NUMERIC_TYPES.contains(type)) {
+            try {
+                this.generator.writeNumber(new BigDecimal(value.trim()));
+                return;
+            } catch (NumberFormatException ignored) {
+                /* values such as NaN are written as strings */
+            }
+        } else if (BOOLEAN_TYPE.equals(type) &&
+                (Boolean.TRUE.toString().equalsIgnoreCase(value) || Boolean.FALSE.toString().equalsIgnoreCase(value))) {
+            this.generator.writeBoolean(Boolean.parseBoolean(value));
+            return;
+        }
+        this.generator.writeString(value);
+    }
+
+    /**
+     * Starts the JSON object of the given element, and the objects of its parents which are not started yet.
+     */
+    private void startObject(Frame frame) throws XMLStreamException {
+        if (frame.object) {
+            return;
+        }
+        this.startObject(frame.parent);
+        try {
+            this.startField(frame.parent, frame.name, frame.repeated);
+            this.generator.writeStartObject();
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in writing the JSON object '" + frame.name + "'", e);
+        }
+        frame.object = true;
+    }
+
+    /**
+     * Writes the name of a field in the given object, where the repeated fields of the same name are written as the
+     * items of a single array.
+     */
+    private void startField(Frame parent, String name, boolean repeated) throws IOException {
+        if (parent.arrayName != null) {
+            if (repeated && parent.arrayName.equals(name)) {
+                return;
+            }
+            this.endArray(parent);
+        }
+        this.generator.writeFieldName(name);
+        if (repeated) {
+            this.generator.writeStartArray();
+            parent.arrayName = name;
+        }
+    }
+
+    private void endArray(Frame frame) throws IOException {
+        if (frame.arrayName != null) {
+            this.generator.writeEndArray();
+            frame.arrayName = null;
+        }
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        Frame parent = this.frames.peek();
+        this.startObject(parent);
+        this.frames.push(new Frame(parent, localName, false));
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        this.writeStartElement(localName);
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName,
+                                  String namespaceURI) throws XMLStreamException {
+        this.writeStartElement(localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        this.writeEmptyElement(localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        this.writeEmptyElement(localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        this.writeStartElement(localName);
+        this.writeEndElement();
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        if (this.frames.size() < 2) {
+            throw new XMLStreamException("No element to end in the JSON output");
+        }
+        Frame frame = this.frames.pop();
+        try {
+            if (frame.object) {
+                this.endArray(frame);
+                this.generator.writeEndObject();
+            } else {
+                /* an element without child elements or attributes is written as a string field */
+                this.startField(frame.parent, frame.name, frame.repeated);
+                if (frame.text != null) {
+                    this.generator.writeString(frame.text.toString());
+                } else {
+                    this.generator.writeNull();
+                }
+            }
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in ending the JSON object '" + frame.name + "'", e);
+        }
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        if (this.ended) {
+            return;
+        }
+        while (this.frames.size() > 1) {
+            this.writeEndElement();
+        }
+        try {
+            this.endArray(this.frames.peek());
+            this.generator.writeEndObject();
+            this.generator.flush();
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in ending the JSON output", e);
+        }
+        this.ended = true;
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        this.writeEndDocument();
+        try {
+            this.generator.close();
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in closing the JSON generator", e);
+        }
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        try {
+            this.generator.flush();
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in flushing the JSON generator", e);
+        }
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        Frame current = this.frames.peek();
+        this.startObject(current);
+        try {
+            this.startField(current, localName, false);
+            this.generator.writeString(value);
+        } catch (IOException e) {
+            throw new XMLStreamException("Error in writing the JSON field '" + localName + "'", e);
+        }
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName,
+                               String value) throws XMLStreamException {
+        this.writeAttribute(localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        this.writeAttribute(localName, value);
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        Frame current = this.frames.peek();
+        /* text mixed with child elements has no JSON representation */
+        if (!current.object) {
+            if (current.text == null) {
+                current.text = new StringBuilder();
+            }
+            current.text.append(text);
+        }
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        this.writeCharacters(new String(text, start, len));
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        this.writeCharacters(data);
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) {
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) {
+    }
+
+    @Override
+    public void writeComment(String data) {
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) {
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) {
+    }
+
+    @Override
+    public void writeDTD(String dtd) {
+    }
+
+    @Override
+    public void writeEntityRef(String name) {
+    }
+
+    @Override
+    public void writeStartDocument() {
+    }
+
+    @Override
+    public void writeStartDocument(String version) {
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) {
+    }
+
+    @Override
+    public String getPrefix(String uri) {
+        return null;
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) {
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) {
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext context) {
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        throw new IllegalArgumentException("Property '" + name + "' is not supported");
+    }
+
+    /**
+     * Represents an element being written, which becomes a JSON object once it has child elements or attributes.
+     */
+    private static class Frame {
+
+        private final Frame parent;
+
+        private final String name;
+
+        private final boolean repeated;
+
+        private boolean object;
+
+        private StringBuilder text;
+
+        /**
+         * The name of the array of repeated fields, which is currently open in this object.
+         */
+        private String arrayName;
+
+        private Frame(Frame parent, String name, boolean repeated) {
+            this.parent = parent;
+            this.name = name;
+            this.repeated = repeated;
+        }
+
+    }
+
+}
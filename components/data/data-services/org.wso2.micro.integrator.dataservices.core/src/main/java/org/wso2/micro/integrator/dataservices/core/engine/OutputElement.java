@@ -141,6 +141,11 @@ public abstract class OutputElement extends XMLWriterHelper {
         return arrayName;
     }
 
+    @Override
+    protected boolean isRepeated() {
+        return this.getArrayName() != null;
+    }
+
     public String getParam() {
         return param;
     }
@@ -22,6 +22,7 @@ import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.util.*;
+import java.util.concurrent.Future;
 
 /**
  * Represents a multilevel <element/> element.
@@ -98,7 +99,16 @@ public class OutputElementGroup extends OutputElement {
             }
             /* write elements / call queries / element groups */
             List<OutputElement> elements = this.getAllElementsForCurrentRole();
-            for (OutputElement oe : elements) {
+            List<Future<XMLStreamWriterBuffer>> parallelResults = this.submitParallelCallQueries(
+                    xmlWriter, elements, params, queryLevel);
+            OutputElement oe;
+            for (int i = 0; i < elements.size(); i++) {
+                oe = elements.get(i);
+                if (parallelResults != null && parallelResults.get(i) != null) {
+                    /* written in document order, once the result is available */
+                    ParallelQueryExecutor.writeResult(parallelResults.get(i), xmlWriter);
+                    continue;
+                }
                 if (oe instanceof OutputElementGroup) {
                     ((OutputElementGroup) oe).applyUserRoles(oe.getRequiredRoles());
                 }
@@ -113,6 +123,49 @@ public class OutputElementGroup extends OutputElement {
         }
     }
 
+    /**
+     * Submits the call-queries of the given elements to be executed in parallel, if parallel query execution is
+     * enabled for the data service, and there are more than one call-query which can be executed so. The
+     * call-queries are executed in parallel only if none of the elements change data, and no data has been changed
+     * earlier in the request, since the parallel tasks can't share the connections of the current request, as
+     * checked by {@link ParallelQueryExecutor#isParallelExecutionAllowed(DataService)}.
+     *
+     * @return the future results, at the same positions as the respective call-queries in the given elements,
+     * or null if the call-queries are not executed in parallel
+     */
+    private List<Future<XMLStreamWriterBuffer>> submitParallelCallQueries(XMLStreamWriter xmlWriter,
+            List<OutputElement> elements, ExternalParamCollection params, int queryLevel) throws DataServiceFault {
+        List<CallQuery> callQueries = new ArrayList<CallQuery>();
+        for (OutputElement oe : elements) {
+            if (this.isParallelCallQuery(oe)) {
+                callQueries.add((CallQuery) oe);
+            }
+        }
+        if (callQueries.size() < 2) {
+            return null;
+        }
+        if (!ParallelQueryExecutor.isParallelExecutionAllowed(callQueries.get(0).getDataService()) ||
+                !ParallelQueryExecutor.isReadOnly(elements)) {
+            return null;
+        }
+        List<Future<XMLStreamWriterBuffer>> results = new ArrayList<Future<XMLStreamWriterBuffer>>(elements.size());
+        for (OutputElement oe : elements) {
+            if (this.isParallelCallQuery(oe)) {
+                CallQuery callQuery = (CallQuery) oe;
+                /* the parameters are evaluated here, since the external parameters are shared by the elements */
+                results.add(ParallelQueryExecutor.submit(callQuery, callQuery.extractQueryParams(params),
+                        queryLevel, xmlWriter));
+            } else {
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    private boolean isParallelCallQuery(OutputElement oe) {
+        return oe instanceof CallQuery && oe.getArrayName() == null;
+    }
+
     /**
      * This populated the thread local variables that, track the allowed
      * attributes and elements for the given user roles.
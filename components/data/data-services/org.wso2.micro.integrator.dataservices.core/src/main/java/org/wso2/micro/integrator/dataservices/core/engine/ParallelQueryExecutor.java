@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.engine;
+
+import org.apache.axis2.context.MessageContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.DataServiceUser;
+import org.wso2.micro.integrator.dataservices.core.TLConnectionStore;
+import org.wso2.micro.integrator.dataservices.core.description.query.Query;
+import org.wso2.micro.integrator.dataservices.core.dispatch.DispatchStatus;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * This class executes the call-queries of an element group, and the independent requests of a request box, in
+ * parallel, when parallel query execution is enabled for the data service. The tasks are executed in a shared,
+ * bounded thread pool, and the results of the call-queries are buffered until they are written in document order.
+ * The thread pool does not queue the tasks, a task which does not get a free thread is executed by the requesting
+ * thread itself, so nested call-queries which are executed in parallel can never wait for each other.
+ */
+public class ParallelQueryExecutor {
+
+    private static final Log log = LogFactory.getLog(ParallelQueryExecutor.class);
+
+    /**
+     * The system property to set the maximum number of threads used to execute call-queries in parallel.
+     */
+    public static final String THREAD_COUNT = "dss.parallel.query.threads";
+
+    private static final int DEFAULT_THREAD_COUNT = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private static volatile ThreadPoolExecutor executor;
+
+    private ParallelQueryExecutor() {
+    }
+
+    private static ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            synchronized (ParallelQueryExecutor.class) {
+                if (executor == null) {
+                    int threadCount = DEFAULT_THREAD_COUNT;
+                    String threadCountStr = System.getProperty(THREAD_COUNT);
+                    if (threadCountStr != null) {
+                        try {
+                            threadCount = Math.max(1, Integer.parseInt(threadCountStr.trim()));
+                        } catch (NumberFormatException e) {
+                            log.warn("Invalid value '" + threadCountStr + "' for the system property '" +
+                                     THREAD_COUNT + "', using the default value " + threadCount);
+                        }
+                    }
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount, threadCount,
+                            THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                            new QueryThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+                    pool.allowCoreThreadTimeOut(true);
+                    executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Returns true if the call-queries of the current request can be executed in parallel. The parallel tasks open,
+     * commit and close their own connections, so they can't see the uncommitted changes of the current request.
+     * Hence the call-queries are not executed in parallel once a query which modifies data has been executed in the
+     * request, or when the request is in a distributed transaction or is a batch/boxcarring request.
+     *
+     * @param dataService the data service of the call-queries
+     * @return true if the call-queries can be executed in parallel
+     */
+    public static boolean isParallelExecutionAllowed(DataService dataService) {
+        return dataService.isParallelQueryExecution() && !Query.isWriteExecuted() && !dataService.isInDTX() &&
+               !DispatchStatus.isBatchRequest() && !DispatchStatus.isBoxcarringRequest();
+    }
+
+    /**
+     * Returns true if none of the call-queries in the given elements, including the ones nested in their results
+     * and in the element groups, modify data. Only such call-queries are executed in parallel, since the changes of
+     * a parallel task are committed separately from the transaction of the request.
+     *
+     * @param elements the output elements of an element group
+     * @return true if the call-queries of the elements only read data
+     */
+    public static boolean isReadOnly(List<? extends OutputElement> elements) {
+        return isReadOnly(elements, new HashSet<Query>());
+    }
+
+    private static boolean isReadOnly(List<? extends OutputElement> elements, Set<Query> visitedQueries) {
+        for (OutputElement element : elements) {
+            if (element instanceof CallQuery) {
+                Query query = ((CallQuery) element).getQuery();
+                if (query.isWriteQuery()) {
+                    return false;
+                }
+                /* a query may be nested in its own result, which is checked only once */
+                if (visitedQueries.add(query) && query.getResult() != null &&
+                    query.getResult().getDefaultElementGroup() != null &&
+                    !isReadOnly(query.getResult().getDefaultElementGroup().getAllElements(), visitedQueries)) {
+                    return false;
+                }
+            } else if (element instanceof OutputElementGroup &&
+                       !isReadOnly(((OutputElementGroup) element).getAllElements(), visitedQueries)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Submits the given call-query to be executed in parallel, the result is written to a buffer, which must be
+     * replayed using {@link #writeResult(Future, XMLStreamWriter)}. The state of the current request, i.e. the
+     * current user and the message context, is carried over to the thread executing the call-query.
+     *
+     * @param callQuery  the call-query to be executed
+     * @param params     the query parameters, as evaluated by the requesting thread
+     * @param queryLevel the query level of the call-query
+     * @param xmlWriter  the writer in which the result is written later
+     * @return the future result of the call-query
+     */
+    public static Future<XMLStreamWriterBuffer> submit(final CallQuery callQuery,
+                                                      final Map<String, ParamValue> params, final int queryLevel,
+                                                      XMLStreamWriter xmlWriter) {
+        final XMLStreamWriterBuffer buffer = new XMLStreamWriterBuffer(xmlWriter);
+        return submit(new Callable<XMLStreamWriterBuffer>() {
+            @Override
+            public XMLStreamWriterBuffer call() throws DataServiceFault {
+                /* nested queries execute both phases at once */
+                Query.setQueryPreprocessingInitial(true);
+                Query.setQueryPreprocessingSecondary(true);
+                callQuery.executeQuery(buffer, params, queryLevel);
+                return buffer;
+            }
+        });
+    }
+
+    /**
+     * Submits the given task to be executed in parallel. The state of the current request, i.e. the current user and
+     * the message context, is carried over to the thread executing the task, and the connections opened by the task
+     * are committed, or rolled back if it fails, and closed once it is done.
+     *
+     * @param task the task to be executed
+     * @return the future result of the task
+     */
+    public static <T> Future<T> submit(Callable<T> task) {
+        return getExecutor().submit(new RequestStateTask<T>(task));
+    }
+
+    /**
+     * Waits for the given call-query result and writes it to the given writer.
+     */
+    public static void writeResult(Future<XMLStreamWriterBuffer> result,
+                                   XMLStreamWriter xmlWriter) throws DataServiceFault {
+        try {
+            getResult(result).replay(xmlWriter);
+        } catch (XMLStreamException e) {
+            throw new DataServiceFault(e, "Error in writing a call-query result");
+        }
+    }
+
+    /**
+     * Waits for the given task to be done and returns its result.
+     */
+    public static <T> T getResult(Future<T> result) throws DataServiceFault {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataServiceFault(e, "Interrupted while waiting for a parallel query result");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataServiceFault) {
+                throw (DataServiceFault) e.getCause();
+            }
+            throw new DataServiceFault(e.getCause(), "Error in executing a query in parallel");
+        }
+    }
+
+    /**
+     * Executes a task in a pool thread, with the state of the request which submitted it.
+     */
+    private static class RequestStateTask<T> implements Callable<T> {
+
+        private final Callable<T> task;
+
+        private final Thread requestThread;
+
+        private final DataServiceUser user;
+
+        private final MessageContext messageContext;
+
+        private RequestStateTask(Callable<T> task) {
+            this.task = task;
+            this.requestThread = Thread.currentThread();
+            this.user = DataService.getCurrentUser();
+            this.messageContext = MessageContext.getCurrentMessageContext();
+        }
+
+        @Override
+        public T call() throws Exception {
+            if (Thread.currentThread() == this.requestThread) {
+                /* the pool is saturated, hence executed by the requesting thread, with its own state */
+                return this.task.call();
+            }
+            DataService.setCurrentUser(this.user);
+            MessageContext.setCurrentMessageContext(this.messageContext);
+            Query.resetQueryPreprocessing();
+            boolean error = true;
+            try {
+                T result = this.task.call();
+                error = false;
+                return result;
+            } finally {
+                /* the connections opened by this thread are not seen by the requesting thread */
+                if (error) {
+                    TLConnectionStore.rollbackAll();
+                } else {
+                    TLConnectionStore.commitAll();
+                }
+                TLConnectionStore.closeAll();
+                Query.resetQueryPreprocessing();
+                MessageContext.setCurrentMessageContext(null);
+                DataService.setCurrentUser(null);
+            }
+        }
+    }
+
+    /**
+     * Creates the daemon threads which execute the call-queries.
+     */
+    private static class QueryThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "dss-parallel-query-" + this.threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
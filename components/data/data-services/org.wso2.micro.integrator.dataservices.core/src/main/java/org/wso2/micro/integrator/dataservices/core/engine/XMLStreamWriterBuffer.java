@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * This class records the events written to it, so they can be replayed later on another writer. It is used to
+ * write the result of a call-query which is executed in parallel, until the result can be written to the actual
+ * writer in document order. The namespace bindings made through this writer are tracked, so the namespace lookups
+ * done while writing a result are answered the same way for the written fragment; since the bindings of the
+ * enclosing elements are not visible here, such a fragment may re-declare a namespace which is already in scope
+ * at the place it is replayed, which does not change the resulting XML infoset.
+ */
+public class XMLStreamWriterBuffer implements XMLStreamWriter, JSONEventWriter {
+
+    private enum EventType {
+        START_ELEMENT, START_ELEMENT_NS, START_ELEMENT_PREFIXED, EMPTY_ELEMENT, EMPTY_ELEMENT_NS,
+        EMPTY_ELEMENT_PREFIXED, END_ELEMENT, ATTRIBUTE, ATTRIBUTE_NS, ATTRIBUTE_PREFIXED, NAMESPACE,
+        DEFAULT_NAMESPACE, CHARACTERS, CDATA, COMMENT, PROCESSING_INSTRUCTION, ENTITY_REF, SET_PREFIX,
+        SET_DEFAULT_NAMESPACE, START_OBJECT, VALUE
+    }
+
+    private final boolean json;
+
+    private final boolean recording;
+
+    private final List<Event> events = new ArrayList<Event>();
+
+    private final Deque<Map<String, String>> scopes = new ArrayDeque<Map<String, String>>();
+
+    private final NamespaceContext namespaceContext = new BufferNamespaceContext();
+
+    /**
+     * Creates a buffer for the given writer, in which the buffered events are replayed later.
+     *
+     * @param target the writer in which the events are replayed, a JSON writer is only given JSON specific events
+     *               by {@link XMLWriterHelper}, hence the buffer must know whether it is written as JSON
+     */
+    public XMLStreamWriterBuffer(XMLStreamWriter target) {
+        this(isJSONWriter(target), true);
+    }
+
+    private XMLStreamWriterBuffer(boolean json, boolean recording) {
+        this.json = json;
+        this.recording = recording;
+        this.scopes.push(new HashMap<String, String>());
+    }
+
+    /**
+     * Creates a writer which discards the events written to it, which is used to execute a request of which the
+     * result is not needed, without serializing the result.
+     */
+    public static XMLStreamWriterBuffer createDiscardingWriter() {
+        return new XMLStreamWriterBuffer(false, false);
+    }
+
+    /**
+     * Checks whether the given writer writes the result as JSON, i.e. it is a {@link JSONStreamWriter}, or a buffer
+     * of which the events are replayed in one.
+     */
+    public static boolean isJSONWriter(XMLStreamWriter xmlWriter) {
+        return xmlWriter instanceof JSONStreamWriter ||
+                (xmlWriter instanceof XMLStreamWriterBuffer && ((XMLStreamWriterBuffer) xmlWriter).json);
+    }
+
+    /**
+     * Writes the buffered events to the given writer, in the order they were written to this buffer.
+     */
+    public void replay(XMLStreamWriter xmlWriter) throws XMLStreamException {
+        for (Event event : this.events) {
+            event.replay(xmlWriter);
+        }
+    }
+
+    private void add(EventType type, Object... args) {
+        if (this.recording) {
+            this.events.add(new Event(type, args));
+        }
+    }
+
+    @Override
+    public void writeStartObject(String name, boolean repeated) {
+        this.add(EventType.START_OBJECT, name, repeated);
+    }
+
+    @Override
+    public void writeValue(String name, ParamValue value, QName xsdType, boolean repeated) {
+        this.add(EventType.VALUE, name, value, xsdType, repeated);
+    }
+
+    @Override
+    public void writeStartElement(String localName) {
+        this.scopes.push(new HashMap<String, String>());
+        this.add(EventType.START_ELEMENT, localName);
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) {
+        this.scopes.push(new HashMap<String, String>());
+        this.add(EventType.START_ELEMENT_NS, namespaceURI, localName);
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) {
+        this.scopes.push(new HashMap<String, String>());
+        this.add(EventType.START_ELEMENT_PREFIXED, prefix, localName, namespaceURI);
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) {
+        this.add(EventType.EMPTY_ELEMENT_NS, namespaceURI, localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) {
+        this.add(EventType.EMPTY_ELEMENT_PREFIXED, prefix, localName, namespaceURI);
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) {
+        this.add(EventType.EMPTY_ELEMENT, localName);
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        if (this.scopes.size() < 2) {
+            throw new XMLStreamException("No element to end in the buffered output");
+        }
+        this.scopes.pop();
+        this.add(EventType.END_ELEMENT);
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        throw new XMLStreamException("A buffered result cannot end the document");
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) {
+        this.add(EventType.ATTRIBUTE, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value) {
+        this.add(EventType.ATTRIBUTE_PREFIXED, prefix, namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) {
+        this.add(EventType.ATTRIBUTE_NS, namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) {
+        this.add(EventType.NAMESPACE, prefix, namespaceURI);
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) {
+        this.add(EventType.DEFAULT_NAMESPACE, namespaceURI);
+    }
+
+    @Override
+    public void writeComment(String data) {
+        this.add(EventType.COMMENT, data);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) {
+        this.add(EventType.PROCESSING_INSTRUCTION, target, null);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) {
+        this.add(EventType.PROCESSING_INSTRUCTION, target, data);
+    }
+
+    @Override
+    public void writeCData(String data) {
+        this.add(EventType.CDATA, data);
+    }
+
+    @Override
+    public void writeDTD(String dtd) throws XMLStreamException {
+        throw new XMLStreamException("A buffered result cannot contain a DTD");
+    }
+
+    @Override
+    public void writeEntityRef(String name) {
+        this.add(EventType.ENTITY_REF, name);
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        throw new XMLStreamException("A buffered result cannot start the document");
+    }
+
+    @Override
+    public void writeStartDocument(String version) throws XMLStreamException {
+        this.writeStartDocument();
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        this.writeStartDocument();
+    }
+
+    @Override
+    public void writeCharacters(String text) {
+        this.add(EventType.CHARACTERS, text);
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) {
+        this.writeCharacters(new String(text, start, len));
+    }
+
+    @Override
+    public String getPrefix(String uri) {
+        return this.namespaceContext.getPrefix(uri);
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) {
+        this.scopes.peek().put(prefix, uri);
+        this.add(EventType.SET_PREFIX, prefix, uri);
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) {
+        this.scopes.peek().put(XMLConstants.DEFAULT_NS_PREFIX, uri);
+        this.add(EventType.SET_DEFAULT_NAMESPACE, uri);
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+        throw new XMLStreamException("The namespace context of a buffered result cannot be changed");
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return this.namespaceContext;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        throw new IllegalArgumentException("Property '" + name + "' is not supported");
+    }
+
+    /**
+     * Answers the namespace lookups using the bindings made through this buffer.
+     */
+    private class BufferNamespaceContext implements NamespaceContext {
+
+        @Override
+        public String getNamespaceURI(String prefix) {
+            for (Map<String, String> scope : scopes) {
+                String uri = scope.get(prefix);
+                if (uri != null) {
+                    return uri;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String getPrefix(String namespaceURI) {
+            for (Map<String, String> scope : scopes) {
+                for (Map.Entry<String, String> entry : scope.entrySet()) {
+                    /* the prefix must not be re-bound to another namespace in an inner scope */
+                    if (entry.getValue().equals(namespaceURI) &&
+                            namespaceURI.equals(this.getNamespaceURI(entry.getKey()))) {
+                        return entry.getKey();
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Iterator getPrefixes(String namespaceURI) {
+            String prefix = this.getPrefix(namespaceURI);
+            if (prefix == null) {
+                return Collections.emptyIterator();
+            }
+            return Collections.singletonList(prefix).iterator();
+        }
+    }
+
+    /**
+     * Represents a buffered event, along with the arguments it was written with.
+     */
+    private static class Event {
+
+        private final EventType type;
+
+        private final Object[] args;
+
+        private Event(EventType type, Object[] args) {
+            this.type = type;
+            this.args = args;
+        }
+
+        private String arg(int index) {
+            return (String) this.args[index];
+        }
+
+        private void replay(XMLStreamWriter xmlWriter) throws XMLStreamException {
+            switch (this.type) {
+            case START_ELEMENT:
+                xmlWriter.writeStartElement(this.arg(0));
+                break;
+            case START_ELEMENT_NS:
+                xmlWriter.writeStartElement(this.arg(0), this.arg(1));
+                break;
+            case START_ELEMENT_PREFIXED:
+                xmlWriter.writeStartElement(this.arg(0), this.arg(1), this.arg(2));
+                break;
+            case EMPTY_ELEMENT:
+                xmlWriter.writeEmptyElement(this.arg(0));
+                break;
+            case EMPTY_ELEMENT_NS:
+                xmlWriter.writeEmptyElement(this.arg(0), this.arg(1));
+                break;
+            case EMPTY_ELEMENT_PREFIXED:
+                xmlWriter.writeEmptyElement(this.arg(0), this.arg(1), this.arg(2));
+                break;
+            case END_ELEMENT:
+                xmlWriter.writeEndElement();
+                break;
+            case ATTRIBUTE:
+                xmlWriter.writeAttribute(this.arg(0), this.arg(1));
+                break;
+            case ATTRIBUTE_NS:
+                xmlWriter.writeAttribute(this.arg(0), this.arg(1), this.arg(2));
+                break;
+            case ATTRIBUTE_PREFIXED:
+                xmlWriter.writeAttribute(this.arg(0), this.arg(1), this.arg(2), this.arg(3));
+                break;
+            case NAMESPACE:
+                xmlWriter.writeNamespace(this.arg(0), this.arg(1));
+                break;
+            case DEFAULT_NAMESPACE:
+                xmlWriter.writeDefaultNamespace(this.arg(0));
+                break;
+            case CHARACTERS:
+                xmlWriter.writeCharacters(this.arg(0));
+                break;
+            case CDATA:
+                xmlWriter.writeCData(this.arg(0));
+                break;
+            case COMMENT:
+                xmlWriter.writeComment(this.arg(0));
+                break;
+            case PROCESSING_INSTRUCTION:
+                if (this.arg(1) == null) {
+                    xmlWriter.writeProcessingInstruction(this.arg(0));
+                } else {
+                    xmlWriter.writeProcessingInstruction(this.arg(0), this.arg(1));
+                }
+                break;
+            case ENTITY_REF:
+                xmlWriter.writeEntityRef(this.arg(0));
+                break;
+            case SET_PREFIX:
+                xmlWriter.setPrefix(this.arg(0), this.arg(1));
+                break;
+            case SET_DEFAULT_NAMESPACE:
+                xmlWriter.setDefaultNamespace(this.arg(0));
+                break;
+            case START_OBJECT:
+                ((JSONEventWriter) xmlWriter).writeStartObject(this.arg(0), (Boolean) this.args[1]);
+                break;
+            case VALUE:
+                ((JSONEventWriter) xmlWriter).writeValue(this.arg(0), (ParamValue) this.args[1],
+                        (QName) this.args[2], (Boolean) this.args[3]);
+                break;
+            }
+        }
+    }
+
+}
@@ -43,6 +43,28 @@ public class XMLWriterHelper {
 	public void setNamespace(String namespace) {
 		this.namespace = namespace;
 	}
+
+	/**
+	 * Returns whether the elements written by this helper are repeated under the same parent,
+	 * in which case they are written as a JSON array.
+	 */
+	protected boolean isRepeated() {
+		return false;
+	}
+
+	/**
+	 * Returns the JSON writer if the result is written as JSON, only XML results can be written so.
+	 */
+	private JSONEventWriter getJSONWriter(XMLStreamWriter xmlWriter, int resultType)
+			throws XMLStreamException {
+		if (!XMLStreamWriterBuffer.isJSONWriter(xmlWriter)) {
+			return null;
+		}
+		if (resultType != DBConstants.ResultTypes.XML) {
+			throw new XMLStreamException("Only XML results can be written as JSON");
+		}
+		return (JSONEventWriter) xmlWriter;
+	}
 	
 	public void startRowElement(XMLStreamWriter xmlWriter, String name,
                                 int resultType, Result result, ExternalParamCollection params)
@@ -50,6 +72,11 @@ public class XMLWriterHelper {
         if (xmlWriter == null) {
             return;
         }
+		JSONEventWriter jsonWriter = this.getJSONWriter(xmlWriter, resultType);
+		if (jsonWriter != null) {
+			jsonWriter.writeStartObject(name, true);
+			return;
+		}
 		switch (resultType) {
 		case DBConstants.ResultTypes.XML:
 			xmlWriter.writeStartElement(this.getNamespace(), name);
@@ -76,6 +103,13 @@ public class XMLWriterHelper {
         if (xmlWriter == null) {
             return;
         }
+		JSONEventWriter jsonWriter = this.getJSONWriter(xmlWriter, resultType);
+		if (jsonWriter != null) {
+			if (name != null) {
+				jsonWriter.writeStartObject(name, this.isRepeated());
+			}
+			return;
+		}
 		String nsPrefix;
 		boolean writeNS;
 		switch (resultType) {
@@ -136,6 +170,11 @@ public class XMLWriterHelper {
         if (xmlWriter == null) {
             return;
         }
+		JSONEventWriter jsonWriter = this.getJSONWriter(xmlWriter, resultType);
+		if (jsonWriter != null) {
+			jsonWriter.writeValue(name, value, xsdType, this.isRepeated());
+			return;
+		}
 		String nsPrefix;
 		boolean writeNS;
 		switch (resultType) {
@@ -186,6 +225,13 @@ public class XMLWriterHelper {
         if (xmlWriter == null) {
             return;
         }
+		JSONEventWriter jsonWriter = this.getJSONWriter(xmlWriter, resultType);
+		if (jsonWriter != null) {
+			if (value != null && value.toString() != null) {
+				jsonWriter.writeValue(name, value, xsdType, false);
+			}
+			return;
+		}
 		switch (resultType) {
 		case DBConstants.ResultTypes.XML:
 			if (value != null && value.toString() != null) {
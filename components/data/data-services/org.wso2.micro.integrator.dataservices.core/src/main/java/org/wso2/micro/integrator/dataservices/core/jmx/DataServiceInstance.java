@@ -165,4 +165,22 @@ public class DataServiceInstance implements DataServiceInstanceMBean {
 		}
 	}
 	
+	public long getStatementCacheHitCount(String configId) {
+		Config config = this.getDataService().getConfig(configId);
+		if (config instanceof SQLConfig) {
+			return ((SQLConfig) config).getStatementCacheHitCount();
+		} else {
+			return -1;
+		}
+	}
+	
+	public long getStatementCacheMissCount(String configId) {
+		Config config = this.getDataService().getConfig(configId);
+		if (config instanceof SQLConfig) {
+			return ((SQLConfig) config).getStatementCacheMissCount();
+		} else {
+			return -1;
+		}
+	}
+	
 }
@@ -47,5 +47,9 @@ public interface DataServiceInstanceMBean {
 	boolean isDatabaseConnectionStatsAvailable(String configId);
 	
 	int getOpenDatabaseConnectionsCount(String configId);
+	
+	long getStatementCacheHitCount(String configId);
+	
+	long getStatementCacheMissCount(String configId);
 
 }
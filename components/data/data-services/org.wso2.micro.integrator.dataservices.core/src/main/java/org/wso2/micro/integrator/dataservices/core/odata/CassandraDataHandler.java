@@ -55,6 +55,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Future;
 
 /**
  * This class implements cassandra datasource related operations for ODataDataHandler.
@@ -104,19 +105,24 @@ public class CassandraDataHandler implements ODataDataHandler {
     private final int chunkSize;
 
     /**
-     * To indicate initialization phase of streaming.
+     * To indicate initialization phase of streaming, the streaming state is kept per thread as the handler is shared
+     * by the concurrent requests of the data service.
      */
-    private boolean initializeStream;
+    private ThreadLocal<Boolean> initializeStream = new ThreadLocal<Boolean>() {
+        protected synchronized Boolean initialValue() {
+            return false;
+        }
+    };
 
     /**
-     * Result Set for streaming.
+     * Result Set for streaming, which fetches the rows page by page.
      */
-    private ResultSet streamResultSet;
+    private ThreadLocal<ResultSet> streamResultSet = new ThreadLocal<>();
 
     /**
-     * List of sorted OData entries.
+     * Iterator of the sorted OData entries.
      */
-    private ArrayList<ODataEntry> entryList;
+    private ThreadLocal<Iterator<ODataEntry>> sortedEntries = new ThreadLocal<>();
 
     private ThreadLocal<Boolean> transactionAvailable = new ThreadLocal<Boolean>() {
         protected synchronized Boolean initialValue() {
@@ -143,7 +149,6 @@ public class CassandraDataHandler implements ODataDataHandler {
         this.tableList = generateTableList();
         this.primaryKeys = generatePrimaryKeyList();
         this.tableMetaData = generateMetaData();
-        this.initializeStream = false;
         this.chunkSize = ODataAdapter.getChunkSize();
     }
 
@@ -162,18 +167,27 @@ public class CassandraDataHandler implements ODataDataHandler {
     }
 
     public List<ODataEntry> streamTable(String tableName) throws ODataServiceFault {
-        if (this.initializeStream) {
-            this.initializeStream = false;
+        if (this.initializeStream.get()) {
+            this.initializeStream.set(false);
             Statement statement = new SimpleStatement("SELECT * FROM " + this.keyspace + "." + tableName);
             statement.setFetchSize(this.chunkSize);
-            this.streamResultSet = session.execute(statement);
-            this.streamResultSet.fetchMoreResults();
+            this.streamResultSet.set(session.execute(statement));
         }
+        ResultSet resultSet = this.streamResultSet.get();
         List<ODataEntry> entryList = new ArrayList<>();
-        ColumnDefinitions columnDefinitions = this.streamResultSet.getColumnDefinitions();
-        Iterator<Row> iterator = this.streamResultSet.iterator();
+        if (resultSet == null) {
+            return entryList;
+        }
+        ColumnDefinitions columnDefinitions = resultSet.getColumnDefinitions();
+        Iterator<Row> iterator = resultSet.iterator();
         int processedEntryCount = 0;
+        Future<ResultSet> prefetch = null;
         while (iterator.hasNext()) {
+            if ((prefetch == null || prefetch.isDone()) && resultSet.getAvailableWithoutFetching() <= this.chunkSize / 2
+                    && !resultSet.isFullyFetched()) {
+                /* fetch the next page in the background, while the current one is being processed */
+                prefetch = resultSet.fetchMoreResults();
+            }
             ODataEntry dataEntry = createDataEntryFromRow(tableName, iterator.next(), columnDefinitions);
             entryList.add(dataEntry);
             processedEntryCount++;
@@ -181,6 +195,9 @@ public class CassandraDataHandler implements ODataDataHandler {
                 break;
             }
         }
+        if (resultSet.isExhausted()) {
+            this.streamResultSet.remove();
+        }
         return entryList;
     }
 
@@ -189,35 +206,51 @@ public class CassandraDataHandler implements ODataDataHandler {
     }
 
     public void initStreaming() {
-        this.initializeStream = true;
+        this.initializeStream.set(true);
+        this.streamResultSet.remove();
+        this.sortedEntries.remove();
+    }
+
+    @Override
+    public void finishStreaming() {
+        this.initializeStream.remove();
+        this.streamResultSet.remove();
+        this.sortedEntries.remove();
     }
 
     public List<ODataEntry> streamTableWithOrder(String tableName, OrderByOption orderByOption)
             throws ODataServiceFault {
-        if (this.initializeStream) {
-            this.initializeStream = false;
-            this.entryList = new ArrayList<>();
+        if (this.initializeStream.get()) {
+            this.initializeStream.set(false);
+            List<ODataEntry> entryList = new ArrayList<>();
             Statement statement = new SimpleStatement("SELECT * FROM " + this.keyspace + "." + tableName);
             ResultSet resultSet = session.execute(statement);
             ColumnDefinitions columnDefinitions = resultSet.getColumnDefinitions();
             Iterator<Row> iterator = resultSet.iterator();
             while (iterator.hasNext()) {
                 ODataEntry dataEntry = createDataEntryFromRow(tableName, iterator.next(), columnDefinitions);
-                this.entryList.add(dataEntry);
+                entryList.add(dataEntry);
             }
-            sortEntryList(orderByOption, tableName);
+            sortEntryList(entryList, orderByOption, tableName);
+            this.sortedEntries.set(entryList.iterator());
         }
         List<ODataEntry> resultSet = new ArrayList<>();
-        Iterator<ODataEntry> iterator = this.entryList.iterator();
+        Iterator<ODataEntry> iterator = this.sortedEntries.get();
+        if (iterator == null) {
+            return resultSet;
+        }
         int processedEntryCount = 0;
         while (iterator.hasNext()) {
             resultSet.add(iterator.next());
-            iterator.remove();
             processedEntryCount++;
             if (processedEntryCount >= this.chunkSize) {
                 break;
             }
         }
+        if (!iterator.hasNext()) {
+            // Drop the sorted table once it is streamed, rather than keeping it with the thread
+            this.sortedEntries.remove();
+        }
         return resultSet;
     }
 
@@ -225,12 +258,13 @@ public class CassandraDataHandler implements ODataDataHandler {
      * This method sort the list of OData entries.
      * To support OData orderby query option.
      *
+     * @param entryList     List of OData entries
      * @param orderByOption keys to consider when sorting
      * @param tableName     Name of the table
      */
-    private void sortEntryList(final OrderByOption orderByOption, String tableName) {
+    private void sortEntryList(List<ODataEntry> entryList, final OrderByOption orderByOption, String tableName) {
         ExpressionVisitorODataEntryImpl.setTableMetaData(this.getTableMetadata().get(tableName).values());
-        Collections.sort(this.entryList, new Comparator<ODataEntry>() {
+        Collections.sort(entryList, new Comparator<ODataEntry>() {
             @Override
             @SuppressWarnings({ "unchecked", "rawtypes" })
             public int compare(final ODataEntry e1, final ODataEntry e2) {
@@ -20,11 +20,13 @@ package org.wso2.micro.integrator.dataservices.core.odata;
 
 import com.mongodb.AggregationOptions;
 import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -75,9 +77,9 @@ public class MongoDataHandler implements ODataDataHandler {
     private final int chunkSize;
 
     /**
-     * Number of entities to be skipped during the current read iteration.
+     * Cursor of the table being streamed by the current thread, which is read chunk by chunk.
      */
-    private int skipEntityCount;
+    private final ThreadLocal<Iterator<DBObject>> streamCursor = new ThreadLocal<>();
 
     public MongoDataHandler(String configId, Jongo jongo) {
         this.configId = configId;
@@ -192,8 +194,12 @@ public class MongoDataHandler implements ODataDataHandler {
     }
 
     public List<ODataEntry> streamTable(String tableName) {
-        DBCollection readResult = jongo.getDatabase().getCollection(tableName);
-        Iterator<DBObject> iterator = readResult.find().skip(this.skipEntityCount).limit(this.chunkSize);
+        Iterator<DBObject> iterator = this.streamCursor.get();
+        if (iterator == null) {
+            DBCollection readResult = jongo.getDatabase().getCollection(tableName);
+            iterator = readResult.find().batchSize(this.chunkSize);
+            this.streamCursor.set(iterator);
+        }
         return readStreamResultSet(tableName, iterator);
     }
 
@@ -202,28 +208,41 @@ public class MongoDataHandler implements ODataDataHandler {
     }
 
     public void initStreaming() {
-        this.skipEntityCount = 0;
+        closeStreamCursor();
+    }
+
+    @Override
+    public void finishStreaming() {
+        closeStreamCursor();
     }
 
     public List<ODataEntry> streamTableWithOrder(String tableName, OrderByOption orderByOption) {
-        DBCollection readResult = jongo.getDatabase().getCollection(tableName);
-        List<BasicDBObject> stages = getSortStage(orderByOption);
-
-        BasicDBObject skip = new BasicDBObject();
-        skip.put("$skip", this.skipEntityCount);
-        stages.add(skip);
-        BasicDBObject limit = new BasicDBObject();
-        limit.put("$limit", this.chunkSize);
-        stages.add(limit);
-
-        AggregationOptions options = AggregationOptions.builder().outputMode(AggregationOptions.OutputMode.INLINE)
-                .build();
-        Iterator<DBObject> iterator = readResult.aggregate(stages, options);
+        Iterator<DBObject> iterator = this.streamCursor.get();
+        if (iterator == null) {
+            DBCollection readResult = jongo.getDatabase().getCollection(tableName);
+            List<BasicDBObject> stages = getSortStage(orderByOption);
+            AggregationOptions options = AggregationOptions.builder()
+                    .outputMode(AggregationOptions.OutputMode.CURSOR).batchSize(this.chunkSize).build();
+            iterator = readResult.aggregate(stages, options);
+            this.streamCursor.set(iterator);
+        }
         return readStreamResultSet(tableName, iterator);
     }
 
     /**
-     * This method reads the stream result set to generate a list of OData entries.
+     * This method closes the cursor of the table being streamed by the current thread, if any.
+     */
+    private void closeStreamCursor() {
+        Iterator<DBObject> iterator = this.streamCursor.get();
+        this.streamCursor.remove();
+        if (iterator instanceof Cursor) {
+            ((Cursor) iterator).close();
+        }
+    }
+
+    /**
+     * This method reads the next chunk of the stream result set to generate a list of OData entries. The cursor
+     * is closed once it is exhausted.
      *
      * @param tableName Name of the table
      * @param iterator  Iterator of the results set
@@ -233,7 +252,7 @@ public class MongoDataHandler implements ODataDataHandler {
         DBObject documentData;
         String tempValue;
         List<ODataEntry> entryList = new ArrayList<>();
-        while (iterator.hasNext()) {
+        while (entryList.size() < this.chunkSize && iterator.hasNext()) {
             ODataEntry dataEntry;
             documentData = iterator.next();
             tempValue = documentData.toString();
@@ -243,7 +262,10 @@ public class MongoDataHandler implements ODataDataHandler {
             dataEntry.addValue(ETAG, ODataUtils.generateETag(this.configId, tableName, dataEntry));
             entryList.add(dataEntry);
         }
-        this.skipEntityCount += this.chunkSize;
+        if (!iterator.hasNext()) {
+            closeStreamCursor();
+            this.streamCursor.set(Collections.<DBObject>emptyIterator());
+        }
         return entryList;
     }
 
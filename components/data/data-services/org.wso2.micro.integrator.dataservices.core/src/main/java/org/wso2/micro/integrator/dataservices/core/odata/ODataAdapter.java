@@ -118,10 +118,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import org.wso2.micro.integrator.dataservices.core.odata.expression.ExpressionVisitorImpl;
 import org.wso2.micro.integrator.dataservices.core.odata.expression.operand.TypedOperand;
 import org.wso2.micro.integrator.dataservices.core.odata.expression.operand.VisitorOperand;
@@ -1289,10 +1292,21 @@ public class ODataAdapter implements ServiceHandler {
         Iterator<Entity> it = entityList.iterator();
         int rowsCount = -1;
         try {
-            if (properties != null) {
-                rowsCount = this.dataHandler.getEntityCountWithKeys(tableName, properties);
-            } else {
-                rowsCount = this.dataHandler.getEntityCount(tableName);
+            if (queryOptions != null) {
+                queryOptions.setFilterPushedDown(false);
+                queryOptions.setPagingPushedDown(false);
+                queryOptions.setKeysetColumns(null);
+                rowsCount = this.dataHandler.getEntityCountWithQueryOptions(tableName, properties, queryOptions);
+                if (rowsCount >= 0) {
+                    rowsCount = queryOptions.getPagedCount(rowsCount);
+                }
+            }
+            if (rowsCount < 0) {
+                if (properties != null) {
+                    rowsCount = this.dataHandler.getEntityCountWithKeys(tableName, properties);
+                } else {
+                    rowsCount = this.dataHandler.getEntityCount(tableName);
+                }
             }
         } catch (ODataServiceFault e) {
             throw new ODataServiceFault(e, "Connection Error occurred. :" + e.getMessage());
@@ -1302,6 +1316,22 @@ public class ODataAdapter implements ServiceHandler {
                                            properties, tableName) {
             @Override
             public boolean hasNext() {
+                boolean hasNext = false;
+                try {
+                    hasNext = fetchNext();
+                    return hasNext;
+                } finally {
+                    if (!hasNext) {
+                        // The stream ends here, either exhausted or stopped by the paging options
+                        this.getAdapter().dataHandler.finishStreaming();
+                    }
+                }
+            }
+
+            /**
+             * Reads the next chunk of entities from the data handler, if the current chunk is consumed.
+             */
+            private boolean fetchNext() {
                 if (!this.iterator.hasNext()) {
                     try {
                         if (this.entityCount >= this.rowsCount) {
@@ -1321,7 +1351,11 @@ public class ODataAdapter implements ServiceHandler {
                         String tableName = this.getTableName();
                         List<ODataEntry> entries = null;
 
-                        if (queryOptions.getOrderByOption() != null) {
+                        if (queryOptions.isFilterPushedDown()) {
+                            entries = oDataAdapter.dataHandler.streamTableWithQueryOptions(tableName,
+                                                                                           this.getProperties(),
+                                                                                           queryOptions);
+                        } else if (queryOptions.getOrderByOption() != null) {
                             entries = oDataAdapter.dataHandler.streamTableWithOrder(tableName,
                                                                                     queryOptions.getOrderByOption());
                         } else if (this.getProperties() != null) {
@@ -1334,7 +1368,7 @@ public class ODataAdapter implements ServiceHandler {
                         for (int i = 0; i < entries.size(); i++) {
                             Entity entity = createEntityForStreaming(oDataAdapter, tableName, entries.get(i), baseURL);
                             this.entityCount++;
-                            if (queryOptions.getFilterOption() != null) {
+                            if (queryOptions.getFilterOption() != null && !queryOptions.isFilterPushedDown()) {
                                 final VisitorOperand operand = queryOptions.getFilterOption().getExpression().accept(
                                         new ExpressionVisitorImpl(entity, edmEntitySet));
                                 final TypedOperand typedOperand = operand.asTypedOperand();
@@ -1349,50 +1383,47 @@ public class ODataAdapter implements ServiceHandler {
                                             Locale.ROOT);
                                 }
                             }
-                            if (queryOptions.getSkipOption() != null) {
+                            if (queryOptions.getSkipOption() != null && !queryOptions.isPagingPushedDown()) {
                                 queryOptions.stepSkipCount();
                                 if (queryOptions.getSkipCount() <= queryOptions.getSkipOption().getValue()) {
                                     continue;
                                 }
                             }
-                            if (queryOptions.getTopOption() != null) {
+                            if (queryOptions.getTopOption() != null && !queryOptions.isPagingPushedDown()) {
                                 queryOptions.stepTopCount();
                                 if (queryOptions.getTopCount() > queryOptions.getTopOption().getValue()) {
-                                    this.iterator = this.getEntityList().iterator();
-                                    return this.iterator.hasNext();
+                                    return this.iterateEntityList(oDataAdapter, queryOptions);
                                 }
                             }
-                            if (queryOptions.getSkipTokenOption() != null) {
+                            if (queryOptions.getSkipTokenOption() != null && !queryOptions.isPagingPushedDown()) {
                                 queryOptions.stepSkipTokenCount();
                                 if (queryOptions.getSkipTokenCount() <= queryOptions.getItemsToSkip()) {
                                     continue;
                                 } else if (queryOptions.getSkipTokenCount() > (queryOptions.getItemsToSkip()
                                         + queryOptions.getPageSize())) {
-                                    this.iterator = this.getEntityList().iterator();
-                                    return this.iterator.hasNext();
+                                    return this.iterateEntityList(oDataAdapter, queryOptions);
                                 }
                             }
-                            if (queryOptions.getExpandOption() != null) {
-                                entity = expandEntityForStreaming(oDataAdapter, entity, baseURL, edmEntitySet,
-                                                                  queryOptions.getExpandOption());
+                            if (queryOptions.isKeysetPaging()) {
+                                queryOptions.setLastEntry(entries.get(i));
                             }
                             this.getEntityList().add(entity);
                         }
-                        if (this.entityCount < this.rowsCount && this.getEntityList().isEmpty()) {
-                            if (queryOptions.getFilterOption() != null) {
-                                return hasNext();
+                        if (this.entityCount < this.rowsCount && this.getEntityList().isEmpty()
+                                && !queryOptions.isPagingPushedDown()) {
+                            if (queryOptions.getFilterOption() != null && !queryOptions.isFilterPushedDown()) {
+                                return fetchNext();
                             }
                             if (queryOptions.getSkipOption() != null && (queryOptions.getSkipCount()
                                     <= queryOptions.getSkipOption().getValue())) {
-                                return hasNext();
+                                return fetchNext();
                             }
                             if (queryOptions.getSkipTokenOption() != null && (queryOptions.getSkipTokenCount()
                                     <= queryOptions.getItemsToSkip())) {
-                                return hasNext();
+                                return fetchNext();
                             }
                         }
-                        this.iterator = this.getEntityList().iterator();
-                        return this.iterator.hasNext();
+                        return this.iterateEntityList(oDataAdapter, queryOptions);
 
                     } catch (ODataServiceFault | ODataApplicationException | ExpressionVisitException e) {
                         throw new ODataRuntimeException(
@@ -1402,6 +1433,23 @@ public class ODataAdapter implements ServiceHandler {
                 return this.iterator.hasNext();
             }
 
+            /**
+             * Expands the entities read in the current chunk together, and starts iterating over them.
+             */
+            private boolean iterateEntityList(ODataAdapter oDataAdapter, QueryOptions queryOptions)
+                    throws ODataServiceFault {
+                if (queryOptions.getExpandOption() != null) {
+                    expandEntitiesForStreaming(oDataAdapter, this.getEntityList(), this.getBaseURL(),
+                                               this.getEdmEntitySet(), queryOptions.getExpandOption());
+                }
+                if (queryOptions.isKeysetPaging()) {
+                    // A page which isn't full is the last one
+                    this.setNext(this.rowsCount < queryOptions.getPageSize() ? null : queryOptions.getNextLinkUri());
+                }
+                this.iterator = this.getEntityList().iterator();
+                return this.iterator.hasNext();
+            }
+
             @Override
             public Entity next() {
                 Entity entity = null;
@@ -1427,10 +1475,32 @@ public class ODataAdapter implements ServiceHandler {
     private Entity expandEntityForStreaming(ODataAdapter oDataAdapter, Entity entity, String baseURL,
                                             EdmEntitySet edmEntitySet, ExpandOption expandOption)
             throws ODataServiceFault {
+        expandEntitiesForStreaming(oDataAdapter, Collections.singletonList(entity), baseURL, edmEntitySet,
+                                   expandOption);
+        return entity;
+    }
+
+    /**
+     * This method handles OData expand option for a batch of entities.
+     * The referenced entities of the whole batch are read together for each navigation property, and attached
+     * to the entities they belong to.
+     *
+     * @param oDataAdapter
+     * @param entities     Entities to be processed
+     * @param baseURL      Base URL of the request
+     * @param edmEntitySet Container of the Entity Type
+     * @param expandOption OData expand options
+     */
+    private void expandEntitiesForStreaming(ODataAdapter oDataAdapter, List<Entity> entities, String baseURL,
+                                            EdmEntitySet edmEntitySet, ExpandOption expandOption)
+            throws ODataServiceFault {
+        if (entities.isEmpty()) {
+            return;
+        }
         try {
-            EdmNavigationProperty edmNavigationProperty = null;
             List<ExpandItem> expandItems = expandOption.getExpandItems();
             for (ExpandItem expandItem : expandItems) {
+                EdmNavigationProperty edmNavigationProperty = null;
                 if (expandItem.isStar()) {
                     List<EdmNavigationPropertyBinding> bindings = edmEntitySet.getNavigationPropertyBindings();
                     if (!bindings.isEmpty()) {
@@ -1448,30 +1518,42 @@ public class ODataAdapter implements ServiceHandler {
                 }
                 if (edmNavigationProperty != null) {
                     String navPropName = edmNavigationProperty.getName();
-                    Link link = new Link();
-                    link.setTitle(navPropName);
-                    link.setType(Constants.ENTITY_NAVIGATION_LINK_TYPE);
-                    link.setRel(Constants.NS_ASSOCIATION_LINK_REL + navPropName);
-                    if (edmNavigationProperty.isCollection()) {
-                        EntityCollection expandEntityCollection = getNavigableEntitySet(oDataAdapter.serviceMetadata,
-                                                                                        entity, edmNavigationProperty,
-                                                                                        baseURL);
-                        link.setInlineEntitySet(expandEntityCollection);
-                        if (expandEntityCollection != null) {
-                            link.setHref(expandEntityCollection.getId().toASCIIString());
-                        }
-                    } else {
-                        Entity expandEntity = getNavigableEntity(serviceMetadata, entity, edmNavigationProperty,
-                                                                 baseURL);
-                        link.setInlineEntity(expandEntity);
-                        if (expandEntity != null) {
-                            link.setHref(expandEntity.getId().toASCIIString());
+                    List<List<Entity>> navigableEntities = oDataAdapter.getNavigableEntities(entities,
+                                                                                             edmNavigationProperty,
+                                                                                             baseURL);
+                    for (int i = 0; i < entities.size(); i++) {
+                        List<Entity> references = navigableEntities.get(i);
+                        Link link = new Link();
+                        link.setTitle(navPropName);
+                        link.setType(Constants.ENTITY_NAVIGATION_LINK_TYPE);
+                        link.setRel(Constants.NS_ASSOCIATION_LINK_REL + navPropName);
+                        if (edmNavigationProperty.isCollection()) {
+                            EntityCollection expandEntityCollection = null;
+                            if (references != null) {
+                                expandEntityCollection = new EntityCollection();
+                                expandEntityCollection.getEntities().addAll(references);
+                                expandEntityCollection.setCount(references.size());
+                            }
+                            link.setInlineEntitySet(expandEntityCollection);
+                            if (expandEntityCollection != null && expandEntityCollection.getId() != null) {
+                                link.setHref(expandEntityCollection.getId().toASCIIString());
+                            }
+                        } else {
+                            Entity expandEntity = null;
+                            if (references != null && !references.isEmpty()) {
+                                expandEntity = references.get(0);
+                            } else if (log.isDebugEnabled()) {
+                                log.debug("Reference is not found.");
+                            }
+                            link.setInlineEntity(expandEntity);
+                            if (expandEntity != null) {
+                                link.setHref(expandEntity.getId().toASCIIString());
+                            }
                         }
+                        entities.get(i).getNavigationLinks().add(link);
                     }
-                    entity.getNavigationLinks().add(link);
                 }
             }
-            return entity;
         } catch (ODataServiceFault | ODataApplicationException e) {
             throw new ODataServiceFault(e,
                                         "Error occurred when expanding a property for the entity. :" + e.getMessage());
@@ -1900,38 +1982,104 @@ public class ODataAdapter implements ServiceHandler {
     }
 
     /**
-     * This method return the entity collection which are able to navigate from the parent entity (source) using uri navigation properties.
+     * This method returns the entities which are able to navigate from each of the given parent entities (source)
+     * using a navigation property, reading the navigable entities of all the parents together.
      * <p/>
-     * In this method we check the parent entities primary keys and return the entity according to the values.
-     * we use ODataDataHandler, navigation properties to get particular foreign keys.
+     * For collection navigation properties the parent entities primary keys are matched with the foreign keys of
+     * the navigable entities, and for single navigation properties the parent entities foreign keys are matched
+     * with the primary keys of the navigable entities.
      *
-     * @param metadata     Service Metadata
-     * @param parentEntity parentEntity
-     * @param navigation   UriResourceNavigation
-     * @return EntityCollection
+     * @param parentEntities Parent entities of the same type
+     * @param navigation     Navigation property
+     * @param url            Base URL of the request
+     * @return Navigable entities of each parent entity, in the order of the parent entities. Null for a parent
+     * entity without navigation key values
      * @throws ODataServiceFault
+     * @throws ODataApplicationException
+     * @see ODataDataHandler#readTableWithKeysList(String, List)
      */
-    private EntityCollection getNavigableEntitySet(ServiceMetadata metadata, Entity parentEntity,
-                                                   EdmNavigationProperty navigation, String url)
-            throws ODataServiceFault, ODataApplicationException {
-        EdmEntityType type = metadata.getEdm().getEntityType(new FullQualifiedName(parentEntity.getType()));
+    private List<List<Entity>> getNavigableEntities(List<Entity> parentEntities, EdmNavigationProperty navigation,
+                                                    String url) throws ODataServiceFault, ODataApplicationException {
+        EdmEntityType type = this.serviceMetadata.getEdm().getEntityType(
+                new FullQualifiedName(parentEntities.get(0).getType()));
         String linkName = navigation.getName();
-        List<Property> properties = new ArrayList<>();
-        Map<String, EdmProperty> propertyMap = new HashMap<>();
-        for (NavigationKeys keys : this.dataHandler.getNavigationProperties().get(type.getName())
-                                                   .getNavigationKeys(linkName)) {
-            Property property = parentEntity.getProperty(keys.getPrimaryKey());
-            if (property != null && !property.isNull()) {
-                propertyMap.put(keys.getForeignKey(), (EdmProperty) type.getProperty(property.getName()));
-                property.setName(keys.getForeignKey());
-                properties.add(property);
+        EdmEntityType linkType = this.serviceMetadata.getEdm().getEntityType(
+                new FullQualifiedName(this.namespace, linkName));
+        List<String> parentColumns = new ArrayList<>();
+        List<String> linkColumns = new ArrayList<>();
+        if (navigation.isCollection()) {
+            for (NavigationKeys keys : this.dataHandler.getNavigationProperties().get(type.getName())
+                                                       .getNavigationKeys(linkName)) {
+                parentColumns.add(keys.getPrimaryKey());
+                linkColumns.add(keys.getForeignKey());
+            }
+        } else {
+            for (NavigationKeys keys : this.dataHandler.getNavigationProperties().get(linkName)
+                                                       .getNavigationKeys(type.getName())) {
+                parentColumns.add(keys.getForeignKey());
+                linkColumns.add(keys.getPrimaryKey());
+            }
+        }
+        List<ODataEntry> parentKeys = new ArrayList<>(parentEntities.size());
+        List<ODataEntry> keysList = new ArrayList<>();
+        for (Entity parentEntity : parentEntities) {
+            ODataEntry keys = new ODataEntry();
+            for (int i = 0; i < parentColumns.size(); i++) {
+                Property property = parentEntity.getProperty(parentColumns.get(i));
+                if (property != null && !property.isNull()) {
+                    keys.addValue(linkColumns.get(i), readPrimitiveValueInString(
+                            (EdmProperty) type.getProperty(property.getName()), property.getValue()));
+                }
+            }
+            if (keys.getNames().isEmpty()) {
+                parentKeys.add(null);
+            } else {
+                parentKeys.add(keys);
+                keysList.add(keys);
             }
         }
-        if(!properties.isEmpty()) {
-            return createEntityCollectionFromDataEntryList(linkName, dataHandler
-                    .readTableWithKeys(linkName, wrapPropertiesToDataEntry(type, properties, propertyMap)), url);
+        List<Entity> linkEntities = Collections.emptyList();
+        if (!keysList.isEmpty()) {
+            linkEntities = createEntityCollectionFromDataEntryList(
+                    linkName, this.dataHandler.readTableWithKeysList(linkName, keysList), url).getEntities();
         }
-        return null;
+        // Index the navigable entities by the values of the key columns used by the parent entities
+        Map<Set<String>, Map<List<String>, List<Entity>>> linkEntitiesByKeys = new HashMap<>();
+        List<List<Entity>> navigableEntities = new ArrayList<>(parentEntities.size());
+        for (ODataEntry keys : parentKeys) {
+            if (keys == null) {
+                navigableEntities.add(null);
+                continue;
+            }
+            List<String> columns = new ArrayList<>(keys.getNames());
+            Collections.sort(columns);
+            Map<List<String>, List<Entity>> index = linkEntitiesByKeys.get(keys.getNames());
+            if (index == null) {
+                index = new HashMap<>();
+                for (Entity linkEntity : linkEntities) {
+                    List<String> values = new ArrayList<>(columns.size());
+                    for (String column : columns) {
+                        Property property = linkEntity.getProperty(column);
+                        values.add(property == null ? null : readPrimitiveValueInString(
+                                (EdmProperty) linkType.getProperty(column), property.getValue()));
+                    }
+                    List<Entity> matches = index.get(values);
+                    if (matches == null) {
+                        matches = new ArrayList<>();
+                        index.put(values, matches);
+                    }
+                    matches.add(linkEntity);
+                }
+                linkEntitiesByKeys.put(new HashSet<>(keys.getNames()), index);
+            }
+            List<String> values = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                values.add(keys.getValue(column));
+            }
+            List<Entity> matches = index.get(values);
+            navigableEntities.add(matches == null ? new ArrayList<Entity>() : matches);
+        }
+        return navigableEntities;
     }
 
     /**
@@ -21,6 +21,7 @@ package org.wso2.micro.integrator.dataservices.core.odata;
 import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
 import org.wso2.micro.integrator.dataservices.core.engine.DataEntry;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -52,6 +53,25 @@ public interface ODataDataHandler {
      */
     List<ODataEntry> readTableWithKeys(String tableName, ODataEntry keys) throws ODataServiceFault;
 
+    /**
+     * This method reads the table rows matching any of the given key sets and return.
+     * It is used to resolve the navigation properties of a batch of entities, so implementations should read
+     * the rows with as few queries as possible.
+     *
+     * @param tableName Name of the table
+     * @param keysList  Key sets to check
+     * @return List of OData entries matching any of the key sets
+     * @throws ODataServiceFault
+     */
+    default List<ODataEntry> readTableWithKeysList(String tableName, List<ODataEntry> keysList)
+            throws ODataServiceFault {
+        List<ODataEntry> entries = new ArrayList<>();
+        for (ODataEntry keys : keysList) {
+            entries.addAll(readTableWithKeys(tableName, keys));
+        }
+        return entries;
+    }
+
     /**
      * This method inserts entity to table.
      *
@@ -222,4 +242,46 @@ public interface ODataDataHandler {
      * This method initializes the ODataHandlers for streaming.
      */
     void initStreaming();
+
+    /**
+     * This method releases the resources held by the current thread for streaming, such as open cursors or
+     * buffered entries. It is called once the entity stream ends, either because the entities are exhausted or
+     * because the paging options stop the stream early.
+     */
+    default void finishStreaming() {
+    }
+
+    /**
+     * This method returns the number of entities in a table which match the keys and the filter option, when the
+     * filter and order by options can be evaluated by the data source. In that case the handler marks the query
+     * options as pushed down, together with the paging options if it can evaluate them as well.
+     * Returns -1 if the options can't be evaluated by the data source, in which case they are evaluated on the
+     * streamed entities.
+     *
+     * @param tableName    Name of the table
+     * @param keys         Keys to check, or null
+     * @param queryOptions OData query options
+     * @return Number of matched entities, or -1 if the options can't be pushed down
+     * @throws ODataServiceFault
+     */
+    default int getEntityCountWithQueryOptions(String tableName, ODataEntry keys, QueryOptions queryOptions)
+            throws ODataServiceFault {
+        return -1;
+    }
+
+    /**
+     * This method reads a table to the stream buffer, after applying the query options which were pushed down by
+     * {@link #getEntityCountWithQueryOptions(String, ODataEntry, QueryOptions)} in the data source.
+     * Returns a list of ODataEntry objects.
+     *
+     * @param tableName    Name of the table
+     * @param keys         Keys to check, or null
+     * @param queryOptions OData query options
+     * @return List of OData entries
+     * @throws ODataServiceFault
+     */
+    default List<ODataEntry> streamTableWithQueryOptions(String tableName, ODataEntry keys, QueryOptions queryOptions)
+            throws ODataServiceFault {
+        throw new ODataServiceFault("Query options can't be evaluated by the data source of " + tableName + ".");
+    }
 }
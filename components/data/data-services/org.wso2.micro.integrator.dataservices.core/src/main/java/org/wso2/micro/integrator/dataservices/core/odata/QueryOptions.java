@@ -28,12 +28,22 @@ import org.apache.olingo.server.api.uri.queryoption.TopOption;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * This class stores OData query options and its operators.
  */
 public class QueryOptions {
 
+    /**
+     * Separator of the page number and the encoded key values in a keyset skip token.
+     */
+    private static final String SKIP_TOKEN_SEPARATOR = ".";
+
     private ExpandOption expandOption;
     private FilterOption filterOption;
     private CountOption countOption;
@@ -72,6 +82,42 @@ public class QueryOptions {
      */
     private URI nextLinkUri;
 
+    /**
+     * Link to the next page without the skip token value.
+     */
+    private String nextLinkPrefix;
+
+    /**
+     * Number of the next page.
+     */
+    private int nextPage;
+
+    /**
+     * Key values of the last entity of the previous page, when the skip token carries them.
+     */
+    private List<String> skipTokenKeyValues;
+
+    /**
+     * Key columns of the table when the pages are read by seeking past the keys of the previous page,
+     * null when pages are read by skipping entities.
+     */
+    private List<String> keysetColumns;
+
+    /**
+     * Last entity read in the current page.
+     */
+    private ODataEntry lastEntry;
+
+    /**
+     * Whether the filter and order by options are evaluated by the data source.
+     */
+    private boolean filterPushedDown;
+
+    /**
+     * Whether the skip, top and skip token options are evaluated by the data source.
+     */
+    private boolean pagingPushedDown;
+
     public QueryOptions(ExpandOption expandOption, FilterOption filterOption, CountOption countOption,
                         SkipOption skipOption, TopOption topOption, OrderByOption orderByOption,
                         SkipTokenOption skipTokenOption) {
@@ -196,19 +242,165 @@ public class QueryOptions {
      */
     public void initPagination(int pageSize, String baseURL, String tableName) throws ODataServiceFault {
         this.setPageSize(pageSize);
-        int page = Integer.parseInt(this.getSkipTokenOption().getValue());
+        String skipToken = this.getSkipTokenOption().getValue();
+        int separatorIndex = skipToken.indexOf(SKIP_TOKEN_SEPARATOR);
+        int page;
+        if (separatorIndex < 0) {
+            page = Integer.parseInt(skipToken);
+            this.skipTokenKeyValues = null;
+        } else {
+            page = Integer.parseInt(skipToken.substring(0, separatorIndex));
+            this.skipTokenKeyValues = decodeKeyValues(skipToken.substring(separatorIndex + 1));
+        }
         this.setItemsToSkip(page * pageSize);
-        int nextPage = page + 1;
-        String nextLink = baseURL + "/" + tableName + "?$skiptoken=" + nextPage;
+        this.nextPage = page + 1;
+        this.nextLinkPrefix = baseURL + "/" + tableName + "?$skiptoken=";
         try {
-            this.setNextLinkUri(nextLink);
+            this.setNextLinkUri(this.nextLinkPrefix + this.nextPage);
         } catch (URISyntaxException e) {
             throw new ODataServiceFault(e, "Error occurred when setting the link to the next page. :" + e.getMessage());
         }
     }
 
+    public boolean isFilterPushedDown() {
+        return filterPushedDown;
+    }
+
+    public void setFilterPushedDown(boolean filterPushedDown) {
+        this.filterPushedDown = filterPushedDown;
+    }
+
+    public boolean isPagingPushedDown() {
+        return pagingPushedDown;
+    }
+
+    public void setPagingPushedDown(boolean pagingPushedDown) {
+        this.pagingPushedDown = pagingPushedDown;
+    }
+
+    /**
+     * Returns the number of matching entities to skip when the paging options are evaluated by the data source.
+     * Skip is applied first, and the skip token pagination is applied on top of it, unless the page is read by
+     * seeking past the key values in the skip token.
+     *
+     * @return Number of entities to skip
+     */
+    public int getPagingOffset() {
+        if (this.isKeysetSeek()) {
+            // The skipped entities and the previous pages are before the key values in the skip token
+            return 0;
+        }
+        int offset = this.getSkipOption() != null ? this.getSkipOption().getValue() : 0;
+        if (this.getSkipTokenOption() != null) {
+            offset += this.getItemsToSkip();
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the maximum number of entities to read after skipping, when the paging options are evaluated by the
+     * data source.
+     *
+     * @return Maximum number of entities to read, or -1 if there is no limit
+     */
+    public int getPagingLimit() {
+        int limit = this.getTopOption() != null ? this.getTopOption().getValue() : -1;
+        if (this.getSkipTokenOption() != null) {
+            if (limit < 0) {
+                limit = this.getPageSize();
+            } else {
+                limit = Math.max(0, Math.min(limit - this.getItemsToSkip(), this.getPageSize()));
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Returns the number of entities read from the data source, given the number of entities matching the filter.
+     *
+     * @param matchedCount Number of entities matching the filter
+     * @return Number of entities to read
+     */
+    public int getPagedCount(int matchedCount) {
+        if (!this.isPagingPushedDown()) {
+            return matchedCount;
+        }
+        int count = Math.max(0, matchedCount - this.getPagingOffset());
+        int limit = this.getPagingLimit();
+        return limit < 0 ? count : Math.min(count, limit);
+    }
+
+    /**
+     * Returns the link to the next page. With keyset pagination the link carries the key values of the last
+     * entity read, and is null until an entity is read.
+     *
+     * @return Link to the next page
+     */
     public URI getNextLinkUri() {
-        return nextLinkUri;
+        if (!this.isKeysetPaging()) {
+            return nextLinkUri;
+        }
+        if (this.lastEntry == null) {
+            return null;
+        }
+        StringBuilder nextLink = new StringBuilder(this.nextLinkPrefix).append(this.nextPage);
+        for (String column : this.keysetColumns) {
+            String value = this.lastEntry.getValue(column);
+            nextLink.append(SKIP_TOKEN_SEPARATOR).append(Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    value.getBytes(StandardCharsets.UTF_8)));
+        }
+        // Base64url encoded values don't need escaping, so the link is as valid as the link without them
+        return URI.create(nextLink.toString());
+    }
+
+    private static List<String> decodeKeyValues(String encodedValues) throws ODataServiceFault {
+        List<String> values = new ArrayList<>();
+        try {
+            for (String encodedValue : encodedValues.split(Pattern.quote(SKIP_TOKEN_SEPARATOR), -1)) {
+                values.add(new String(Base64.getUrlDecoder().decode(encodedValue), StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ODataServiceFault(e, "Invalid skip token. :" + e.getMessage());
+        }
+        return values;
+    }
+
+    public List<String> getKeysetColumns() {
+        return keysetColumns;
+    }
+
+    /**
+     * Set the key columns used for keyset pagination, by the data handler which evaluates the paging options.
+     *
+     * @param keysetColumns Key columns of the table, or null to page by skipping entities
+     */
+    public void setKeysetColumns(List<String> keysetColumns) {
+        this.keysetColumns = keysetColumns;
+        this.lastEntry = null;
+    }
+
+    /**
+     * Returns whether the link to the next page carries the key values of the last entity of the page.
+     */
+    public boolean isKeysetPaging() {
+        return this.keysetColumns != null;
+    }
+
+    /**
+     * Returns whether the current page is read by seeking past the key values in the skip token, instead of
+     * skipping the entities of the previous pages.
+     */
+    public boolean isKeysetSeek() {
+        return this.isKeysetPaging() && this.skipTokenKeyValues != null
+                && this.skipTokenKeyValues.size() == this.keysetColumns.size();
+    }
+
+    public List<String> getSkipTokenKeyValues() {
+        return skipTokenKeyValues;
+    }
+
+    public void setLastEntry(ODataEntry lastEntry) {
+        this.lastEntry = lastEntry;
     }
 
     private void setNextLinkUri(String nextLink) throws URISyntaxException {
@@ -26,6 +26,9 @@ import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
 import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
 import org.wso2.micro.integrator.dataservices.common.DBConstants;
 import org.wso2.micro.integrator.dataservices.core.odata.DataColumn.ODataDataType;
+import org.wso2.micro.integrator.dataservices.core.odata.expression.SQLExpressionVisitor;
+import org.wso2.micro.integrator.dataservices.core.odata.expression.SQLExpressionVisitor.Parameter;
+import org.wso2.micro.integrator.dataservices.core.odata.expression.SQLExpressionVisitor.SQLExpression;
 import org.wso2.micro.integrator.dataservices.core.DBUtils;
 import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
 import org.wso2.micro.integrator.dataservices.core.engine.DataEntry;
@@ -52,8 +55,12 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class implements RDBMS datasource related operations for ODataDataHandler.
@@ -94,6 +101,20 @@ public class RDBMSDataHandler implements ODataDataHandler {
     public static final String VIEW = "VIEW";
     public static final String ORACLE_SERVER = "oracle";
     public static final String MSSQL_SERVER = "microsoft sql server";
+    private static final String LIMIT_OFFSET_PAGING = "LIMIT_OFFSET";
+    private static final String OFFSET_FETCH_PAGING = "OFFSET_FETCH";
+
+    /**
+     * Databases which support the LIMIT ... OFFSET ... paging clause.
+     */
+    private static final String[] LIMIT_OFFSET_SERVERS = { "mysql", "mariadb", "postgresql", "h2",
+                                                           "hsql database engine", "sqlite" };
+
+    /**
+     * Maximum number of parameters bound to a single batched read query, which keeps the IN lists within the
+     * limits of all supported databases.
+     */
+    private static final int MAX_BATCHED_READ_PARAMETERS = 1000;
 
     /**
      * Preferred chunk size.
@@ -730,6 +751,79 @@ public class RDBMSDataHandler implements ODataDataHandler {
         }
     }
 
+    @Override
+    public List<ODataEntry> readTableWithKeysList(String tableName, List<ODataEntry> keysList)
+            throws ODataServiceFault {
+        // Group the distinct key sets by their columns, as each group can be read with a single query
+        Map<List<String>, Set<List<String>>> keyValuesByColumns = new LinkedHashMap<>();
+        for (ODataEntry keys : keysList) {
+            List<String> columns = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            for (String column : this.rdbmsDataTypes.get(tableName).keySet()) {
+                if (keys.getNames().contains(column)) {
+                    columns.add(column);
+                    values.add(keys.getValue(column));
+                }
+            }
+            if (!columns.isEmpty()) {
+                Set<List<String>> keyValues = keyValuesByColumns.get(columns);
+                if (keyValues == null) {
+                    keyValues = new LinkedHashSet<>();
+                    keyValuesByColumns.put(columns, keyValues);
+                }
+                keyValues.add(values);
+            }
+        }
+        List<ODataEntry> entries = new ArrayList<>();
+        for (Map.Entry<List<String>, Set<List<String>>> group : keyValuesByColumns.entrySet()) {
+            List<String> columns = group.getKey();
+            List<List<String>> keyValues = new ArrayList<>(group.getValue());
+            int batchSize = Math.max(1, MAX_BATCHED_READ_PARAMETERS / columns.size());
+            for (int start = 0; start < keyValues.size(); start += batchSize) {
+                List<List<String>> batch = keyValues.subList(start, Math.min(start + batchSize, keyValues.size()));
+                entries.addAll(readTableWithKeyValues(tableName, columns, batch));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * This method reads the table rows matching any of the given key values with a single query.
+     *
+     * @param tableName Name of the table
+     * @param columns   Key columns
+     * @param keyValues Values of the key columns, in the order of the columns
+     * @return List of OData entries
+     * @throws ODataServiceFault
+     */
+    private List<ODataEntry> readTableWithKeyValues(String tableName, List<String> columns,
+                                                    List<List<String>> keyValues) throws ODataServiceFault {
+        ResultSet resultSet = null;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = initializeConnection();
+            statement = connection.prepareStatement(createReadSqlWithKeyValues(tableName, columns,
+                                                                               keyValues.size()));
+            int index = 1;
+            for (List<String> values : keyValues) {
+                for (int i = 0; i < columns.size(); i++) {
+                    bindValuesToPreparedStatement(this.rdbmsDataTypes.get(tableName).get(columns.get(i)),
+                                                  values.get(i), index, statement);
+                    index++;
+                }
+            }
+            resultSet = statement.executeQuery();
+            return createDataEntryCollectionFromRS(tableName, resultSet);
+        } catch (SQLException | ParseException e) {
+            throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName + " table. :" +
+                                           e.getMessage());
+        } finally {
+            releaseResources(resultSet, statement);
+            releaseConnection(connection);
+        }
+    }
+
     public List<ODataEntry> streamTableWithKeys(String tableName, ODataEntry keys) throws ODataServiceFault {
         try {
             if (this.initializeStream) {
@@ -771,6 +865,312 @@ public class RDBMSDataHandler implements ODataDataHandler {
         this.preparedStatement.setFetchSize(this.chunkSize);
     }
 
+    @Override
+    public int getEntityCountWithQueryOptions(String tableName, ODataEntry keys, QueryOptions queryOptions)
+            throws ODataServiceFault {
+        ResultSet resultSet = null;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = initializeConnection();
+            DatabaseMetaData metaData = connection.getMetaData();
+            boolean pagingSupported = isPagingPushdownSupported(tableName, metaData);
+            queryOptions.setKeysetColumns(pagingSupported && isKeysetPagingSupported(tableName, queryOptions) ?
+                                          this.primaryKeys.get(tableName) : null);
+            List<Parameter> parameters = new ArrayList<>();
+            String where = createPushdownWhereClause(tableName, keys, queryOptions, metaData, parameters);
+            if (where == null || createPushdownSortStatement(tableName, queryOptions, metaData, false) == null) {
+                queryOptions.setKeysetColumns(null);
+                return -1;
+            }
+            statement = connection.prepareStatement("SELECT COUNT(*) FROM " + tableName + where);
+            bindParameters(parameters, statement);
+            resultSet = statement.executeQuery();
+            resultSet.next();
+            queryOptions.setFilterPushedDown(true);
+            queryOptions.setPagingPushedDown(pagingSupported);
+            return resultSet.getInt(1);
+        } catch (SQLException | ParseException e) {
+            throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName + " table. :"
+                    + e.getMessage());
+        } finally {
+            releaseResources(resultSet, statement);
+            releaseConnection(connection);
+        }
+    }
+
+    @Override
+    public List<ODataEntry> streamTableWithQueryOptions(String tableName, ODataEntry keys, QueryOptions queryOptions)
+            throws ODataServiceFault {
+        try {
+            if (this.initializeStream) {
+                this.initializeStream = false;
+                this.streamResultSet = null;
+                this.streamConnection = initializeConnection();
+                DatabaseMetaData metaData = this.streamConnection.getMetaData();
+                List<Parameter> parameters = new ArrayList<>();
+                String where = createPushdownWhereClause(tableName, keys, queryOptions, metaData, parameters);
+                String paging = queryOptions.isPagingPushedDown() ? createPagingStatement(queryOptions, metaData) : "";
+                String orderBy = createPushdownSortStatement(tableName, queryOptions, metaData, !paging.isEmpty());
+                if (where == null || orderBy == null) {
+                    throw new ODataServiceFault("Query options can't be evaluated in the database for " + tableName
+                                                + " table.");
+                }
+                this.preparedStatement = this.streamConnection.prepareStatement(
+                        "SELECT * FROM " + tableName + where + orderBy + paging, ResultSet.TYPE_SCROLL_INSENSITIVE,
+                        ResultSet.CONCUR_READ_ONLY);
+                this.preparedStatement.setFetchSize(this.chunkSize);
+                bindParameters(parameters, this.preparedStatement);
+                this.streamResultSet = this.preparedStatement.executeQuery();
+            }
+            return readStreamResultSet(tableName);
+        } catch (SQLException | ParseException e) {
+            throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName + " table. :"
+                    + e.getMessage());
+        } finally {
+            try {
+                if (this.streamResultSet == null || this.streamResultSet.isLast()
+                        || this.streamResultSet.isAfterLast()) {
+                    this.closeStreamConnection();
+                }
+            } catch (SQLException e) {
+                this.closeStreamConnection();
+                throw new ODataServiceFault(e, "Error occurred while reading entities from " + tableName + " table. :"
+                        + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * This method creates the where clause for the keys and the filter option of a query.
+     *
+     * @param tableName    Name of the table
+     * @param keys         Keys to check, or null
+     * @param queryOptions OData query options
+     * @param metaData     Database meta data
+     * @param parameters   List to add the values of the statement parameters to
+     * @return Where clause, or null if the filter can't be translated to SQL
+     * @throws SQLException
+     */
+    private String createPushdownWhereClause(String tableName, ODataEntry keys, QueryOptions queryOptions,
+                                             DatabaseMetaData metaData, List<Parameter> parameters)
+            throws SQLException {
+        Map<String, Integer> columnTypes = this.rdbmsDataTypes.get(tableName);
+        StringBuilder where = new StringBuilder();
+        if (keys != null) {
+            for (String column : columnTypes.keySet()) {
+                if (keys.getNames().contains(column)) {
+                    where.append(where.length() == 0 ? " WHERE " : " AND ").append(column).append(" = ?");
+                    parameters.add(new Parameter(columnTypes.get(column), keys.getValue(column)));
+                }
+            }
+        }
+        if (queryOptions.getFilterOption() != null) {
+            SQLExpression condition = new SQLExpressionVisitor(columnTypes, isSqlServer(metaData))
+                    .translateFilter(queryOptions.getFilterOption().getExpression());
+            if (condition == null) {
+                return null;
+            }
+            where.append(where.length() == 0 ? " WHERE " : " AND ").append(condition.getSql());
+            parameters.addAll(condition.getParameters());
+        }
+        if (queryOptions.isKeysetSeek()) {
+            where.append(where.length() == 0 ? " WHERE " : " AND ");
+            where.append(createKeysetCondition(columnTypes, queryOptions.getKeysetColumns(),
+                                               queryOptions.getSkipTokenKeyValues(), parameters));
+        }
+        return where.toString();
+    }
+
+    /**
+     * This method creates the condition which selects the rows after the given key values in key order,
+     * i.e. (k1 > ?) OR (k1 = ? AND k2 > ?) OR ... for a composite key.
+     *
+     * @param columnTypes SQL types of the columns
+     * @param keyColumns  Key columns
+     * @param keyValues   Key values of the last row of the previous page
+     * @param parameters  List to add the values of the statement parameters to
+     * @return Keyset condition
+     */
+    private String createKeysetCondition(Map<String, Integer> columnTypes, List<String> keyColumns,
+                                         List<String> keyValues, List<Parameter> parameters) {
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            if (i != 0) {
+                condition.append(" OR ");
+            }
+            condition.append("(");
+            for (int j = 0; j < i; j++) {
+                condition.append(keyColumns.get(j)).append(" = ? AND ");
+                parameters.add(new Parameter(columnTypes.get(keyColumns.get(j)), keyValues.get(j)));
+            }
+            condition.append(keyColumns.get(i)).append(" > ?)");
+            parameters.add(new Parameter(columnTypes.get(keyColumns.get(i)), keyValues.get(i)));
+        }
+        return condition.append(")").toString();
+    }
+
+    /**
+     * This method checks whether the pages of a table can be read by seeking past the primary keys of the previous
+     * page. The rows have to be in primary key order, and the key values have to survive the round trip through
+     * the skip token unchanged, so only tables with character or exact numeric keys qualify.
+     *
+     * @param tableName    Name of the table
+     * @param queryOptions OData query options
+     * @return Whether keyset pagination can be used
+     */
+    private boolean isKeysetPagingSupported(String tableName, QueryOptions queryOptions) {
+        List<String> keys = this.primaryKeys.get(tableName);
+        if (queryOptions.getSkipTokenOption() == null || queryOptions.getOrderByOption() != null || keys == null
+                || keys.isEmpty()) {
+            return false;
+        }
+        for (String key : keys) {
+            Integer type = this.rdbmsDataTypes.get(tableName).get(key);
+            if (type == null) {
+                return false;
+            }
+            switch (type) {
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method creates the order by clause of a query. When the query is paged, the primary keys are appended
+     * to the sort keys of the order by option, if any, so that rows with equal sort keys are in the same order on
+     * every page.
+     *
+     * @param tableName    Name of the table
+     * @param queryOptions OData query options
+     * @param metaData     Database meta data
+     * @param paged        Whether the query has a paging clause
+     * @return Order by clause, or null if the order by option can't be translated to SQL
+     * @throws SQLException
+     */
+    private String createPushdownSortStatement(String tableName, QueryOptions queryOptions,
+                                               DatabaseMetaData metaData, boolean paged) throws SQLException {
+        StringBuilder orderBy = new StringBuilder();
+        Set<String> sortKeys = new HashSet<>();
+        if (queryOptions.getOrderByOption() != null) {
+            SQLExpressionVisitor visitor = new SQLExpressionVisitor(this.rdbmsDataTypes.get(tableName),
+                                                                    isSqlServer(metaData));
+            for (OrderByItem item : queryOptions.getOrderByOption().getOrders()) {
+                SQLExpression sortKey = visitor.translateSortKey(item.getExpression());
+                if (sortKey == null) {
+                    return null;
+                }
+                orderBy.append(orderBy.length() == 0 ? " ORDER BY " : ", ").append(sortKey.getSql());
+                orderBy.append(item.isDescending() ? " DESC" : " ASC");
+                sortKeys.add(sortKey.getSql());
+            }
+        }
+        if (paged) {
+            List<String> keys = this.primaryKeys.get(tableName);
+            if (keys != null) {
+                for (String key : keys) {
+                    // a column can't be repeated in the order by clause of some databases, e.g. SQL Server
+                    if (!sortKeys.contains(key)) {
+                        orderBy.append(orderBy.length() == 0 ? " ORDER BY " : ", ").append(key);
+                    }
+                }
+            }
+        }
+        return orderBy.toString();
+    }
+
+    /**
+     * This method creates the paging clause of a query for the skip, top and skip token options.
+     *
+     * @param queryOptions OData query options
+     * @param metaData     Database meta data
+     * @return Paging clause, or an empty string if the query isn't paged
+     * @throws SQLException
+     */
+    private String createPagingStatement(QueryOptions queryOptions, DatabaseMetaData metaData) throws SQLException {
+        int offset = queryOptions.getPagingOffset();
+        int limit = queryOptions.getPagingLimit();
+        if (offset == 0 && limit < 0) {
+            return "";
+        }
+        if (LIMIT_OFFSET_PAGING.equals(getPagingSyntax(metaData))) {
+            return " LIMIT " + (limit < 0 ? Long.MAX_VALUE : limit) + " OFFSET " + offset;
+        }
+        String paging = " OFFSET " + offset + " ROWS";
+        if (limit >= 0) {
+            paging += " FETCH NEXT " + limit + " ROWS ONLY";
+        }
+        return paging;
+    }
+
+    /**
+     * This method checks whether the paging options of a query can be evaluated in the database. The pages are only
+     * stable if the rows are in a total order, which is ensured by sorting on the primary keys after the order by
+     * option, so a table without primary keys is paged in memory.
+     *
+     * @param tableName Name of the table
+     * @param metaData  Database meta data
+     * @return Whether paging can be done in the database
+     * @throws SQLException
+     */
+    private boolean isPagingPushdownSupported(String tableName, DatabaseMetaData metaData) throws SQLException {
+        if (getPagingSyntax(metaData) == null) {
+            return false;
+        }
+        List<String> keys = this.primaryKeys.get(tableName);
+        return keys != null && !keys.isEmpty();
+    }
+
+    /**
+     * This method returns the paging syntax supported by the database.
+     *
+     * @param metaData Database meta data
+     * @return Paging syntax, or null if paging can't be done in the database
+     * @throws SQLException
+     */
+    private String getPagingSyntax(DatabaseMetaData metaData) throws SQLException {
+        String productName = metaData.getDatabaseProductName().toLowerCase();
+        if (productName.contains(MSSQL_SERVER)) {
+            // OFFSET ... FETCH is available from SQL Server 2012
+            return metaData.getDatabaseMajorVersion() >= 11 ? OFFSET_FETCH_PAGING : null;
+        } else if (productName.contains(ORACLE_SERVER)) {
+            // OFFSET ... FETCH is available from Oracle 12c
+            return metaData.getDatabaseMajorVersion() >= 12 ? OFFSET_FETCH_PAGING : null;
+        }
+        for (String server : LIMIT_OFFSET_SERVERS) {
+            if (productName.contains(server)) {
+                return LIMIT_OFFSET_PAGING;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSqlServer(DatabaseMetaData metaData) throws SQLException {
+        return metaData.getDatabaseProductName().toLowerCase().contains(MSSQL_SERVER);
+    }
+
+    private void bindParameters(List<Parameter> parameters, PreparedStatement statement)
+            throws SQLException, ParseException, ODataServiceFault {
+        int index = 1;
+        for (Parameter parameter : parameters) {
+            bindValuesToPreparedStatement(parameter.getSqlType(), parameter.getValue(), index, statement);
+            index++;
+        }
+    }
+
     /**
      * This method bind values to prepared statement.
      *
@@ -1571,6 +1971,39 @@ public class RDBMSDataHandler implements ODataDataHandler {
         return sql.toString();
     }
 
+    /**
+     * This method creates an SQL query to read the rows matching any of a number of key values.
+     * Single column keys are matched with an IN list, and composite keys with a disjunction of conjunctions.
+     *
+     * @param tableName     Name of the table
+     * @param columns       Key columns
+     * @param keyValueCount Number of key values
+     * @return sql Query
+     */
+    private String createReadSqlWithKeyValues(String tableName, List<String> columns, int keyValueCount) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT * FROM ").append(tableName).append(" WHERE ");
+        if (columns.size() == 1) {
+            sql.append(columns.get(0)).append(" IN (");
+            for (int i = 0; i < keyValueCount; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+        } else {
+            for (int i = 0; i < keyValueCount; i++) {
+                sql.append(i == 0 ? "(" : " OR (");
+                for (int j = 0; j < columns.size(); j++) {
+                    if (j != 0) {
+                        sql.append(" AND ");
+                    }
+                    sql.append(columns.get(j)).append(" = ?");
+                }
+                sql.append(")");
+            }
+        }
+        return sql.toString();
+    }
+
     /**
      * This method creates an SQL query to count the number of rows in a table
      * after applying the where clause.
@@ -0,0 +1,497 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.odata.expression;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.olingo.commons.api.edm.EdmEnumType;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitor;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * This class translates OData filter and order by expressions to parameterized SQL fragments, so that they can be
+ * evaluated by the database instead of on the streamed entities. Only the subset of expressions with an exact SQL
+ * counterpart is supported, i.e. comparisons of columns with literals, logical operators, the in operator and the
+ * contains, startswith, endswith, tolower, toupper, trim and length methods. Anything else is reported as
+ * untranslatable, and the caller is expected to fall back to {@link ExpressionVisitorImpl}.
+ * <p>
+ * String comparisons are evaluated with the collation of the database, whereas {@link ExpressionVisitorImpl} compares
+ * strings exactly. On databases with case insensitive collations, such as the defaults of MySQL and SQL Server, eq,
+ * ne, the ordering comparisons, in and the pattern matching methods therefore also match values which differ only in
+ * case. Fixed length character columns are compared with blank padding in SQL, but with their trailing blanks on the
+ * Java side, so comparisons with their values are never translated.
+ */
+public class SQLExpressionVisitor implements ExpressionVisitor<SQLExpressionVisitor.SQLExpression> {
+
+    private static final Log log = LogFactory.getLog(SQLExpressionVisitor.class);
+
+    private static final String NULL_LITERAL = "null";
+
+    private static final char LIKE_ESCAPE_CHAR = '!';
+
+    private static final Pattern INTEGER_LITERAL = Pattern.compile("-?\\d+");
+
+    private static final Pattern DECIMAL_LITERAL = Pattern.compile("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+
+    /**
+     * SQL types of the columns of the table, keyed by the column name.
+     */
+    private final Map<String, Integer> columnTypes;
+
+    /**
+     * Whether the database is Microsoft SQL Server, which has its own string length function and treats [ as a
+     * wildcard in LIKE patterns.
+     */
+    private final boolean sqlServer;
+
+    public SQLExpressionVisitor(Map<String, Integer> columnTypes, boolean sqlServer) {
+        this.columnTypes = columnTypes;
+        this.sqlServer = sqlServer;
+    }
+
+    /**
+     * This method translates a filter expression to an SQL condition.
+     *
+     * @param expression Filter expression
+     * @return SQL condition, or null if the expression can't be translated
+     */
+    public SQLExpression translateFilter(Expression expression) {
+        SQLExpression condition = translate(expression);
+        if (condition == null || condition.kind != Kind.CONDITION) {
+            return null;
+        }
+        return condition;
+    }
+
+    /**
+     * This method translates an order by expression to an SQL sort key.
+     *
+     * @param expression Order by expression
+     * @return SQL sort key, or null if the expression can't be translated
+     */
+    public SQLExpression translateSortKey(Expression expression) {
+        SQLExpression sortKey = translate(expression);
+        if (sortKey == null || sortKey.kind != Kind.VALUE || !sortKey.parameters.isEmpty()) {
+            return null;
+        }
+        return sortKey;
+    }
+
+    private SQLExpression translate(Expression expression) {
+        try {
+            return expression.accept(this);
+        } catch (ExpressionVisitException | ODataApplicationException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("OData expression '" + expression + "' can't be evaluated in the database. :"
+                          + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public SQLExpression visitBinaryOperator(BinaryOperatorKind operator, SQLExpression left, SQLExpression right)
+            throws ExpressionVisitException {
+        switch (operator) {
+            case AND:
+                return logicalOperation(" AND ", left, right);
+            case OR:
+                return logicalOperation(" OR ", left, right);
+            case EQ:
+                return comparison(" = ", left, right);
+            case NE:
+                return notEqualsComparison(left, right);
+            case GE:
+                return comparison(" >= ", left, right);
+            case GT:
+                return comparison(" > ", left, right);
+            case LE:
+                return comparison(" <= ", left, right);
+            case LT:
+                return comparison(" < ", left, right);
+            default:
+                return throwUntranslatable("binary operator " + operator);
+        }
+    }
+
+    @Override
+    public SQLExpression visitBinaryOperator(BinaryOperatorKind operator, SQLExpression left,
+                                             List<SQLExpression> right) throws ExpressionVisitException {
+        if (operator != BinaryOperatorKind.IN || left.kind != Kind.VALUE || right.isEmpty()) {
+            return throwUntranslatable("binary operator " + operator);
+        }
+        StringBuilder sql = new StringBuilder(left.sql).append(" IN (");
+        List<Parameter> parameters = new ArrayList<>(left.parameters);
+        for (int i = 0; i < right.size(); i++) {
+            if (i != 0) {
+                sql.append(", ");
+            }
+            sql.append("?");
+            parameters.add(bindLiteral(right.get(i), left.sqlType));
+        }
+        sql.append(")");
+        return new SQLExpression(Kind.CONDITION, sql.toString(), Types.BOOLEAN, parameters);
+    }
+
+    @Override
+    public SQLExpression visitUnaryOperator(UnaryOperatorKind operator, SQLExpression operand)
+            throws ExpressionVisitException {
+        if (operator != UnaryOperatorKind.NOT || operand.kind != Kind.CONDITION) {
+            return throwUntranslatable("unary operator " + operator);
+        }
+        return new SQLExpression(Kind.CONDITION, "NOT (" + operand.sql + ")", Types.BOOLEAN, operand.parameters);
+    }
+
+    @Override
+    public SQLExpression visitMethodCall(MethodKind methodCall, List<SQLExpression> parameters)
+            throws ExpressionVisitException {
+        switch (methodCall) {
+            case CONTAINS:
+                return likeCondition(parameters, "%", "%");
+            case STARTSWITH:
+                return likeCondition(parameters, "", "%");
+            case ENDSWITH:
+                return likeCondition(parameters, "%", "");
+            case TOLOWER:
+                return stringFunction("LOWER(", ")", parameters, false);
+            case TOUPPER:
+                return stringFunction("UPPER(", ")", parameters, false);
+            case TRIM:
+                return stringFunction("LTRIM(RTRIM(", "))", parameters, false);
+            case LENGTH:
+                return stringFunction(this.sqlServer ? "LEN(" : "LENGTH(", ")", parameters, true);
+            default:
+                return throwUntranslatable("method " + methodCall);
+        }
+    }
+
+    @Override
+    public SQLExpression visitLambdaExpression(String lambdaFunction, String lambdaVariable, Expression expression)
+            throws ExpressionVisitException {
+        return throwUntranslatable("lambda expression " + lambdaFunction);
+    }
+
+    @Override
+    public SQLExpression visitLiteral(Literal literal) {
+        String text = literal.getText();
+        if (NULL_LITERAL.equals(text)) {
+            return new SQLExpression(Kind.NULL, null, Types.NULL, Collections.<Parameter>emptyList());
+        }
+        return new SQLExpression(Kind.LITERAL, text, Types.NULL, Collections.<Parameter>emptyList());
+    }
+
+    @Override
+    public SQLExpression visitMember(Member member) throws ExpressionVisitException {
+        List<UriResource> uriResourceParts = member.getResourcePath().getUriResourceParts();
+        if (uriResourceParts.size() != 1 || !(uriResourceParts.get(0) instanceof UriResourceProperty)) {
+            return throwUntranslatable("member " + member);
+        }
+        EdmProperty property = ((UriResourceProperty) uriResourceParts.get(0)).getProperty();
+        Integer sqlType = this.columnTypes.get(property.getName());
+        if (!property.isPrimitive() || property.isCollection() || sqlType == null || !isComparableType(sqlType)) {
+            return throwUntranslatable("member " + property.getName());
+        }
+        return new SQLExpression(Kind.VALUE, property.getName(), sqlType, Collections.<Parameter>emptyList());
+    }
+
+    @Override
+    public SQLExpression visitAlias(String aliasName) throws ExpressionVisitException {
+        return throwUntranslatable("alias " + aliasName);
+    }
+
+    @Override
+    public SQLExpression visitTypeLiteral(EdmType type) throws ExpressionVisitException {
+        return throwUntranslatable("type literal " + type);
+    }
+
+    @Override
+    public SQLExpression visitLambdaReference(String variableName) throws ExpressionVisitException {
+        return throwUntranslatable("lambda reference " + variableName);
+    }
+
+    @Override
+    public SQLExpression visitEnum(EdmEnumType type, List<String> enumValues) throws ExpressionVisitException {
+        return throwUntranslatable("enum " + type);
+    }
+
+    private SQLExpression logicalOperation(String operator, SQLExpression left, SQLExpression right)
+            throws ExpressionVisitException {
+        if (left.kind != Kind.CONDITION || right.kind != Kind.CONDITION) {
+            return throwUntranslatable("logical operation on non boolean operands");
+        }
+        return new SQLExpression(Kind.CONDITION, "(" + left.sql + operator + right.sql + ")", Types.BOOLEAN,
+                                 concat(left.parameters, right.parameters));
+    }
+
+    /**
+     * Comparisons are only translated between a value and a literal, so the literal can be bound with the SQL type
+     * of the value it is compared with. Comparing with null is translated to IS NULL / IS NOT NULL, since the Java
+     * side evaluation treats null as equal to null.
+     */
+    private SQLExpression comparison(String operator, SQLExpression left, SQLExpression right)
+            throws ExpressionVisitException {
+        if (left.kind == Kind.NULL || right.kind == Kind.NULL) {
+            if (" = ".equals(operator)) {
+                return nullTest(left, right, " IS NULL");
+            }
+            return throwUntranslatable("ordering comparison with null");
+        }
+        if (left.kind == Kind.VALUE && right.kind == Kind.LITERAL) {
+            List<Parameter> parameters = new ArrayList<>(left.parameters);
+            parameters.add(bindLiteral(right, left.sqlType));
+            return new SQLExpression(Kind.CONDITION, left.sql + operator + "?", Types.BOOLEAN, parameters);
+        }
+        if (left.kind == Kind.LITERAL && right.kind == Kind.VALUE) {
+            List<Parameter> parameters = new ArrayList<>();
+            parameters.add(bindLiteral(left, right.sqlType));
+            parameters.addAll(right.parameters);
+            return new SQLExpression(Kind.CONDITION, "?" + operator + right.sql, Types.BOOLEAN, parameters);
+        }
+        return throwUntranslatable("comparison of " + left.kind + " and " + right.kind);
+    }
+
+    /**
+     * A null value is not equal to any literal on the Java side, so rows with a null value have to match as well.
+     */
+    private SQLExpression notEqualsComparison(SQLExpression left, SQLExpression right)
+            throws ExpressionVisitException {
+        if (left.kind == Kind.NULL || right.kind == Kind.NULL) {
+            return nullTest(left, right, " IS NOT NULL");
+        }
+        SQLExpression notEquals = comparison(" <> ", left, right);
+        SQLExpression value = left.kind == Kind.VALUE ? left : right;
+        return new SQLExpression(Kind.CONDITION, "(" + notEquals.sql + " OR " + value.sql + " IS NULL)",
+                                 Types.BOOLEAN, concat(notEquals.parameters, value.parameters));
+    }
+
+    private SQLExpression nullTest(SQLExpression left, SQLExpression right, String test)
+            throws ExpressionVisitException {
+        SQLExpression value = left.kind == Kind.NULL ? right : left;
+        if (value.kind != Kind.VALUE) {
+            return throwUntranslatable("null test on " + value.kind);
+        }
+        return new SQLExpression(Kind.CONDITION, value.sql + test, Types.BOOLEAN, value.parameters);
+    }
+
+    private SQLExpression likeCondition(List<SQLExpression> parameters, String prefix, String suffix)
+            throws ExpressionVisitException {
+        SQLExpression value = parameters.get(0);
+        SQLExpression pattern = parameters.get(1);
+        if (value.kind != Kind.VALUE || !isStringType(value.sqlType) || pattern.kind != Kind.LITERAL) {
+            return throwUntranslatable("pattern match on non string operands");
+        }
+        String text = bindLiteral(pattern, value.sqlType).getValue();
+        StringBuilder escaped = new StringBuilder(prefix);
+        for (char c : text.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE_CHAR || (this.sqlServer && c == '[')) {
+                escaped.append(LIKE_ESCAPE_CHAR);
+            }
+            escaped.append(c);
+        }
+        escaped.append(suffix);
+        List<Parameter> bindings = new ArrayList<>(value.parameters);
+        bindings.add(new Parameter(value.sqlType, escaped.toString()));
+        return new SQLExpression(Kind.CONDITION, value.sql + " LIKE ? ESCAPE '" + LIKE_ESCAPE_CHAR + "'",
+                                 Types.BOOLEAN, bindings);
+    }
+
+    private SQLExpression stringFunction(String prefix, String suffix, List<SQLExpression> parameters,
+                                         boolean returnsLength) throws ExpressionVisitException {
+        SQLExpression value = parameters.get(0);
+        if (parameters.size() != 1 || value.kind != Kind.VALUE || !isStringType(value.sqlType)) {
+            return throwUntranslatable("string function on non string operand");
+        }
+        return new SQLExpression(Kind.VALUE, prefix + value.sql + suffix,
+                                 returnsLength ? Types.INTEGER : value.sqlType, value.parameters);
+    }
+
+    /**
+     * This method converts a literal to a parameter of the given SQL type. Literals which wouldn't convert cleanly
+     * to the type are rejected here, rather than failing when the statement is executed.
+     */
+    private Parameter bindLiteral(SQLExpression literal, int sqlType) throws ExpressionVisitException {
+        if (literal.kind != Kind.LITERAL) {
+            return throwUntranslatable("non literal operand");
+        }
+        String text = literal.sql;
+        if (sqlType == Types.CHAR || sqlType == Types.NCHAR) {
+            return throwUntranslatable("comparison with fixed length character column");
+        } else if (isStringType(sqlType)) {
+            if (text.length() >= 2 && text.charAt(0) == '\'' && text.charAt(text.length() - 1) == '\'') {
+                return new Parameter(sqlType, text.substring(1, text.length() - 1).replace("''", "'"));
+            }
+        } else if (isIntegerType(sqlType)) {
+            if (INTEGER_LITERAL.matcher(text).matches()) {
+                return new Parameter(sqlType, text);
+            }
+        } else if (isDecimalType(sqlType)) {
+            if (DECIMAL_LITERAL.matcher(text).matches()) {
+                return new Parameter(sqlType, text);
+            }
+        } else if (sqlType == Types.BOOLEAN || sqlType == Types.BIT) {
+            if ("true".equals(text) || "false".equals(text)) {
+                return new Parameter(sqlType, text);
+            }
+        }
+        return throwUntranslatable("literal " + text + " for SQL type " + sqlType);
+    }
+
+    private static boolean isComparableType(int sqlType) {
+        return isStringType(sqlType) || isIntegerType(sqlType) || isDecimalType(sqlType) || sqlType == Types.BOOLEAN
+                || sqlType == Types.BIT;
+    }
+
+    private static boolean isStringType(int sqlType) {
+        switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isIntegerType(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isDecimalType(int sqlType) {
+        switch (sqlType) {
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static List<Parameter> concat(List<Parameter> first, List<Parameter> second) {
+        List<Parameter> parameters = new ArrayList<>(first.size() + second.size());
+        parameters.addAll(first);
+        parameters.addAll(second);
+        return parameters;
+    }
+
+    private <T> T throwUntranslatable(String construct) throws ExpressionVisitException {
+        throw new ExpressionVisitException("Can't translate " + construct + " to SQL");
+    }
+
+    private enum Kind {
+        /**
+         * A boolean SQL condition.
+         */
+        CONDITION,
+        /**
+         * A column or a function of a column.
+         */
+        VALUE,
+        /**
+         * An OData literal, which is not yet bound as its SQL type depends on the value it's compared with.
+         */
+        LITERAL,
+        /**
+         * The null literal.
+         */
+        NULL
+    }
+
+    /**
+     * This class represents a translated SQL fragment and the values to bind to its parameters, in order.
+     */
+    public static final class SQLExpression {
+
+        private final Kind kind;
+
+        private final String sql;
+
+        private final int sqlType;
+
+        private final List<Parameter> parameters;
+
+        private SQLExpression(Kind kind, String sql, int sqlType, List<Parameter> parameters) {
+            this.kind = kind;
+            this.sql = sql;
+            this.sqlType = sqlType;
+            this.parameters = parameters;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Parameter> getParameters() {
+            return parameters;
+        }
+    }
+
+    /**
+     * This class represents a value bound to an SQL parameter.
+     */
+    public static final class Parameter {
+
+        private final int sqlType;
+
+        private final String value;
+
+        public Parameter(int sqlType, String value) {
+            this.sqlType = sqlType;
+            this.value = value;
+        }
+
+        public int getSqlType() {
+            return sqlType;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
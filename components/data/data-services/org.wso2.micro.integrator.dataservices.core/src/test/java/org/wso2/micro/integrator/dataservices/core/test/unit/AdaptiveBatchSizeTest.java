@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.wso2.micro.integrator.dataservices.core.description.query.AdaptiveBatchSize;
+
+/**
+ * Tests the decisions of {@link AdaptiveBatchSize} on when the parts of a JDBC batch request are executed.
+ */
+public class AdaptiveBatchSizeTest extends TestCase {
+
+	/**
+	 * Test that a batch is executed as a whole at the last request, when no limit is set.
+	 */
+	public void testUnlimitedByDefault() {
+		AdaptiveBatchSize batchSize = new AdaptiveBatchSize(0, 0, false);
+		assertFalse(batchSize.isLimited());
+		assertFalse(batchSize.isFull(Integer.MAX_VALUE, Long.MAX_VALUE));
+		/* an adaptive batch size requires a maximum number of rows */
+		batchSize = new AdaptiveBatchSize(0, 0, true);
+		assertFalse(batchSize.isAdaptive());
+		assertFalse(batchSize.isLimited());
+	}
+
+	public void testMaxRows() {
+		AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 0, false);
+		assertTrue(batchSize.isLimited());
+		assertFalse(batchSize.isFull(99, Long.MAX_VALUE));
+		assertTrue(batchSize.isFull(100, 0));
+	}
+
+	public void testMaxChars() {
+		AdaptiveBatchSize batchSize = new AdaptiveBatchSize(0, 1000, false);
+		assertTrue(batchSize.isLimited());
+		assertFalse(batchSize.isFull(Integer.MAX_VALUE, 999));
+		assertTrue(batchSize.isFull(1, 1000));
+	}
+
+	public void testAdaptiveGrowsWhileThroughputImproves() {
+		AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1000, 0, true);
+		assertTrue(batchSize.isAdaptive());
+		int rows = batchSize.getCurrentRows();
+		assertTrue(rows < 1000);
+		/* the first full part sets the throughput to compare with */
+		batchSize.recordExecution(rows, rows * 1000000L);
+		assertEquals(rows * 2, batchSize.getCurrentRows());
+		rows = batchSize.getCurrentRows();
+		/* twice the throughput */
+		batchSize.recordExecution(rows, rows * 500000L);
+		assertEquals(Math.min(rows * 2, 1000), batchSize.getCurrentRows());
+		while (batchSize.getCurrentRows() < 1000) {
+			rows = batchSize.getCurrentRows();
+			batchSize.recordExecution(rows, rows * 100L);
+		}
+		assertEquals(1000, batchSize.getCurrentRows());
+	}
+
+	public void testAdaptiveShrinksWhenThroughputDrops() {
+		AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1000, 0, true);
+		int rows = batchSize.getCurrentRows();
+		batchSize.recordExecution(rows, rows * 1000L);
+		rows = batchSize.getCurrentRows();
+		/* a tenth of the throughput */
+		batchSize.recordExecution(rows, rows * 10000L);
+		assertEquals(rows / 2, batchSize.getCurrentRows());
+		/* the same throughput keeps the size */
+		rows = batchSize.getCurrentRows();
+		batchSize.recordExecution(rows, rows * 10000L);
+		assertEquals(rows, batchSize.getCurrentRows());
+	}
+
+	/**
+	 * Test that the last, partial part of a batch does not change the batch size.
+	 */
+	public void testPartialPartIsIgnored() {
+		AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1000, 0, true);
+		int rows = batchSize.getCurrentRows();
+		batchSize.recordExecution(rows - 1, 1L);
+		assertEquals(rows, batchSize.getCurrentRows());
+	}
+
+}
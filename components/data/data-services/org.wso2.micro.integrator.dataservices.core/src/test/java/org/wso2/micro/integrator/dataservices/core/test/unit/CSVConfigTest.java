@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import au.com.bytecode.opencsv.CSVReader;
+import junit.framework.TestCase;
+import org.wso2.micro.integrator.dataservices.common.DBConstants;
+import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.description.config.CSVConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests reading local CSV files through the CSV config, which seeks to the starting row through the line index of
+ * the file, and re-creates the index once the file is modified.
+ */
+public class CSVConfigTest extends TestCase {
+
+	private static final String[][] CUSTOMERS = {
+			{ "1", "Alice" },
+			{ "2", "Bob" },
+			{ "3", "Carol" } };
+
+	private final List<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : this.files) {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	public void testLineFeeds() throws Exception {
+		CSVConfig config = createConfig(writeFile("ID,NAME\n1,Alice\n2,Bob\n3,Carol\n"), 2);
+		assertRows(CUSTOMERS, readRows(config));
+	}
+
+	public void testCarriageReturns() throws Exception {
+		CSVConfig config = createConfig(writeFile("ID,NAME\r1,Alice\r2,Bob\r3,Carol\r"), 2);
+		assertRows(CUSTOMERS, readRows(config));
+	}
+
+	public void testCarriageReturnLineFeeds() throws Exception {
+		CSVConfig config = createConfig(writeFile("ID,NAME\r\n1,Alice\r\n2,Bob\r\n3,Carol\r\n"), 2);
+		assertRows(CUSTOMERS, readRows(config));
+	}
+
+	/**
+	 * Test that the lines are separated the same way a buffered reader does, with the last line not terminated.
+	 */
+	public void testMixedLineBreaks() throws Exception {
+		CSVConfig config = createConfig(writeFile("ID,NAME\r\n1,Alice\r2,Bob\n3,Carol"), 2);
+		assertRows(CUSTOMERS, readRows(config));
+	}
+
+	/**
+	 * Test that a carriage return line feed pair split over two reads of the index buffer ends a single line.
+	 */
+	public void testLineBreakAcrossBuffer() throws Exception {
+		StringBuilder content = new StringBuilder("ID,NAME\r\n");
+		/* the carriage return is the last byte of the first 8192 bytes read */
+		char[] padding = new char[8192 - content.length() - 3];
+		Arrays.fill(padding, 'x');
+		content.append("0,").append(padding).append("\r\n1,Alice\r\n2,Bob\r\n3,Carol\r\n");
+		CSVConfig config = createConfig(writeFile(content.toString()), 3);
+		assertRows(CUSTOMERS, readRows(config));
+	}
+
+	public void testStartingRow() throws Exception {
+		File file = writeFile("ID,NAME\n1,Alice\n\n2,Bob\n3,Carol\n");
+		assertRows(new String[][] { { "2", "Bob" }, { "3", "Carol" } }, readRows(createConfig(file, 4)));
+		assertRows(new String[][] { { "3", "Carol" } }, readRows(createConfig(file, 5)));
+		assertTrue(readRows(createConfig(file, 6)).isEmpty());
+		assertTrue(readRows(createConfig(file, 100)).isEmpty());
+	}
+
+	/**
+	 * Test that the header is read from its own row through the same index as the data rows.
+	 */
+	public void testHeaderRow() throws Exception {
+		File file = writeFile("Customers\r\nID,NAME\r\n1,Alice\r\n2,Bob\r\n3,Carol\r\n");
+		Map<String, String> properties = createProperties(file, 3);
+		properties.put(DBConstants.CSV.HAS_HEADER, "true");
+		properties.put(DBConstants.CSV.HEADER_ROW, "2");
+		CSVConfig config = new CSVConfig(null, "csvTest", properties, false);
+		assertEquals("ID", config.getColumnMappings().get(1));
+		assertEquals("NAME", config.getColumnMappings().get(2));
+		assertRows(CUSTOMERS, readRows(config));
+	}
+
+	/**
+	 * Test that the index is re-created when the modification time of the file changes, even though its size is
+	 * the same, as the lines may have moved within the file.
+	 */
+	public void testIndexRecreatedWhenModified() throws Exception {
+		File file = writeFile("ID,NAME\n1,Alice\n2,Bob\n3,Carol\n");
+		CSVConfig config = createConfig(file, 3);
+		assertRows(Arrays.copyOfRange(CUSTOMERS, 1, 3), readRows(config));
+		long lastModified = file.lastModified();
+		rewriteFile(file, "ID,NAME\n11,Alice\n2,Bo\n3,Carol\n");
+		assertTrue(file.setLastModified(lastModified + 10000));
+		assertRows(new String[][] { { "2", "Bo" }, { "3", "Carol" } }, readRows(config));
+	}
+
+	/**
+	 * Test that the index is re-created when the size of the file changes, even though its modification time is
+	 * the same, as files may be rewritten within the resolution of the modification time.
+	 */
+	public void testIndexRecreatedWhenResized() throws Exception {
+		File file = writeFile("ID,NAME\n1,Alice\n2,Bob\n3,Carol\n");
+		CSVConfig config = createConfig(file, 3);
+		assertRows(Arrays.copyOfRange(CUSTOMERS, 1, 3), readRows(config));
+		long lastModified = file.lastModified();
+		rewriteFile(file, "ID,NAME\n11,Alice\n2,Bob\n3,Carol\n4,Dave\n");
+		assertTrue(file.setLastModified(lastModified));
+		assertRows(new String[][] { { "2", "Bob" }, { "3", "Carol" }, { "4", "Dave" } }, readRows(config));
+	}
+
+	private static CSVConfig createConfig(File file, int startingRow) throws DataServiceFault {
+		return new CSVConfig(null, "csvTest", createProperties(file, startingRow), false);
+	}
+
+	private static Map<String, String> createProperties(File file, int startingRow) {
+		Map<String, String> properties = new HashMap<String, String>();
+		properties.put(DBConstants.CSV.DATASOURCE, file.getAbsolutePath());
+		properties.put(DBConstants.CSV.STARTING_ROW, String.valueOf(startingRow));
+		return properties;
+	}
+
+	private static List<String[]> readRows(CSVConfig config) throws IOException, DataServiceFault {
+		List<String[]> rows = new ArrayList<String[]>();
+		CSVReader reader = config.createCSVReader();
+		try {
+			String[] row;
+			while ((row = reader.readNext()) != null) {
+				rows.add(row);
+			}
+		} finally {
+			reader.close();
+		}
+		return rows;
+	}
+
+	private static void assertRows(String[][] expected, List<String[]> rows) {
+		assertEquals(expected.length, rows.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertTrue("row " + i + ": " + Arrays.toString(rows.get(i)), Arrays.equals(expected[i], rows.get(i)));
+		}
+	}
+
+	private File writeFile(String content) throws IOException {
+		File file = File.createTempFile("csvConfigTest", ".csv");
+		this.files.add(file);
+		rewriteFile(file, content);
+		return file;
+	}
+
+	private static void rewriteFile(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.Futures;
+import junit.framework.TestCase;
+import org.mockito.ArgumentCaptor;
+import org.wso2.micro.integrator.dataservices.core.odata.CassandraDataHandler;
+import org.wso2.micro.integrator.dataservices.core.odata.ODataAdapter;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the streaming of the OData Cassandra data handler against a mocked session, which returns result sets
+ * fetching their rows page by page.
+ */
+public class CassandraDataHandlerTest extends TestCase {
+
+	private static final String KEYSPACE = "shop";
+
+	private static final String TABLE = "orders";
+
+	private final int chunkSize = ODataAdapter.getChunkSize();
+
+	private Session session;
+
+	private CassandraDataHandler dataHandler;
+
+	@Override
+	protected void setUp() {
+		this.session = mock(Session.class);
+		Cluster cluster = mock(Cluster.class);
+		Metadata metadata = mock(Metadata.class);
+		KeyspaceMetadata keyspaceMetadata = mock(KeyspaceMetadata.class);
+		when(this.session.getCluster()).thenReturn(cluster);
+		when(cluster.getMetadata()).thenReturn(metadata);
+		when(metadata.getKeyspace(KEYSPACE)).thenReturn(keyspaceMetadata);
+		when(keyspaceMetadata.getTables()).thenReturn(Collections.emptyList());
+		this.dataHandler = new CassandraDataHandler("cassandraTest", this.session, KEYSPACE);
+	}
+
+	@Override
+	protected void tearDown() {
+		this.dataHandler.finishStreaming();
+	}
+
+	public void testStreamTableReadsSingleResultSet() throws Exception {
+		PagedResultSet rows = new PagedResultSet(this.chunkSize * 2 + this.chunkSize / 2, this.chunkSize);
+		when(this.session.execute(any(Statement.class))).thenReturn(rows.resultSet);
+		this.dataHandler.initStreaming();
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(TABLE).size());
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(TABLE).size());
+		assertEquals(this.chunkSize / 2, this.dataHandler.streamTable(TABLE).size());
+		assertTrue(this.dataHandler.streamTable(TABLE).isEmpty());
+		ArgumentCaptor<Statement> statement = ArgumentCaptor.forClass(Statement.class);
+		verify(this.session, times(1)).execute(statement.capture());
+		assertEquals(this.chunkSize, statement.getValue().getFetchSize());
+		/* each page is fetched once, half way through the previous one */
+		assertEquals(2, rows.prefetchCount);
+		assertEquals(0, rows.blockingFetchCount);
+	}
+
+	public void testShortPagesArePrefetched() throws Exception {
+		/* the pages returned by the cluster may hold fewer rows than the fetch size */
+		PagedResultSet rows = new PagedResultSet(this.chunkSize * 2, this.chunkSize * 2 / 5);
+		when(this.session.execute(any(Statement.class))).thenReturn(rows.resultSet);
+		this.dataHandler.initStreaming();
+		int rowCount = 0;
+		for (int count = this.dataHandler.streamTable(TABLE).size(); count > 0;
+		     count = this.dataHandler.streamTable(TABLE).size()) {
+			rowCount += count;
+		}
+		assertEquals(this.chunkSize * 2, rowCount);
+		assertEquals(4, rows.prefetchCount);
+		assertEquals(0, rows.blockingFetchCount);
+	}
+
+	public void testFinishStreamingDropsResultSet() throws Exception {
+		PagedResultSet rows = new PagedResultSet(this.chunkSize * 2, this.chunkSize);
+		when(this.session.execute(any(Statement.class))).thenReturn(rows.resultSet);
+		this.dataHandler.initStreaming();
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(TABLE).size());
+		/* the stream is stopped before the result set is exhausted, e.g. by $top */
+		this.dataHandler.finishStreaming();
+		assertTrue(this.dataHandler.streamTable(TABLE).isEmpty());
+		verify(this.session, times(1)).execute(any(Statement.class));
+	}
+
+	public void testResultSetIsKeptPerThread() throws Exception {
+		PagedResultSet rows = new PagedResultSet(this.chunkSize * 2, this.chunkSize);
+		when(this.session.execute(any(Statement.class))).thenReturn(rows.resultSet);
+		this.dataHandler.initStreaming();
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(TABLE).size());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			/* a thread which did not start streaming doesn't see the result set of this one */
+			assertTrue(executor.submit(() -> dataHandler.streamTable(TABLE).isEmpty()).get());
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(TABLE).size());
+		verify(this.session, times(1)).execute(any(Statement.class));
+	}
+
+	/**
+	 * Result set which holds the rows of the fetched pages, and fetches the next page when asked to, or when the
+	 * rows of the fetched pages run out while iterating.
+	 */
+	private static class PagedResultSet {
+
+		private final ResultSet resultSet = mock(ResultSet.class);
+
+		private final int rowCount;
+
+		private final int pageSize;
+
+		private int fetchedCount;
+
+		private int consumedCount;
+
+		private int prefetchCount;
+
+		private int blockingFetchCount;
+
+		PagedResultSet(int rowCount, int pageSize) {
+			this.rowCount = rowCount;
+			this.pageSize = pageSize;
+			this.fetchPage();
+			final Row row = mock(Row.class);
+			when(this.resultSet.getColumnDefinitions()).thenReturn(mock(ColumnDefinitions.class));
+			when(this.resultSet.iterator()).thenReturn(new Iterator<Row>() {
+				@Override
+				public boolean hasNext() {
+					return consumedCount < PagedResultSet.this.rowCount;
+				}
+
+				@Override
+				public Row next() {
+					if (consumedCount == fetchedCount) {
+						blockingFetchCount++;
+						fetchPage();
+					}
+					consumedCount++;
+					return row;
+				}
+			});
+			when(this.resultSet.getAvailableWithoutFetching()).thenAnswer(
+					invocation -> fetchedCount - consumedCount);
+			when(this.resultSet.isFullyFetched()).thenAnswer(invocation -> fetchedCount == this.rowCount);
+			when(this.resultSet.isExhausted()).thenAnswer(invocation -> consumedCount == this.rowCount);
+			when(this.resultSet.fetchMoreResults()).thenAnswer(invocation -> {
+				prefetchCount++;
+				fetchPage();
+				return Futures.immediateFuture(this.resultSet);
+			});
+		}
+
+		private void fetchPage() {
+			this.fetchedCount = Math.min(this.rowCount, this.fetchedCount + this.pageSize);
+		}
+
+	}
+
+}
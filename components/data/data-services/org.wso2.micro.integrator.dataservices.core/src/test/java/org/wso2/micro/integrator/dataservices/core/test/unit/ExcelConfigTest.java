@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.wso2.micro.integrator.dataservices.common.DBConstants;
+import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.description.config.ExcelConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests reading the sheets of Excel workbooks through the Excel config, streamed for OOXML workbooks and through
+ * the user model for the others, and caching the sheets of local workbook files.
+ */
+public class ExcelConfigTest extends TestCase {
+
+	private static final String[][] CUSTOMERS = {
+			{ "ID", "NAME", "CREDIT", "ACTIVE", "TOTAL", "NOTE" },
+			{ "1", "Alice", "1500.5", "true", "{formula}", "" },
+			{ "2", "Bob", "200", "false", "{formula}" },
+			{ "3", "", "0.25" } };
+
+	private static final String[][] OFFICES = {
+			{ "CODE", "CITY" },
+			{ "O1", "Colombo" } };
+
+	private final List<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : this.files) {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	/**
+	 * Test that the rows of a streamed OOXML sheet have the same values as the rows of the same sheet read through
+	 * the user model of a legacy workbook, and that the rows end at the first missing row.
+	 */
+	public void testStreamedSheetMatchesUserModel() throws Exception {
+		ExcelConfig xlsxConfig = createConfig(writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob"), null);
+		ExcelConfig xlsConfig = createConfig(writeWorkbook(new HSSFWorkbook(), ".xls", "Bob"), null);
+		assertRows(CUSTOMERS, readSheet(xlsxConfig, "Customers", 0, -1));
+		assertRows(CUSTOMERS, readSheet(xlsConfig, "Customers", 0, -1));
+		assertRows(OFFICES, readSheet(xlsxConfig, "offices", 0, -1));
+		assertRows(OFFICES, readSheet(xlsConfig, "offices", 0, -1));
+	}
+
+	/**
+	 * Test that the rows are read from the starting row, until the first missing row or until the handler does not
+	 * want any more rows.
+	 */
+	public void testReadFromStartRowUntilHandlerStops() throws Exception {
+		for (ExcelConfig config : new ExcelConfig[] {
+				createConfig(writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob"), "0"),
+				createConfig(writeWorkbook(new HSSFWorkbook(), ".xls", "Bob"), "0") }) {
+			assertRows(Arrays.copyOfRange(CUSTOMERS, 1, 4), readSheet(config, "Customers", 1, -1));
+			assertRows(Arrays.copyOfRange(CUSTOMERS, 1, 3), readSheet(config, "Customers", 1, 2));
+			assertRows(new String[0][], readSheet(config, "Customers", 4, -1));
+			assertRows(new String[][] { { "Unreachable" } }, readSheet(config, "Customers", 5, -1));
+		}
+	}
+
+	public void testMissingSheet() throws Exception {
+		ExcelConfig config = createConfig(writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob"), null);
+		try {
+			readSheet(config, "Employees", 0, -1);
+			fail("Reading a missing sheet must fail");
+		} catch (DataServiceFault e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Employees"));
+		}
+	}
+
+	/**
+	 * Test the values of the cells which POI does not write, such as inline strings, cached formula results,
+	 * errors, and cells and rows without references.
+	 */
+	public void testStreamedCellTypes() throws Exception {
+		File file = writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob");
+		replaceZipEntry(file, "xl/worksheets/sheet1.xml",
+				"<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+						+ "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>Inline</t></is></c>"
+						+ "<c r=\"C1\" t=\"str\"><f>\"a\"&amp;\"b\"</f><v>ab</v></c>"
+						+ "<c r=\"D1\" t=\"e\"><v>#DIV/0!</v></c></row>"
+						+ "<row><c><v>42</v></c><c t=\"b\"><v>0</v></c><c r=\"AA2\"><v>1E3</v></c></row>"
+						+ "</sheetData></worksheet>");
+		List<String[]> rows = readSheet(createConfig(file, null), "Customers", 0, -1);
+		assertEquals(2, rows.size());
+		assertTrue(Arrays.equals(new String[] { "Inline", "", "{formula}", null }, rows.get(0)));
+		String[] expected = new String[27];
+		Arrays.fill(expected, "");
+		expected[0] = "42";
+		expected[1] = "false";
+		expected[26] = "1000";
+		assertTrue(Arrays.toString(rows.get(1)), Arrays.equals(expected, rows.get(1)));
+	}
+
+	/**
+	 * Test that the whole sheet is cached, even when the first read stops early, and that it is read from the
+	 * cache while the workbook file is not modified.
+	 */
+	public void testCachedSheetIsNotReparsed() throws Exception {
+		File file = writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob");
+		ExcelConfig config = createConfig(file, null);
+		assertRows(Arrays.copyOfRange(CUSTOMERS, 0, 1), readSheet(config, "Customers", 0, 1));
+		corruptFile(file);
+		assertRows(CUSTOMERS, readSheet(config, "CUSTOMERS", 0, -1));
+	}
+
+	/**
+	 * Test that the cached sheets are dropped once the workbook file is modified.
+	 */
+	public void testModifiedWorkbookIsReread() throws Exception {
+		File file = writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob");
+		ExcelConfig config = createConfig(file, null);
+		assertRows(CUSTOMERS, readSheet(config, "Customers", 0, -1));
+		assertRows(OFFICES, readSheet(config, "Offices", 0, -1));
+		long lastModified = file.lastModified();
+		writeWorkbook(new XSSFWorkbook(), file, "Robert");
+		assertTrue(file.setLastModified(lastModified + 10000));
+		assertEquals("Robert", readSheet(config, "Customers", 0, -1).get(2)[1]);
+		assertRows(OFFICES, readSheet(config, "Offices", 0, -1));
+		corruptFile(file);
+		assertEquals("Robert", readSheet(config, "Customers", 0, -1).get(2)[1]);
+	}
+
+	/**
+	 * Test that the least recently used sheets are evicted to keep the cached cells within the configured size.
+	 */
+	public void testLeastRecentlyUsedSheetIsEvicted() throws Exception {
+		File file = writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob");
+		/* the customers sheet has 21 cells and the offices sheet has 4 */
+		ExcelConfig config = createConfig(file, "22");
+		readSheet(config, "Customers", 0, -1);
+		readSheet(config, "Offices", 0, -1);
+		corruptFile(file);
+		assertRows(OFFICES, readSheet(config, "Offices", 0, -1));
+		assertSheetNotCached(config, "Customers");
+	}
+
+	/**
+	 * Test that a sheet larger than the cache is streamed on every read.
+	 */
+	public void testLargeSheetIsNotCached() throws Exception {
+		File file = writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob");
+		ExcelConfig config = createConfig(file, "10");
+		assertRows(CUSTOMERS, readSheet(config, "Customers", 0, -1));
+		assertRows(OFFICES, readSheet(config, "Offices", 0, -1));
+		corruptFile(file);
+		assertRows(OFFICES, readSheet(config, "Offices", 0, -1));
+		assertSheetNotCached(config, "Customers");
+	}
+
+	public void testCacheDisabled() throws Exception {
+		File file = writeWorkbook(new HSSFWorkbook(), ".xls", "Bob");
+		ExcelConfig config = createConfig(file, "0");
+		assertRows(OFFICES, readSheet(config, "Offices", 0, -1));
+		corruptFile(file);
+		assertSheetNotCached(config, "Offices");
+	}
+
+	public void testInvalidSheetCacheSize() throws Exception {
+		File file = writeWorkbook(new XSSFWorkbook(), ".xlsx", "Bob");
+		try {
+			createConfig(file, "many");
+			fail("Invalid sheet cache size has been accepted");
+		} catch (DataServiceFault ignored) {
+			// expected
+		}
+	}
+
+	private ExcelConfig createConfig(File file, String sheetCacheSize) throws DataServiceFault {
+		Map<String, String> properties = new HashMap<String, String>();
+		properties.put(DBConstants.Excel.DATASOURCE, file.getAbsolutePath());
+		if (sheetCacheSize != null) {
+			properties.put(DBConstants.Excel.SHEET_CACHE_SIZE, sheetCacheSize);
+		}
+		return new ExcelConfig(null, "excelTest", properties, false);
+	}
+
+	/**
+	 * Reads the rows of a sheet, stopping after the given number of rows unless it is negative.
+	 */
+	private static List<String[]> readSheet(ExcelConfig config, String sheetName, int startRow, final int maxRows)
+			throws DataServiceFault {
+		final List<String[]> rows = new ArrayList<String[]>();
+		config.readSheet(sheetName, startRow, data -> {
+			rows.add(data);
+			return maxRows < 0 || rows.size() < maxRows;
+		});
+		return rows;
+	}
+
+	private static void assertRows(String[][] expected, List<String[]> rows) {
+		assertEquals(expected.length, rows.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertTrue("row " + i + ": " + Arrays.toString(rows.get(i)), Arrays.equals(expected[i], rows.get(i)));
+		}
+	}
+
+	private static void assertSheetNotCached(ExcelConfig config, String sheetName) {
+		try {
+			readSheet(config, sheetName, 0, -1);
+			fail("The sheet '" + sheetName + "' must be read from the corrupted workbook file");
+		} catch (DataServiceFault e) {
+			/* expected */
+		}
+	}
+
+	/**
+	 * Writes a workbook with the customers and offices sheets to a new temporary file.
+	 */
+	private File writeWorkbook(Workbook workbook, String suffix, String secondCustomer) throws IOException {
+		File file = File.createTempFile("excelConfigTest", suffix);
+		this.files.add(file);
+		writeWorkbook(workbook, file, secondCustomer);
+		return file;
+	}
+
+	private static void writeWorkbook(Workbook workbook, File file, String secondCustomer) throws IOException {
+		Sheet customers = workbook.createSheet("Customers");
+		Row row = customers.createRow(0);
+		for (int i = 0; i < CUSTOMERS[0].length; i++) {
+			row.createCell(i).setCellValue(CUSTOMERS[0][i]);
+		}
+		row = customers.createRow(1);
+		row.createCell(0).setCellValue(1);
+		row.createCell(1).setCellValue("Alice");
+		row.createCell(2).setCellValue(1500.5);
+		row.createCell(3).setCellValue(true);
+		row.createCell(4).setCellFormula("A2*2");
+		row.createCell(5);
+		row = customers.createRow(2);
+		row.createCell(0).setCellValue(2);
+		row.createCell(1).setCellValue(secondCustomer);
+		row.createCell(2).setCellValue(200);
+		row.createCell(3).setCellValue(false);
+		row.createCell(4).setCellFormula("A3*2");
+		row = customers.createRow(3);
+		row.createCell(0).setCellValue(3);
+		row.createCell(2).setCellValue(0.25);
+		/* the rows after the first missing row are only read when starting after it */
+		customers.createRow(5).createCell(0).setCellValue("Unreachable");
+		Sheet offices = workbook.createSheet("Offices");
+		for (int i = 0; i < OFFICES.length; i++) {
+			row = offices.createRow(i);
+			for (int j = 0; j < OFFICES[i].length; j++) {
+				row.createCell(j).setCellValue(OFFICES[i][j]);
+			}
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			workbook.write(out);
+		} finally {
+			workbook.close();
+		}
+	}
+
+	/**
+	 * Overwrites the given file with zeros, keeping its size and modification time, so that it can only be read
+	 * from the cache.
+	 */
+	private static void corruptFile(File file) throws IOException {
+		long lastModified = file.lastModified();
+		Files.write(file.toPath(), new byte[(int) file.length()]);
+		assertTrue(file.setLastModified(lastModified));
+	}
+
+	private static void replaceZipEntry(File file, String entryName, String content) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (InputStream in = new FileInputStream(file); ZipInputStream zipIn = new ZipInputStream(in);
+			 ZipOutputStream zipOut = new ZipOutputStream(buffer)) {
+			byte[] bytes = new byte[4096];
+			ZipEntry entry;
+			while ((entry = zipIn.getNextEntry()) != null) {
+				zipOut.putNextEntry(new ZipEntry(entry.getName()));
+				if (entry.getName().equals(entryName)) {
+					zipOut.write(content.getBytes(StandardCharsets.UTF_8));
+				} else {
+					int read;
+					while ((read = zipIn.read(bytes)) != -1) {
+						zipOut.write(bytes, 0, read);
+					}
+				}
+				zipOut.closeEntry();
+			}
+		}
+		Files.write(file.toPath(), buffer.toByteArray());
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.wso2.micro.integrator.dataservices.sql.driver.parser.Constants;
+import org.wso2.micro.integrator.dataservices.sql.driver.processor.reader.DataCell;
+import org.wso2.micro.integrator.dataservices.sql.driver.processor.reader.DataRow;
+import org.wso2.micro.integrator.dataservices.sql.driver.processor.reader.FixedDataTable;
+import org.wso2.micro.integrator.dataservices.sql.driver.query.ColumnInfo;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Tests the evaluation of conditions on a {@link FixedDataTable} through its column indexes.
+ */
+public class FixedDataTableTest extends TestCase {
+
+	private FixedDataTable table;
+
+	@Override
+	protected void setUp() {
+		this.table = new FixedDataTable("Offices", new ColumnInfo[] {
+				new ColumnInfo(1, "code", "Offices", Types.DOUBLE, 1),
+				new ColumnInfo(2, "city", "Offices", Types.VARCHAR, 2),
+				new ColumnInfo(3, "active", "Offices", Types.BOOLEAN, 3),
+				new ColumnInfo(4, "opened", "Offices", Types.DATE, 4) });
+		this.table.addRow(createRow(1, 10.0, "Colombo", true, "2004-04-20"));
+		this.table.addRow(createRow(2, 20.0, "Kandy", false, "2005-05-21"));
+		this.table.addRow(createRow(3, 30.0, "Colombo", true, null));
+		this.table.addRow(createRow(4, null, "20", false, "2004-04-20"));
+	}
+
+	/**
+	 * Test equality on numeric, string, boolean and date cells, where a numeric string cell is
+	 * compared numerically.
+	 */
+	public void testEqualCondition() throws SQLException {
+		assertRows("code", "20", Constants.EQUAL, 2);
+		assertRows("code", "20.0", Constants.EQUAL, 2);
+		assertRows("city", "Colombo", Constants.EQUAL, 1, 3);
+		assertRows("city", "20", Constants.EQUAL, 4);
+		assertRows("active", "true", Constants.EQUAL, 1, 3);
+		assertRows("active", "false", Constants.EQUAL, 2, 4);
+		assertRows("opened", "2004-04-20", Constants.EQUAL, 1, 4);
+		assertRows("city", "Galle", Constants.EQUAL);
+	}
+
+	/**
+	 * Test range conditions, which only match the cells with a numeric value.
+	 */
+	public void testRangeConditions() throws SQLException {
+		assertRows("code", "20", Constants.GREATER_THAN, 3);
+		assertRows("code", "20", Constants.LESS_THAN, 1);
+		assertRows("code", "5", Constants.GREATER_THAN, 1, 2, 3);
+		assertRows("code", "x", Constants.GREATER_THAN);
+		assertRows("city", "0", Constants.GREATER_THAN, 4);
+	}
+
+	/**
+	 * Test that the indexes reflect the rows added, updated and deleted after they are built.
+	 */
+	public void testIndexInvalidation() throws SQLException {
+		assertRows("city", "Galle", Constants.EQUAL);
+		this.table.addRow(createRow(5, 50.0, "Galle", true, null));
+		assertRows("city", "Galle", Constants.EQUAL, 5);
+
+		DataRow row = this.table.getRows().get(2);
+		row.getCell(2).setCellValue("Galle");
+		this.table.updateRows(row);
+		assertRows("city", "Galle", Constants.EQUAL, 2, 5);
+		assertRows("city", "Kandy", Constants.EQUAL);
+
+		this.table.deleteRows(5);
+		assertRows("city", "Galle", Constants.EQUAL, 2);
+		assertRows("code", "40", Constants.LESS_THAN, 1, 2, 3);
+	}
+
+	/**
+	 * Test that the rows can't be modified other than through the table, which would leave the
+	 * indexes stale.
+	 */
+	public void testRowsAreReadOnly() {
+		Map<Integer, DataRow> rows = this.table.getRows();
+		assertEquals(4, rows.size());
+		try {
+			rows.remove(1);
+			fail("The rows of the table must not be modifiable");
+		} catch (UnsupportedOperationException e) {
+			assertEquals(4, this.table.getRows().size());
+		}
+		this.table.addRow(createRow(5, 50.0, "Galle", true, null));
+		assertEquals(5, rows.size());
+	}
+
+	private void assertRows(String column, String value, String operator, Integer... rowIds)
+			throws SQLException {
+		Map<Integer, DataRow> result = this.table.applyCondition(column, value, operator);
+		assertEquals(column + " " + operator + " " + value, new TreeSet<Integer>(Arrays.asList(rowIds)),
+				new TreeSet<Integer>(result.keySet()));
+	}
+
+	private static DataRow createRow(int rowId, Double code, String city, boolean active, String opened) {
+		DataRow row = new DataRow(rowId);
+		row.addCell(1, new DataCell(1, Types.DOUBLE, code));
+		row.addCell(2, new DataCell(2, Types.VARCHAR, city));
+		row.addCell(3, new DataCell(3, Types.BOOLEAN, active));
+		row.addCell(4, new DataCell(4, Types.DATE, opened != null ? Date.valueOf(opened) : null));
+		return row;
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.wso2.micro.integrator.dataservices.core.engine.JSONStreamWriter;
+import org.wso2.micro.integrator.dataservices.core.engine.ParamValue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Tests the typed JSON output of {@link JSONStreamWriter} against the expected documents.
+ */
+public class JSONStreamWriterTest extends TestCase {
+
+	private static final String XSD_NAMESPACE = "http://www.w3.org/2001/XMLSchema";
+
+	private static final QName XSD_INT = new QName(XSD_NAMESPACE, "int");
+
+	private static final QName XSD_DECIMAL = new QName(XSD_NAMESPACE, "decimal");
+
+	private static final QName XSD_STRING = new QName(XSD_NAMESPACE, "string");
+
+	private static final QName XSD_BOOLEAN = new QName(XSD_NAMESPACE, "boolean");
+
+	private ByteArrayOutputStream output;
+
+	private JSONStreamWriter writer;
+
+	@Override
+	protected void setUp() throws XMLStreamException {
+		this.output = new ByteArrayOutputStream();
+		this.writer = new JSONStreamWriter(this.output, StandardCharsets.UTF_8);
+	}
+
+	public void testRepeatedRows() throws XMLStreamException {
+		this.writer.writeStartElement("Entries");
+		this.writeRow("1", "Colombo", "10.50", "true");
+		this.writeRow("2", "Kandy", "20", "false");
+		this.writer.writeEndElement();
+		assertOutput("{\"Entries\":{\"Entry\":[" +
+				"{\"id\":1,\"city\":\"Colombo\",\"rate\":10.50,\"active\":true}," +
+				"{\"id\":2,\"city\":\"Kandy\",\"rate\":20,\"active\":false}]}}");
+	}
+
+	public void testSingleRowIsArray() throws XMLStreamException {
+		this.writer.writeStartElement("Entries");
+		this.writeRow("1", "Colombo", "10.50", "true");
+		this.writer.writeEndElement();
+		assertOutput("{\"Entries\":{\"Entry\":[" +
+				"{\"id\":1,\"city\":\"Colombo\",\"rate\":10.50,\"active\":true}]}}");
+	}
+
+	public void testEmptyResult() throws XMLStreamException {
+		this.writer.writeStartElement("Entries");
+		this.writer.writeEndElement();
+		assertOutput("{\"Entries\":null}");
+	}
+
+	public void testNilAndAbsentValues() throws XMLStreamException {
+		this.writer.writeStartElement("Entries");
+		this.writer.writeStartObject("Entry", true);
+		this.writer.writeValue("id", new ParamValue((String) null), XSD_INT, false);
+		this.writer.writeValue("city", null, XSD_STRING, false);
+		this.writer.writeEndElement();
+		this.writer.writeEndElement();
+		assertOutput("{\"Entries\":{\"Entry\":[{\"id\":null,\"city\":\"\"}]}}");
+	}
+
+	public void testUnparsableTypedValues() throws XMLStreamException {
+		this.writer.writeStartElement("Entries");
+		this.writeRow("NaN", "Colombo", "-", "yes");
+		this.writer.writeEndElement();
+		assertOutput("{\"Entries\":{\"Entry\":[" +
+				"{\"id\":\"NaN\",\"city\":\"Colombo\",\"rate\":\"-\",\"active\":\"yes\"}]}}");
+	}
+
+	public void testArrayValue() throws XMLStreamException {
+		ParamValue ids = new ParamValue(ParamValue.PARAM_VALUE_ARRAY);
+		ids.addToArrayValue(new ParamValue("1"));
+		ids.addToArrayValue(new ParamValue("2"));
+		this.writer.writeStartElement("Entries");
+		this.writer.writeStartObject("Entry", true);
+		this.writer.writeValue("ids", ids, XSD_INT, false);
+		this.writer.writeEndElement();
+		this.writer.writeEndElement();
+		assertOutput("{\"Entries\":{\"Entry\":[{\"ids\":[1,2]}]}}");
+	}
+
+	public void testRepeatedValues() throws XMLStreamException {
+		this.writer.writeStartElement("Entries");
+		this.writer.writeValue("id", new ParamValue("1"), XSD_INT, true);
+		this.writer.writeValue("id", new ParamValue("2"), XSD_INT, true);
+		this.writer.writeValue("count", new ParamValue("2"), XSD_INT, false);
+		this.writer.writeEndElement();
+		assertOutput("{\"Entries\":{\"id\":[1,2],\"count\":2}}");
+	}
+
+	public void testPlainElementsAndAttributes() throws XMLStreamException {
+		this.writer.writeStartElement("Entries");
+		this.writer.writeStartElement("Entry");
+		this.writer.writeAttribute("id", "1");
+		this.writer.writeStartElement("city");
+		this.writer.writeCharacters("Colombo");
+		this.writer.writeEndElement();
+		this.writer.writeEmptyElement("country");
+		this.writer.writeEndElement();
+		this.writer.writeEndElement();
+		assertOutput("{\"Entries\":{\"Entry\":{\"id\":\"1\",\"city\":\"Colombo\",\"country\":null}}}");
+	}
+
+	private void writeRow(String id, String city, String rate, String active) throws XMLStreamException {
+		this.writer.writeStartObject("Entry", true);
+		this.writer.writeValue("id", new ParamValue(id), XSD_INT, false);
+		this.writer.writeValue("city", new ParamValue(city), XSD_STRING, false);
+		this.writer.writeValue("rate", new ParamValue(rate), XSD_DECIMAL, false);
+		this.writer.writeValue("active", new ParamValue(active), XSD_BOOLEAN, false);
+		this.writer.writeEndElement();
+	}
+
+	private void assertOutput(String expected) throws XMLStreamException {
+		this.writer.close();
+		assertEquals(expected, new String(this.output.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+}
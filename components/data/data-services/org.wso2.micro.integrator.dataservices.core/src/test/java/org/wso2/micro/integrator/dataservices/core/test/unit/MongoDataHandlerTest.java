@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import junit.framework.TestCase;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.jongo.Jongo;
+import org.mockito.ArgumentCaptor;
+import org.wso2.micro.integrator.dataservices.core.odata.MongoDataHandler;
+import org.wso2.micro.integrator.dataservices.core.odata.ODataAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the streaming of the OData Mongo data handler against a mocked collection, which has to be read chunk by
+ * chunk from a single cursor per thread.
+ */
+public class MongoDataHandlerTest extends TestCase {
+
+	private static final String COLLECTION = "orders";
+
+	private final int chunkSize = ODataAdapter.getChunkSize();
+
+	private DBCollection collection;
+
+	private MongoDataHandler dataHandler;
+
+	@Override
+	protected void setUp() {
+		Jongo jongo = mock(Jongo.class);
+		DB database = mock(DB.class);
+		this.collection = mock(DBCollection.class);
+		when(jongo.getDatabase()).thenReturn(database);
+		when(database.getCollectionNames()).thenReturn(Collections.<String>emptySet());
+		when(database.getCollection(COLLECTION)).thenReturn(this.collection);
+		this.dataHandler = new MongoDataHandler("mongoTest", jongo);
+	}
+
+	@Override
+	protected void tearDown() {
+		this.dataHandler.finishStreaming();
+	}
+
+	public void testStreamTableReadsSingleCursor() {
+		DBCursor cursor = createCursor(this.chunkSize * 2 + this.chunkSize / 2);
+		when(this.collection.find()).thenReturn(cursor);
+		this.dataHandler.initStreaming();
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(COLLECTION).size());
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(COLLECTION).size());
+		verify(cursor, never()).close();
+		assertEquals(this.chunkSize / 2, this.dataHandler.streamTable(COLLECTION).size());
+		/* the cursor is closed as soon as it is exhausted */
+		verify(cursor).close();
+		assertTrue(this.dataHandler.streamTable(COLLECTION).isEmpty());
+		verify(this.collection, times(1)).find();
+		verify(cursor).batchSize(this.chunkSize);
+	}
+
+	public void testStreamTableWithOrderReadsSingleCursor() {
+		Cursor cursor = stubDocuments(mock(Cursor.class), this.chunkSize + 1);
+		when(this.collection.aggregate(anyList(), any(AggregationOptions.class))).thenReturn(cursor);
+		OrderByOption orderByOption = mock(OrderByOption.class);
+		this.dataHandler.initStreaming();
+		assertEquals(this.chunkSize, this.dataHandler.streamTableWithOrder(COLLECTION, orderByOption).size());
+		verify(cursor, never()).close();
+		assertEquals(1, this.dataHandler.streamTableWithOrder(COLLECTION, orderByOption).size());
+		verify(cursor).close();
+		assertTrue(this.dataHandler.streamTableWithOrder(COLLECTION, orderByOption).isEmpty());
+		ArgumentCaptor<AggregationOptions> options = ArgumentCaptor.forClass(AggregationOptions.class);
+		verify(this.collection, times(1)).aggregate(anyList(), options.capture());
+		assertEquals(Integer.valueOf(this.chunkSize), options.getValue().getBatchSize());
+	}
+
+	public void testFinishStreamingClosesCursor() {
+		DBCursor first = createCursor(this.chunkSize * 2);
+		DBCursor second = createCursor(this.chunkSize * 2);
+		when(this.collection.find()).thenReturn(first, second);
+		this.dataHandler.initStreaming();
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(COLLECTION).size());
+		/* the stream is stopped before the cursor is exhausted, e.g. by $top */
+		this.dataHandler.finishStreaming();
+		verify(first).close();
+		this.dataHandler.initStreaming();
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(COLLECTION).size());
+		verify(this.collection, times(2)).find();
+		verify(second, never()).close();
+	}
+
+	public void testCursorIsKeptPerThread() throws Exception {
+		final DBCursor first = createCursor(this.chunkSize * 2);
+		final DBCursor second = createCursor(this.chunkSize * 2);
+		when(this.collection.find()).thenReturn(first, second);
+		this.dataHandler.initStreaming();
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(COLLECTION).size());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			executor.submit(() -> {
+				dataHandler.initStreaming();
+				assertEquals(chunkSize, dataHandler.streamTable(COLLECTION).size());
+				dataHandler.finishStreaming();
+			}).get();
+		} finally {
+			executor.shutdown();
+		}
+		/* the other thread only closed its own cursor, this one goes on from where it was */
+		verify(second).close();
+		verify(first, never()).close();
+		assertEquals(this.chunkSize, this.dataHandler.streamTable(COLLECTION).size());
+		verify(first).close();
+		verify(this.collection, times(2)).find();
+	}
+
+	private static DBCursor createCursor(int documentCount) {
+		DBCursor cursor = stubDocuments(mock(DBCursor.class), documentCount);
+		when(cursor.batchSize(anyInt())).thenReturn(cursor);
+		return cursor;
+	}
+
+	private static <T extends Iterator<DBObject>> T stubDocuments(T cursor, int documentCount) {
+		List<DBObject> documents = new ArrayList<>();
+		for (int i = 0; i < documentCount; i++) {
+			documents.add(new BasicDBObject("name", "order" + i));
+		}
+		final Iterator<DBObject> iterator = documents.iterator();
+		when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+		when(cursor.next()).thenAnswer(invocation -> iterator.next());
+		return cursor;
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.wso2.micro.integrator.dataservices.common.DBConstants.ResultTypes;
+import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.description.query.Query;
+import org.wso2.micro.integrator.dataservices.core.engine.CallQuery;
+import org.wso2.micro.integrator.dataservices.core.engine.DataService;
+import org.wso2.micro.integrator.dataservices.core.engine.InternalParamCollection;
+import org.wso2.micro.integrator.dataservices.core.engine.OutputElementGroup;
+import org.wso2.micro.integrator.dataservices.core.engine.ParallelQueryExecutor;
+import org.wso2.micro.integrator.dataservices.core.engine.ParamValue;
+import org.wso2.micro.integrator.dataservices.core.engine.QueryParam;
+import org.wso2.micro.integrator.dataservices.core.engine.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Tests the conditions in which the call-queries of an element group are executed in parallel, where the parallel
+ * tasks can't see the uncommitted changes of the request.
+ */
+public class ParallelQueryExecutorTest extends TestCase {
+
+	private static final String NAMESPACE = "http://ws.wso2.org/dataservice";
+
+	private DataService dataService;
+
+	@Override
+	protected void setUp() throws DataServiceFault {
+		this.dataService = new DataService("ParallelQueryExecutorTest", null, NAMESPACE, null, null, false, false,
+				null);
+		this.dataService.setParallelQueryExecution(true);
+		Query.resetQueryPreprocessing();
+	}
+
+	@Override
+	protected void tearDown() {
+		Query.resetQueryPreprocessing();
+	}
+
+	public void testParallelExecutionAllowed() {
+		assertTrue(ParallelQueryExecutor.isParallelExecutionAllowed(this.dataService));
+		this.dataService.setParallelQueryExecution(false);
+		assertFalse(ParallelQueryExecutor.isParallelExecutionAllowed(this.dataService));
+	}
+
+	/**
+	 * Test that the call-queries are not executed in parallel after a query in the request modified data, until
+	 * the next request.
+	 */
+	public void testNotAllowedAfterWrite() throws DataServiceFault {
+		Query readQuery = this.addQuery("readOffices", false);
+		Query writeQuery = this.addQuery("insertOffice", true);
+		Query.setQueryPreprocessingInitial(true);
+		readQuery.execute(null, new HashMap<String, ParamValue>(), 0);
+		assertFalse(Query.isWriteExecuted());
+		assertTrue(ParallelQueryExecutor.isParallelExecutionAllowed(this.dataService));
+		writeQuery.execute(null, new HashMap<String, ParamValue>(), 0);
+		assertTrue(Query.isWriteExecuted());
+		assertFalse(ParallelQueryExecutor.isParallelExecutionAllowed(this.dataService));
+		Query.resetQueryPreprocessing();
+		assertTrue(ParallelQueryExecutor.isParallelExecutionAllowed(this.dataService));
+	}
+
+	public void testReadOnlyElements() throws DataServiceFault {
+		this.addQuery("readOffices", false);
+		this.addQuery("readEmployees", false);
+		OutputElementGroup group = createGroup();
+		group.addCallQueryEntry(this.createCallQuery("readOffices"));
+		group.addCallQueryEntry(this.createCallQuery("readEmployees"));
+		assertTrue(ParallelQueryExecutor.isReadOnly(group.getAllElements()));
+	}
+
+	public void testWriteElement() throws DataServiceFault {
+		this.addQuery("readOffices", false);
+		this.addQuery("insertOffice", true);
+		OutputElementGroup group = createGroup();
+		group.addCallQueryEntry(this.createCallQuery("readOffices"));
+		OutputElementGroup nestedGroup = createGroup();
+		nestedGroup.addCallQueryEntry(this.createCallQuery("insertOffice"));
+		group.addOutputElementGroupEntry(nestedGroup);
+		assertFalse(ParallelQueryExecutor.isReadOnly(group.getAllElements()));
+	}
+
+	/**
+	 * Test a read call-query, which has a call-query in its result which modifies data.
+	 */
+	public void testNestedWrite() throws DataServiceFault {
+		Query readQuery = this.addQuery("readOffices", false);
+		this.addQuery("readEmployees", false);
+		this.addQuery("insertOffice", true);
+		readQuery.getResult().getDefaultElementGroup().addCallQueryEntry(this.createCallQuery("insertOffice"));
+		OutputElementGroup group = createGroup();
+		group.addCallQueryEntry(this.createCallQuery("readOffices"));
+		group.addCallQueryEntry(this.createCallQuery("readEmployees"));
+		assertFalse(ParallelQueryExecutor.isReadOnly(group.getAllElements()));
+	}
+
+	/**
+	 * Test a read call-query, which is nested in its own result.
+	 */
+	public void testRecursiveRead() throws DataServiceFault {
+		Query readQuery = this.addQuery("readOffices", false);
+		readQuery.getResult().getDefaultElementGroup().addCallQueryEntry(this.createCallQuery("readOffices"));
+		OutputElementGroup group = createGroup();
+		group.addCallQueryEntry(this.createCallQuery("readOffices"));
+		assertTrue(ParallelQueryExecutor.isReadOnly(group.getAllElements()));
+	}
+
+	private Query addQuery(String queryId, boolean write) throws DataServiceFault {
+		Result result = null;
+		if (!write) {
+			result = new Result(queryId, "entry", NAMESPACE, null, ResultTypes.XML);
+			result.setDefaultElementGroup(createGroup());
+		}
+		Query query = new Query(this.dataService, queryId, new ArrayList<QueryParam>(), result, null, null, null,
+				null, NAMESPACE) {
+			@Override
+			public Object runPreQuery(InternalParamCollection params, int queryLevel) {
+				return null;
+			}
+
+			@Override
+			public void runPostQuery(Object result, XMLStreamWriter xmlWriter, InternalParamCollection params,
+					int queryLevel) {
+			}
+		};
+		this.dataService.addQuery(query);
+		return query;
+	}
+
+	private CallQuery createCallQuery(String queryId) throws DataServiceFault {
+		CallQuery callQuery = new CallQuery(this.dataService, queryId, new HashMap<String, CallQuery.WithParam>(),
+				Collections.<String>emptySet());
+		callQuery.init();
+		return callQuery;
+	}
+
+	private static OutputElementGroup createGroup() {
+		return new OutputElementGroup(null, NAMESPACE, null, null);
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.wso2.micro.integrator.dataservices.core.description.query.SQLQuery;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Tests the classification of the SQL statements which modify data, which invalidates the query result caches. Each
+ * statement is run against an in-memory H2 database, to check that it is valid and that the classification matches
+ * its effect.
+ */
+public class QueryClassificationTest extends TestCase {
+
+	private Connection connection;
+
+	@Override
+	protected void setUp() throws Exception {
+		Class.forName("org.h2.Driver");
+		this.connection = DriverManager.getConnection("jdbc:h2:mem:QueryClassificationTest", "sa", "");
+		Statement statement = this.connection.createStatement();
+		statement.execute("CREATE TABLE Offices (officeCode INT PRIMARY KEY, city VARCHAR(50))");
+		statement.execute("INSERT INTO Offices VALUES (1, 'Colombo')");
+		statement.close();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Statement statement = this.connection.createStatement();
+		statement.execute("DROP ALL OBJECTS");
+		statement.close();
+		this.connection.close();
+	}
+
+	/**
+	 * Test the statements which don't modify data, including the ones which used to be treated as writes.
+	 */
+	public void testReadStatements() throws SQLException {
+		assertRead("SELECT * FROM Offices");
+		assertRead("  select city from Offices where officeCode = 1");
+		assertRead("(SELECT city FROM Offices) UNION (SELECT 'Kandy')");
+		assertRead("-- offices\nSELECT city FROM Offices");
+		assertRead("/* offices */ SELECT city FROM Offices");
+		assertRead("WITH RECURSIVE T(N) AS (SELECT 1 UNION ALL SELECT N + 1 FROM T WHERE N < 3) SELECT N FROM T");
+		assertRead("WITH RECURSIVE T(N) AS (SELECT 1 UNION ALL SELECT N + 1 FROM T WHERE N < 3) "
+				+ "SELECT 'insert' || N, \"N\" FROM T");
+		assertRead("EXPLAIN SELECT * FROM Offices");
+	}
+
+	/**
+	 * Test the statements which modify data or the schema.
+	 */
+	public void testWriteStatements() throws SQLException {
+		assertWrite("INSERT INTO Offices VALUES (2, 'Kandy')");
+		assertWrite("update Offices set city = 'Galle' where officeCode = 2");
+		assertWrite("/* merge */ MERGE INTO Offices KEY (officeCode) VALUES (3, 'Jaffna')");
+		assertWrite("DELETE FROM Offices WHERE officeCode = 3");
+		assertWrite("CREATE TABLE Employees (employeeNumber INT)");
+		assertWrite("ALTER TABLE Employees ADD COLUMN lastName VARCHAR(50)");
+		assertWrite("DROP TABLE Employees");
+		assertEquals(Boolean.TRUE, SQLQuery.isWriteStatement(
+				"WITH t AS (DELETE FROM Offices RETURNING *) SELECT * FROM t"));
+	}
+
+	/**
+	 * Test the statements which can't be classified, which are treated as writes unless the query is configured
+	 * to be read-only.
+	 */
+	public void testUnclassifiedStatements() throws SQLException {
+		assertNull(SQLQuery.isWriteStatement("CALL ABS(-1)"));
+		assertNull(SQLQuery.isWriteStatement("{call getCustomers(?)}"));
+		assertNull(SQLQuery.isWriteStatement("EXEC getCustomers"));
+		assertNull(SQLQuery.isWriteStatement("/* unterminated"));
+		assertNull(SQLQuery.isWriteStatement(""));
+		Statement statement = this.connection.createStatement();
+		assertTrue(statement.execute("CALL ABS(-1)"));
+		statement.close();
+	}
+
+	private void assertRead(String sql) throws SQLException {
+		assertEquals(sql, Boolean.FALSE, SQLQuery.isWriteStatement(sql));
+		String before = this.readOffices();
+		Statement statement = this.connection.createStatement();
+		assertTrue(sql, statement.execute(sql));
+		statement.close();
+		assertEquals(sql, before, this.readOffices());
+	}
+
+	private void assertWrite(String sql) throws SQLException {
+		assertEquals(sql, Boolean.TRUE, SQLQuery.isWriteStatement(sql));
+		Statement statement = this.connection.createStatement();
+		assertFalse(sql, statement.execute(sql));
+		statement.close();
+	}
+
+	private String readOffices() throws SQLException {
+		StringBuilder offices = new StringBuilder();
+		Statement statement = this.connection.createStatement();
+		ResultSet resultSet = statement.executeQuery("SELECT officeCode, city FROM Offices ORDER BY officeCode");
+		while (resultSet.next()) {
+			offices.append(resultSet.getInt(1)).append(':').append(resultSet.getString(2)).append(';');
+		}
+		resultSet.close();
+		statement.close();
+		return offices.toString();
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.apache.olingo.server.api.uri.queryoption.SkipTokenOption;
+import org.wso2.micro.integrator.dataservices.core.odata.ODataEntry;
+import org.wso2.micro.integrator.dataservices.core.odata.ODataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.odata.QueryOptions;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+/**
+ * Tests the skip tokens of the OData query options, with and without the key values of keyset pagination.
+ */
+public class QueryOptionsTest extends TestCase {
+
+	private static final String BASE_URL = "http://localhost:8290/odata/TestService/default";
+
+	private static final String NEXT_LINK_PREFIX = BASE_URL + "/ASSIGNMENT?$skiptoken=";
+
+	/**
+	 * Test that a skip token without key values skips the entities of the previous pages.
+	 */
+	public void testPageSkipToken() throws Exception {
+		QueryOptions queryOptions = createQueryOptions("2", 10);
+		assertNull(queryOptions.getSkipTokenKeyValues());
+		assertEquals(20, queryOptions.getItemsToSkip());
+		assertEquals(NEXT_LINK_PREFIX + "3", queryOptions.getNextLinkUri().toString());
+		queryOptions.setKeysetColumns(Arrays.asList("EMPLOYEE_ID", "PROJECT_ID"));
+		assertTrue(queryOptions.isKeysetPaging());
+		assertFalse(queryOptions.isKeysetSeek());
+		assertEquals(20, queryOptions.getPagingOffset());
+		assertEquals(10, queryOptions.getPagingLimit());
+	}
+
+	/**
+	 * Test that the key values of a skip token are decoded, and that the page is read by seeking past them.
+	 */
+	public void testKeysetSkipToken() throws Exception {
+		/* "Nw" and "YS5i" are the base64url encoded "7" and "a.b" */
+		QueryOptions queryOptions = createQueryOptions("2.Nw.YS5i", 10);
+		assertEquals(Arrays.asList("7", "a.b"), queryOptions.getSkipTokenKeyValues());
+		assertEquals(20, queryOptions.getItemsToSkip());
+		queryOptions.setKeysetColumns(Arrays.asList("EMPLOYEE_ID", "NAME"));
+		assertTrue(queryOptions.isKeysetSeek());
+		assertEquals(0, queryOptions.getPagingOffset());
+		assertEquals(10, queryOptions.getPagingLimit());
+	}
+
+	/**
+	 * Test that the key values are not used to seek unless there is a value for each key column.
+	 */
+	public void testKeysetSkipTokenWithMissingKeyValues() throws Exception {
+		QueryOptions queryOptions = createQueryOptions("2.Nw", 10);
+		assertEquals(Arrays.asList("7"), queryOptions.getSkipTokenKeyValues());
+		assertFalse(queryOptions.isKeysetSeek());
+		queryOptions.setKeysetColumns(Arrays.asList("EMPLOYEE_ID", "PROJECT_ID"));
+		assertFalse(queryOptions.isKeysetSeek());
+		assertEquals(20, queryOptions.getPagingOffset());
+	}
+
+	/**
+	 * Test that the link to the next page carries the key values of the last entity read, and that the skip token
+	 * in the link is decoded back to the same key values, even when they contain the token separator, characters
+	 * which are reserved in URIs and non-ASCII characters.
+	 */
+	public void testKeysetNextLinkRoundTrip() throws Exception {
+		QueryOptions queryOptions = createQueryOptions("0", 25);
+		queryOptions.setKeysetColumns(Arrays.asList("EMPLOYEE_ID", "NAME", "CODE"));
+		assertNull(queryOptions.getNextLinkUri());
+		ODataEntry lastEntry = new ODataEntry();
+		lastEntry.addValue("EMPLOYEE_ID", "7");
+		lastEntry.addValue("NAME", "a.b/c?d=e&f \u00e9\u4e2d");
+		lastEntry.addValue("CODE", "");
+		lastEntry.addValue("ROLE", "ignored");
+		queryOptions.setLastEntry(lastEntry);
+		String nextLink = queryOptions.getNextLinkUri().toString();
+		assertTrue(nextLink, nextLink.startsWith(NEXT_LINK_PREFIX + "1."));
+		String skipToken = nextLink.substring(NEXT_LINK_PREFIX.length());
+		assertTrue(skipToken, skipToken.matches("1(\\.[A-Za-z0-9_-]*){3}"));
+
+		QueryOptions nextQueryOptions = createQueryOptions(skipToken, 25);
+		assertEquals(Arrays.asList("7", "a.b/c?d=e&f \u00e9\u4e2d", ""), nextQueryOptions.getSkipTokenKeyValues());
+		assertEquals(25, nextQueryOptions.getItemsToSkip());
+		nextQueryOptions.setKeysetColumns(Arrays.asList("EMPLOYEE_ID", "NAME", "CODE"));
+		assertTrue(nextQueryOptions.isKeysetSeek());
+		assertEquals(0, nextQueryOptions.getPagingOffset());
+	}
+
+	/**
+	 * Test that the link to the next page is reset when the key columns are set, and that it doesn't carry key
+	 * values without keyset pagination.
+	 */
+	public void testNextLinkWithoutKeysetPaging() throws Exception {
+		QueryOptions queryOptions = createQueryOptions("0", 25);
+		queryOptions.setKeysetColumns(Arrays.asList("EMPLOYEE_ID"));
+		ODataEntry lastEntry = new ODataEntry();
+		lastEntry.addValue("EMPLOYEE_ID", "7");
+		queryOptions.setLastEntry(lastEntry);
+		assertEquals(NEXT_LINK_PREFIX + "1.Nw", queryOptions.getNextLinkUri().toString());
+		queryOptions.setKeysetColumns(Arrays.asList("EMPLOYEE_ID"));
+		assertNull(queryOptions.getNextLinkUri());
+		queryOptions.setKeysetColumns(null);
+		assertFalse(queryOptions.isKeysetPaging());
+		assertEquals(NEXT_LINK_PREFIX + "1", queryOptions.getNextLinkUri().toString());
+	}
+
+	public void testInvalidKeysetSkipToken() throws Exception {
+		try {
+			createQueryOptions("1.Nw.@@", 10);
+			fail("A skip token with invalid key values must be rejected");
+		} catch (ODataServiceFault e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Invalid skip token"));
+		}
+	}
+
+	private static QueryOptions createQueryOptions(String skipToken, int pageSize) throws ODataServiceFault {
+		QueryOptions queryOptions = new QueryOptions(null, null, null, null, null, null, skipTokenOption(skipToken));
+		queryOptions.initPagination(pageSize, BASE_URL, "ASSIGNMENT");
+		return queryOptions;
+	}
+
+	private static SkipTokenOption skipTokenOption(final String value) {
+		return (SkipTokenOption) Proxy.newProxyInstance(SkipTokenOption.class.getClassLoader(),
+				new Class<?>[] { SkipTokenOption.class }, (proxy, method, args) -> {
+					if (method.getName().equals("getValue")) {
+						return value;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+}
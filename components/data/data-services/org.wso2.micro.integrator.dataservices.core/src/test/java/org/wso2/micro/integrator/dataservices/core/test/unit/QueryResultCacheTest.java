@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.mockito.ArgumentCaptor;
+import org.wso2.micro.integrator.dataservices.common.DBConstants.ResultTypes;
+import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.description.query.Query;
+import org.wso2.micro.integrator.dataservices.core.description.query.QueryResultCache;
+import org.wso2.micro.integrator.dataservices.core.description.xa.DSSXATransactionManager;
+import org.wso2.micro.integrator.dataservices.core.dispatch.DispatchStatus;
+import org.wso2.micro.integrator.dataservices.core.engine.DataEntry;
+import org.wso2.micro.integrator.dataservices.core.engine.DataService;
+import org.wso2.micro.integrator.dataservices.core.engine.InternalParamCollection;
+import org.wso2.micro.integrator.dataservices.core.engine.OutputElementGroup;
+import org.wso2.micro.integrator.dataservices.core.engine.ParamValue;
+import org.wso2.micro.integrator.dataservices.core.engine.QueryParam;
+import org.wso2.micro.integrator.dataservices.core.engine.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+import javax.xml.stream.XMLStreamWriter;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the caching of the query results collected during an execution, and their invalidation.
+ */
+public class QueryResultCacheTest extends TestCase {
+
+	private static final String NAMESPACE = "http://ws.wso2.org/dataservice";
+
+	private QueryResultCache resultCache;
+
+	@Override
+	protected void setUp() {
+		this.resultCache = new QueryResultCache("QueryResultCacheTest", this.getName(), 60, 10);
+		Query.resetQueryPreprocessing();
+	}
+
+	@Override
+	protected void tearDown() {
+		Query.finishTransaction();
+		Query.resetQueryPreprocessing();
+		DispatchStatus.clearRequestStatus();
+	}
+
+	/**
+	 * Test caching the rows of a completed execution.
+	 */
+	public void testCollectedResultIsCached() {
+		List<Object> key = createKey("1");
+		this.collect(key, this.resultCache.getGeneration(), true, 2);
+		assertEquals(2, this.resultCache.get(key).size());
+		assertNull(this.resultCache.get(createKey("2")));
+
+		this.resultCache.clear();
+		assertNull(this.resultCache.get(key));
+	}
+
+	/**
+	 * Test a failed execution and a result larger than the cache, which are not cached.
+	 */
+	public void testIncompleteResultIsNotCached() {
+		List<Object> key = createKey("1");
+		this.collect(key, this.resultCache.getGeneration(), false, 1);
+		assertNull(this.resultCache.get(key));
+		this.collect(key, this.resultCache.getGeneration(), true, 11);
+		assertNull(this.resultCache.get(key));
+	}
+
+	/**
+	 * Test a result read before the cache is invalidated by a write, which must not be cached even if the
+	 * invalidation happens before collecting the rows.
+	 */
+	public void testResultReadBeforeInvalidationIsNotCached() {
+		List<Object> key = createKey("1");
+		long generation = this.resultCache.getGeneration();
+		this.resultCache.clear();
+		this.collect(key, generation, true, 1);
+		assertNull(this.resultCache.get(key));
+
+		generation = this.resultCache.getGeneration();
+		this.resultCache.startCollecting(generation);
+		this.resultCache.collect(createEntry(0));
+		this.resultCache.clear();
+		this.resultCache.finishCollecting(key, true);
+		assertNull(this.resultCache.get(key));
+
+		this.collect(key, this.resultCache.getGeneration(), true, 1);
+		assertEquals(1, this.resultCache.get(key).size());
+	}
+
+	/**
+	 * Test the rows of nested executions, which are collected separately.
+	 */
+	public void testNestedCollection() {
+		List<Object> outerKey = createKey("1");
+		List<Object> innerKey = createKey("2");
+		this.resultCache.startCollecting(this.resultCache.getGeneration());
+		this.resultCache.collect(createEntry(0));
+		this.collect(innerKey, this.resultCache.getGeneration(), true, 2);
+		this.resultCache.collect(createEntry(1));
+		this.resultCache.collect(createEntry(2));
+		this.resultCache.finishCollecting(outerKey, true);
+		assertEquals(3, this.resultCache.get(outerKey).size());
+		assertEquals(2, this.resultCache.get(innerKey).size());
+	}
+
+	/**
+	 * Test a read executed after a write in the same request, which is neither served from the cache nor cached,
+	 * as it sees the uncommitted changes of the write.
+	 */
+	public void testReadAfterWriteIsNotCached() throws DataServiceFault {
+		DataService dataService = createDataService();
+		AtomicInteger reads = new AtomicInteger();
+		Query readQuery = this.addQuery(dataService, "readOffices", reads);
+		Query writeQuery = this.addQuery(dataService, "insertOffice", null);
+		this.execute(readQuery);
+		this.execute(readQuery);
+		assertEquals(1, reads.get());
+
+		this.execute(writeQuery);
+		this.execute(readQuery);
+		this.execute(readQuery);
+		assertEquals(3, reads.get());
+
+		/* the next request reads the data committed by the write, which is cached again */
+		Query.resetQueryPreprocessing();
+		this.execute(readQuery);
+		this.execute(readQuery);
+		assertEquals(4, reads.get());
+	}
+
+	/**
+	 * Test the writes of a request box, whose changes are committed with the whole box, where the reads of the
+	 * following requests of the box are not cached, and the results cached by other requests meanwhile are
+	 * invalidated once the transaction ends.
+	 */
+	public void testInvalidatedAfterTransaction() throws DataServiceFault {
+		DataService dataService = createDataService();
+		AtomicInteger reads = new AtomicInteger();
+		Query readQuery = this.addQuery(dataService, "readOffices", reads);
+		Query writeQuery = this.addQuery(dataService, "insertOffice", null);
+		DispatchStatus.setBoxcarringRequest();
+		this.execute(writeQuery);
+		Query.resetQueryPreprocessing();
+		assertTrue(Query.isWriteExecuted());
+		this.execute(readQuery);
+		this.execute(readQuery);
+		assertEquals(2, reads.get());
+
+		/* a result read by another request before the commit */
+		List<Object> key = readQuery.getResultCache().createKey(new InternalParamCollection(), false);
+		readQuery.getResultCache().startCollecting(readQuery.getResultCache().getGeneration());
+		readQuery.getResultCache().finishCollecting(key, true);
+		assertNotNull(readQuery.getResultCache().get(key));
+
+		Query.finishTransaction();
+		Query.resetQueryPreprocessing();
+		assertFalse(Query.isWriteExecuted());
+		assertNull(readQuery.getResultCache().get(key));
+	}
+
+	/**
+	 * Test the reads of a distributed transaction, which are not cached, and the invalidation of the results cached
+	 * by other requests once the XA connections are committed by the transaction manager, after the request ends.
+	 */
+	public void testInvalidatedAfterDistributedTransaction() throws Exception {
+		TransactionManager txManager = mock(TransactionManager.class);
+		Transaction tx = mock(Transaction.class);
+		when(txManager.getStatus()).thenReturn(Status.STATUS_ACTIVE);
+		when(txManager.getTransaction()).thenReturn(tx);
+		final DSSXATransactionManager dssTxManager = new DSSXATransactionManager(txManager);
+		DataService dataService = new DataService("QueryResultCacheTest_" + this.getName(), null, NAMESPACE, null,
+				null, false, false, null) {
+			@Override
+			public DSSXATransactionManager getDSSTxManager() {
+				return dssTxManager;
+			}
+		};
+		AtomicInteger reads = new AtomicInteger();
+		Query readQuery = this.addQuery(dataService, "readOffices", reads);
+		Query writeQuery = this.addQuery(dataService, "insertOffice", null);
+		this.execute(readQuery);
+		this.execute(readQuery);
+		assertEquals(2, reads.get());
+
+		this.execute(writeQuery);
+		ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+		verify(tx).registerSynchronization(synchronization.capture());
+
+		/* a result read by another request after the request ended, but before the XA commit */
+		List<Object> key = readQuery.getResultCache().createKey(new InternalParamCollection(), false);
+		readQuery.getResultCache().startCollecting(readQuery.getResultCache().getGeneration());
+		readQuery.getResultCache().finishCollecting(key, true);
+		assertNotNull(readQuery.getResultCache().get(key));
+
+		synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+		assertNull(readQuery.getResultCache().get(key));
+	}
+
+	private void execute(Query query) throws DataServiceFault {
+		Query.setQueryPreprocessingInitial(true);
+		Query.setQueryPreprocessingSecondary(true);
+		query.execute(null, new HashMap<String, ParamValue>(), 0);
+	}
+
+	private DataService createDataService() throws DataServiceFault {
+		return new DataService("QueryResultCacheTest_" + this.getName(), null, NAMESPACE, null, null, false, false,
+				null);
+	}
+
+	/**
+	 * Adds a read query with a result cache, which counts its executions, or a write query if there is no counter.
+	 */
+	private Query addQuery(DataService dataService, String queryId, final AtomicInteger reads)
+			throws DataServiceFault {
+		Result result = null;
+		if (reads != null) {
+			result = new Result(queryId, "entry", NAMESPACE, null, ResultTypes.XML);
+			result.setDefaultElementGroup(new OutputElementGroup(null, NAMESPACE, null, null));
+		}
+		Query query = new Query(dataService, queryId, new ArrayList<QueryParam>(), result, null, null, null, null,
+				NAMESPACE) {
+			@Override
+			public boolean isResultCacheable() {
+				return reads != null;
+			}
+
+			@Override
+			public Object runPreQuery(InternalParamCollection params, int queryLevel) {
+				if (reads != null) {
+					reads.incrementAndGet();
+				}
+				return null;
+			}
+
+			@Override
+			public void runPostQuery(Object result, XMLStreamWriter xmlWriter, InternalParamCollection params,
+					int queryLevel) {
+			}
+		};
+		if (reads != null) {
+			query.setResultCache(new QueryResultCache(dataService.getName(), queryId, 60, 10));
+		}
+		dataService.addQuery(query);
+		return query;
+	}
+
+	private void collect(List<Object> key, long generation, boolean store, int rows) {
+		this.resultCache.startCollecting(generation);
+		for (int i = 0; i < rows; i++) {
+			this.resultCache.collect(createEntry(i));
+		}
+		this.resultCache.finishCollecting(key, store);
+	}
+
+	private static List<Object> createKey(String value) {
+		return Arrays.<Object>asList("id", value);
+	}
+
+	private static DataEntry createEntry(int row) {
+		DataEntry dataEntry = new DataEntry();
+		dataEntry.addValue("id", new ParamValue(String.valueOf(row)));
+		return dataEntry;
+	}
+
+}
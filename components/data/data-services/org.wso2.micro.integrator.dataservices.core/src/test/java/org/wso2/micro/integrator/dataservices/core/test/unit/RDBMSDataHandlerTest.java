@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.apache.olingo.server.api.uri.queryoption.SkipTokenOption;
+import org.wso2.micro.integrator.dataservices.core.odata.ODataEntry;
+import org.wso2.micro.integrator.dataservices.core.odata.ODataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.odata.QueryOptions;
+import org.wso2.micro.integrator.dataservices.core.odata.RDBMSDataHandler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+/**
+ * Tests the OData RDBMS data handler against an in-memory H2 database, recording the statements it prepares.
+ */
+public class RDBMSDataHandlerTest extends TestCase {
+
+	private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger();
+
+	private static final String BASE_URL = "http://localhost:8290/odata/TestService/default";
+
+	private final List<String> preparedStatements = Collections.synchronizedList(new ArrayList<String>());
+
+	private String url;
+
+	private Connection keepAliveConnection;
+
+	private RDBMSDataHandler dataHandler;
+
+	@Override
+	protected void setUp() throws Exception {
+		Class.forName("org.h2.Driver");
+		this.url = "jdbc:h2:mem:odataTest" + DATABASE_COUNTER.incrementAndGet();
+		/* the in-memory database lives as long as a connection to it is open */
+		this.keepAliveConnection = DriverManager.getConnection(this.url, "sa", "");
+		Statement statement = this.keepAliveConnection.createStatement();
+		statement.execute("CREATE TABLE OFFICE (ID INT PRIMARY KEY, CITY VARCHAR(50))");
+		statement.execute("CREATE TABLE ASSIGNMENT (EMPLOYEE_ID INT, PROJECT_ID INT, ROLE VARCHAR(50), "
+				+ "PRIMARY KEY (EMPLOYEE_ID, PROJECT_ID))");
+		statement.execute("CREATE TABLE VISIT (OFFICE_ID INT, VISITOR VARCHAR(50))");
+		statement.execute("INSERT INTO VISIT VALUES (1, 'Alice'), (1, 'Bob'), (2, 'Alice')");
+		statement.close();
+		PreparedStatement insertOffice = this.keepAliveConnection.prepareStatement(
+				"INSERT INTO OFFICE VALUES (?, ?)");
+		for (int id = 1; id <= 2500; id++) {
+			insertOffice.setInt(1, id);
+			insertOffice.setString(2, "City" + id);
+			insertOffice.addBatch();
+		}
+		insertOffice.executeBatch();
+		insertOffice.close();
+		PreparedStatement insertAssignment = this.keepAliveConnection.prepareStatement(
+				"INSERT INTO ASSIGNMENT VALUES (?, ?, ?)");
+		for (int employee = 1; employee <= 30; employee++) {
+			for (int project = 1; project <= 30; project++) {
+				insertAssignment.setInt(1, employee);
+				insertAssignment.setInt(2, project);
+				insertAssignment.setString(3, "Role" + employee + "." + project);
+				insertAssignment.addBatch();
+			}
+		}
+		insertAssignment.executeBatch();
+		insertAssignment.close();
+		this.dataHandler = new RDBMSDataHandler(this.createDataSource(), "odataTest");
+		this.preparedStatements.clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.keepAliveConnection.close();
+	}
+
+	/**
+	 * Test that the entities of a list of keys are read with a single query, reading repeated keys only once.
+	 */
+	public void testReadTableWithKeysList() throws Exception {
+		List<ODataEntry> keysList = new ArrayList<ODataEntry>();
+		keysList.add(officeKeys(1));
+		keysList.add(officeKeys(2));
+		keysList.add(officeKeys(2));
+		keysList.add(officeKeys(9999));
+		List<ODataEntry> entries = this.dataHandler.readTableWithKeysList("OFFICE", keysList);
+		assertEquals(1, this.preparedStatements.size());
+		assertEquals(2, entries.size());
+		assertEquals(set("1", "2"), valuesOf(entries, "ID"));
+		for (ODataEntry entry : entries) {
+			assertEquals("City" + entry.getValue("ID"), entry.getValue("CITY"));
+		}
+	}
+
+	/**
+	 * Test that a large list of keys is read in batches which bind a bounded number of parameters.
+	 */
+	public void testReadTableWithKeysListInBatches() throws Exception {
+		List<ODataEntry> keysList = new ArrayList<ODataEntry>();
+		Set<String> ids = new HashSet<String>();
+		for (int id = 1; id <= 2500; id++) {
+			keysList.add(officeKeys(id));
+			ids.add(String.valueOf(id));
+		}
+		List<ODataEntry> entries = this.dataHandler.readTableWithKeysList("OFFICE", keysList);
+		assertEquals(3, this.preparedStatements.size());
+		assertEquals(2500, entries.size());
+		assertEquals(ids, valuesOf(entries, "ID"));
+	}
+
+	/**
+	 * Test that a table with a composite key is read by matching all the key columns, with half as many key sets
+	 * in each batch.
+	 */
+	public void testReadTableWithCompositeKeysList() throws Exception {
+		List<ODataEntry> keysList = new ArrayList<ODataEntry>();
+		Set<String> roles = new HashSet<String>();
+		for (int employee = 1; employee <= 30; employee++) {
+			for (int project = 1; project <= 20; project++) {
+				keysList.add(assignmentKeys(employee, project));
+				roles.add("Role" + employee + "." + project);
+			}
+		}
+		List<ODataEntry> entries = this.dataHandler.readTableWithKeysList("ASSIGNMENT", keysList);
+		assertEquals(2, this.preparedStatements.size());
+		assertEquals(600, entries.size());
+		assertEquals(roles, valuesOf(entries, "ROLE"));
+	}
+
+	/**
+	 * Test that the key sets with different columns are read with a query per set of columns, and that the
+	 * properties which are not columns of the table are ignored.
+	 */
+	public void testReadTableWithMixedKeysList() throws Exception {
+		List<ODataEntry> keysList = new ArrayList<ODataEntry>();
+		keysList.add(assignmentKeys(1, 2));
+		ODataEntry employeeKeys = new ODataEntry();
+		employeeKeys.addValue("EMPLOYEE_ID", "3");
+		employeeKeys.addValue("NAME", "ignored");
+		keysList.add(employeeKeys);
+		ODataEntry unknownKeys = new ODataEntry();
+		unknownKeys.addValue("NAME", "ignored");
+		keysList.add(unknownKeys);
+		List<ODataEntry> entries = this.dataHandler.readTableWithKeysList("ASSIGNMENT", keysList);
+		assertEquals(2, this.preparedStatements.size());
+		assertEquals(31, entries.size());
+		Set<String> roles = valuesOf(entries, "ROLE");
+		assertTrue(roles.contains("Role1.2"));
+		assertTrue(roles.contains("Role3.30"));
+	}
+
+	/**
+	 * Test that the batched read returns the same entities as reading the keys one by one.
+	 */
+	public void testReadTableWithKeysListMatchesReadTableWithKeys() throws Exception {
+		List<ODataEntry> keysList = new ArrayList<ODataEntry>();
+		keysList.add(assignmentKeys(5, 6));
+		keysList.add(assignmentKeys(7, 8));
+		keysList.add(assignmentKeys(31, 1));
+		Set<String> expected = new HashSet<String>();
+		for (ODataEntry keys : keysList) {
+			expected.addAll(valuesOf(this.dataHandler.readTableWithKeys("ASSIGNMENT", keys), "ROLE"));
+		}
+		assertEquals(expected, valuesOf(this.dataHandler.readTableWithKeysList("ASSIGNMENT", keysList), "ROLE"));
+	}
+
+	public void testReadTableWithEmptyKeysList() throws Exception {
+		assertTrue(this.dataHandler.readTableWithKeysList("OFFICE", new ArrayList<ODataEntry>()).isEmpty());
+		assertEquals(0, this.preparedStatements.size());
+	}
+
+	/**
+	 * Test that the pages of a table with a composite key are read by seeking past the keys of the previous page,
+	 * including the pages which start in the middle of the rows of a leading key value, and that every row is
+	 * read once in key order.
+	 */
+	public void testKeysetPagingWithCompositeKey() throws Exception {
+		List<String> roles = new ArrayList<String>();
+		String skipToken = "0";
+		int pages = 0;
+		while (true) {
+			QueryOptions queryOptions = createQueryOptions("ASSIGNMENT", skipToken, 25);
+			int count = this.dataHandler.getEntityCountWithQueryOptions("ASSIGNMENT", null, queryOptions);
+			assertEquals(900 - roles.size(), count);
+			assertTrue(queryOptions.isPagingPushedDown());
+			assertTrue(queryOptions.isKeysetPaging());
+			assertEquals(pages > 0, queryOptions.isKeysetSeek());
+			if (count == 0) {
+				break;
+			}
+			List<ODataEntry> entries = readPage("ASSIGNMENT", queryOptions);
+			assertEquals(Math.min(25, count), entries.size());
+			if (pages > 0) {
+				assertEquals("SELECT * FROM ASSIGNMENT WHERE ((EMPLOYEE_ID > ?) OR (EMPLOYEE_ID = ? AND "
+						+ "PROJECT_ID > ?)) ORDER BY EMPLOYEE_ID, PROJECT_ID LIMIT 25 OFFSET 0", lastPreparedStatement());
+			}
+			for (ODataEntry entry : entries) {
+				roles.add(entry.getValue("ROLE"));
+			}
+			ODataEntry lastEntry = entries.get(entries.size() - 1);
+			skipToken = nextSkipToken(queryOptions);
+			assertEquals((pages + 1) + "." + encode(lastEntry.getValue("EMPLOYEE_ID")) + "."
+					+ encode(lastEntry.getValue("PROJECT_ID")), skipToken);
+			pages++;
+		}
+		assertEquals(36, pages);
+		for (int i = 0; i < roles.size(); i++) {
+			assertEquals("Role" + (i / 30 + 1) + "." + (i % 30 + 1), roles.get(i));
+		}
+	}
+
+	/**
+	 * Test that a page is read from the key value in the skip token, without an offset.
+	 */
+	public void testKeysetPagingFromSkipTokenKey() throws Exception {
+		QueryOptions queryOptions = createQueryOptions("OFFICE", "3." + encode("2000"), 100);
+		assertEquals(500, this.dataHandler.getEntityCountWithQueryOptions("OFFICE", null, queryOptions));
+		assertTrue(queryOptions.isKeysetSeek());
+		List<ODataEntry> entries = readPage("OFFICE", queryOptions);
+		assertEquals("SELECT * FROM OFFICE WHERE ((ID > ?)) ORDER BY ID LIMIT 100 OFFSET 0", lastPreparedStatement());
+		assertEquals(100, entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			assertEquals(String.valueOf(2001 + i), entries.get(i).getValue("ID"));
+		}
+		assertEquals("4." + encode("2100"), nextSkipToken(queryOptions));
+	}
+
+	/**
+	 * Test that a skip token without key values, as in the links of the earlier releases, skips the entities of
+	 * the previous pages, and that the link to the next page carries the key values.
+	 */
+	public void testKeysetPagingFromPageSkipToken() throws Exception {
+		QueryOptions queryOptions = createQueryOptions("OFFICE", "3", 100);
+		assertEquals(2500, this.dataHandler.getEntityCountWithQueryOptions("OFFICE", null, queryOptions));
+		assertFalse(queryOptions.isKeysetSeek());
+		List<ODataEntry> entries = readPage("OFFICE", queryOptions);
+		assertEquals("SELECT * FROM OFFICE ORDER BY ID LIMIT 100 OFFSET 300", lastPreparedStatement());
+		assertEquals(100, entries.size());
+		assertEquals("301", entries.get(0).getValue("ID"));
+		assertEquals("400", entries.get(99).getValue("ID"));
+		assertEquals("4." + encode("400"), nextSkipToken(queryOptions));
+	}
+
+	/**
+	 * Test that the key values in the skip token are combined with the keys of the request.
+	 */
+	public void testKeysetPagingWithKeys() throws Exception {
+		ODataEntry keys = new ODataEntry();
+		keys.addValue("EMPLOYEE_ID", "3");
+		QueryOptions queryOptions = createQueryOptions("ASSIGNMENT", "1." + encode("2") + "." + encode("28"), 10);
+		assertEquals(30, this.dataHandler.getEntityCountWithQueryOptions("ASSIGNMENT", keys, queryOptions));
+		List<ODataEntry> entries = readPage("ASSIGNMENT", keys, queryOptions);
+		assertEquals("SELECT * FROM ASSIGNMENT WHERE EMPLOYEE_ID = ? AND ((EMPLOYEE_ID > ?) OR (EMPLOYEE_ID = ? AND "
+				+ "PROJECT_ID > ?)) ORDER BY EMPLOYEE_ID, PROJECT_ID LIMIT 10 OFFSET 0", lastPreparedStatement());
+		assertEquals(10, entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			assertEquals("Role3." + (i + 1), entries.get(i).getValue("ROLE"));
+		}
+	}
+
+	/**
+	 * Test that a table without primary keys is paged in memory, as its rows can't be sorted in a total order to
+	 * keep the pages stable.
+	 */
+	public void testPagingWithoutKeysIsNotPushedDown() throws Exception {
+		QueryOptions queryOptions = createQueryOptions("VISIT", "0", 2);
+		assertEquals(3, this.dataHandler.getEntityCountWithQueryOptions("VISIT", null, queryOptions));
+		assertFalse(queryOptions.isPagingPushedDown());
+		assertFalse(queryOptions.isKeysetPaging());
+		assertEquals(3, readPage("VISIT", queryOptions).size());
+		assertEquals("SELECT * FROM VISIT", lastPreparedStatement());
+	}
+
+	private static ODataEntry officeKeys(int id) {
+		ODataEntry keys = new ODataEntry();
+		keys.addValue("ID", String.valueOf(id));
+		return keys;
+	}
+
+	private static ODataEntry assignmentKeys(int employee, int project) {
+		ODataEntry keys = new ODataEntry();
+		keys.addValue("EMPLOYEE_ID", String.valueOf(employee));
+		keys.addValue("PROJECT_ID", String.valueOf(project));
+		return keys;
+	}
+
+	private static Set<String> valuesOf(List<ODataEntry> entries, String column) {
+		Set<String> values = new HashSet<String>();
+		for (ODataEntry entry : entries) {
+			values.add(entry.getValue(column));
+		}
+		return values;
+	}
+
+	private static Set<String> set(String... values) {
+		Set<String> set = new HashSet<String>();
+		Collections.addAll(set, values);
+		return set;
+	}
+
+	private static QueryOptions createQueryOptions(String tableName, final String skipToken, int pageSize)
+			throws ODataServiceFault {
+		SkipTokenOption skipTokenOption = (SkipTokenOption) Proxy.newProxyInstance(
+				SkipTokenOption.class.getClassLoader(), new Class<?>[] { SkipTokenOption.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("getValue")) {
+						return skipToken;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		QueryOptions queryOptions = new QueryOptions(null, null, null, null, null, null, skipTokenOption);
+		queryOptions.initPagination(pageSize, BASE_URL, tableName);
+		return queryOptions;
+	}
+
+	private List<ODataEntry> readPage(String tableName, QueryOptions queryOptions) throws ODataServiceFault {
+		return readPage(tableName, null, queryOptions);
+	}
+
+	/**
+	 * Reads a page with the pushed down query options, keeping the last entry for the next link as the OData
+	 * adapter does.
+	 */
+	private List<ODataEntry> readPage(String tableName, ODataEntry keys, QueryOptions queryOptions)
+			throws ODataServiceFault {
+		this.dataHandler.initStreaming();
+		List<ODataEntry> entries = this.dataHandler.streamTableWithQueryOptions(tableName, keys, queryOptions);
+		if (!entries.isEmpty()) {
+			queryOptions.setLastEntry(entries.get(entries.size() - 1));
+		}
+		return entries;
+	}
+
+	private static String nextSkipToken(QueryOptions queryOptions) {
+		String nextLink = queryOptions.getNextLinkUri().toString();
+		return nextLink.substring(nextLink.indexOf("$skiptoken=") + "$skiptoken=".length());
+	}
+
+	private static String encode(String keyValue) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(keyValue.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String lastPreparedStatement() {
+		return this.preparedStatements.get(this.preparedStatements.size() - 1);
+	}
+
+	/**
+	 * Data source which opens connections to the test database, recording the statements prepared on them.
+	 */
+	private DataSource createDataSource() {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+				new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+					if (!method.getName().equals("getConnection")) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					final Connection conn = DriverManager.getConnection(this.url, "sa", "");
+					return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+							new Class<?>[] { Connection.class }, (connProxy, connMethod, connArgs) -> {
+								if (connMethod.getName().equals("prepareStatement")) {
+									this.preparedStatements.add((String) connArgs[0]);
+								}
+								try {
+									return connMethod.invoke(conn, connArgs);
+								} catch (InvocationTargetException e) {
+									throw e.getCause();
+								}
+							});
+				});
+	}
+
+}
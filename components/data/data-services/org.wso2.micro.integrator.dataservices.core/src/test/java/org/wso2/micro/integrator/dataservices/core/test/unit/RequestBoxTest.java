@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMElement;
+import org.wso2.micro.integrator.dataservices.common.DBConstants;
+import org.wso2.micro.integrator.dataservices.common.DBConstants.ResultTypes;
+import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.boxcarring.RequestBox;
+import org.wso2.micro.integrator.dataservices.core.description.operation.Operation;
+import org.wso2.micro.integrator.dataservices.core.description.query.Query;
+import org.wso2.micro.integrator.dataservices.core.description.xa.DSSXATransactionManager;
+import org.wso2.micro.integrator.dataservices.core.dispatch.BatchDataServiceRequest;
+import org.wso2.micro.integrator.dataservices.core.dispatch.DataServiceRequest;
+import org.wso2.micro.integrator.dataservices.core.dispatch.SingleDataServiceRequest;
+import org.wso2.micro.integrator.dataservices.core.engine.CallQuery;
+import org.wso2.micro.integrator.dataservices.core.engine.DataService;
+import org.wso2.micro.integrator.dataservices.core.engine.InternalParamCollection;
+import org.wso2.micro.integrator.dataservices.core.engine.OutputElementGroup;
+import org.wso2.micro.integrator.dataservices.core.engine.ParamValue;
+import org.wso2.micro.integrator.dataservices.core.engine.QueryParam;
+import org.wso2.micro.integrator.dataservices.core.engine.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.transaction.Status;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Tests how the requests of a request box are grouped into batch requests, and which leading requests are executed
+ * in parallel.
+ */
+public class RequestBoxTest extends TestCase {
+
+	private static final String NAMESPACE = "http://ws.wso2.org/dataservice";
+
+	private TestTransactionManager txManager;
+
+	private DataService dataService;
+
+	private List<String> executed;
+
+	private List<Thread> executingThreads;
+
+	@Override
+	protected void setUp() throws DataServiceFault {
+		this.txManager = new TestTransactionManager();
+		final DSSXATransactionManager dssTxManager = new DSSXATransactionManager(this.txManager);
+		this.dataService = new DataService("RequestBoxTest", null, NAMESPACE, null, null, true, true, null) {
+			@Override
+			public DSSXATransactionManager getDSSTxManager() {
+				return dssTxManager;
+			}
+		};
+		this.addOperation("readOffices", false, false);
+		this.addOperation("readEmployees", false, false);
+		this.addOperation("insertOffice", true, true);
+		this.addOperation("deleteOffice", true, false);
+		this.executed = Collections.synchronizedList(new ArrayList<String>());
+		this.executingThreads = Collections.synchronizedList(new ArrayList<Thread>());
+	}
+
+	/**
+	 * Test that consecutive requests of an operation with a batch operation are executed as a single batch request.
+	 */
+	public void testBatchGrouping() throws DataServiceFault {
+		RequestBox requestBox = new TestRequestBox();
+		requestBox.addRequest(this.createRequest("insertOffice", "1"));
+		requestBox.addRequest(this.createRequest("insertOffice", "2"));
+		requestBox.addRequest(this.createRequest("insertOffice", "3"));
+		requestBox.addRequest(this.createRequest("deleteOffice", "4"));
+		requestBox.addRequest(this.createRequest("deleteOffice", "5"));
+		requestBox.addRequest(this.createRequest("insertOffice", "6"));
+		requestBox.execute();
+		assertEquals(list("insertOffice_batch_req[1, 2, 3]", "deleteOffice(4)", "deleteOffice(5)",
+				"insertOffice(6)"), this.executed);
+	}
+
+	/**
+	 * Test that the requests of different users are not executed in the same batch request.
+	 */
+	public void testBatchOfDifferentUsers() throws DataServiceFault {
+		RequestBox requestBox = new TestRequestBox();
+		requestBox.addRequest(this.createRequest("insertOffice", "1", "alice"));
+		requestBox.addRequest(this.createRequest("insertOffice", "2", "alice"));
+		requestBox.addRequest(this.createRequest("insertOffice", "3", "bob"));
+		requestBox.execute();
+		assertEquals(list("insertOffice_batch_req[1, 2]", "insertOffice(3)"), this.executed);
+	}
+
+	/**
+	 * Test that the leading read-only requests are executed in parallel, and the rest in the requesting thread.
+	 */
+	public void testParallelGrouping() throws DataServiceFault {
+		this.dataService.setParallelQueryExecution(true);
+		RequestBox requestBox = new TestRequestBox();
+		requestBox.addRequest(this.createRequest("readOffices", "1"));
+		requestBox.addRequest(this.createRequest("readEmployees", "2"));
+		requestBox.addRequest(this.createRequest("deleteOffice", "3"));
+		requestBox.addRequest(this.createRequest("readOffices", "4"));
+		requestBox.execute();
+		assertEquals(4, this.executed.size());
+		assertTrue(this.executed.subList(0, 2).containsAll(list("readOffices(1)", "readEmployees(2)")));
+		assertEquals(list("deleteOffice(3)", "readOffices(4)"), this.executed.subList(2, 4));
+		assertFalse(this.executingThreads.get(0) == Thread.currentThread());
+		assertFalse(this.executingThreads.get(1) == Thread.currentThread());
+		assertSame(Thread.currentThread(), this.executingThreads.get(2));
+		assertSame(Thread.currentThread(), this.executingThreads.get(3));
+	}
+
+	public void testParallelDisabled() throws DataServiceFault {
+		RequestBox requestBox = new TestRequestBox();
+		requestBox.addRequest(this.createRequest("readOffices", "1"));
+		requestBox.addRequest(this.createRequest("readEmployees", "2"));
+		requestBox.addRequest(this.createRequest("readOffices", "3"));
+		requestBox.execute();
+		assertEquals(list("readOffices(1)", "readEmployees(2)", "readOffices(3)"), this.executed);
+		this.assertExecutedInRequestThread();
+	}
+
+	/**
+	 * Test that the last request is executed in the request box, since its result is returned.
+	 */
+	public void testLastRequestNotParallel() throws DataServiceFault {
+		this.dataService.setParallelQueryExecution(true);
+		RequestBox requestBox = new TestRequestBox();
+		requestBox.addRequest(this.createRequest("readOffices", "1"));
+		requestBox.addRequest(this.createRequest("readEmployees", "2"));
+		requestBox.execute();
+		assertEquals(list("readOffices(1)", "readEmployees(2)"), this.executed);
+		this.assertExecutedInRequestThread();
+	}
+
+	/**
+	 * Test that the transaction begun for the request box itself does not prevent the parallel execution.
+	 */
+	public void testParallelInRequestBoxTransaction() throws DataServiceFault {
+		this.dataService.setParallelQueryExecution(true);
+		this.dataService.getDSSTxManager().begin();
+		try {
+			assertTrue(this.dataService.isInDTX());
+			RequestBox requestBox = new TestRequestBox();
+			requestBox.addRequest(this.createRequest("readOffices", "1"));
+			requestBox.addRequest(this.createRequest("readEmployees", "2"));
+			requestBox.addRequest(this.createRequest("deleteOffice", "3"));
+			requestBox.execute();
+			assertFalse(this.executingThreads.get(0) == Thread.currentThread());
+			assertFalse(this.executingThreads.get(1) == Thread.currentThread());
+		} finally {
+			this.dataService.getDSSTxManager().commit();
+		}
+	}
+
+	/**
+	 * Test that the requests are not executed in parallel in a transaction begun by the caller of the request box,
+	 * since they have to see the changes of the transaction.
+	 */
+	public void testNotParallelInExternalTransaction() throws DataServiceFault {
+		this.dataService.setParallelQueryExecution(true);
+		this.txManager.begin();
+		try {
+			RequestBox requestBox = new TestRequestBox();
+			requestBox.addRequest(this.createRequest("readOffices", "1"));
+			requestBox.addRequest(this.createRequest("readEmployees", "2"));
+			requestBox.addRequest(this.createRequest("deleteOffice", "3"));
+			requestBox.execute();
+			assertEquals(list("readOffices(1)", "readEmployees(2)", "deleteOffice(3)"), this.executed);
+			this.assertExecutedInRequestThread();
+		} finally {
+			this.txManager.rollback();
+		}
+	}
+
+	private void assertExecutedInRequestThread() {
+		for (Thread thread : this.executingThreads) {
+			assertSame(Thread.currentThread(), thread);
+		}
+	}
+
+	private void addOperation(String name, boolean write, boolean batch) throws DataServiceFault {
+		Result result = null;
+		if (!write) {
+			result = new Result(name, "entry", NAMESPACE, null, ResultTypes.XML);
+			result.setDefaultElementGroup(new OutputElementGroup(null, NAMESPACE, null, null));
+		}
+		this.dataService.addQuery(new Query(this.dataService, name, new ArrayList<QueryParam>(), result, null, null,
+				null, null, NAMESPACE) {
+			@Override
+			public Object runPreQuery(InternalParamCollection params, int queryLevel) {
+				return null;
+			}
+
+			@Override
+			public void runPostQuery(Object result, XMLStreamWriter xmlWriter, InternalParamCollection params,
+					int queryLevel) {
+			}
+		});
+		CallQuery callQuery = new CallQuery(this.dataService, name, new HashMap<String, CallQuery.WithParam>(),
+				Collections.<String>emptySet());
+		callQuery.init();
+		Operation operation = new Operation(this.dataService, name, null, callQuery, false, null, false, false);
+		this.dataService.addOperation(operation);
+		if (batch) {
+			this.dataService.addOperation(new Operation(this.dataService,
+					name + DBConstants.BATCH_OPERATON_NAME_SUFFIX, null, callQuery, true, operation, false, false));
+		}
+	}
+
+	private SingleDataServiceRequest createRequest(String name, String id) throws DataServiceFault {
+		return this.createRequest(name, id, null);
+	}
+
+	private SingleDataServiceRequest createRequest(String name, String id, String user) throws DataServiceFault {
+		Map<String, ParamValue> params = new HashMap<String, ParamValue>();
+		params.put("id", new ParamValue(id));
+		SingleDataServiceRequest request = new SingleDataServiceRequest(this.dataService, name, params) {
+			@Override
+			public OMElement processRequest() {
+				executingThreads.add(Thread.currentThread());
+				executed.add(this.getRequestName() + "(" + this.getParams().get("id").getScalarValue() + ")");
+				return null;
+			}
+		};
+		request.setUser(user);
+		return request;
+	}
+
+	private static List<String> list(String... values) {
+		List<String> list = new ArrayList<String>();
+		Collections.addAll(list, values);
+		return list;
+	}
+
+	/**
+	 * Records the batch requests created by the request box instead of executing them.
+	 */
+	private class TestRequestBox extends RequestBox {
+
+		@Override
+		protected BatchDataServiceRequest createBatchRequest(List<DataServiceRequest> batch)
+				throws DataServiceFault {
+			final BatchDataServiceRequest batchRequest = super.createBatchRequest(batch);
+			return new BatchDataServiceRequest(dataService, batchRequest.getRequestName(),
+					Collections.<Map<String, ParamValue>>emptyList()) {
+				@Override
+				public OMElement processRequest() {
+					List<String> ids = new ArrayList<String>();
+					for (SingleDataServiceRequest request : batchRequest.getDSRequests()) {
+						ids.add(request.getParams().get("id").getScalarValue());
+					}
+					executingThreads.add(Thread.currentThread());
+					executed.add(this.getRequestName() + ids);
+					return null;
+				}
+			};
+		}
+	}
+
+	/**
+	 * A transaction manager which only tracks whether the current thread is in a transaction.
+	 */
+	private static class TestTransactionManager implements TransactionManager {
+
+		private final ThreadLocal<Boolean> active = new ThreadLocal<Boolean>() {
+			@Override
+			protected Boolean initialValue() {
+				return false;
+			}
+		};
+
+		@Override
+		public void begin() {
+			this.active.set(true);
+		}
+
+		@Override
+		public void commit() {
+			this.active.set(false);
+		}
+
+		@Override
+		public void rollback() {
+			this.active.set(false);
+		}
+
+		@Override
+		public int getStatus() {
+			return this.active.get() ? Status.STATUS_ACTIVE : Status.STATUS_NO_TRANSACTION;
+		}
+
+		@Override
+		public Transaction getTransaction() {
+			return null;
+		}
+
+		@Override
+		public void resume(Transaction transaction) {
+		}
+
+		@Override
+		public void setRollbackOnly() {
+		}
+
+		@Override
+		public void setTransactionTimeout(int seconds) {
+		}
+
+		@Override
+		public Transaction suspend() {
+			return null;
+		}
+	}
+
+}
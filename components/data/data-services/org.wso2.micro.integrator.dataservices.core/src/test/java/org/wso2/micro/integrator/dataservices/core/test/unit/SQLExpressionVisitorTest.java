@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.server.api.uri.UriInfoResource;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
+import org.wso2.micro.integrator.dataservices.core.odata.expression.SQLExpressionVisitor;
+import org.wso2.micro.integrator.dataservices.core.odata.expression.SQLExpressionVisitor.Parameter;
+import org.wso2.micro.integrator.dataservices.core.odata.expression.SQLExpressionVisitor.SQLExpression;
+
+import java.lang.reflect.Proxy;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the translation of OData filter expressions to SQL by {@link SQLExpressionVisitor}.
+ */
+public class SQLExpressionVisitorTest extends TestCase {
+
+	private SQLExpressionVisitor visitor;
+
+	@Override
+	protected void setUp() {
+		this.visitor = createVisitor(false);
+	}
+
+	public void testComparisonWithLiteral() throws ExpressionVisitException {
+		SQLExpression condition = this.visitor.visitBinaryOperator(BinaryOperatorKind.EQ, member("name"),
+				literal("'O''Brien'"));
+		assertEquals("name = ?", condition.getSql());
+		assertParameters(condition, Types.VARCHAR, "O'Brien");
+	}
+
+	public void testLiteralBeforeValue() throws ExpressionVisitException {
+		SQLExpression condition = this.visitor.visitBinaryOperator(BinaryOperatorKind.LT, literal("5"),
+				member("id"));
+		assertEquals("? < id", condition.getSql());
+		assertParameters(condition, Types.INTEGER, "5");
+	}
+
+	public void testNotEqualsMatchesNull() throws ExpressionVisitException {
+		SQLExpression condition = this.visitor.visitBinaryOperator(BinaryOperatorKind.NE, member("name"),
+				literal("'a'"));
+		assertEquals("(name <> ? OR name IS NULL)", condition.getSql());
+		assertParameters(condition, Types.VARCHAR, "a");
+	}
+
+	public void testComparisonWithNull() throws ExpressionVisitException {
+		assertEquals("name IS NULL", this.visitor.visitBinaryOperator(BinaryOperatorKind.EQ, member("name"),
+				literal("null")).getSql());
+		assertEquals("name IS NOT NULL", this.visitor.visitBinaryOperator(BinaryOperatorKind.NE, literal("null"),
+				member("name")).getSql());
+		assertUntranslatable(BinaryOperatorKind.GT, member("name"), literal("null"));
+	}
+
+	public void testLogicalOperators() throws ExpressionVisitException {
+		SQLExpression idCondition = this.visitor.visitBinaryOperator(BinaryOperatorKind.GE, member("id"),
+				literal("1"));
+		SQLExpression priceCondition = this.visitor.visitBinaryOperator(BinaryOperatorKind.LE, member("price"),
+				literal("2.5"));
+		SQLExpression condition = this.visitor.visitUnaryOperator(UnaryOperatorKind.NOT,
+				this.visitor.visitBinaryOperator(BinaryOperatorKind.AND, idCondition, priceCondition));
+		assertEquals("NOT ((id >= ? AND price <= ?))", condition.getSql());
+		assertParameters(condition, Types.INTEGER, "1", Types.DECIMAL, "2.5");
+	}
+
+	public void testInOperator() throws ExpressionVisitException {
+		SQLExpression condition = this.visitor.visitBinaryOperator(BinaryOperatorKind.IN, member("id"),
+				Arrays.asList(literal("1"), literal("2")));
+		assertEquals("id IN (?, ?)", condition.getSql());
+		assertParameters(condition, Types.INTEGER, "1", Types.INTEGER, "2");
+	}
+
+	public void testPatternMatchEscapesWildcards() throws ExpressionVisitException {
+		SQLExpression condition = this.visitor.visitMethodCall(MethodKind.CONTAINS,
+				Arrays.asList(member("name"), literal("'50%_![a]'")));
+		assertEquals("name LIKE ? ESCAPE '!'", condition.getSql());
+		assertParameters(condition, Types.VARCHAR, "%50!%!_!![a]%");
+
+		condition = createVisitor(true).visitMethodCall(MethodKind.STARTSWITH,
+				Arrays.asList(member("name"), literal("'[a]'")));
+		assertParameters(condition, Types.VARCHAR, "![a]%");
+	}
+
+	public void testStringFunctions() throws ExpressionVisitException {
+		SQLExpression length = this.visitor.visitMethodCall(MethodKind.LENGTH,
+				Collections.singletonList(member("name")));
+		SQLExpression condition = this.visitor.visitBinaryOperator(BinaryOperatorKind.GT, length, literal("3"));
+		assertEquals("LENGTH(name) > ?", condition.getSql());
+		assertParameters(condition, Types.INTEGER, "3");
+
+		length = createVisitor(true).visitMethodCall(MethodKind.LENGTH, Collections.singletonList(member("name")));
+		assertEquals("LEN(name)", length.getSql());
+
+		SQLExpression lower = this.visitor.visitMethodCall(MethodKind.TOLOWER,
+				Collections.singletonList(member("name")));
+		assertEquals("LOWER(name) = ?", this.visitor.visitBinaryOperator(BinaryOperatorKind.EQ, lower,
+				literal("'a'")).getSql());
+	}
+
+	public void testFixedLengthCharacterColumnIsNotTranslated() throws ExpressionVisitException {
+		assertUntranslatable(BinaryOperatorKind.EQ, member("code"), literal("'a'"));
+		try {
+			this.visitor.visitMethodCall(MethodKind.STARTSWITH, Arrays.asList(member("code"), literal("'a'")));
+			fail("Pattern match on a fixed length character column has been translated");
+		} catch (ExpressionVisitException ignored) {
+			// expected
+		}
+	}
+
+	public void testIncompatibleLiteralIsNotTranslated() throws ExpressionVisitException {
+		assertUntranslatable(BinaryOperatorKind.EQ, member("id"), literal("'1'"));
+		assertUntranslatable(BinaryOperatorKind.EQ, member("id"), literal("1.5"));
+		assertUntranslatable(BinaryOperatorKind.EQ, member("name"), literal("1"));
+		assertUntranslatable(BinaryOperatorKind.EQ, member("id"), member("price"));
+	}
+
+	public void testUnknownColumnIsNotTranslated() {
+		try {
+			this.visitor.visitMember(createMember("missing"));
+			fail("Unknown column has been translated");
+		} catch (ExpressionVisitException ignored) {
+			// expected
+		}
+	}
+
+	private void assertUntranslatable(BinaryOperatorKind operator, SQLExpression left, SQLExpression right) {
+		try {
+			this.visitor.visitBinaryOperator(operator, left, right);
+			fail("Operator " + operator + " has been translated");
+		} catch (ExpressionVisitException ignored) {
+			// expected
+		}
+	}
+
+	private static void assertParameters(SQLExpression expression, Object... typesAndValues) {
+		List<Parameter> parameters = expression.getParameters();
+		assertEquals(typesAndValues.length / 2, parameters.size());
+		for (int i = 0; i < parameters.size(); i++) {
+			assertEquals(typesAndValues[i * 2], parameters.get(i).getSqlType());
+			assertEquals(typesAndValues[i * 2 + 1], parameters.get(i).getValue());
+		}
+	}
+
+	private static SQLExpressionVisitor createVisitor(boolean sqlServer) {
+		Map<String, Integer> columnTypes = new HashMap<>();
+		columnTypes.put("id", Types.INTEGER);
+		columnTypes.put("name", Types.VARCHAR);
+		columnTypes.put("code", Types.CHAR);
+		columnTypes.put("price", Types.DECIMAL);
+		return new SQLExpressionVisitor(columnTypes, sqlServer);
+	}
+
+	private SQLExpression member(String name) throws ExpressionVisitException {
+		return this.visitor.visitMember(createMember(name));
+	}
+
+	private SQLExpression literal(String text) {
+		return this.visitor.visitLiteral(createProxy(Literal.class, "getText", text));
+	}
+
+	private static Member createMember(String name) {
+		EdmProperty property = createProxy(EdmProperty.class, "getName", name, "isPrimitive", true);
+		UriResourceProperty resource = createProxy(UriResourceProperty.class, "getProperty", property);
+		UriInfoResource path = createProxy(UriInfoResource.class, "getUriResourceParts",
+				Collections.singletonList(resource));
+		return createProxy(Member.class, "getResourcePath", path);
+	}
+
+	/**
+	 * Creates a stub of an Olingo interface, which returns the given values from the methods of the given names,
+	 * and the default values from the other methods.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T createProxy(Class<T> type, Object... namesAndValues) {
+		Map<String, Object> values = new HashMap<>();
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			values.put((String) namesAndValues[i], namesAndValues[i + 1]);
+		}
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			if (values.containsKey(method.getName())) {
+				return values.get(method.getName());
+			} else if (method.getReturnType() == boolean.class) {
+				return false;
+			} else if (method.getReturnType() == int.class) {
+				return System.identityHashCode(proxy);
+			} else if (method.getReturnType() == String.class) {
+				return type.getSimpleName();
+			}
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.TestCase;
+import org.wso2.micro.integrator.dataservices.common.DBConstants.DataSourceTypes;
+import org.wso2.micro.integrator.dataservices.common.DBConstants.RDBMS;
+import org.wso2.micro.integrator.dataservices.core.DataServiceFault;
+import org.wso2.micro.integrator.dataservices.core.JDBCPoolSQLConfig;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Tests the statement cache of the connection pools created for the RDBMS configs, using an in-memory H2 database
+ * behind a driver which counts the statements prepared on the physical connections.
+ */
+public class StatementCacheTest extends TestCase {
+
+	private static final String URL_PREFIX = "jdbc:counting:";
+
+	private static final AtomicInteger PREPARED_STATEMENTS = new AtomicInteger();
+
+	private JDBCPoolSQLConfig config;
+
+	@Override
+	protected void setUp() {
+		PREPARED_STATEMENTS.set(0);
+	}
+
+	@Override
+	protected void tearDown() {
+		if (this.config != null) {
+			this.config.close();
+		}
+	}
+
+	public void testRepeatedStatementIsCached() throws Exception {
+		this.config = createConfig("10");
+		assertTrue(this.config.isStatementCacheEnabled());
+		this.executeQuery("SELECT 1");
+		this.executeQuery("SELECT 1");
+		this.executeQuery("SELECT 1");
+		assertEquals(1, PREPARED_STATEMENTS.get());
+		assertEquals(2, this.config.getStatementCacheHitCount());
+		assertEquals(1, this.config.getStatementCacheMissCount());
+	}
+
+	public void testDifferentStatementIsNotCached() throws Exception {
+		this.config = createConfig("10");
+		this.executeQuery("SELECT 1");
+		this.executeQuery("SELECT 2");
+		assertEquals(2, PREPARED_STATEMENTS.get());
+		this.executeQuery("SELECT 1");
+		this.executeQuery("SELECT 2");
+		assertEquals(2, PREPARED_STATEMENTS.get());
+		assertEquals(2, this.config.getStatementCacheHitCount());
+		assertEquals(2, this.config.getStatementCacheMissCount());
+	}
+
+	public void testStatementsAreNotCachedByDefault() throws Exception {
+		this.config = createConfig(null);
+		assertFalse(this.config.isStatementCacheEnabled());
+		this.executeQuery("SELECT 1");
+		this.executeQuery("SELECT 1");
+		assertEquals(2, PREPARED_STATEMENTS.get());
+		assertEquals(-1, this.config.getStatementCacheHitCount());
+		assertEquals(-1, this.config.getStatementCacheMissCount());
+	}
+
+	public void testInvalidCacheSize() {
+		try {
+			createConfig("many");
+			fail("Invalid statement cache size has been accepted");
+		} catch (DataServiceFault ignored) {
+			// expected
+		}
+	}
+
+	private void executeQuery(String sql) throws Exception {
+		Connection conn = this.config.getDataSource().getConnection();
+		try {
+			PreparedStatement stmt = conn.prepareStatement(sql);
+			stmt.executeQuery().close();
+			stmt.close();
+		} finally {
+			conn.close();
+		}
+	}
+
+	private static JDBCPoolSQLConfig createConfig(String statementCacheSize) throws DataServiceFault {
+		Map<String, String> props = new HashMap<String, String>();
+		props.put(RDBMS.DRIVER_CLASSNAME, CountingDriver.class.getName());
+		props.put(RDBMS.URL, URL_PREFIX + "h2:mem:statementCacheTest");
+		props.put(RDBMS.USERNAME, "sa");
+		props.put(RDBMS.PASSWORD, "");
+		/* a single connection, so that every statement is prepared on the same physical connection */
+		props.put(RDBMS.INITIAL_SIZE, "1");
+		props.put(RDBMS.MAX_ACTIVE, "1");
+		if (statementCacheSize != null) {
+			props.put(RDBMS.STATEMENT_CACHE_SIZE, statementCacheSize);
+		}
+		return new JDBCPoolSQLConfig(null, "statementCacheTest", DataSourceTypes.RDBMS, props, false);
+	}
+
+	/**
+	 * JDBC driver which delegates to the H2 driver and counts the statements prepared on its connections.
+	 */
+	public static class CountingDriver implements Driver {
+
+		@Override
+		public Connection connect(String url, Properties info) throws SQLException {
+			if (!this.acceptsURL(url)) {
+				return null;
+			}
+			final Connection conn = DriverManager.getConnection("jdbc:" + url.substring(URL_PREFIX.length()), info);
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+						if (method.getName().equals("prepareStatement") || method.getName().equals("prepareCall")) {
+							PREPARED_STATEMENTS.incrementAndGet();
+						}
+						try {
+							return method.invoke(conn, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+
+		@Override
+		public boolean acceptsURL(String url) {
+			return url != null && url.startsWith(URL_PREFIX);
+		}
+
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		@Override
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		@Override
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+
+	}
+
+}
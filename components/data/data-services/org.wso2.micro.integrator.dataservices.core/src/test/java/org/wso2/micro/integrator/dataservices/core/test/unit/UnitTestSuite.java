@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.core.test.unit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Suite of the unit tests, which don't require a deployed data service.
+ */
+public class UnitTestSuite extends TestCase {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite(
+				"Test for org.wso2.micro.integrator.dataservices.core.test.unit");
+		//$JUnit-BEGIN$
+		suite.addTestSuite(QueryClassificationTest.class);
+		suite.addTestSuite(QueryResultCacheTest.class);
+		suite.addTestSuite(FixedDataTableTest.class);
+		suite.addTestSuite(JSONStreamWriterTest.class);
+		suite.addTestSuite(SQLExpressionVisitorTest.class);
+		suite.addTestSuite(StatementCacheTest.class);
+		suite.addTestSuite(ParallelQueryExecutorTest.class);
+		suite.addTestSuite(AdaptiveBatchSizeTest.class);
+		suite.addTestSuite(RequestBoxTest.class);
+		suite.addTestSuite(RDBMSDataHandlerTest.class);
+		suite.addTestSuite(QueryOptionsTest.class);
+		suite.addTestSuite(ExcelConfigTest.class);
+		suite.addTestSuite(CSVConfigTest.class);
+		suite.addTestSuite(MongoDataHandlerTest.class);
+		suite.addTestSuite(CassandraDataHandlerTest.class);
+		//$JUnit-END$
+		return suite;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.micro.integrator.dataservices.sql.driver.processor.reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar, read-only index over a single column of a {@link FixedDataTable}. Numeric cell values
+ * are kept in primitive arrays sorted by value, which serve equality and range lookups through a
+ * binary search, while the remaining values, such as strings, booleans and dates, are kept in a
+ * hash index by their string form.
+ */
+final class ColumnIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final double[] sortedValues;
+
+    private final int[] sortedRowIds;
+
+    private final Map<String, int[]> stringRowIds;
+
+    ColumnIndex(Map<Integer, DataRow> rows, int cellId) {
+        int size = rows.size();
+        final double[] values = new double[size];
+        int[] rowIds = new int[size];
+        Map<String, List<Integer>> strings = new HashMap<String, List<Integer>>();
+        int count = 0;
+        for (DataRow row : rows.values()) {
+            DataCell cell = row.getCell(cellId);
+            if (cell == null || cell.getCellValue() == null) {
+                continue;
+            }
+            Object cellValue = cell.getCellValue();
+            try {
+                double value = Double.parseDouble(cellValue.toString());
+                if (!Double.isNaN(value)) {
+                    values[count] = value;
+                    rowIds[count] = row.getRowId();
+                    count++;
+                }
+            } catch (NumberFormatException e) {
+                String stringValue = cellValue.toString();
+                List<Integer> ids = strings.get(stringValue);
+                if (ids == null) {
+                    ids = new ArrayList<Integer>();
+                    strings.put(stringValue, ids);
+                }
+                ids.add(row.getRowId());
+            }
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Double.compare(values[o1], values[o2]);
+            }
+        });
+        this.sortedValues = new double[count];
+        this.sortedRowIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.sortedValues[i] = values[order[i]];
+            this.sortedRowIds[i] = rowIds[order[i]];
+        }
+        this.stringRowIds = new HashMap<String, int[]>(strings.size());
+        for (Map.Entry<String, List<Integer>> entry : strings.entrySet()) {
+            this.stringRowIds.put(entry.getKey(), toArray(entry.getValue()));
+        }
+    }
+
+    /**
+     * Returns the ids of the rows whose value is equal to the given value. A numeric value is
+     * compared numerically against the numeric cells, any other value is compared with the string
+     * form of the remaining cells, e.g. 'true' for a boolean cell.
+     */
+    int[] equalTo(String value) {
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            int[] result = this.stringRowIds.get(value);
+            return result != null ? result : EMPTY;
+        }
+        if (Double.isNaN(number)) {
+            return EMPTY;
+        }
+        return Arrays.copyOfRange(this.sortedRowIds, this.lowerBound(number), this.upperBound(number));
+    }
+
+    /**
+     * Returns the ids of the rows whose numeric value is less than the given number.
+     */
+    int[] lessThan(double number) {
+        if (Double.isNaN(number)) {
+            return EMPTY;
+        }
+        return Arrays.copyOfRange(this.sortedRowIds, 0, this.lowerBound(number));
+    }
+
+    /**
+     * Returns the ids of the rows whose numeric value is greater than the given number.
+     */
+    int[] greaterThan(double number) {
+        if (Double.isNaN(number)) {
+            return EMPTY;
+        }
+        return Arrays.copyOfRange(this.sortedRowIds, this.upperBound(number), this.sortedRowIds.length);
+    }
+
+    /**
+     * Position of the first value which is not less than the given number.
+     */
+    private int lowerBound(double number) {
+        int low = 0;
+        int high = this.sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.sortedValues[mid] < number) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Position of the first value which is greater than the given number.
+     */
+    private int upperBound(double number) {
+        int low = 0;
+        int high = this.sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.sortedValues[mid] <= number) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+}
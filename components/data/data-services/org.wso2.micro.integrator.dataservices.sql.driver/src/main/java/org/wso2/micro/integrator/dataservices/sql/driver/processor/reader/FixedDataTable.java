@@ -20,7 +20,6 @@ package org.wso2.micro.integrator.dataservices.sql.driver.processor.reader;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -28,141 +27,121 @@ import org.wso2.micro.integrator.dataservices.sql.driver.parser.Constants;
 import org.wso2.micro.integrator.dataservices.sql.driver.query.ColumnInfo;
 
 /**
- * Fixed data table implementation.
+ * Fixed data table implementation. The rows are kept as {@link DataRow} objects, as they are
+ * consumed row by row by the queries, the result set and the writers, whereas the indexes used
+ * to evaluate conditions are columnar.
  */
 public class FixedDataTable extends DataTable {
 
     private Map<Integer, DataRow> rows;
 
+    private Map<Integer, DataRow> rowsView;
+
+    /**
+     * Per column indexes used to evaluate conditions, keyed by the column id. An index is built
+     * lazily the first time its column is used in a condition and is dropped whenever the rows
+     * change, hence rows, including their cells, must only be modified through the methods of
+     * this class.
+     */
+    private final Map<Integer, ColumnIndex> indexes = new HashMap<Integer, ColumnIndex>();
+
     public FixedDataTable(String tableName, ColumnInfo[] headers) {
         super(tableName, headers);
-        this.rows = Collections.synchronizedMap(new TreeMap<Integer, DataRow>());
+        this.setRows(Collections.synchronizedMap(new TreeMap<Integer, DataRow>()));
     }
 
+    /**
+     * Returns a read-only view of the rows, which are modified through {@link #addRow(DataRow)},
+     * {@link #updateRows(DataRow...)} and {@link #deleteRows(int...)}.
+     */
     @Override
     public Map<Integer, DataRow> getRows() {
-        return rows;
+        return rowsView;
+    }
+
+    /**
+     * Sets the rows of the table, the given map must not be modified afterwards.
+     */
+    public synchronized void setData(Map<Integer, DataRow> rows) {
+        this.setRows(rows);
+        this.indexes.clear();
     }
 
-    public void setData(Map<Integer, DataRow> rows) {
+    private void setRows(Map<Integer, DataRow> rows) {
         this.rows = rows;
+        this.rowsView = Collections.unmodifiableMap(rows);
     }
 
     @Override
-    public void addRow(DataRow dataRow) {
-        getRows().put(dataRow.getRowId(), dataRow);
+    public synchronized void addRow(DataRow dataRow) {
+        this.rows.put(dataRow.getRowId(), dataRow);
+        this.indexes.clear();
     }
     
-    private void handleEqualCondition(Map<Integer, DataRow> dataRows, int cellId, String value, 
-    		String operator) {
-    	DataRow tmpRow;
-    	double tmpNumberLhs, tmpNumberRhs = 0;
-    	boolean isNumber = true;
-    	try {
-    		tmpNumberRhs = Double.parseDouble(value);
-    	} catch (NumberFormatException e) {
-    		isNumber = false;
-		}
-    	for (Iterator<Map.Entry<Integer, DataRow>> itr = dataRows.entrySet().iterator(); 
-    	            itr.hasNext();) {
-			tmpRow = itr.next().getValue();
-			try {
-				if (isNumber) {
-				    tmpNumberLhs = Double.parseDouble(tmpRow.getCell(
-						    cellId).getCellValue().toString());
-				    if (!(tmpNumberLhs == tmpNumberRhs)) {
-					    itr.remove();
-				    }
-				    continue;
-				}
-			} catch (NumberFormatException e) {
-				isNumber = false;
-			}	
-			if (!value.equals(tmpRow.getCell(cellId).getCellValue())) {
-				itr.remove();
-			}
-		}
-    }
-    
-    private void handleLessThanCondition(Map<Integer, DataRow> dataRows, int cellId, String value, 
-    		String operator) {
-    	double tmpNumberLhs, tmpNumberRhs;
-    	try {
-    		tmpNumberRhs = Double.parseDouble(value);
-    	} catch (NumberFormatException e) {
-			dataRows.clear();
-			return;
-		}
-    	DataRow tmpRow;
-		for (Iterator<Map.Entry<Integer, DataRow>> itr = dataRows.entrySet().iterator(); 
-		            itr.hasNext();) {
-			tmpRow = itr.next().getValue();
-			try {
-				tmpNumberLhs = Double.parseDouble(tmpRow.getCell(
-						cellId).getCellValue().toString());
-				if (!(tmpNumberLhs < tmpNumberRhs)) {
-					itr.remove();
-				}
-			} catch (NumberFormatException e) {
-				itr.remove();
-			}
-		}
+    /**
+     * Returns the index of the given column, building it from the current rows if this is the
+     * first time the column is used in a condition.
+     */
+    private synchronized ColumnIndex getColumnIndex(int cellId) {
+        ColumnIndex index = this.indexes.get(cellId);
+        if (index == null) {
+            synchronized (this.rows) {
+                index = new ColumnIndex(this.rows, cellId);
+            }
+            this.indexes.put(cellId, index);
+        }
+        return index;
     }
-    
-    private void handleGreaterThanCondition(Map<Integer, DataRow> dataRows, int cellId, String value, 
-    		String operator) {
-    	double tmpNumberLhs, tmpNumberRhs;
-    	try {
-    		tmpNumberRhs = Double.parseDouble(value);
-    	} catch (NumberFormatException e) {
-			dataRows.clear();
-			return;
-		}
-    	DataRow tmpRow;
-		for (Iterator<Map.Entry<Integer, DataRow>> itr = dataRows.entrySet().iterator(); 
-		            itr.hasNext();) {
-			tmpRow = itr.next().getValue();
-			try {
-				tmpNumberLhs = Double.parseDouble(tmpRow.getCell(
-						cellId).getCellValue().toString());
-				if (!(tmpNumberLhs > tmpNumberRhs)) {
-					itr.remove();
-				}
-			} catch (NumberFormatException e) {
-				itr.remove();
-			}
-		}
+
+    private Map<Integer, DataRow> lookupRows(int[] rowIds) {
+        Map<Integer, DataRow> dataRows = new HashMap<Integer, DataRow>(rowIds.length);
+        DataRow tmpRow;
+        for (int rowId : rowIds) {
+            tmpRow = this.rows.get(rowId);
+            if (tmpRow != null) {
+                dataRows.put(rowId, tmpRow);
+            }
+        }
+        return dataRows;
     }
-    
+
 	@Override
 	public Map<Integer, DataRow> applyCondition(String column,
 			String value, String operator) throws SQLException {
-		Map<Integer, DataRow> dataRows = new HashMap<Integer, DataRow>(this.getRows());
 		int cellId = this.getHeader(column).getId();
 		if (Constants.EQUAL.equals(operator)) {
-			this.handleEqualCondition(dataRows, cellId, value, operator);
-		} else if (Constants.GREATER_THAN.equals(operator)) {
-			this.handleGreaterThanCondition(dataRows, cellId, value, operator);
-		} else if (Constants.LESS_THAN.equals(operator)) {
-			this.handleLessThanCondition(dataRows, cellId, value, operator);
+			return this.lookupRows(this.getColumnIndex(cellId).equalTo(value));
+		}
+		double number;
+		if (Constants.GREATER_THAN.equals(operator) || Constants.LESS_THAN.equals(operator)) {
+			try {
+				number = Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				return new HashMap<Integer, DataRow>();
+			}
 		} else {
 			throw new RuntimeException("Unsupported operator: " + operator);
 		}
-		return dataRows;
+		if (Constants.GREATER_THAN.equals(operator)) {
+			return this.lookupRows(this.getColumnIndex(cellId).greaterThan(number));
+		}
+		return this.lookupRows(this.getColumnIndex(cellId).lessThan(number));
 	}
 
 	@Override
-	public void updateRows(DataRow... dataRows) {
+	public synchronized void updateRows(DataRow... dataRows) {
 		for (DataRow dataRow : dataRows) {
-			this.getRows().put(dataRow.getRowId(), dataRow);
+			this.rows.put(dataRow.getRowId(), dataRow);
 		}
+		this.indexes.clear();
 	}
 
 	@Override
-	public void deleteRows(int... rowIds) {
+	public synchronized void deleteRows(int... rowIds) {
 		for (int rowId : rowIds) {
-			this.getRows().remove(rowId);
+			this.rows.remove(rowId);
 		}
+		this.indexes.clear();
 	}
 
 }
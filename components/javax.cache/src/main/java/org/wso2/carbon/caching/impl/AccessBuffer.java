@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, lossy buffer which records cache reads so that the bookkeeping of a read can be done later, in a batch,
+ * away from the thread doing the read.
+ * <p/>
+ * The buffer is striped by thread to keep the producers from contending with each other. When a stripe is full the
+ * record is dropped, which is acceptable since the buffered reads only refine the eviction order and the replicated
+ * access timestamps. There can be only one consumer at a time, which is expected to be guaranteed by the caller.
+ *
+ * @param <E> the type of the buffered elements
+ */
+final class AccessBuffer<E> {
+
+    private static final int STRIPE_SIZE = 16;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+
+    @SuppressWarnings("unchecked")
+    AccessBuffer() {
+        int stripeCount = 1;
+        int target = Math.min(Runtime.getRuntime().availableProcessors() * 2, MAX_STRIPES);
+        while (stripeCount < target) {
+            stripeCount <<= 1;
+        }
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<E>();
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Adds an element to the stripe of the current thread, unless the stripe is full.
+     *
+     * @param element element to add
+     * @return true if the stripe is full and should be drained
+     */
+    boolean offer(E element) {
+        Stripe<E> stripe = stripes[(int) (Thread.currentThread().getId() & stripeMask)];
+        long tail = stripe.tail.get();
+        long size = tail - stripe.head;
+        if (size >= STRIPE_SIZE) {
+            return true;
+        }
+        if (stripe.tail.compareAndSet(tail, tail + 1)) {
+            stripe.elements.lazySet((int) (tail & STRIPE_MASK), element);
+            return size + 1 >= STRIPE_SIZE;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all the published elements and hands them over to the consumer.
+     *
+     * @param consumer consumer of the elements
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            long head = stripe.head;
+            long tail = stripe.tail.get();
+            while (head < tail) {
+                int index = (int) (head & STRIPE_MASK);
+                E element = stripe.elements.get(index);
+                if (element == null) {
+                    // The producer has claimed the slot but not published the element yet
+                    break;
+                }
+                stripe.elements.lazySet(index, null);
+                consumer.accept(element);
+                head++;
+            }
+            stripe.head = head;
+        }
+    }
+
+    private static final class Stripe<E> {
+        private final AtomicReferenceArray<E> elements = new AtomicReferenceArray<E>(STRIPE_SIZE);
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+    }
+}
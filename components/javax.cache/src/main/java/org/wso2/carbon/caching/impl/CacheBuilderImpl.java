@@ -17,6 +17,8 @@
 */
 package org.wso2.carbon.caching.impl;
 
+import org.wso2.carbon.caching.impl.eviction.EvictionAlgorithm;
+
 import javax.cache.Cache;
 import javax.cache.CacheBuilder;
 import javax.cache.CacheConfiguration;
@@ -127,4 +129,40 @@ public class CacheBuilderImpl<K, V> implements CacheBuilder<K, V> {
         cacheConfiguration.setExpiry(duration.getDurationAmount(), duration.getTimeUnit(), type);
         return this;
     }
+
+    /**
+     * Sets the eviction algorithm used when the cache grows beyond its capacity. An
+     * {@link org.wso2.carbon.caching.impl.eviction.IncrementalEvictionAlgorithm} avoids sorting all the cache entries
+     * on each cleanup run.
+     *
+     * @param evictionAlgorithm eviction algorithm
+     * @return this builder
+     */
+    public CacheBuilder<K, V> setEvictionAlgorithm(EvictionAlgorithm evictionAlgorithm) {
+        if (evictionAlgorithm == null) {
+            throw new NullPointerException("EvictionAlgorithm cannot be null");
+        }
+        cacheConfiguration.setEvictionAlgorithm(evictionAlgorithm);
+        return this;
+    }
+
+    /**
+     * Bounds the cache by the total weight of its entries, such as their approximate size in bytes, in addition to
+     * the number of entries.
+     *
+     * @param weigher   weigher which calculates the weight of an entry
+     * @param maxWeight maximum total weight of the entries
+     * @return this builder
+     */
+    public CacheBuilder<K, V> setMaxWeight(Weigher<K, V> weigher, long maxWeight) {
+        if (weigher == null) {
+            throw new NullPointerException("Weigher cannot be null");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maxWeight);
+        }
+        cacheConfiguration.setWeigher(weigher);
+        cacheConfiguration.setMaxWeight(maxWeight);
+        return this;
+    }
 }
@@ -17,6 +17,8 @@
 */
 package org.wso2.carbon.caching.impl;
 
+import org.wso2.carbon.caching.impl.eviction.EvictionAlgorithm;
+
 import javax.cache.CacheConfiguration;
 import javax.cache.CacheLoader;
 import javax.cache.CacheWriter;
@@ -72,6 +74,17 @@ public final class CacheConfigurationImpl implements CacheConfiguration {
     private CacheLoader cacheLoader;
     private CacheWriter cacheWriter;
 
+    /**
+     * eviction algorithm, the cache default is used if not set
+     */
+    private EvictionAlgorithm evictionAlgorithm;
+
+    /**
+     * weigher and the maximum total weight of the entries, the weight is not bounded if not set
+     */
+    private Weigher weigher;
+    private long maxWeight = -1;
+
     public CacheConfigurationImpl() {
     }
 
@@ -154,6 +167,9 @@ public final class CacheConfigurationImpl implements CacheConfiguration {
 
     @Override
     public Duration getExpiry(ExpiryType type) {
+        if (timeToLive == null) {
+            return null;
+        }
         return timeToLive[type.ordinal()];
     }
 
@@ -200,6 +216,30 @@ public final class CacheConfigurationImpl implements CacheConfiguration {
         this.cacheWriter = cacheWriter;
     }
 
+    public EvictionAlgorithm getEvictionAlgorithm() {
+        return evictionAlgorithm;
+    }
+
+    void setEvictionAlgorithm(EvictionAlgorithm evictionAlgorithm) {
+        this.evictionAlgorithm = evictionAlgorithm;
+    }
+
+    public Weigher getWeigher() {
+        return weigher;
+    }
+
+    void setWeigher(Weigher weigher) {
+        this.weigher = weigher;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
     @Override
     public int hashCode() {
         int result = (readThrough ? 1 : 0);
@@ -17,6 +17,8 @@
 */
 package org.wso2.carbon.caching.impl;
 
+import org.wso2.carbon.caching.impl.expiry.TimingWheel;
+
 import javax.cache.Cache;
 import java.io.Serializable;
 
@@ -31,6 +33,8 @@ public class CacheEntry<K, V> implements Cache.Entry<K, V>, Serializable {
     private V value;
     private long lastAccessed;
     private long lastModified;
+    private transient TimingWheel.Timeout<CacheEntry<K, V>> expiryTimeout;
+    private transient long weight;
 
     public CacheEntry(K key, V value) {
         this.key = key;
@@ -66,6 +70,22 @@ public class CacheEntry<K, V> implements Cache.Entry<K, V>, Serializable {
         this.lastAccessed = lastAccessed;
     }
 
+    TimingWheel.Timeout<CacheEntry<K, V>> getExpiryTimeout() {
+        return expiryTimeout;
+    }
+
+    void setExpiryTimeout(TimingWheel.Timeout<CacheEntry<K, V>> expiryTimeout) {
+        this.expiryTimeout = expiryTimeout;
+    }
+
+    long getWeight() {
+        return weight;
+    }
+
+    void setWeight(long weight) {
+        this.weight = weight;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -21,6 +21,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.caching.impl.clustering.ClusterCacheInvalidationRequestSender;
 import org.wso2.carbon.caching.impl.eviction.EvictionAlgorithm;
+import org.wso2.carbon.caching.impl.eviction.EvictionQueue;
+import org.wso2.carbon.caching.impl.eviction.IncrementalEvictionAlgorithm;
+import org.wso2.carbon.caching.impl.expiry.TimingWheel;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 import org.wso2.micro.integrator.core.services.CarbonServerConfigurationService;
 
@@ -62,6 +65,11 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 import static org.wso2.carbon.caching.impl.CachingConstants.ILLEGAL_STATE_EXCEPTION_MESSAGE;
 
@@ -82,6 +90,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     private static final int CACHE_LOADER_THREADS = 2;
     private static final float CACHE_OVERCAPACITY_FACTOR = 0.75f;
     private static final float CACHE_EVICTION_FACTOR = 0.25f;
+    private static final long EXPIRY_TICK_MILLIS = 1000;
 
     private String cacheName;
     private CacheManager cacheManager;
@@ -104,9 +113,26 @@ public class CacheImpl<K, V> implements Cache<K, V> {
 
     private String ownerTenantDomain;
     private int ownerTenantId;
-    private long lastAccessed = System.currentTimeMillis();
-
-    private EvictionAlgorithm evictionAlgorithm = CachingConstants.DEFAULT_EVICTION_ALGORITHM;
+    private volatile long lastAccessed = System.currentTimeMillis();
+
+    private volatile EvictionAlgorithm evictionAlgorithm = CachingConstants.DEFAULT_EVICTION_ALGORITHM;
+    // Only set when an IncrementalEvictionAlgorithm is in use
+    private volatile EvictionQueue<K, V> evictionQueue;
+    // Updates of the eviction queue share the read lock, while replacing the queue takes the write lock
+    private final ReentrantReadWriteLock evictionLock = new ReentrantReadWriteLock();
+    private final AccessBuffer<CacheEntry<K, V>> accessBuffer = new AccessBuffer<CacheEntry<K, V>>();
+    private final AccessRecorder accessRecorder = new AccessRecorder();
+    // Set when a stripe of the access buffer fills up, the buffer is then drained by the next write to the cache
+    private final AtomicBoolean accessBufferDrainRequested = new AtomicBoolean();
+    private final ReentrantLock accessBufferDrainLock = new ReentrantLock();
+    private final TimingWheel<CacheEntry<K, V>> expiryWheel =
+            new TimingWheel<CacheEntry<K, V>>(EXPIRY_TICK_MILLIS, System.currentTimeMillis());
+    private volatile long accessedExpiryDuration;
+    private volatile long modifiedExpiryDuration;
+    // The weight of the cache is only tracked when a weigher is set
+    private volatile Weigher<K, V> weigher;
+    private volatile long maxWeight = -1;
+    private final AtomicLong totalWeight = new AtomicLong();
 
     private boolean forceLocalCache;
 
@@ -152,6 +178,13 @@ public class CacheImpl<K, V> implements Cache<K, V> {
                             cacheName, ownerTenantDomain, cacheManager.getName()), new TimestampMapEntryListenerImpl());
         }
 
+        EvictionAlgorithm configuredEvictionAlgorithm = Util.getConfiguredEvictionAlgorithm();
+        if (configuredEvictionAlgorithm != null) {
+            setEvictionAlgorithm(configuredEvictionAlgorithm);
+        }
+
+        updateExpiryDurations();
+
         cacheStatistics = new CacheStatisticsImpl();
         registerMBean();
         CacheManagerFactoryImpl.addCacheForMonitoring(this);
@@ -218,25 +251,26 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public V get(K key) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long now = markAccessed();
         CacheEntry entry = localCache.get(key);
         V value = null;
         if (entry != null) {
             value = (V) entry.getValue();
-            if (!isLocalCache) {
-                localTimestampMap.put(key,lastAccessed);
-            }
+            // The access timestamp to be replicated and the eviction order are updated when the buffer is drained
+            recordAccess(entry);
             notifyCacheEntryRead(key, value);
         } else if (!isLocalCache) {    // Try reading it from the distributed cache
             entry = distributedCache.get(key);
             if (entry != null) {
-                entry.setLastAccessed(lastAccessed);
-                localCache.put(key, entry);
+                entry.setLastAccessed(now);
+                recordWrite(entry, localCache.put(key, entry));
                 value = (V) entry.getValue();
-                localTimestampMap.put(key,lastAccessed);
+                localTimestampMap.put(key, now);
                 notifyCacheEntryRead(key, value);
             }
         }
+        cacheStatistics.recordGet(entry != null, System.nanoTime() - start);
         return value;
     }
 
@@ -244,11 +278,17 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public Map<K, V> getAll(Set<? extends K> keys) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         Map<K, CacheEntry<K, V>> source = localCache;
         Map<K, V> destination = new HashMap<K, V>(keys.size());
         for (K key : keys) {
-            destination.put(key, source.get(key).getValue());
+            long start = System.nanoTime();
+            CacheEntry<K, V> entry = source.get(key);
+            if (entry != null) {
+                destination.put(key, entry.getValue());
+                recordAccess(entry);
+            }
+            cacheStatistics.recordGet(entry != null, System.nanoTime() - start);
         }
         return destination;
     }
@@ -263,7 +303,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
                 CacheEntry<K, V> value = entry.getValue();
                 if(!localCache.containsKey(key) ||
                         value.getLastModified() > localCache.get(key).getLastModified()){
-                    localCache.put(key, value);
+                    recordWrite(value, localCache.put(key, value));
                     distributedTimestampMap.put(key,value.getLastAccessed());
                 }
             }
@@ -280,7 +320,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public boolean containsKey(K key) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         boolean containsKey = localCache.containsKey(key);
         if(!containsKey && !isLocalCache){
             containsKey = distributedCache.containsKey(key);
@@ -291,7 +331,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
                         Long distributedLastAccessed = distributedTimestampMap.get(key);
                         setLastAccessed(value, distributedLastAccessed);
                     }
-                    localCache.put(key, value);
+                    recordWrite(value, localCache.put(key, value));
                 } else {
                     if (distributedCache.containsKey(key)) {
 //                        log.warn("Cache value is null but key [" + key + "] is available!");
@@ -315,7 +355,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public Future<V> load(K key) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         CacheLoader<K, ? extends V> cacheLoader = cacheConfiguration.getCacheLoader();
         if (cacheLoader == null) {
             return null;
@@ -339,7 +379,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public Future<Map<K, ? extends V>> loadAll(final Set<? extends K> keys) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         if (keys == null) {
             throw new NullPointerException("keys");
         }
@@ -362,7 +402,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public CacheStatistics getStatistics() {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         return cacheStatistics;
     }
 
@@ -371,17 +411,33 @@ public class CacheImpl<K, V> implements Cache<K, V> {
         if(localCache.size() >= capacity * (1 + CACHE_OVERCAPACITY_FACTOR)){
             return;
         }
-        this.localCache.put(key, new CacheEntry(key, value));
+        long start = System.nanoTime();
+        CacheEntry<K, V> entry = new CacheEntry(key, value);
+        if (weigher != null) {
+            entry.setWeight(weigher.weigh(key, value));
+            // Same as above for the weight, and an entry which alone exceeds the maximum weight is never cached
+            long maxWeight = this.maxWeight;
+            if (maxWeight > 0 && (entry.getWeight() > maxWeight ||
+                    totalWeight.get() >= maxWeight * (1 + CACHE_OVERCAPACITY_FACTOR))) {
+                // The previous value of the key is stale once it is replaced, so it must not stay cached either
+                if (localCache.containsKey(key)) {
+                    removeLocal(key);
+                }
+                return;
+            }
+        }
+        recordWrite(entry, this.localCache.put(key, entry));
         if (!isLocalCache) {
             this.distributedCache.put(key, new CacheEntry(key, value));
         }
+        cacheStatistics.recordPut(System.nanoTime() - start);
     }
 
     @Override
     public void put(K key, V value) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         CacheEntry entry = localCache.get(key);
         V oldValue = entry != null ? (V) entry.getValue() : null;
         if (oldValue == null) {
@@ -419,9 +475,13 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     }
 
     private void notifyCacheEntryRead(K key, V value) {
-        CacheEntryEvent event = createCacheEntryEvent(key, value);
+        // Reads are frequent and seldom listened to, hence the event is only created when there is a listener
+        CacheEntryEvent event = null;
         for (CacheEntryListener cacheEntryListener : cacheEntryListeners) {
             if (cacheEntryListener instanceof CacheEntryReadListener) {
+                if (event == null) {
+                    event = createCacheEntryEvent(key, value);
+                }
                 if (log.isDebugEnabled()) {
                     log.debug("Notification event trigger for cache entry read : " + cacheEntryListener.getClass());
                 }
@@ -469,7 +529,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public V getAndPut(K key, V value) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         V oldValue = localCache.get(key).getValue();
         put(key, value);
         return oldValue;
@@ -479,7 +539,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public void putAll(Map<? extends K, ? extends V> map) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
             K key = entry.getKey();
             boolean entryExists = false;
@@ -500,7 +560,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public boolean putIfAbsent(K key, V value) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         if (!localCache.containsKey(key)) {
             internalPut(key, value);
             notifyCacheEntryCreated(key, value);
@@ -529,8 +589,10 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public boolean removeLocal(Object key) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
+        long start = System.nanoTime();
         CacheEntry entry = localCache.remove((K) key);
+        recordRemoval((K) key, entry);
         if (!isLocalCache) {
             distributedCache.remove(key);
             distributedTimestampMap.remove(key);
@@ -538,6 +600,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
         }
         boolean removed = entry != null;
         if (removed) {
+            cacheStatistics.recordRemoval(System.nanoTime() - start);
             notifyCacheEntryRemoved((K) key, (V) entry.getValue());
         }
         return localCache.get(key) == null;
@@ -547,13 +610,18 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public boolean remove(K key, V oldValue) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
+        long start = System.nanoTime();
         CacheEntry<K, V> cacheEntry = localCache.remove(key);
+        recordRemoval(key, cacheEntry);
         if (!isLocalCache) {
             distributedCache.remove(key);
             distributedTimestampMap.remove(key);
             localTimestampMap.remove(key);
         }
+        if (cacheEntry != null) {
+            cacheStatistics.recordRemoval(System.nanoTime() - start);
+        }
         notifyCacheEntryRemoved(key, oldValue);
         return localCache.get(key) == null;
     }
@@ -562,14 +630,17 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public V getAndRemove(K key) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
+        long start = System.nanoTime();
         CacheEntry entry = localCache.remove(key);
+        recordRemoval(key, entry);
         if (!isLocalCache) {
             distributedCache.remove(key);
             distributedTimestampMap.remove(key);
             localTimestampMap.remove(key);
         }
         if (entry != null) {
+            cacheStatistics.recordRemoval(System.nanoTime() - start);
             V value = (V) entry.getValue();
             notifyCacheEntryRemoved(key, value);
             return value;
@@ -581,7 +652,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public boolean replace(K key, V oldValue, V newValue) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         Map<K, CacheEntry<K, V>> map = localCache;
         if (map.containsKey(key) && map.get(key).equals(new CacheEntry(key, oldValue))) {
             internalPut(key, newValue);
@@ -595,7 +666,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public boolean replace(K key, V value) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         Map<K, CacheEntry<K, V>> map = localCache;
         if (map.containsKey(key)) {
             internalPut(key, value);
@@ -609,7 +680,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public V getAndReplace(K key, V value) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         Map<K, CacheEntry<K, V>> map = localCache;
         CacheEntry<K, V> oldValue = map.get(key);
         if (oldValue != null) {
@@ -624,10 +695,11 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public void removeAll(Set<? extends K> keys) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         Map<K, CacheEntry<K, V>> map = localCache;
         for (K key : keys) {
             CacheEntry entry = map.remove(key);
+            recordRemoval(key, entry);
             if(!isLocalCache){
                 distributedCache.remove(key);
                 distributedTimestampMap.remove(key);
@@ -656,12 +728,13 @@ public class CacheImpl<K, V> implements Cache<K, V> {
 
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         Map<K, CacheEntry<K, V>> map = localCache;
         for (Map.Entry<K, CacheEntry<K, V>> entry : map.entrySet()) {
             notifyCacheEntryRemoved(entry.getKey(), entry.getValue().getValue());
         }
         map.clear();
+        clearTrackedEntries();
         if (!isLocalCache) {
             distributedCache.clear();
             distributedTimestampMap.clear();
@@ -687,21 +760,21 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     @Override
     public boolean registerCacheEntryListener(CacheEntryListener<? super K, ? super V> cacheEntryListener) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         return cacheEntryListeners.add(cacheEntryListener);
     }
 
     @Override
     public boolean unregisterCacheEntryListener(CacheEntryListener<?, ?> cacheEntryListener) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         return cacheEntryListeners.remove(cacheEntryListener);
     }
 
     @Override
     public Object invokeEntryProcessor(K key, EntryProcessor<K, V> entryProcessor) {
 //        V v = getMap().get(key);
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         return entryProcessor.process(new MutableEntry<K, V>() {
             @Override
             public boolean exists() {
@@ -739,14 +812,14 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     @Override
     public CacheManager getCacheManager() {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         return cacheManager;
     }
 
     @Override
     public <T> T unwrap(Class<T> cls) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         if (cls.isAssignableFrom(this.getClass())) {
             return cls.cast(this);
         }
@@ -763,7 +836,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     @Override
     public Iterator<Entry<K, V>> iterator() {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         return new CacheEntryIterator<K, V>(localCache.values().iterator());
     }
 
@@ -775,7 +848,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     @Override
     public void start() {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         if (status == Status.STARTED) {
             throw new IllegalStateException();
         }
@@ -786,8 +859,9 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public void stop() {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        lastAccessed = System.currentTimeMillis();
+        markAccessed();
         localCache.clear();
+        clearTrackedEntries();
 
         if (!isLocalCache) {
             distributedCache.clear();
@@ -815,6 +889,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public void expire(K key) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         CacheEntry entry = localCache.remove(key);
+        recordRemoval(key, entry);
         if(!isLocalCache){
             try {
                 distributedCache.remove(key);
@@ -840,7 +915,11 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public void evict(K key) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         checkStatusStarted();
-        localCache.remove(key);
+        CacheEntry<K, V> entry = localCache.remove(key);
+        recordRemoval(key, entry);
+        if (entry != null) {
+            cacheStatistics.recordEviction();
+        }
         /*if (log.isDebugEnabled()) {
             log.debug("Evicted entry:" + key + ", from local cache:" + cacheName);
         }*/
@@ -862,14 +941,235 @@ public class CacheImpl<K, V> implements Cache<K, V> {
     public void setCacheConfiguration(CacheConfigurationImpl cacheConfiguration) {
         Util.checkAccess(ownerTenantDomain, ownerTenantId);
         this.cacheConfiguration = cacheConfiguration;
+        if (cacheConfiguration.getEvictionAlgorithm() != null) {
+            setEvictionAlgorithm(cacheConfiguration.getEvictionAlgorithm());
+        }
+        if (cacheConfiguration.getWeigher() != null) {
+            setMaxWeight(cacheConfiguration.getWeigher(), cacheConfiguration.getMaxWeight());
+        }
+        updateExpiryDurations();
+        for (CacheEntry<K, V> entry : localCache.values()) {
+            scheduleExpiry(entry, getExpiryDeadline(entry));
+        }
     }
 
     public void setCapacity(long capacity) {
         this.capacity = capacity;
+        evictionLock.readLock().lock();
+        try {
+            EvictionQueue<K, V> queue = evictionQueue;
+            if (queue != null) {
+                queue.setCapacity(capacity);
+            }
+        } finally {
+            evictionLock.readLock().unlock();
+        }
     }
 
+    /**
+     * Bounds the cache by the total weight of its entries in addition to the number of entries. The entries which
+     * are already in the cache are weighed with the given weigher.
+     *
+     * @param weigher   weigher which calculates the weight of an entry, or null to stop tracking the weight
+     * @param maxWeight maximum total weight of the entries, the weight is tracked but not bounded if this is less than 1
+     */
+    public void setMaxWeight(Weigher<K, V> weigher, long maxWeight) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        long weight = 0;
+        for (CacheEntry<K, V> entry : localCache.values()) {
+            entry.setWeight(weigher != null ? weigher.weigh(entry.getKey(), entry.getValue()) : 0);
+            weight += entry.getWeight();
+        }
+        totalWeight.set(weight);
+    }
+
+    /**
+     * @return total weight of the entries in the cache, or 0 if the cache does not have a weigher
+     */
+    public long getWeight() {
+        return totalWeight.get();
+    }
+
+    /**
+     * @return maximum weight of the cache, or a value less than 1 if the weight of the cache is not bounded
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Replaces the eviction algorithm of the cache. The eviction queue of an incremental algorithm is built from the
+     * entries in the cache while the updates of the eviction queue are held back, so that the writes and removals
+     * made during the switch are recorded in the new queue.
+     *
+     * @param evictionAlgorithm the eviction algorithm to use
+     */
     public void setEvictionAlgorithm(EvictionAlgorithm evictionAlgorithm) {
-        this.evictionAlgorithm = evictionAlgorithm;
+        evictionLock.writeLock().lock();
+        try {
+            this.evictionAlgorithm = evictionAlgorithm;
+            if (evictionAlgorithm instanceof IncrementalEvictionAlgorithm) {
+                EvictionQueue<K, V> queue =
+                        ((IncrementalEvictionAlgorithm) evictionAlgorithm).createEvictionQueue(capacity);
+                for (CacheEntry<K, V> entry : localCache.values()) {
+                    queue.recordWrite(entry);
+                }
+                evictionQueue = queue;
+            } else {
+                evictionQueue = null;
+            }
+        } finally {
+            evictionLock.writeLock().unlock();
+        }
+    }
+
+    private void recordWrite(CacheEntry<K, V> entry, CacheEntry<K, V> previous) {
+        if (previous != null && previous != entry) {
+            cancelExpiry(previous);
+        }
+        scheduleExpiry(entry, getExpiryDeadline(entry));
+        evictionLock.readLock().lock();
+        try {
+            EvictionQueue<K, V> queue = evictionQueue;
+            if (queue != null) {
+                queue.recordWrite(entry);
+            }
+        } finally {
+            evictionLock.readLock().unlock();
+        }
+        Weigher<K, V> weigher = this.weigher;
+        if (weigher != null) {
+            if (entry.getWeight() == 0) {
+                // Entries from the distributed cache have not been weighed on this node
+                entry.setWeight(weigher.weigh(entry.getKey(), entry.getValue()));
+            }
+            totalWeight.addAndGet(entry.getWeight() - (previous != null && previous != entry ? previous.getWeight() : 0));
+        }
+        drainAccessBufferOnWrite();
+    }
+
+    /**
+     * Records a read of the given entry in the access buffer, and requests draining the buffer if it is full. Reads
+     * never drain the buffer themselves; it is drained by the next write to the cache, or by the next expiry run.
+     */
+    private void recordAccess(CacheEntry<K, V> entry) {
+        if (accessBuffer.offer(entry) && !accessBufferDrainRequested.get()) {
+            accessBufferDrainRequested.set(true);
+        }
+    }
+
+    /**
+     * Drains the access buffer on the writing thread if a drain has been requested. A writer does not wait for
+     * another thread which is already draining the buffer.
+     */
+    private void drainAccessBufferOnWrite() {
+        if (accessBufferDrainRequested.get() && accessBufferDrainLock.tryLock()) {
+            try {
+                accessBufferDrainRequested.set(false);
+                accessBuffer.drainTo(accessRecorder);
+            } finally {
+                accessBufferDrainLock.unlock();
+            }
+        }
+    }
+
+    private void drainAccessBuffer() {
+        accessBufferDrainRequested.set(false);
+        accessBufferDrainLock.lock();
+        try {
+            accessBuffer.drainTo(accessRecorder);
+        } finally {
+            accessBufferDrainLock.unlock();
+        }
+    }
+
+    /**
+     * Updates the last accessed time of the cache. The field is only written when the time has changed, so that
+     * concurrent operations do not keep invalidating it in each other's CPU caches.
+     */
+    private long markAccessed() {
+        long now = System.currentTimeMillis();
+        if (lastAccessed != now) {
+            lastAccessed = now;
+        }
+        return now;
+    }
+
+    private void recordRemoval(K key, CacheEntry<K, V> entry) {
+        if (entry != null) {
+            cancelExpiry(entry);
+            if (weigher != null) {
+                totalWeight.addAndGet(-entry.getWeight());
+            }
+        }
+        evictionLock.readLock().lock();
+        try {
+            EvictionQueue<K, V> queue = evictionQueue;
+            if (queue != null) {
+                queue.recordRemoval(key);
+            }
+        } finally {
+            evictionLock.readLock().unlock();
+        }
+        drainAccessBufferOnWrite();
+    }
+
+    private void clearTrackedEntries() {
+        expiryWheel.clear();
+        totalWeight.set(0);
+        evictionLock.readLock().lock();
+        try {
+            EvictionQueue<K, V> queue = evictionQueue;
+            if (queue != null) {
+                queue.clear();
+            }
+        } finally {
+            evictionLock.readLock().unlock();
+        }
+    }
+
+    private void scheduleExpiry(CacheEntry<K, V> entry, long deadline) {
+        cancelExpiry(entry);
+        entry.setExpiryTimeout(expiryWheel.schedule(entry, deadline));
+    }
+
+    private void cancelExpiry(CacheEntry<K, V> entry) {
+        TimingWheel.Timeout<CacheEntry<K, V>> timeout = entry.getExpiryTimeout();
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private long getExpiryDeadline(CacheEntry<K, V> entry) {
+        return Math.min(entry.getLastAccessed() + accessedExpiryDuration,
+                entry.getLastModified() + modifiedExpiryDuration);
+    }
+
+    private void updateExpiryDurations() {
+        accessedExpiryDuration = getExpiryDuration(CacheConfiguration.ExpiryType.ACCESSED);
+        modifiedExpiryDuration = getExpiryDuration(CacheConfiguration.ExpiryType.MODIFIED);
+    }
+
+    private long getExpiryDuration(CacheConfiguration.ExpiryType type) {
+        CacheConfiguration.Duration expiry = getConfiguration().getExpiry(type);
+        return expiry == null ?
+                Util.getDefaultCacheTimeout() * 60 * 1000 :
+                expiry.getTimeUnit().toMillis(expiry.getDurationAmount());
+    }
+
+    /**
+     * Returns the next entry to be evicted from the eviction queue, skipping the entries which have already left
+     * the cache through a path which did not record the removal, such as a concurrent remove.
+     */
+    private CacheEntry<K, V> pollEvictionQueue(EvictionQueue<K, V> queue) {
+        CacheEntry<K, V> entry;
+        while ((entry = queue.poll()) != null) {
+            if (localCache.containsKey(entry.getKey())) {
+                return entry;
+            }
+        }
+        return null;
     }
 
     private static final class CacheEntryIterator<K, V> implements Iterator<Entry<K, V>> {
@@ -937,77 +1237,56 @@ public class CacheImpl<K, V> implements Cache<K, V> {
 
     @SuppressWarnings("unchecked")
     void runCacheExpiry() {
-        CacheConfiguration cacheConfiguration = getConfiguration();
-
-        CacheConfiguration.Duration modifiedExpiry =
-                cacheConfiguration.getExpiry(CacheConfiguration.ExpiryType.MODIFIED);
-        long modifiedExpiryDuration =
-                modifiedExpiry == null ?
-                        Util.getDefaultCacheTimeout() * 60 * 1000 :
-                        modifiedExpiry.getTimeUnit().toMillis(modifiedExpiry.getDurationAmount());
-
-        CacheConfiguration.Duration accessedExpiry =
-                cacheConfiguration.getExpiry(CacheConfiguration.ExpiryType.ACCESSED);
-        long accessedExpiryDuration =
-                accessedExpiry == null ?
-                        Util.getDefaultCacheTimeout() * 60 * 1000 :
-                        accessedExpiry.getTimeUnit().toMillis(accessedExpiry.getDurationAmount());
-
-        Collection<CacheEntry<K, V>> cacheEntries = getAll();
-
-        long evictionListSize = 0;
-        if (localCache.size() > capacity) {
-            evictionListSize = localCache.size() - capacity; // Evict all extra entries
-            evictionListSize += (long) (capacity * CachingConstants.CACHE_EVICTION_FACTOR); // Evict 25% of cache
-        }
-
-        TreeSet<CacheEntry> evictionList = new TreeSet<CacheEntry>(new Comparator<CacheEntry>() {
-
-            @Override
-            /**
-             * Compares its two arguments for order.  Returns a negative integer,
-             * zero, or a positive integer as the first argument is less than, equal
-             * to, or greater than the second.
-             */
-            public int compare(CacheEntry o1, CacheEntry o2) {
-                if(o1.getLastAccessed() == o2.getLastAccessed()) {
-                    if(o1.getKey().equals(o2.getKey())){
-                        return 0;
-                    }
-                    return -1;
-                } else {
-                    return (int) (o1.getLastAccessed() - o2.getLastAccessed());
-                }
-            }
-        });
+        drainAccessBuffer();
         long start = System.currentTimeMillis();
-        for (CacheEntry<K, V> localCacheEntry : cacheEntries) { // All Cache entries in a Cache
+        List<CacheEntry<K, V>> dueEntries = expiryWheel.advance(start);
+        for (int i = 0; i < dueEntries.size(); i++) {
+            CacheEntry<K, V> localCacheEntry = dueEntries.get(i);
             K key = localCacheEntry.getKey();
-            if (localCache.size() >= capacity) {
-                evictionList.add(localCacheEntry);
+            if (localCache.get(key) != localCacheEntry) {
+                continue; // The entry has been replaced or removed after it was scheduled
+            }
+            long deadline = getExpiryDeadline(localCacheEntry);
+            if (deadline > start) {
+                // The entry has been accessed after it was scheduled
+                scheduleExpiry(localCacheEntry, deadline);
+                continue;
             }
 
-            long lastAccessed = localCacheEntry.getLastAccessed();
-            long lastModified = localCacheEntry.getLastModified();
-            long now = System.currentTimeMillis();
-
-            if (now - lastAccessed >= accessedExpiryDuration || now - lastModified >= modifiedExpiryDuration) {
-                expire(key);
-                if (log.isDebugEnabled()) {
-                    log.debug("Expired: Cache:" + cacheName + ", entry:" + key);
-                }
-                if (System.currentTimeMillis() - start > MAX_CLEANUP_TIME) {
-                    break;
+            expire(key);
+            if (log.isDebugEnabled()) {
+                log.debug("Expired: Cache:" + cacheName + ", entry:" + key);
+            }
+            if (System.currentTimeMillis() - start > MAX_CLEANUP_TIME) {
+                // Leave the rest of the due entries to the next run
+                for (int j = i + 1; j < dueEntries.size(); j++) {
+                    CacheEntry<K, V> dueEntry = dueEntries.get(j);
+                    if (localCache.get(dueEntry.getKey()) == dueEntry) {
+                        scheduleExpiry(dueEntry, start);
+                    }
                 }
+                break;
             }
         }
 
+        long evictionListSize = 0;
+        if (localCache.size() > capacity) {
+            evictionListSize = localCache.size() - capacity; // Evict all extra entries
+            evictionListSize += (long) (capacity * CachingConstants.CACHE_EVICTION_FACTOR); // Evict 25% of cache
+        }
+
         if (localCache.size() >= capacity) {
+            // An incremental eviction algorithm keeps its own order, hence the entries need not be sorted here
+            EvictionQueue<K, V> queue = evictionQueue;
+            TreeSet<CacheEntry> evictionList = queue == null ? createEvictionList() : null;
             start = System.currentTimeMillis();
             for (int i = 0; i < evictionListSize; i++) {
-                CacheEntry entry = evictionAlgorithm.getEntryForEviction(evictionList);
+                CacheEntry entry = queue != null ? pollEvictionQueue(queue) :
+                        evictionAlgorithm.getEntryForEviction(evictionList);
                 if (entry != null) {
                     this.evict((K) entry.getKey());
+                } else if (queue != null) {
+                    break;
                 }
                 if (System.currentTimeMillis() - start > MAX_CLEANUP_TIME) {
                     break;
@@ -1016,6 +1295,12 @@ public class CacheImpl<K, V> implements Cache<K, V> {
             log.info("Evicted " + evictionListSize + " entries from cache " + cacheName);
         }
 
+        long maxWeight = this.maxWeight;
+        if (weigher != null && maxWeight > 0 && totalWeight.get() > maxWeight) {
+            // Evict the extra weight and 25% of the maximum weight, as for the number of entries
+            evictByWeight(maxWeight - (long) (maxWeight * CachingConstants.CACHE_EVICTION_FACTOR));
+        }
+
         // Replicate timestamps
         if(!isLocalCache){
             for (Map.Entry<K, Long> entry : localTimestampMap.entrySet()) {
@@ -1029,6 +1314,59 @@ public class CacheImpl<K, V> implements Cache<K, V> {
         }
     }
 
+    /**
+     * Evicts entries, in the order chosen by the eviction algorithm, until the total weight of the cache is within
+     * the given weight.
+     */
+    private void evictByWeight(long targetWeight) {
+        EvictionQueue<K, V> queue = evictionQueue;
+        TreeSet<CacheEntry> evictionList = queue == null ? createEvictionList() : null;
+        long initialWeight = totalWeight.get();
+        long start = System.currentTimeMillis();
+        int evicted = 0;
+        while (totalWeight.get() > targetWeight) {
+            CacheEntry entry = queue != null ? pollEvictionQueue(queue) :
+                    evictionAlgorithm.getEntryForEviction(evictionList);
+            if (entry == null) {
+                break;
+            }
+            this.evict((K) entry.getKey());
+            evicted++;
+            if (System.currentTimeMillis() - start > MAX_CLEANUP_TIME) {
+                break;
+            }
+        }
+        log.info("Evicted " + evicted + " entries weighing " + (initialWeight - totalWeight.get()) +
+                " from cache " + cacheName);
+    }
+
+    /**
+     * Returns the entries of the cache sorted by their last accessed time, for the eviction algorithm to choose from.
+     */
+    private TreeSet<CacheEntry> createEvictionList() {
+        TreeSet<CacheEntry> evictionList = new TreeSet<CacheEntry>(new Comparator<CacheEntry>() {
+
+            @Override
+            /**
+             * Compares its two arguments for order.  Returns a negative integer,
+             * zero, or a positive integer as the first argument is less than, equal
+             * to, or greater than the second.
+             */
+            public int compare(CacheEntry o1, CacheEntry o2) {
+                if(o1.getLastAccessed() == o2.getLastAccessed()) {
+                    if(o1.getKey().equals(o2.getKey())){
+                        return 0;
+                    }
+                    return -1;
+                } else {
+                    return (int) (o1.getLastAccessed() - o2.getLastAccessed());
+                }
+            }
+        });
+        evictionList.addAll(getAll());
+        return evictionList;
+    }
+
     /**
      * Callable used for cache loader.
      *
@@ -1066,6 +1404,32 @@ public class CacheImpl<K, V> implements Cache<K, V> {
         }
     }
 
+    /**
+     * Applies the reads recorded in the access buffer.
+     */
+    private class AccessRecorder implements Consumer<CacheEntry<K, V>> {
+
+        @Override
+        public void accept(CacheEntry<K, V> entry) {
+            K key = entry.getKey();
+            if (localCache.get(key) != entry) {
+                return; // The entry has been replaced or removed after it was read
+            }
+            evictionLock.readLock().lock();
+            try {
+                EvictionQueue<K, V> queue = evictionQueue;
+                if (queue != null) {
+                    queue.recordRead(entry);
+                }
+            } finally {
+                evictionLock.readLock().unlock();
+            }
+            if (!isLocalCache) {
+                localTimestampMap.put(key, entry.getLastAccessed());
+            }
+        }
+    }
+
     private class TimestampReplicateTask implements Runnable{
 
         @Override
@@ -1152,13 +1516,14 @@ public class CacheImpl<K, V> implements Cache<K, V> {
                 } else {
                     distributedTimestampMap.put((K) key, value.getLastAccessed());
                 }
-                localCache.put((K) key, value);
+                recordWrite(value, localCache.put((K) key, value));
             }
         }
 
         @Override
         public void mapCleared() {
             localCache.clear();
+            clearTrackedEntries();
         }
 
         @Override
@@ -1174,7 +1539,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
             }
 
 
-            localCache.remove((K)key);
+            recordRemoval((K) key, localCache.remove((K) key));
         }
 
         @Override
@@ -1198,7 +1563,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
                 }else{
                     distributedTimestampMap.put((K) key,value.getLastAccessed());
                 }
-                localCache.put((K)key, value);
+                recordWrite(value, localCache.put((K) key, value));
             }
         }
     }
@@ -1244,6 +1609,7 @@ public class CacheImpl<K, V> implements Cache<K, V> {
         @Override
         public void mapCleared() {
             localCache.clear();
+            clearTrackedEntries();
         }
     }
 }
@@ -21,13 +21,12 @@ package org.wso2.carbon.caching.impl;
 import javax.cache.Cache;
 import javax.cache.CacheStatistics;
 import javax.cache.Status;
-import javax.cache.mbeans.CacheMXBean;
 import java.util.Date;
 
 /**
  * TODO: class description
  */
-public class CacheMXBeanImpl implements CacheMXBean {
+public class CacheMXBeanImpl implements WeightedCacheMXBean {
 
     private final Cache cache;
     private String ownerTenantDomain;
@@ -113,6 +112,18 @@ public class CacheMXBeanImpl implements CacheMXBean {
         return getCacheStatistics().getAverageRemoveMillis();
     }
 
+    @Override
+    public long getWeight() {
+        setTenantCredentialsInCarbonContext();
+        return cache instanceof CacheImpl ? ((CacheImpl) cache).getWeight() : 0;
+    }
+
+    @Override
+    public long getMaxWeight() {
+        setTenantCredentialsInCarbonContext();
+        return cache instanceof CacheImpl ? ((CacheImpl) cache).getMaxWeight() : 0;
+    }
+
     private CacheStatistics getCacheStatistics() {
         setTenantCredentialsInCarbonContext();
         return cache.getStatistics();
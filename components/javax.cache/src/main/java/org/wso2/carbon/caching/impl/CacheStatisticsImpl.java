@@ -18,87 +18,130 @@
 package org.wso2.carbon.caching.impl;
 
 import javax.cache.CacheStatistics;
-import javax.cache.Status;
 import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * TODO: class description
+ * Cache statistics backed by {@link LongAdder}s, so that the cache operations recording them do not contend on a
+ * single counter and the readers, such as the CacheMXBean, never block the cache operations.
+ * <p/>
+ * As the counters are read one by one, the values returned by a reader are not a consistent snapshot.
  */
 public class CacheStatisticsImpl implements CacheStatistics {
-    private Status status;
 
-    private long cacheHits;
-    private long cacheMisses;
-    private long cacheGets;
-    private long cachePuts;
-    private long cacheRemovals;
-    private long cacheEvictions;
+    private static final float NANOS_PER_MILLI = 1000000f;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cachePuts = new LongAdder();
+    private final LongAdder cacheRemovals = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+    private final LongAdder getTimeNanos = new LongAdder();
+    private final LongAdder putTimeNanos = new LongAdder();
+    private final LongAdder removeTimeNanos = new LongAdder();
+    private volatile Date startAccumulationDate = new Date();
 
     @Override
     public void clear() {
-        cacheGets = 0;
-        cacheMisses = 0;
-        cachePuts = 0;
-        cacheHits = 0;
+        cacheHits.reset();
+        cacheMisses.reset();
+        cachePuts.reset();
+        cacheRemovals.reset();
+        cacheEvictions.reset();
+        getTimeNanos.reset();
+        putTimeNanos.reset();
+        removeTimeNanos.reset();
+        startAccumulationDate = new Date();
     }
 
     @Override
     public Date getStartAccumulationDate() {
-        return null;  //TODO
+        return startAccumulationDate;
     }
 
     @Override
     public long getCacheHits() {
-        return cacheHits;
+        return cacheHits.sum();
     }
 
     @Override
     public float getCacheHitPercentage() {
-        return 0;  //TODO
+        long hits = cacheHits.sum();
+        long gets = hits + cacheMisses.sum();
+        return gets == 0 ? 0 : hits * 100f / gets;
     }
 
     @Override
     public long getCacheMisses() {
-        return cacheMisses;
+        return cacheMisses.sum();
     }
 
     @Override
     public float getCacheMissPercentage() {
-        return 0;  //TODO
+        long misses = cacheMisses.sum();
+        long gets = misses + cacheHits.sum();
+        return gets == 0 ? 0 : misses * 100f / gets;
     }
 
     @Override
     public long getCacheGets() {
-        return cacheGets;
+        return cacheHits.sum() + cacheMisses.sum();
     }
 
     @Override
     public long getCachePuts() {
-        return cachePuts;
+        return cachePuts.sum();
     }
 
     @Override
     public long getCacheRemovals() {
-        return 0;  //TODO
+        return cacheRemovals.sum();
     }
 
     @Override
     public long getCacheEvictions() {
-        return cacheEvictions;
+        return cacheEvictions.sum();
     }
 
     @Override
     public float getAverageGetMillis() {
-        return 0;  //TODO
+        return average(getTimeNanos, getCacheGets());
     }
 
     @Override
     public float getAveragePutMillis() {
-        return 0;  //TODO
+        return average(putTimeNanos, cachePuts.sum());
     }
 
     @Override
     public float getAverageRemoveMillis() {
-        return 0;  //TODO
+        return average(removeTimeNanos, cacheRemovals.sum());
+    }
+
+    void recordGet(boolean hit, long durationNanos) {
+        if (hit) {
+            cacheHits.increment();
+        } else {
+            cacheMisses.increment();
+        }
+        getTimeNanos.add(durationNanos);
+    }
+
+    void recordPut(long durationNanos) {
+        cachePuts.increment();
+        putTimeNanos.add(durationNanos);
+    }
+
+    void recordRemoval(long durationNanos) {
+        cacheRemovals.increment();
+        removeTimeNanos.add(durationNanos);
+    }
+
+    void recordEviction() {
+        cacheEvictions.increment();
+    }
+
+    private static float average(LongAdder totalNanos, long count) {
+        return count == 0 ? 0 : totalNanos.sum() / NANOS_PER_MILLI / count;
     }
 }
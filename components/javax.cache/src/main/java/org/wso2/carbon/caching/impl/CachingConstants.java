@@ -41,6 +41,11 @@ public final class CachingConstants {
     // Cache name prefix of Time Stamp cache
     public static final String TIMESTAMP_CACHE_PREFIX = "$_timestamp_$";
     public static final String FORCE_LOCAL_CACHE = "Cache.ForceLocalCache";
+    public static final String EVICTION_ALGORITHM = "Cache.EvictionAlgorithm";
+    public static final String LRU_EVICTION_ALGORITHM = "LRU";
+    public static final String MRU_EVICTION_ALGORITHM = "MRU";
+    public static final String RANDOM_EVICTION_ALGORITHM = "Random";
+    public static final String SEGMENTED_LRU_EVICTION_ALGORITHM = "SegmentedLRU";
     //Keep or discard empty cache objects
     public static final String DISCARD_EMPTY_CACHES = "Cache.DiscardEmptyCaches";
 
@@ -17,6 +17,13 @@
 */
 package org.wso2.carbon.caching.impl;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.caching.impl.eviction.EvictionAlgorithm;
+import org.wso2.carbon.caching.impl.eviction.LeastRecentlyUsedEvictionAlgorithm;
+import org.wso2.carbon.caching.impl.eviction.MostRecentlyUsedEvictionAlgorithm;
+import org.wso2.carbon.caching.impl.eviction.RandomEvictionAlgorithm;
+import org.wso2.carbon.caching.impl.eviction.SegmentedLeastRecentlyUsedEvictionAlgorithm;
 import org.wso2.micro.integrator.core.services.CarbonServerConfigurationService;
 
 /**
@@ -24,6 +31,8 @@ import org.wso2.micro.integrator.core.services.CarbonServerConfigurationService;
  */
 public final class Util {
 
+    private static final Log log = LogFactory.getLog(Util.class);
+
     public static void checkAccess(String ownerTenantDomain, int ownerTenantId) {
         // super tenant only
         return;
@@ -59,6 +68,35 @@ public final class Util {
         return CachingConstants.DEFAULT_CACHE_EXPIRY_MINS;
     }
 
+    /**
+     * Return the eviction algorithm specified in Carbon.xml
+     *
+     * @return the configured eviction algorithm or null if it is not specified
+     */
+    public static EvictionAlgorithm getConfiguredEvictionAlgorithm() {
+        CarbonServerConfigurationService serverConfigService = CarbonServerConfigurationService.getInstance();
+        if (serverConfigService == null) {
+            return null;
+        }
+        String evictionAlgorithm = serverConfigService.getFirstProperty(CachingConstants.EVICTION_ALGORITHM);
+        if (evictionAlgorithm == null) {
+            return null;
+        }
+        switch (evictionAlgorithm.trim()) {
+            case CachingConstants.LRU_EVICTION_ALGORITHM:
+                return new LeastRecentlyUsedEvictionAlgorithm();
+            case CachingConstants.MRU_EVICTION_ALGORITHM:
+                return new MostRecentlyUsedEvictionAlgorithm();
+            case CachingConstants.RANDOM_EVICTION_ALGORITHM:
+                return new RandomEvictionAlgorithm();
+            case CachingConstants.SEGMENTED_LRU_EVICTION_ALGORITHM:
+                return new SegmentedLeastRecentlyUsedEvictionAlgorithm();
+            default:
+                log.warn("Unknown cache eviction algorithm " + evictionAlgorithm + ". Using the default algorithm");
+                return null;
+        }
+    }
+
     private Util() {
     }
 }
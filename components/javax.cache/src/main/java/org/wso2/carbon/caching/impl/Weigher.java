@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl;
+
+/**
+ * Calculates the weight of a cache entry, such as its approximate size in bytes. A cache with a maximum weight
+ * evicts entries until the total weight of its entries is within the maximum.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public interface Weigher<K, V> {
+
+    /**
+     * Returns the weight of the given entry. The weight is calculated once, when the entry is written to the cache.
+     *
+     * @param key   cache key
+     * @param value cache value
+     * @return weight of the entry, which must not be negative
+     */
+    long weigh(K key, V value);
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl;
+
+import javax.cache.mbeans.CacheMXBean;
+
+/**
+ * Cache MXBean which exposes the weight based capacity of the cache in addition to the standard attributes.
+ */
+public interface WeightedCacheMXBean extends CacheMXBean {
+
+    /**
+     * @return total weight of the entries in the cache, or 0 if the cache does not have a weigher
+     */
+    long getWeight();
+
+    /**
+     * @return maximum weight of the cache, or a value less than 1 if the weight of the cache is not bounded
+     */
+    long getMaxWeight();
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl.eviction;
+
+import org.wso2.carbon.caching.impl.CacheEntry;
+
+/**
+ * Per cache eviction order which is maintained incrementally as entries are written, read and removed. Unlike the
+ * {@link java.util.TreeSet} based eviction, selecting a victim does not require sorting all the cache entries.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public interface EvictionQueue<K, V> {
+
+    /**
+     * Records that the given entry has been added to, or replaced in the cache.
+     *
+     * @param entry cache entry
+     */
+    void recordWrite(CacheEntry<K, V> entry);
+
+    /**
+     * Records a read of the given entry. Reads are recorded in batches, after the cache hits which made them.
+     *
+     * @param entry cache entry
+     */
+    void recordRead(CacheEntry<K, V> entry);
+
+    /**
+     * Records that the entry with the given key is no longer in the cache.
+     *
+     * @param key cache key
+     */
+    void recordRemoval(K key);
+
+    /**
+     * Removes and returns the next entry to be evicted.
+     *
+     * @return the next entry to be evicted or null if the queue is empty
+     */
+    CacheEntry<K, V> poll();
+
+    /**
+     * Updates the capacity of the cache which owns this queue.
+     *
+     * @param capacity maximum number of entries in the cache
+     */
+    void setCapacity(long capacity);
+
+    int size();
+
+    void clear();
+}
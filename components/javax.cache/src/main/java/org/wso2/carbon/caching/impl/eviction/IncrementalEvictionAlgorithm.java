@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl.eviction;
+
+/**
+ * Cache eviction algorithm which keeps the eviction order up to date on each cache operation, so that evicting n
+ * entries costs O(n) instead of a full scan of the cache.
+ */
+public interface IncrementalEvictionAlgorithm extends EvictionAlgorithm {
+
+    /**
+     * Creates the eviction queue for a single cache. Eviction algorithms are shared between caches, hence all the
+     * state has to be kept in the returned queue.
+     *
+     * @param capacity maximum number of entries in the cache
+     * @return a new eviction queue
+     */
+    <K, V> EvictionQueue<K, V> createEvictionQueue(long capacity);
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl.eviction;
+
+import org.wso2.carbon.caching.impl.CacheEntry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Eviction queue of the {@link SegmentedLeastRecentlyUsedEvictionAlgorithm}. Entries are kept in two access ordered
+ * doubly linked lists, the probationary and the protected segment, and a key index, so that every operation is O(1).
+ * <p/>
+ * Reads are not recorded by the reading threads, but in batches when the cache drains its access buffer, hence a
+ * single lock guards the queue without becoming a point of contention for cache hits.
+ */
+class SegmentedEvictionQueue<K, V> implements EvictionQueue<K, V> {
+
+    private final Map<K, Node<K, V>> index = new HashMap<K, Node<K, V>>();
+    private final Node<K, V> probation = new Node<K, V>(null);
+    private final Node<K, V> protectedSegment = new Node<K, V>(null);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final float protectedRatio;
+
+    private long maxProtectedSize;
+    private long protectedSize;
+
+    SegmentedEvictionQueue(long capacity, float protectedRatio) {
+        this.protectedRatio = protectedRatio;
+        setCapacity(capacity);
+    }
+
+    @Override
+    public void recordWrite(CacheEntry<K, V> entry) {
+        lock.lock();
+        try {
+            Node<K, V> node = index.get(entry.getKey());
+            if (node == null) {
+                node = new Node<K, V>(entry);
+                index.put(entry.getKey(), node);
+                node.linkLast(probation);
+            } else {
+                node.entry = entry;
+                onHit(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void recordRead(CacheEntry<K, V> entry) {
+        lock.lock();
+        try {
+            Node<K, V> node = index.get(entry.getKey());
+            if (node != null) {
+                onHit(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        lock.lock();
+        try {
+            Node<K, V> node = index.remove(key);
+            if (node != null) {
+                if (node.isProtected) {
+                    protectedSize--;
+                }
+                node.unlink();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheEntry<K, V> poll() {
+        lock.lock();
+        try {
+            Node<K, V> victim = probation.next != probation ? probation.next : protectedSegment.next;
+            if (victim == protectedSegment) {
+                return null;
+            }
+            if (victim.isProtected) {
+                protectedSize--;
+            }
+            victim.unlink();
+            index.remove(victim.entry.getKey());
+            return victim.entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setCapacity(long capacity) {
+        lock.lock();
+        try {
+            maxProtectedSize = (long) (capacity * protectedRatio);
+            demoteOverflow();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            index.clear();
+            probation.prev = probation.next = probation;
+            protectedSegment.prev = protectedSegment.next = protectedSegment;
+            protectedSize = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves an entry which was accessed again to the most recently used end of the protected segment.
+     */
+    private void onHit(Node<K, V> node) {
+        node.unlink();
+        node.linkLast(protectedSegment);
+        if (!node.isProtected) {
+            node.isProtected = true;
+            protectedSize++;
+            demoteOverflow();
+        }
+    }
+
+    /**
+     * Moves the least recently used protected entries back to the probationary segment, where they are the last to
+     * be evicted.
+     */
+    private void demoteOverflow() {
+        while (protectedSize > maxProtectedSize && protectedSegment.next != protectedSegment) {
+            Node<K, V> demoted = protectedSegment.next;
+            demoted.unlink();
+            demoted.linkLast(probation);
+            demoted.isProtected = false;
+            protectedSize--;
+        }
+    }
+
+    private static final class Node<K, V> {
+        private CacheEntry<K, V> entry;
+        private Node<K, V> prev = this;
+        private Node<K, V> next = this;
+        private boolean isProtected;
+
+        Node(CacheEntry<K, V> entry) {
+            this.entry = entry;
+        }
+
+        void linkLast(Node<K, V> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = this;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl.eviction;
+
+import org.wso2.carbon.caching.impl.CacheEntry;
+
+import java.util.TreeSet;
+
+/**
+ * Segmented LRU cache eviction algorithm. New entries are admitted to a probationary segment and are promoted to a
+ * protected segment when they are read again, so that a burst of one-time entries cannot flush the frequently used
+ * ones out of the cache.
+ */
+public class SegmentedLeastRecentlyUsedEvictionAlgorithm implements IncrementalEvictionAlgorithm {
+
+    private static final float DEFAULT_PROTECTED_RATIO = 0.8f;
+
+    private final float protectedRatio;
+
+    public SegmentedLeastRecentlyUsedEvictionAlgorithm() {
+        this(DEFAULT_PROTECTED_RATIO);
+    }
+
+    /**
+     * @param protectedRatio portion of the cache capacity reserved for the protected segment
+     */
+    public SegmentedLeastRecentlyUsedEvictionAlgorithm(float protectedRatio) {
+        if (protectedRatio < 0 || protectedRatio >= 1) {
+            throw new IllegalArgumentException("Protected ratio should be in the range [0, 1) : " + protectedRatio);
+        }
+        this.protectedRatio = protectedRatio;
+    }
+
+    @Override
+    public CacheEntry getEntryForEviction(TreeSet<CacheEntry> evictionSet) {
+        return evictionSet.pollFirst();
+    }
+
+    @Override
+    public <K, V> EvictionQueue<K, V> createEvictionQueue(long capacity) {
+        return new SegmentedEvictionQueue<K, V>(capacity, protectedRatio);
+    }
+}
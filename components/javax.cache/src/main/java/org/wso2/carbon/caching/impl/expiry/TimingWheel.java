@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl.expiry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel used to find the cache entries which are due for expiry without scanning the whole cache.
+ * <p/>
+ * Each level has {@link #WHEEL_SIZE} buckets and each bucket of a level spans a whole revolution of the level below
+ * it. An item is placed in the lowest level which can hold its deadline, and is cascaded down to the lower levels as
+ * the wheel advances, so that scheduling, cancelling and expiring an item are all O(1). Deadlines beyond the top level
+ * are kept in an overflow list which is re-examined on each revolution of the top level.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final Timeout<T>[][] wheels;
+    private final Timeout<T> overflow = new Timeout<T>(null, null, 0);
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis   resolution of the wheel in milliseconds
+     * @param startMillis  current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration should be positive : " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.wheels = new Timeout[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new Timeout<T>(null, null, 0);
+            }
+        }
+    }
+
+    /**
+     * Schedules an item to be returned by {@link #advance(long)} once the given deadline has passed.
+     *
+     * @param item           item to schedule
+     * @param deadlineMillis deadline in milliseconds
+     * @return handle which can be used to cancel the scheduled item
+     */
+    public synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+        // Round up, so that an item is never returned before its deadline. The bucket of the current tick has already
+        // been drained, hence the earliest possible tick is the next one.
+        long deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        Timeout<T> timeout = new Timeout<T>(this, item, deadlineTick);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel up to the given time.
+     *
+     * @param nowMillis current time in milliseconds
+     * @return the items whose deadline has passed, in no particular order
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<T>();
+        while (currentTick < nowTick) {
+            if (size == 0) {
+                currentTick = nowTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            drain(wheels[0][(int) (currentTick & WHEEL_MASK)], expired);
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        for (Timeout<T>[] wheel : wheels) {
+            for (Timeout<T> bucket : wheel) {
+                bucket.clear();
+            }
+        }
+        overflow.clear();
+        size = 0;
+    }
+
+    /**
+     * Moves the items of the higher level buckets which start at the current tick down to the lower levels.
+     */
+    private void cascade() {
+        if ((currentTick & ((1L << (WHEEL_BITS * LEVELS)) - 1)) == 0) {
+            replace(overflow);
+        }
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                replace(wheels[level][(int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)]);
+            }
+        }
+    }
+
+    private void replace(Timeout<T> bucket) {
+        Timeout<T> timeout = bucket.detach();
+        while (timeout != bucket) {
+            Timeout<T> next = timeout.next;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void drain(Timeout<T> bucket, List<T> expired) {
+        Timeout<T> timeout = bucket.detach();
+        while (timeout != bucket) {
+            Timeout<T> next = timeout.next;
+            expired.add(timeout.item);
+            timeout.wheel = null;
+            timeout.prev = timeout.next = timeout;
+            size--;
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        // While cascading, items due at the current tick go to the bucket which is drained next
+        long deadlineTick = Math.max(timeout.deadlineTick, currentTick);
+        for (int level = 0; level < LEVELS; level++) {
+            int parentShift = WHEEL_BITS * (level + 1);
+            if ((deadlineTick >>> parentShift) == (currentTick >>> parentShift)) {
+                timeout.linkLast(wheels[level][(int) ((deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)]);
+                return;
+            }
+        }
+        timeout.linkLast(overflow);
+    }
+
+    /**
+     * Handle of an item scheduled in a {@link TimingWheel}.
+     *
+     * @param <T> the type of the scheduled item
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private TimingWheel<T> wheel;
+        private Timeout<T> prev = this;
+        private Timeout<T> next = this;
+
+        private Timeout(TimingWheel<T> wheel, T item, long deadlineTick) {
+            this.wheel = wheel;
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Removes the item from the wheel, if it has not expired yet.
+         */
+        public void cancel() {
+            TimingWheel<T> owner = wheel;
+            if (owner == null) {
+                return;
+            }
+            synchronized (owner) {
+                if (wheel != null) {
+                    unlink();
+                    wheel = null;
+                    owner.size--;
+                }
+            }
+        }
+
+        private void linkLast(Timeout<T> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = this;
+        }
+
+        /**
+         * Empties this bucket and returns the first item of the detached chain. The last item of the chain still
+         * points to this bucket.
+         */
+        private Timeout<T> detach() {
+            Timeout<T> first = next;
+            prev = next = this;
+            return first;
+        }
+
+        private void clear() {
+            Timeout<T> timeout = next;
+            while (timeout != this) {
+                Timeout<T> following = timeout.next;
+                timeout.wheel = null;
+                timeout.prev = timeout.next = timeout;
+                timeout = following;
+            }
+            prev = next = this;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.caching.impl.eviction.LeastRecentlyUsedEvictionAlgorithm;
+import org.wso2.carbon.caching.impl.eviction.SegmentedLeastRecentlyUsedEvictionAlgorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the eviction of {@link CacheImpl} with the segmented LRU algorithm and when the algorithm is switched.
+ */
+public class CacheImplEvictionTest {
+
+    private static final AtomicInteger CACHE_COUNT = new AtomicInteger();
+
+    private final CarbonCacheManager cacheManager = new CarbonCacheManager("evictionTestManager", null);
+
+    @Test
+    public void testSegmentedLruKeepsReadEntries() {
+        CacheImpl<String, String> cache = createCache(8);
+        cache.setEvictionAlgorithm(new SegmentedLeastRecentlyUsedEvictionAlgorithm());
+        put(cache, 0, 8);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(cache.get("key" + i), "value" + i);
+        }
+        put(cache, 8, 9);
+
+        // One extra entry and a quarter of the capacity are evicted, starting from the entries which were not read
+        cache.runCacheExpiry();
+        assertEquals(cache.getAll().size(), 6);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(cache.containsKey("key" + i), "Read entry key" + i + " has been evicted");
+        }
+        for (int i = 4; i < 7; i++) {
+            assertFalse(cache.containsKey("key" + i), "Entry key" + i + " has not been evicted");
+        }
+        assertTrue(cache.containsKey("key7"));
+        assertTrue(cache.containsKey("key8"));
+    }
+
+    @Test
+    public void testSwitchToSegmentedLruTracksExistingEntries() {
+        CacheImpl<String, String> cache = createCache(8);
+        put(cache, 0, 8);
+        cache.setEvictionAlgorithm(new SegmentedLeastRecentlyUsedEvictionAlgorithm());
+        put(cache, 8, 9);
+
+        cache.runCacheExpiry();
+        assertEquals(cache.getAll().size(), 6);
+        assertTrue(cache.containsKey("key8"));
+    }
+
+    @Test
+    public void testSwitchBackToSortedEviction() {
+        CacheImpl<String, String> cache = createCache(8);
+        cache.setEvictionAlgorithm(new SegmentedLeastRecentlyUsedEvictionAlgorithm());
+        put(cache, 0, 8);
+        cache.setEvictionAlgorithm(new LeastRecentlyUsedEvictionAlgorithm());
+        put(cache, 8, 9);
+
+        cache.runCacheExpiry();
+        assertEquals(cache.getAll().size(), 6);
+    }
+
+    @Test
+    public void testSwitchWhileWriting() throws InterruptedException {
+        CacheImpl<String, String> cache = createCache(CachingConstants.DEFAULT_CACHE_CAPACITY);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final Random random = new Random(i);
+            Thread writer = new Thread(() -> {
+                while (!done.get()) {
+                    String key = "key" + random.nextInt(1000);
+                    if (random.nextInt(4) == 0) {
+                        cache.remove(key);
+                    } else {
+                        cache.put(key, key);
+                    }
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        try {
+            for (int i = 0; i < 100; i++) {
+                cache.setEvictionAlgorithm(i % 2 == 0 ? new SegmentedLeastRecentlyUsedEvictionAlgorithm() :
+                        new LeastRecentlyUsedEvictionAlgorithm());
+            }
+            cache.setEvictionAlgorithm(new SegmentedLeastRecentlyUsedEvictionAlgorithm());
+            Thread.sleep(100);
+        } finally {
+            done.set(true);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+
+        // Every entry in the cache can only be evicted if the eviction queue has tracked it
+        cache.setCapacity(0);
+        cache.runCacheExpiry();
+        assertEquals(cache.getAll().size(), 0);
+    }
+
+    private CacheImpl<String, String> createCache(long capacity) {
+        CacheImpl<String, String> cache =
+                new CacheImpl<String, String>("evictionTestCache" + CACHE_COUNT.incrementAndGet(), cacheManager);
+        cache.setCapacity(capacity);
+        return cache;
+    }
+
+    private static void put(CacheImpl<String, String> cache, int from, int to) {
+        for (int i = from; i < to; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import javax.cache.CacheStatistics;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests the statistics recorded by {@link CacheImpl}.
+ */
+public class CacheImplStatisticsTest {
+
+    private final CarbonCacheManager cacheManager = new CarbonCacheManager("statisticsTestManager", null);
+
+    @Test
+    public void testGetRecordsHitsAndMisses() {
+        CacheImpl<String, String> cache = new CacheImpl<String, String>("statisticsTestGetCache", cacheManager);
+        cache.put("a", "1");
+        assertEquals(cache.get("a"), "1");
+        assertEquals(cache.get("b"), null);
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(statistics.getCacheHits(), 1);
+        assertEquals(statistics.getCacheMisses(), 1);
+        assertEquals(statistics.getCacheGets(), 2);
+        assertEquals(statistics.getCachePuts(), 1);
+    }
+
+    @Test
+    public void testGetAllRecordsHitsAndMisses() {
+        CacheImpl<String, String> cache = new CacheImpl<String, String>("statisticsTestGetAllCache", cacheManager);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        Map<String, String> values = cache.getAll(new HashSet<String>(Arrays.asList("a", "b", "c")));
+        assertEquals(values.size(), 2);
+        assertEquals(values.get("a"), "1");
+        assertEquals(values.get("b"), "2");
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(statistics.getCacheHits(), 2);
+        assertEquals(statistics.getCacheMisses(), 1);
+        assertEquals(statistics.getCacheGets(), 3);
+    }
+
+    @Test
+    public void testRemoveAndEvictionAreRecorded() {
+        CacheImpl<String, String> cache = new CacheImpl<String, String>("statisticsTestRemoveCache", cacheManager);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.remove("a");
+        cache.evict("b");
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(statistics.getCacheRemovals(), 1);
+        assertEquals(statistics.getCacheEvictions(), 1);
+    }
+}
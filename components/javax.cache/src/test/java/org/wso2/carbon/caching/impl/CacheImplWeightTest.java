@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Tests the bounding of {@link CacheImpl} by the weight of its entries.
+ */
+public class CacheImplWeightTest {
+
+    private final CarbonCacheManager cacheManager = new CarbonCacheManager("weightTestManager", null);
+
+    private final Weigher<String, String> lengthWeigher = new Weigher<String, String>() {
+        @Override
+        public long weigh(String key, String value) {
+            return value.length();
+        }
+    };
+
+    @Test
+    public void testWeightIsTracked() {
+        CacheImpl<String, String> cache = new CacheImpl<String, String>("weightTestTrackedCache", cacheManager);
+        cache.setMaxWeight(lengthWeigher, 10);
+        cache.put("a", "123");
+        cache.put("b", "1234");
+        assertEquals(cache.getWeight(), 7);
+        cache.put("a", "12");
+        assertEquals(cache.getWeight(), 6);
+        cache.remove("b");
+        assertEquals(cache.getWeight(), 2);
+    }
+
+    @Test
+    public void testOverweightEntryIsNotCached() {
+        CacheImpl<String, String> cache = new CacheImpl<String, String>("weightTestOverweightCache", cacheManager);
+        cache.setMaxWeight(lengthWeigher, 10);
+        cache.put("a", "12345678901");
+        assertNull(cache.get("a"));
+        assertEquals(cache.getWeight(), 0);
+    }
+
+    @Test
+    public void testRejectedReplacementRemovesStaleValue() {
+        CacheImpl<String, String> cache = new CacheImpl<String, String>("weightTestReplacementCache", cacheManager);
+        cache.setMaxWeight(lengthWeigher, 10);
+        cache.put("a", "12345");
+        assertEquals(cache.get("a"), "12345");
+        cache.put("a", "12345678901");
+        assertNull(cache.get("a"));
+        assertEquals(cache.getWeight(), 0);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl.eviction;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.caching.impl.CacheEntry;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Tests the eviction order of the {@link SegmentedLeastRecentlyUsedEvictionAlgorithm}.
+ */
+public class SegmentedEvictionQueueTest {
+
+    @Test
+    public void testNewEntriesAreEvictedInInsertionOrder() {
+        EvictionQueue<String, String> queue = createQueue(4);
+        write(queue, "a", "b", "c");
+        assertPollOrder(queue, "a", "b", "c");
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testReadEntryIsProtected() {
+        EvictionQueue<String, String> queue = createQueue(4);
+        CacheEntry<String, String> a = write(queue, "a");
+        write(queue, "b", "c");
+        queue.recordRead(a);
+        assertPollOrder(queue, "b", "c", "a");
+    }
+
+    @Test
+    public void testRewrittenEntryIsProtected() {
+        EvictionQueue<String, String> queue = createQueue(4);
+        write(queue, "a", "b");
+        write(queue, "a");
+        assertEquals(queue.size(), 2);
+        assertPollOrder(queue, "b", "a");
+    }
+
+    @Test
+    public void testProtectedOverflowIsDemoted() {
+        // Half of the capacity, two entries, is protected
+        EvictionQueue<String, String> queue = createQueue(4);
+        CacheEntry<String, String> a = write(queue, "a");
+        CacheEntry<String, String> b = write(queue, "b");
+        CacheEntry<String, String> c = write(queue, "c");
+        write(queue, "d");
+        queue.recordRead(a);
+        queue.recordRead(b);
+        queue.recordRead(c);
+        assertPollOrder(queue, "d", "a", "b", "c");
+    }
+
+    @Test
+    public void testReducedCapacityDemotesProtectedEntries() {
+        EvictionQueue<String, String> queue = createQueue(4);
+        CacheEntry<String, String> a = write(queue, "a");
+        CacheEntry<String, String> b = write(queue, "b");
+        queue.recordRead(a);
+        queue.recordRead(b);
+        queue.setCapacity(2);
+        assertPollOrder(queue, "a", "b");
+    }
+
+    @Test
+    public void testRemovedEntryIsNotEvicted() {
+        EvictionQueue<String, String> queue = createQueue(4);
+        CacheEntry<String, String> a = write(queue, "a");
+        write(queue, "b");
+        queue.recordRemoval("a");
+        queue.recordRead(a);
+        assertEquals(queue.size(), 1);
+        assertPollOrder(queue, "b");
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testClear() {
+        EvictionQueue<String, String> queue = createQueue(4);
+        CacheEntry<String, String> a = write(queue, "a");
+        write(queue, "b");
+        queue.recordRead(a);
+        queue.clear();
+        assertEquals(queue.size(), 0);
+        assertNull(queue.poll());
+        write(queue, "c");
+        assertPollOrder(queue, "c");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidProtectedRatio() {
+        new SegmentedLeastRecentlyUsedEvictionAlgorithm(1);
+    }
+
+    private static EvictionQueue<String, String> createQueue(long capacity) {
+        return new SegmentedLeastRecentlyUsedEvictionAlgorithm(0.5f).createEvictionQueue(capacity);
+    }
+
+    private static CacheEntry<String, String> write(EvictionQueue<String, String> queue, String... keys) {
+        CacheEntry<String, String> entry = null;
+        for (String key : keys) {
+            entry = new CacheEntry<String, String>(key, key);
+            queue.recordWrite(entry);
+        }
+        return entry;
+    }
+
+    private static void assertPollOrder(EvictionQueue<String, String> queue, String... keys) {
+        for (String key : keys) {
+            CacheEntry<String, String> entry = queue.poll();
+            assertEquals(entry != null ? entry.getKey() : null, key);
+        }
+    }
+}
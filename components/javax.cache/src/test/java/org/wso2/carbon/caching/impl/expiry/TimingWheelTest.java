@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.caching.impl.expiry;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the expiry order of the {@link TimingWheel}.
+ */
+public class TimingWheelTest {
+
+    @Test
+    public void testItemIsNotReturnedBeforeDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<String>(10, 0);
+        wheel.schedule("a", 25);
+        assertEquals(wheel.advance(29), Collections.emptyList());
+        assertEquals(wheel.advance(30), Collections.singletonList("a"));
+        assertEquals(wheel.size(), 0);
+    }
+
+    @Test
+    public void testPastDeadlineExpiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<String>(10, 100);
+        wheel.schedule("a", 50);
+        assertEquals(wheel.advance(109), Collections.emptyList());
+        assertEquals(wheel.advance(110), Collections.singletonList("a"));
+    }
+
+    @Test
+    public void testCancel() {
+        TimingWheel<String> wheel = new TimingWheel<String>(1, 0);
+        TimingWheel.Timeout<String> a = wheel.schedule("a", 10);
+        TimingWheel.Timeout<String> b = wheel.schedule("b", 10);
+        a.cancel();
+        a.cancel();
+        assertEquals(wheel.size(), 1);
+        assertEquals(wheel.advance(10), Collections.singletonList("b"));
+        // Cancelling an expired item has no effect
+        b.cancel();
+        assertEquals(wheel.size(), 0);
+    }
+
+    @Test
+    public void testClear() {
+        TimingWheel<String> wheel = new TimingWheel<String>(1, 0);
+        TimingWheel.Timeout<String> a = wheel.schedule("a", 10);
+        wheel.schedule("b", 100000);
+        wheel.schedule("c", 100000000);
+        wheel.clear();
+        assertEquals(wheel.size(), 0);
+        a.cancel();
+        assertEquals(wheel.size(), 0);
+        assertEquals(wheel.advance(200000000), Collections.emptyList());
+    }
+
+    /**
+     * Items in each level of the wheel and in the overflow list are cascaded down and returned at their deadline.
+     */
+    @Test
+    public void testItemsAreCascadedToTheirDeadline() {
+        long[] deadlines = {1, 63, 64, 65, 4095, 4096, 4097, 262143, 262144, 300000, 16777216, 16777221, 40000000};
+        TimingWheel<Long> wheel = new TimingWheel<Long>(1, 0);
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        for (long deadline : deadlines) {
+            assertEquals(wheel.advance(deadline - 1), Collections.emptyList(), "Expired before " + deadline);
+            assertEquals(wheel.advance(deadline), Collections.singletonList(deadline));
+        }
+        assertEquals(wheel.size(), 0);
+    }
+
+    @Test
+    public void testRandomDeadlines() {
+        Random random = new Random(42);
+        long start = 1700000000000L;
+        TimingWheel<Integer> wheel = new TimingWheel<Integer>(1, start);
+        Map<Integer, Long> deadlines = new HashMap<Integer, Long>();
+        for (int i = 0; i < 2000; i++) {
+            long deadline = start + 1 + random.nextInt(500000);
+            deadlines.put(i, deadline);
+            wheel.schedule(i, deadline);
+        }
+        long now = start;
+        int expiredCount = 0;
+        while (now < start + 500000) {
+            long next = now + 1 + random.nextInt(5000);
+            for (Integer item : wheel.advance(next)) {
+                long deadline = deadlines.get(item);
+                assertTrue(deadline > now && deadline <= next,
+                           "Item due at " + deadline + " expired between " + now + " and " + next);
+                expiredCount++;
+            }
+            now = next;
+        }
+        assertEquals(expiredCount, deadlines.size());
+        assertEquals(wheel.size(), 0);
+    }
+
+    @Test
+    public void testItemsScheduledWhileAdvancing() {
+        TimingWheel<String> wheel = new TimingWheel<String>(1, 0);
+        wheel.schedule("a", 100);
+        assertEquals(wheel.advance(70), Collections.emptyList());
+        wheel.schedule("b", 90);
+        wheel.schedule("c", 5000);
+        List<String> expired = new ArrayList<String>(wheel.advance(100));
+        Collections.sort(expired);
+        assertEquals(expired, Arrays.asList("a", "b"));
+        assertEquals(wheel.advance(4999), Collections.emptyList());
+        assertEquals(wheel.advance(5000), Collections.singletonList("c"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveTick() {
+        new TimingWheel<String>(0, 0);
+    }
+}
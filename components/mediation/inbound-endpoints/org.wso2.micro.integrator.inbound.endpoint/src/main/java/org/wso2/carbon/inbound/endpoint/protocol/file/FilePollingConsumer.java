@@ -28,22 +28,31 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.NameScope;
 import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
 import org.apache.commons.vfs2.impl.StandardFileSystemManager;
+import org.apache.commons.vfs2.provider.local.LocalFileName;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.commons.vfs.VFSConstants;
 import org.apache.synapse.commons.vfs.VFSParamDTO;
 import org.apache.synapse.commons.vfs.VFSUtils;
 import org.apache.synapse.core.SynapseEnvironment;
 
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * This class implement the processing logic related to inbound file protocol.
@@ -90,12 +99,26 @@ public class FilePollingConsumer {
     private boolean moveFailureFilesToSubDirectories = false;
     private String moveFailureFileURI;
 
+    private FileScanIndex fileIndex;
+    private LocalDirectoryWatcher directoryWatcher;
+    private boolean watchLocalDirectory = true;
+    private int incrementalScanBatchSize = DEFAULT_INCREMENTAL_SCAN_BATCH_SIZE;
+    private final Set<String> pendingScan = new LinkedHashSet<>();
+    private final Map<String, FileObject> scanInProgress = new HashMap<>();
+
     // The symbol to include sub directories will be either '/*' or '\*' depending on the Operating system.
     private final int INCLUDE_SUB_DIR_SYMBOL_LENGTH = 2;
 
     private final String MOVE = "MOVE";
     private final String RELATIVE_PATH = "RELATIVE_PATH";
 
+    private static final String INCREMENTAL_SCAN = "transport.vfs.IncrementalScan";
+    private static final String INCREMENTAL_SCAN_BATCH_SIZE = "transport.vfs.IncrementalScanBatchSize";
+    private static final String INCREMENTAL_SCAN_INDEX_DIRECTORY = "transport.vfs.IncrementalScanIndexDirectory";
+    private static final String INCREMENTAL_SCAN_WATCH_LOCAL = "transport.vfs.IncrementalScanWatchLocal";
+    private static final int DEFAULT_INCREMENTAL_SCAN_BATCH_SIZE = 1000;
+    private static final String CARBON_HOME = "carbon.home";
+
     public FilePollingConsumer(Properties vfsProperties, String name, SynapseEnvironment synapseEnvironment,
                                long scanInterval) {
         this.vfsProperties = vfsProperties;
@@ -187,7 +210,7 @@ public class FilePollingConsumer {
             if (fileObject.exists() && fileObject.isReadable()) {
                 FileObject[] children = null;
                 try {
-                    children = fileObject.getChildren();
+                    children = fileIndex != null ? nextIncrementalBatch() : fileObject.getChildren();
                 } catch (FileNotFolderException ignored) {
                     if (log.isDebugEnabled()) {
                         log.debug("No Folder found. Only file found on : " + VFSUtils.maskURLPassword(fileURI));
@@ -243,6 +266,9 @@ public class FilePollingConsumer {
             log.error("Error while processing the file/folder in URL : " + VFSUtils.maskURLPassword(fileURI), e);
             return null;
         } finally {
+            if (fileIndex != null) {
+                completeIncrementalBatch();
+            }
             try {
                 fileObject.close();
             } catch (Exception e) {
@@ -477,6 +503,52 @@ public class FilePollingConsumer {
             log.warn("VFS " + VFSConstants.TRANSPORT_FILE_SIZE_LIMIT + "is not set properly. Current value is: "
                     + strFileSizeLimit + ", using default: unlimited");
         }
+
+        if (Boolean.parseBoolean(vfsProperties.getProperty(INCREMENTAL_SCAN)) && fileURI != null) {
+            setupIncrementalScan();
+        }
+    }
+
+    /**
+     * Setup the index and the batch size used to scan the directory incrementally
+     */
+    private void setupIncrementalScan() {
+        String strBatchSize = vfsProperties.getProperty(INCREMENTAL_SCAN_BATCH_SIZE);
+        if (strBatchSize != null) {
+            try {
+                incrementalScanBatchSize = Integer.parseInt(strBatchSize);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid param value for " + INCREMENTAL_SCAN_BATCH_SIZE + " : " + strBatchSize
+                                 + ". Expected numeric value.");
+            }
+            if (incrementalScanBatchSize <= 0) {
+                incrementalScanBatchSize = DEFAULT_INCREMENTAL_SCAN_BATCH_SIZE;
+            }
+        }
+        String strWatchLocal = vfsProperties.getProperty(INCREMENTAL_SCAN_WATCH_LOCAL);
+        if (strWatchLocal != null) {
+            watchLocalDirectory = Boolean.parseBoolean(strWatchLocal);
+        }
+
+        String indexDirectory = vfsProperties.getProperty(INCREMENTAL_SCAN_INDEX_DIRECTORY);
+        if (StringUtils.isEmpty(indexDirectory)) {
+            indexDirectory = getDefaultIndexDirectory();
+        }
+        // One index per endpoint and directory, so changing the file URI starts with an empty index
+        String indexFileName = String.valueOf(name).replaceAll("[^A-Za-z0-9._-]", "_") + "-"
+                + Integer.toHexString(fileURI.hashCode()) + ".index";
+        fileIndex = new FileScanIndex(Paths.get(indexDirectory, indexFileName));
+    }
+
+    /**
+     * The index directory under the server home, which unlike the system temporary directory is kept across restarts
+     */
+    private static String getDefaultIndexDirectory() {
+        String carbonHome = System.getProperty(CARBON_HOME);
+        if (StringUtils.isEmpty(carbonHome)) {
+            carbonHome = Paths.get("").toAbsolutePath().toString();
+        }
+        return Paths.get(carbonHome, "repository", "data", "file-inbound-index").toString();
     }
 
     /**
@@ -535,8 +607,11 @@ public class FilePollingConsumer {
             }
             boolean isFailedRecord = VFSUtils.isFailRecord(fsManager, child, fso);
             boolean isReadyToRead = VFSUtils.isReadyToRead(child, waitTimeBeforeRead);
+            // entries which have to be looked at again are kept out of the incremental scan index
+            boolean deferScan = isFailedRecord || !isReadyToRead;
 
             if (readSubDirectories && child.isFolder()) {
+                deferScan = true;
                 // If file/folder found proceed to the processing stage
                 if (child.exists() && child.isReadable()) {
                     FileObject[] childrenOfChild;
@@ -553,6 +628,7 @@ public class FilePollingConsumer {
             }
             //Skip processing sub directories if not specified
             else if (child.isFolder()){
+                recordScanned(child);
                 continue;
             }
 
@@ -617,9 +693,12 @@ public class FilePollingConsumer {
                         // TODO: passing null to avoid build break. Fix properly
                         VFSUtils.releaseLock(fsManager, child, fso);
                     }
+                    deferScan = !runPostProcess || skipUnlock;
                     if (injectHandler == null) {
                         return child;
                     }
+                } else {
+                    deferScan = true;
                 }
             } else if (log.isDebugEnabled() && strFilePattern != null && !child.getName().getBaseName()
                     .matches(strFilePattern) && !isFailedRecord) {
@@ -647,6 +726,10 @@ public class FilePollingConsumer {
                 log.debug("File cannot be read as it has to wait for some time: " + child.getName().getBaseName());
             }
 
+            if (!deferScan) {
+                recordScanned(child);
+            }
+
             //close the file system after processing
             try {
                 child.close();
@@ -678,6 +761,133 @@ public class FilePollingConsumer {
         return null;
     }
 
+    /**
+     * Collect the next batch of new or modified entries of the directory for the incremental scan. Local
+     * directories are watched for changes, other directories are listed and compared with the index.
+     *
+     * @return the entries to be processed in this cycle
+     * @throws FileSystemException
+     */
+    private FileObject[] nextIncrementalBatch() throws FileSystemException {
+        if (fileObject.getType() != FileType.FOLDER) {
+            // Not a directory, handle it the same way as a full scan
+            return fileObject.getChildren();
+        }
+
+        boolean listDirectory = true;
+        if (directoryWatcher == null) {
+            if (watchLocalDirectory && !readSubDirectories && fileObject.getName() instanceof LocalFileName) {
+                // Start watching before listing so that no change is missed in between
+                LocalFileName localName = (LocalFileName) fileObject.getName();
+                directoryWatcher = LocalDirectoryWatcher
+                        .watch(Paths.get(localName.getRootFile() + localName.getPathDecoded()));
+                watchLocalDirectory = directoryWatcher != null;
+            }
+        } else if (directoryWatcher.isValid()) {
+            listDirectory = !collectWatchEvents();
+        } else {
+            directoryWatcher.close();
+            directoryWatcher = null;
+        }
+        if (listDirectory) {
+            listChangedEntries();
+        }
+
+        List<FileObject> batch = new ArrayList<>();
+        Iterator<String> pending = pendingScan.iterator();
+        while (pending.hasNext() && batch.size() < incrementalScanBatchSize) {
+            String childName = pending.next();
+            pending.remove();
+            FileObject child = fileObject.resolveFile(childName, NameScope.CHILD);
+            child.refresh();
+            if (!child.exists()) {
+                fileIndex.remove(childName);
+            } else if (fileIndex.isChanged(childName, child)) {
+                scanInProgress.put(childName, child);
+                batch.add(child);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Incremental scan of : " + VFSUtils.maskURLPassword(fileURI) + " found " + batch.size()
+                              + " entries to process, " + pendingScan.size() + " entries remain pending.");
+        }
+        return batch.toArray(new FileObject[0]);
+    }
+
+    /**
+     * Queue the entries reported by the directory watcher
+     *
+     * @return false if the watcher lost events and the directory has to be listed
+     */
+    private boolean collectWatchEvents() {
+        Set<String> changed = new LinkedHashSet<>();
+        Set<String> deleted = new HashSet<>();
+        boolean complete = directoryWatcher.drainEvents(changed, deleted);
+        for (String childName : deleted) {
+            pendingScan.remove(childName);
+            fileIndex.remove(childName);
+        }
+        for (String childName : changed) {
+            if (!isLockOrFailFile(childName)) {
+                pendingScan.add(childName);
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * List the directory and queue the entries which are not in the index or have changed since they were
+     * recorded. Entries which are no longer in the directory are dropped from the index.
+     *
+     * @throws FileSystemException
+     */
+    private void listChangedEntries() throws FileSystemException {
+        FileObject[] children = fileObject.getChildren();
+        Set<String> childNames = new HashSet<>();
+        for (FileObject child : children) {
+            String childName = child.getName().getBaseName();
+            if (isLockOrFailFile(childName)) {
+                continue;
+            }
+            childNames.add(childName);
+            if (!pendingScan.contains(childName) && fileIndex.isChanged(childName, child)) {
+                pendingScan.add(childName);
+            }
+        }
+        fileIndex.retainAll(childNames);
+        pendingScan.retainAll(childNames);
+    }
+
+    /**
+     * Record an entry of the current incremental batch in the index so it is not scanned again until it changes
+     *
+     * @param child
+     */
+    private void recordScanned(FileObject child) {
+        if (fileIndex == null) {
+            return;
+        }
+        String childName = child.getName().getBaseName();
+        if (scanInProgress.get(childName) == child) {
+            scanInProgress.remove(childName);
+            fileIndex.update(childName, child);
+        }
+    }
+
+    /**
+     * Queue the entries of the batch which were not recorded, e.g. locked or not yet ready to read files, for the
+     * next cycle and persist the index
+     */
+    private void completeIncrementalBatch() {
+        pendingScan.addAll(scanInProgress.keySet());
+        scanInProgress.clear();
+        fileIndex.persist();
+    }
+
+    private boolean isLockOrFailFile(String fileName) {
+        return fileName.endsWith(".lock") || fileName.endsWith(".fail");
+    }
+
     /**
      * Check if the file/folder exists before proceeding and retrying
      */
@@ -1011,6 +1221,13 @@ public class FilePollingConsumer {
     }
 
     void destroy() {
+        if (directoryWatcher != null) {
+            directoryWatcher.close();
+            directoryWatcher = null;
+        }
+        if (fileIndex != null) {
+            fileIndex.persist();
+        }
         fsManager.close();
         this.close();
     }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.inbound.endpoint.protocol.file;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent record of the entries of a polled directory that have already been looked at by the incremental
+ * scan. Each entry is keyed by the base name of the file and holds its size and last modified time, so an entry
+ * is considered again only when it is new or when one of those attributes has changed.
+ * <p>
+ * The index file is a log of changes: each poll appends only the entries recorded or dropped since the previous
+ * one, and the log is compacted into the current entries once it has grown to several times their number.
+ */
+class FileScanIndex {
+
+    private static final Log log = LogFactory.getLog(FileScanIndex.class);
+
+    private static final int MIN_COMPACTION_LINES = 1000;
+    private static final int COMPACTION_FACTOR = 2;
+
+    private final Path indexFile;
+    private final Map<String, String> entries = new HashMap<>();
+    // entries changed since the index was last persisted, a null state for a dropped entry
+    private final Map<String, String> changes = new LinkedHashMap<>();
+    private int logLines;
+
+    FileScanIndex(Path indexFile) {
+        this.indexFile = indexFile;
+        load();
+    }
+
+    /**
+     * Check whether the given file is not in the index or has changed since it was recorded.
+     *
+     * @param name base name of the file
+     * @param file file to check
+     * @return true if the file has to be scanned
+     */
+    boolean isChanged(String name, FileObject file) {
+        String state = stateOf(file);
+        return state == null || !state.equals(entries.get(name));
+    }
+
+    /**
+     * Record the current state of the given file, or drop the entry if the file is no longer there.
+     *
+     * @param name base name of the file
+     * @param file file to record
+     */
+    void update(String name, FileObject file) {
+        String state = stateOf(file);
+        if (state == null) {
+            remove(name);
+        } else if (!state.equals(entries.put(name, state))) {
+            changes.put(name, state);
+        }
+    }
+
+    void remove(String name) {
+        if (entries.remove(name) != null) {
+            changes.put(name, null);
+        }
+    }
+
+    /**
+     * Drop every entry that is not in the given set of names, i.e. files which have been removed from the
+     * directory since they were recorded.
+     *
+     * @param names base names of the files currently in the directory
+     */
+    void retainAll(Collection<String> names) {
+        for (Iterator<String> iterator = entries.keySet().iterator(); iterator.hasNext(); ) {
+            String name = iterator.next();
+            if (!names.contains(name)) {
+                iterator.remove();
+                changes.put(name, null);
+            }
+        }
+    }
+
+    /**
+     * Write the changes made since the index was last persisted to the disk. The changes are appended to the index
+     * file, unless the log has grown large compared to the entries, in which case the current entries are written
+     * to a temporary file which is moved over the existing one, so a crash never leaves a partial index behind.
+     */
+    void persist() {
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(indexFile.toAbsolutePath().getParent());
+            if (logLines + changes.size() > Math.max(MIN_COMPACTION_LINES, COMPACTION_FACTOR * entries.size())) {
+                compact();
+            } else {
+                try (Writer writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                                                             StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (Map.Entry<String, String> change : changes.entrySet()) {
+                        writeLine(writer, change.getKey(), change.getValue());
+                    }
+                }
+                logLines += changes.size();
+            }
+            changes.clear();
+        } catch (IOException e) {
+            log.warn("Unable to persist the file scan index : " + indexFile, e);
+        }
+    }
+
+    private void compact() throws IOException {
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writeLine(writer, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        logLines = entries.size();
+        if (log.isDebugEnabled()) {
+            log.debug("Compacted the file scan index : " + indexFile + " to " + logLines + " entries");
+        }
+    }
+
+    /**
+     * Write an entry as its URL encoded name and state separated by '=', or only the name of a dropped entry
+     */
+    private static void writeLine(Writer writer, String name, String state) throws IOException {
+        writer.write(URLEncoder.encode(name, StandardCharsets.UTF_8.name()));
+        if (state != null) {
+            writer.write('=');
+            writer.write(state);
+        }
+        writer.write('\n');
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logLines++;
+                readLine(line);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read the file scan index : " + indexFile + ". All files will be scanned again.", e);
+            entries.clear();
+            logLines = 0;
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + entries.size() + " entries from the file scan index : " + indexFile);
+        }
+    }
+
+    private void readLine(String line) throws UnsupportedEncodingException {
+        int separator = line.indexOf('=');
+        String name;
+        try {
+            name = URLDecoder.decode(separator < 0 ? line : line.substring(0, separator),
+                                     StandardCharsets.UTF_8.name());
+        } catch (IllegalArgumentException e) {
+            // a line cut short by a crash while appending, the file is scanned again
+            return;
+        }
+        if (separator < 0) {
+            entries.remove(name);
+        } else {
+            entries.put(name, line.substring(separator + 1));
+        }
+    }
+
+    private String stateOf(FileObject file) {
+        try {
+            if (!file.exists()) {
+                return null;
+            }
+            FileContent content = file.getContent();
+            long size = file.getType() == FileType.FILE ? content.getSize() : 0;
+            return size + ":" + content.getLastModifiedTime();
+        } catch (FileSystemException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to read the attributes of : " + file, e);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.inbound.endpoint.protocol.file;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+
+/**
+ * Watches a directory on the local file system so the incremental scan only has to look at the entries reported
+ * by the operating system instead of listing the whole directory on every poll.
+ */
+class LocalDirectoryWatcher {
+
+    private static final Log log = LogFactory.getLog(LocalDirectoryWatcher.class);
+
+    private final Path directory;
+    private final WatchService watchService;
+    private final WatchKey watchKey;
+
+    private LocalDirectoryWatcher(Path directory, WatchService watchService, WatchKey watchKey) {
+        this.directory = directory;
+        this.watchService = watchService;
+        this.watchKey = watchKey;
+    }
+
+    /**
+     * Start watching the given directory.
+     *
+     * @param directory local directory to watch
+     * @return the watcher, or null if the directory cannot be watched
+     */
+    static LocalDirectoryWatcher watch(Path directory) {
+        WatchService watchService = null;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            WatchKey watchKey = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                                   StandardWatchEventKinds.ENTRY_MODIFY,
+                                                   StandardWatchEventKinds.ENTRY_DELETE);
+            return new LocalDirectoryWatcher(directory, watchService, watchKey);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Unable to watch the directory : " + directory + ". Falling back to listing the directory.", e);
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException ignored) {
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Collect the events received since the last call without blocking.
+     *
+     * @param changed receives the base names of the created or modified entries
+     * @param deleted receives the base names of the deleted entries
+     * @return false if events have been lost and the directory has to be listed again
+     */
+    boolean drainEvents(Collection<String> changed, Collection<String> deleted) {
+        boolean complete = true;
+        try {
+            WatchKey key;
+            while ((key = watchService.poll()) != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    WatchEvent.Kind<?> kind = event.kind();
+                    if (kind == StandardWatchEventKinds.OVERFLOW) {
+                        complete = false;
+                    } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                        deleted.add(((Path) event.context()).getFileName().toString());
+                    } else {
+                        changed.add(((Path) event.context()).getFileName().toString());
+                    }
+                }
+                if (!key.reset()) {
+                    complete = false;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            complete = false;
+        }
+        return complete;
+    }
+
+    boolean isValid() {
+        return watchKey.isValid();
+    }
+
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("Error while closing the watch service of the directory : " + directory, e);
+        }
+    }
+}
@@ -19,9 +19,11 @@
 package org.wso2.carbon.inbound.endpoint.protocol.hl7.codec;
 
 import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Message;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPContext;
+import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPPipeline;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.core.MLLPConstants;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.core.MLLProtocolException;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.util.HL7MessageUtils;
@@ -48,8 +50,8 @@ public class HL7Codec {
     private volatile int state;
 
     private volatile boolean firstTrailingCharacterFound = false;
-    private volatile boolean lastTrailingCharacterFound = false;
-    private volatile boolean addMissingCharacter = false;
+
+    private final HL7MessageBuffer messageBuffer = new HL7MessageBuffer();
 
     private int responseReadPosition = 0;
     private byte[] responseBytes = null;
@@ -64,15 +66,25 @@ public class HL7Codec {
         setCharsetDecoder(charsetDecoder);
     }
 
+    /**
+     * Frame the MLLP message out of the received bytes. The trailer is searched in place and the content bytes are
+     * accumulated as they are, so that the message is decoded into characters only once when it is complete.
+     */
     public int decode(ByteBuffer dst, MLLPContext context) throws IOException, MLLProtocolException, HL7Exception {
 
         if (this.state >= READ_COMPLETE || dst.position() < 0) {
             return -1;
         }
 
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
         if (this.state == READ_HEADER) {
-            if (dst.get(0) == MLLPConstants.HL7_HEADER[0]) {
-                dst.position(1);
+            if (dst.get(dst.position()) == MLLPConstants.HL7_HEADER[0]) {
+                dst.position(dst.position() + 1);
+                messageBuffer.clear();
+                this.firstTrailingCharacterFound = false;
                 this.state = READ_CONTENT;
             } else {
                 throw new MLLProtocolException("Could not find header in incoming message.");
@@ -80,38 +92,28 @@ public class HL7Codec {
         }
 
         if (this.state == READ_CONTENT) {
-
-            int trailerIndex = findTrailer(dst);
-
-            if (trailerIndex > -1) {
-                dst.limit(trailerIndex);
-            }
-            if (lastTrailingCharacterFound) {
+            if (readContent(dst)) {
                 this.state = READ_TRAILER;
-                this.lastTrailingCharacterFound = false;
-                this.firstTrailingCharacterFound = false;
             }
-            if (this.addMissingCharacter) {
-                context.getRequestBuffer().append(MLLPConstants.HL7_TRAILER[0]);
-                this.addMissingCharacter = false;
-            }
-
-            context.getRequestBuffer().append(charsetDecoder.decode(dst).toString());
         }
 
         if (this.state == READ_TRAILER) {
             this.state = READ_COMPLETE;
+            String message;
+            try {
+                message = messageBuffer.decode(charsetDecoder);
+            } finally {
+                messageBuffer.clear();
+            }
+            context.setRequestMessage(message);
             try {
                 if (context.isPreProcess()) {
-                    context.setHl7Message(HL7MessageUtils.parse(context.getRequestBuffer().toString(),
-                                                                context.getPreProcessParser()));
+                    context.setHl7Message(HL7MessageUtils.parse(message, context.getPreProcessParser()));
                 } else {
-                    context.setHl7Message(
-                            HL7MessageUtils.parse(context.getRequestBuffer().toString(), context.isValidateMessage()));
+                    context.setHl7Message(HL7MessageUtils.parse(message, context.isValidateMessage()));
                 }
-                context.getRequestBuffer().setLength(0);
             } catch (HL7Exception e) {
-                log.error("Error while parsing request message: " + context.getRequestBuffer());
+                log.error("Error while parsing request message: " + message);
                 throw e;
             }
         }
@@ -120,29 +122,40 @@ public class HL7Codec {
 
     }
 
-    private int findTrailer(ByteBuffer dst) {
-            if (firstTrailingCharacterFound) {
-                firstTrailingCharacterFound = false;
-                if (dst.get(0) == MLLPConstants.HL7_TRAILER[1]) {
-                    lastTrailingCharacterFound = true;
-                    return 0;
-                } else {
-                    addMissingCharacter = true;
-                }
+    /**
+     * Accumulate the content up to the trailer, searching the trailer in place. The buffer is positioned right after
+     * the trailer, or at its limit when the trailer is not received yet.
+     *
+     * @return whether the whole trailer is read
+     */
+    private boolean readContent(ByteBuffer dst) {
+        int from = dst.position();
+        if (firstTrailingCharacterFound) {
+            firstTrailingCharacterFound = false;
+            if (from < dst.limit() && dst.get(from) == MLLPConstants.HL7_TRAILER[1]) {
+                dst.position(from + 1);
+                return true;
             }
-            for (int i = 0; i < dst.limit(); i++) {
-                if (dst.get(i) == MLLPConstants.HL7_TRAILER[0]) {
-                    if (i + 1 >= dst.limit()) {
-                        this.firstTrailingCharacterFound = true;
-                        return i - 1;
-                    } else if (dst.get(i + 1) == MLLPConstants.HL7_TRAILER[1]) {
-                        lastTrailingCharacterFound = true;
-                        return i - 1 < 0 ? 0 : i - 1;
+            // the first trailing character at the end of the previous buffer was part of the content
+            messageBuffer.append(MLLPConstants.HL7_TRAILER[0]);
+        }
+        for (int i = from; i < dst.limit(); i++) {
+            if (dst.get(i) == MLLPConstants.HL7_TRAILER[0]) {
+                if (i + 1 >= dst.limit()) {
+                    messageBuffer.append(dst, from, i);
+                    dst.position(dst.limit());
+                    firstTrailingCharacterFound = true;
+                    return false;
+                } else if (dst.get(i + 1) == MLLPConstants.HL7_TRAILER[1]) {
+                    messageBuffer.append(dst, from, i);
+                    dst.position(i + 2);
+                    return true;
                 }
             }
         }
-
-        return -1;
+        messageBuffer.append(dst, from, dst.limit());
+        dst.position(dst.limit());
+        return false;
     }
 
     public int encode(ByteBuffer outBuf, MLLPContext context) throws HL7Exception, IOException {
@@ -170,6 +183,29 @@ public class HL7Codec {
         return 0;
     }
 
+    /**
+     * Encode the response of a pipelined request into a complete MLLP frame
+     *
+     * @return the frame, or null when there is no response to send
+     */
+    public ByteBuffer encodeFrame(MLLPPipeline.Request request, boolean autoAck) throws HL7Exception, IOException {
+        Message response;
+        if ((autoAck || request.isApplicationAck()) && !request.isNack() && request.getHl7Message() != null) {
+            response = request.getHl7Message().generateACK();
+        } else {
+            response = request.getResponse();
+        }
+        if (response == null) {
+            return null;
+        }
+        byte[] content = response.encode().getBytes(charsetDecoder.charset());
+        ByteBuffer frame = ByteBuffer.allocate(MLLPConstants.HL7_HEADER.length + content.length
+                                                       + MLLPConstants.HL7_TRAILER.length);
+        frame.put(MLLPConstants.HL7_HEADER).put(content).put(MLLPConstants.HL7_TRAILER);
+        frame.flip();
+        return frame;
+    }
+
     private int fillBuffer(ByteBuffer byteBuffer, byte[] responseBytes) {
         if (responseBytes == null) {
             return 0;
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.inbound.endpoint.protocol.hl7.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+
+/**
+ * Accumulates the raw bytes of the MLLP frame being read on a connection. The backing array is reused for the
+ * following messages of the connection and is only released when a message exceeded the retained capacity.
+ */
+class HL7MessageBuffer {
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    /**
+     * Copy the given range of the buffer, without moving its position
+     */
+    void append(ByteBuffer src, int from, int to) {
+        int count = to - from;
+        if (count <= 0) {
+            return;
+        }
+        ensureCapacity(length + count);
+        ByteBuffer view = src.duplicate();
+        view.limit(to).position(from);
+        view.get(bytes, length, count);
+        length += count;
+    }
+
+    void append(byte b) {
+        ensureCapacity(length + 1);
+        bytes[length++] = b;
+    }
+
+    /**
+     * Decode the accumulated bytes, reporting malformed or unmappable input as the decoder is configured to
+     */
+    String decode(CharsetDecoder decoder) throws CharacterCodingException {
+        return decoder.decode(ByteBuffer.wrap(bytes, 0, length)).toString();
+    }
+
+    int length() {
+        return length;
+    }
+
+    void clear() {
+        length = 0;
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            byte[] newBytes = new byte[Math.max(capacity, bytes.length * 2)];
+            System.arraycopy(bytes, 0, newBytes, 0, length);
+            bytes = newBytes;
+        }
+    }
+}
@@ -34,13 +34,14 @@ public class MLLPContext {
     private static final Log log = LogFactory.getLog(MLLPContext.class);
 
     private IOSession session;
-    private StringBuffer requestBuffer;
+    private volatile String requestMessage;
     private StringBuffer responseBuffer;
     private Message hl7Message;
     private volatile HL7Codec codec;
     private long requestTime;
     private int expiry;
     private boolean validateMessage;
+    private boolean rawPassThrough;
 
     private volatile boolean autoAck = true;
     private volatile boolean nackMode = false;
@@ -52,6 +53,7 @@ public class MLLPContext {
 
     private Parser preProcessorParser = null;
     private BufferFactory bufferFactory;
+    private MLLPPipeline pipeline;
 
     public MLLPContext(IOSession session, CharsetDecoder decoder, boolean autoAck, boolean validateMessage,
                        Parser preProcessorParser, BufferFactory bufferFactory) {
@@ -62,7 +64,6 @@ public class MLLPContext {
         this.preProcessorParser = preProcessorParser;
         this.bufferFactory = bufferFactory;
         this.expiry = MLLPConstants.DEFAULT_HL7_TIMEOUT;
-        this.requestBuffer = new StringBuffer();
         this.responseBuffer = new StringBuffer();
 
         if (preProcessorParser == null) {
@@ -75,8 +76,15 @@ public class MLLPContext {
         return codec;
     }
 
-    public StringBuffer getRequestBuffer() {
-        return this.requestBuffer;
+    /**
+     * The decoded ER7 content of the last received request
+     */
+    public String getRequestMessage() {
+        return requestMessage;
+    }
+
+    public void setRequestMessage(String requestMessage) {
+        this.requestMessage = requestMessage;
     }
 
     public StringBuffer getResponseBuffer() {
@@ -101,6 +109,21 @@ public class MLLPContext {
         session.setEvent(EventMask.READ);
     }
 
+    /**
+     * Request to write the next ready response of the pipeline, while reading further requests
+     */
+    public void requestPipelineOutput() {
+        session.setEvent(EventMask.WRITE);
+    }
+
+    public void suspendInput() {
+        session.clearEvent(EventMask.READ);
+    }
+
+    public void resumeInput() {
+        session.setEvent(EventMask.READ);
+    }
+
     public void setRequestTime(long timeStamp) {
         this.requestTime = timeStamp;
     }
@@ -169,6 +192,32 @@ public class MLLPContext {
         this.validateMessage = validateMessage;
     }
 
+    /**
+     * Whether the received ER7 content is injected as it is instead of converting the parsed message to XML
+     */
+    public boolean isRawPassThrough() {
+        return rawPassThrough;
+    }
+
+    public void setRawPassThrough(boolean rawPassThrough) {
+        this.rawPassThrough = rawPassThrough;
+    }
+
+    /**
+     * Whether several requests may be in flight on the connection
+     */
+    public boolean isPipelined() {
+        return pipeline != null;
+    }
+
+    public MLLPPipeline getPipeline() {
+        return pipeline;
+    }
+
+    public void setPipeline(MLLPPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
     public boolean isMarkForClose() {
         return markForClose;
     }
@@ -188,7 +237,7 @@ public class MLLPContext {
     public void reset() {
         // Resets MLLP Context and HL7Codec to default states.
         this.responseBuffer.setLength(0);
-        this.requestBuffer.setLength(0);
+        this.requestMessage = null;
         this.getCodec().setState(HL7Codec.READ_HEADER);
         this.setNackMode(false);
     }
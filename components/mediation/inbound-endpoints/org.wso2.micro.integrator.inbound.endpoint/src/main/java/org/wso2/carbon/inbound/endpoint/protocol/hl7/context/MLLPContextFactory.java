@@ -41,7 +41,14 @@ public class MLLPContextFactory {
         BufferFactory bufferFactory = (BufferFactory) processor.getInboundParameterMap()
                 .get(MLLPConstants.INBOUND_HL7_BUFFER_FACTORY);
 
-        return new MLLPContext(session, decoder, autoAck, validate, preParser, bufferFactory);
+        MLLPContext mllpContext = new MLLPContext(session, decoder, autoAck, validate, preParser, bufferFactory);
+        // raw ER7 content is only passed through when it is not validated
+        mllpContext.setRawPassThrough(!validate && Boolean.valueOf(
+                inboundParams.getProperties().getProperty(MLLPConstants.PARAM_HL7_PASS_THROUGH_RAW_MESSAGE)));
+        if (processor.getMaxInFlightMessages() > 1) {
+            mllpContext.setPipeline(new MLLPPipeline(processor.getMaxInFlightMessages()));
+        }
+        return mllpContext;
     }
 
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.inbound.endpoint.protocol.hl7.context;
+
+import ca.uhn.hl7v2.model.Message;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+
+/**
+ * Keeps the requests received on a pipelined MLLP connection in their arrival order. Responses may complete in any
+ * order, but they are only handed over for writing from the head of the pipeline, so that the ACKs are sent in the
+ * order of the requests.
+ */
+public class MLLPPipeline {
+
+    private final int maxDepth;
+    private final LinkedList<Request> requests = new LinkedList<Request>();
+
+    // accessed by the IO reactor thread only
+    private ByteBuffer pendingInput;
+    private ByteBuffer pendingOutput;
+
+    public MLLPPipeline(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public synchronized Request add(Message hl7Message, String requestMessage) {
+        Request request = new Request(hl7Message, requestMessage);
+        requests.add(request);
+        return request;
+    }
+
+    public synchronized boolean hasCapacity() {
+        return requests.size() < maxDepth;
+    }
+
+    public synchronized int size() {
+        return requests.size();
+    }
+
+    public synchronized Request get(String messageId) {
+        for (Request request : requests) {
+            if (messageId.equals(request.messageId)) {
+                return request;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Set the response of the request unless it is already completed, e.g. by a timeout
+     *
+     * @return whether the response was set
+     */
+    public synchronized boolean complete(Request request, Message response, boolean nack, boolean applicationAck) {
+        if (request.completed) {
+            return false;
+        }
+        request.response = response;
+        request.nack = nack;
+        request.applicationAck = applicationAck;
+        request.completed = true;
+        return true;
+    }
+
+    /**
+     * Remove the head of the pipeline if its response is ready to be written
+     */
+    public synchronized Request pollCompleted() {
+        Request head = requests.peek();
+        if (head != null && head.completed) {
+            return requests.poll();
+        }
+        return null;
+    }
+
+    /**
+     * Drop the requests of a closed connection
+     *
+     * @return the number of dropped requests
+     */
+    public synchronized int clear() {
+        int size = requests.size();
+        requests.clear();
+        pendingInput = null;
+        pendingOutput = null;
+        return size;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public ByteBuffer getPendingInput() {
+        return pendingInput;
+    }
+
+    public void setPendingInput(ByteBuffer pendingInput) {
+        this.pendingInput = pendingInput;
+    }
+
+    public ByteBuffer getPendingOutput() {
+        return pendingOutput;
+    }
+
+    public void setPendingOutput(ByteBuffer pendingOutput) {
+        this.pendingOutput = pendingOutput;
+    }
+
+    /**
+     * A request in flight on the pipelined connection. The response fields are guarded by the pipeline.
+     */
+    public static class Request {
+
+        private final Message hl7Message;
+        private final String requestMessage;
+        private final long receivedTime = System.nanoTime();
+        private volatile String messageId;
+        private Message response;
+        private boolean nack;
+        private boolean applicationAck;
+        private boolean completed;
+
+        Request(Message hl7Message, String requestMessage) {
+            this.hl7Message = hl7Message;
+            this.requestMessage = requestMessage;
+        }
+
+        public Message getHl7Message() {
+            return hl7Message;
+        }
+
+        public String getRequestMessage() {
+            return requestMessage;
+        }
+
+        public long getReceivedTime() {
+            return receivedTime;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public void setMessageId(String messageId) {
+            this.messageId = messageId;
+        }
+
+        public Message getResponse() {
+            return response;
+        }
+
+        public boolean isNack() {
+            return nack;
+        }
+
+        public boolean isApplicationAck() {
+            return applicationAck;
+        }
+    }
+}
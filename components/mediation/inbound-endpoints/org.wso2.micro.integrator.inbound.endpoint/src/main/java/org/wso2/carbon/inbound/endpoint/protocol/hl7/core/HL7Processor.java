@@ -19,6 +19,7 @@
 package org.wso2.carbon.inbound.endpoint.protocol.hl7.core;
 
 import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Message;
 import org.apache.axis2.AxisFault;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,6 +32,7 @@ import org.apache.synapse.inbound.InboundResponseSender;
 import org.apache.synapse.mediators.base.SequenceMediator;
 import org.apache.synapse.transport.customlogsetter.CustomLogSetter;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPContext;
+import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPPipeline;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.util.Axis2HL7Constants;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.util.HL7ExecutorServiceFactory;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.util.HL7MessageUtils;
@@ -53,6 +55,8 @@ public class HL7Processor implements InboundResponseSender {
 
     private boolean autoAck = true;
     private int timeOut;
+    private int maxInFlightMessages = MLLPConstants.DEFAULT_HL7_MAX_IN_FLIGHT_MESSAGES;
+    private final MLLPPipelineMetrics pipelineMetrics = new MLLPPipelineMetrics();
 
     public HL7Processor(Map<String, Object> parameters) {
         this.parameters = parameters;
@@ -67,6 +71,16 @@ public class HL7Processor implements InboundResponseSender {
 
         timeOut = HL7MessageUtils.getInt(MLLPConstants.PARAM_HL7_TIMEOUT, params);
 
+        if (params.getProperties().getProperty(MLLPConstants.PARAM_HL7_MAX_IN_FLIGHT_MESSAGES) != null) {
+            try {
+                maxInFlightMessages = Math.max(1, HL7MessageUtils.getInt(
+                        MLLPConstants.PARAM_HL7_MAX_IN_FLIGHT_MESSAGES, params));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value for " + MLLPConstants.PARAM_HL7_MAX_IN_FLIGHT_MESSAGES + " in HL7 inbound "
+                                 + params.getName() + ". Messages will not be pipelined.");
+            }
+        }
+
     }
 
     /**
@@ -76,21 +90,37 @@ public class HL7Processor implements InboundResponseSender {
      * @throws Exception - catch any generic exceptions or else I/O Reactor may shutdown.
      */
     public void processRequest(final MLLPContext mllpContext) throws Exception {
+        processRequest(mllpContext, null);
+    }
+
+    /**
+     * HL7 Request Processing logic for a request of a pipelined connection. The request message is taken from the
+     * MLLP context, hence this is called as soon as the request is decoded.
+     *
+     * @param mllpContext
+     * @param request     the pipelined request, or null when the connection is not pipelined
+     * @throws Exception - catch any generic exceptions or else I/O Reactor may shutdown.
+     */
+    public void processRequest(final MLLPContext mllpContext, final MLLPPipeline.Request request) throws Exception {
         mllpContext.setRequestTime(System.currentTimeMillis());
 
         // Prepare Synapse Context for message injection
         MessageContext synCtx;
         try {
-            synCtx = HL7MessageUtils.createSynapseMessageContext(mllpContext.getHl7Message(), params);
+            if (mllpContext.isRawPassThrough()) {
+                synCtx = HL7MessageUtils.createRawSynapseMessageContext(mllpContext.getRequestMessage(), params);
+            } else {
+                synCtx = HL7MessageUtils.createSynapseMessageContext(mllpContext.getHl7Message(), params);
+            }
         } catch (HL7Exception e) {
-            handleException(mllpContext, e.getMessage());
+            handleException(mllpContext, request, e.getMessage());
             return;
         } catch (AxisFault e) {
-            handleException(mllpContext, e.getMessage());
+            handleException(mllpContext, request, e.getMessage());
             return;
         }
 
-        mllpContext.setMessageId(synCtx.getMessageID());
+        setMessageId(mllpContext, request, synCtx.getMessageID());
         synCtx.setProperty(SynapseConstants.INBOUND_ENDPOINT_NAME, params.getName());
         synCtx.setProperty(SynapseConstants.ARTIFACT_NAME,
                            SynapseConstants.FAIL_SAFE_MODE_INBOUND_ENDPOINT + params.getName());
@@ -111,7 +141,7 @@ public class HL7Processor implements InboundResponseSender {
                 .getSequence(inSequence);
         if (injectSeq == null) {
             log.error("Could not find inbound sequence '" + inSequence + "'.");
-            handleException(mllpContext, "Could not find inbound sequence.");
+            handleException(mllpContext, request, "Could not find inbound sequence.");
             return;
         } else if (!injectSeq.isInitialized()) {
             injectSeq.init(synCtx.getEnvironment());
@@ -120,7 +150,8 @@ public class HL7Processor implements InboundResponseSender {
 
         if (!autoAck && timeOut > 0) {
             executorService
-                    .schedule(new TimeoutHandler(mllpContext, synCtx.getMessageID()), timeOut, TimeUnit.MILLISECONDS);
+                    .schedule(new TimeoutHandler(mllpContext, request, synCtx.getMessageID()), timeOut,
+                              TimeUnit.MILLISECONDS);
         }
 
         CallableTask task = new CallableTask(synCtx, injectSeq);
@@ -130,27 +161,32 @@ public class HL7Processor implements InboundResponseSender {
     }
 
     public void processError(final MLLPContext mllpContext, final Exception ex) {
+        processError(mllpContext, null, ex);
+    }
+
+    public void processError(final MLLPContext mllpContext, final MLLPPipeline.Request request, final Exception ex) {
         mllpContext.setRequestTime(System.currentTimeMillis());
 
         // Prepare Synapse Context for message injection
         MessageContext synCtx;
+        String requestMessage = request != null ? request.getRequestMessage() : mllpContext.getRequestMessage();
         try {
-            if (mllpContext.getRequestBuffer() != null) {
+            if (requestMessage != null) {
                 synCtx = HL7MessageUtils.
-                        createErrorMessageContext(mllpContext.getRequestBuffer().toString(), ex, params);
+                        createErrorMessageContext(requestMessage, ex, params);
             } else {
                 synCtx = HL7MessageUtils.
                         createErrorMessageContext("The message received is not parseable", ex, params);
             }
         } catch (HL7Exception e) {
-            handleException(mllpContext, e.getMessage());
+            handleException(mllpContext, request, e.getMessage());
             return;
         } catch (AxisFault e) {
-            handleException(mllpContext, e.getMessage());
+            handleException(mllpContext, request, e.getMessage());
             return;
         }
 
-        mllpContext.setMessageId(synCtx.getMessageID());
+        setMessageId(mllpContext, request, synCtx.getMessageID());
         synCtx.setProperty(SynapseConstants.INBOUND_ENDPOINT_NAME, params.getName());
         synCtx.setProperty(SynapseConstants.ARTIFACT_NAME,
                            SynapseConstants.FAIL_SAFE_MODE_INBOUND_ENDPOINT + params.getName());
@@ -171,7 +207,7 @@ public class HL7Processor implements InboundResponseSender {
                 .getSequence(onErrorSequence);
         if (injectSeq == null) {
             log.error("Could not find inbound error sequence '" + onErrorSequence + "'.");
-            handleException(mllpContext, "Could not find inbound error sequence.");
+            handleException(mllpContext, request, "Could not find inbound error sequence.");
             return;
         } else if (!injectSeq.isInitialized()) {
             injectSeq.init(synCtx.getEnvironment());
@@ -179,7 +215,8 @@ public class HL7Processor implements InboundResponseSender {
 
         if (!autoAck && timeOut > 0) {
             executorService
-                    .schedule(new TimeoutHandler(mllpContext, synCtx.getMessageID()), timeOut, TimeUnit.MILLISECONDS);
+                    .schedule(new TimeoutHandler(mllpContext, request, synCtx.getMessageID()), timeOut,
+                              TimeUnit.MILLISECONDS);
         }
 
         CallableTask task = new CallableTask(synCtx, injectSeq);
@@ -220,10 +257,39 @@ public class HL7Processor implements InboundResponseSender {
 
     }
 
+    private void setMessageId(MLLPContext mllpContext, MLLPPipeline.Request request, String messageId) {
+        if (request != null) {
+            request.setMessageId(messageId);
+        } else {
+            mllpContext.setMessageId(messageId);
+        }
+    }
+
     public Map<String, Object> getInboundParameterMap() {
         return parameters;
     }
 
+    /**
+     * The maximum number of requests in flight on a connection, the connections are pipelined when it is above one
+     */
+    public int getMaxInFlightMessages() {
+        return maxInFlightMessages;
+    }
+
+    public MLLPPipelineMetrics getPipelineMetrics() {
+        return pipelineMetrics;
+    }
+
+    /**
+     * Complete a request of a pipelined connection and request writing the responses which became ready
+     */
+    private void completeRequest(MLLPContext mllpContext, MLLPPipeline.Request request, Message response,
+                                 boolean nack, boolean applicationAck) {
+        if (mllpContext.getPipeline().complete(request, response, nack, applicationAck)) {
+            mllpContext.requestPipelineOutput();
+        }
+    }
+
     @Override
     public void sendBack(MessageContext messageContext) {
         MLLPContext mllpContext = (MLLPContext) messageContext.getProperty(MLLPConstants.MLLP_CONTEXT);
@@ -232,6 +298,11 @@ public class HL7Processor implements InboundResponseSender {
 
     private void sendBack(MessageContext messageContext, MLLPContext mllpContext) {
 
+        if (mllpContext.isPipelined()) {
+            sendBackPipelined(messageContext, mllpContext);
+            return;
+        }
+
         if (messageContext.getProperty(MLLPConstants.HL7_INBOUND_MSG_ID) != null && !mllpContext.getMessageId()
                 .equals(messageContext.getProperty(MLLPConstants.HL7_INBOUND_MSG_ID))) {
             log.warn("Response ID does not match request ID. Response may have been received after timeout.");
@@ -268,12 +339,61 @@ public class HL7Processor implements InboundResponseSender {
         }
     }
 
+    private void sendBackPipelined(MessageContext messageContext, MLLPContext mllpContext) {
+
+        MLLPPipeline.Request request = null;
+        if (messageContext.getProperty(MLLPConstants.HL7_INBOUND_MSG_ID) != null) {
+            request = mllpContext.getPipeline().get(
+                    (String) messageContext.getProperty(MLLPConstants.HL7_INBOUND_MSG_ID));
+        }
+        if (request == null) {
+            log.warn("Response does not match a pending request. Response may have been received after timeout.");
+            return;
+        }
+
+        try {
+            if ((((String) messageContext.getProperty(Axis2HL7Constants.HL7_RESULT_MODE)) != null)
+                    && ((String) messageContext.getProperty(Axis2HL7Constants.HL7_RESULT_MODE))
+                    .equals(Axis2HL7Constants.HL7_RESULT_MODE_NACK)) {
+                String nackMessage = (String) messageContext.getProperty(Axis2HL7Constants.HL7_NACK_MESSAGE);
+                completeRequest(mllpContext, request, HL7MessageUtils.createNack(request.getHl7Message(), nackMessage),
+                                true, false);
+            } else if (messageContext.getProperty(Axis2HL7Constants.HL7_APPLICATION_ACK) != null && messageContext
+                    .getProperty(Axis2HL7Constants.HL7_APPLICATION_ACK).equals("true")) {
+                completeRequest(mllpContext, request, null, false, true);
+            } else {
+                completeRequest(mllpContext, request, HL7MessageUtils.payloadToHL7Message(messageContext, params),
+                                false, false);
+            }
+        } catch (NoSuchElementException e) {
+            log.error(
+                    "Could not find HL7 response in required XML format. Please ensure XML payload contains response inside message tags with namespace http://wso2.org/hl7.",
+                    e);
+            handleException(mllpContext, request, "Error while generating HL7 response. Not in required format.");
+        } catch (HL7Exception e) {
+            log.error("Error while generating HL7 ACK response from payload.", e);
+            handleException(mllpContext, request, "Error while generating ACK from payload.");
+        }
+    }
+
     public boolean isAutoAck() {
         return autoAck;
     }
 
     private void handleException(MLLPContext mllpContext, String msg) {
-        if (mllpContext.isAutoAck()) {
+        handleException(mllpContext, null, msg);
+    }
+
+    private void handleException(MLLPContext mllpContext, MLLPPipeline.Request request, String msg) {
+        if (request != null) {
+            // a pipelined request is answered with a NACK, so that the following responses are not held back
+            try {
+                completeRequest(mllpContext, request, HL7MessageUtils.createNack(request.getHl7Message(), msg), true,
+                                false);
+            } catch (HL7Exception e) {
+                log.error("Error while generating NACK response.", e);
+            }
+        } else if (mllpContext.isAutoAck()) {
             try {
                 mllpContext.setNackMode(true);
                 mllpContext.setHl7Message(HL7MessageUtils.createNack(mllpContext.getHl7Message(), msg));
@@ -288,15 +408,28 @@ public class HL7Processor implements InboundResponseSender {
 
     private class TimeoutHandler implements Runnable {
         private MLLPContext context;
+        private MLLPPipeline.Request request;
         private String messageId;
 
-        public TimeoutHandler(MLLPContext context, String messageId) {
+        public TimeoutHandler(MLLPContext context, MLLPPipeline.Request request, String messageId) {
             this.context = context;
+            this.request = request;
             this.messageId = messageId;
         }
 
         public void run() {
-            if (messageId.equals(context.getMessageId())) {
+            if (request != null) {
+                try {
+                    Message nack = HL7MessageUtils.createNack(request.getHl7Message(),
+                                                              "Timed out while waiting for HL7 Response to be generated.");
+                    if (context.getPipeline().complete(request, nack, true, false)) {
+                        log.warn("Timed out while waiting for HL7 Response to be generated.");
+                        context.requestPipelineOutput();
+                    }
+                } catch (HL7Exception e) {
+                    log.error("Could not generate timeout NACK response.", e);
+                }
+            } else if (messageId.equals(context.getMessageId())) {
                 try {
                     log.warn("Timed out while waiting for HL7 Response to be generated.");
                     context.setHl7Message(HL7MessageUtils.createNack(context.getHl7Message(),
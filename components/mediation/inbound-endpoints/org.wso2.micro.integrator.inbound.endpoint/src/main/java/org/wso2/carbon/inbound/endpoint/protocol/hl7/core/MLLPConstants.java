@@ -59,6 +59,14 @@ public class MLLPConstants {
 
     public final static String PARAM_HL7_PASS_THROUGH_INVALID_MESSAGES = "inbound.hl7.PassThroughInvalidMessages";
 
+    public final static String PARAM_HL7_PASS_THROUGH_RAW_MESSAGE = "inbound.hl7.PassThroughRawMessage";
+
+    public final static String PARAM_HL7_MAX_IN_FLIGHT_MESSAGES = "inbound.hl7.MaxInFlightMessages";
+
+    public final static int DEFAULT_HL7_MAX_IN_FLIGHT_MESSAGES = 1;
+
+    public final static String HL7_PIPELINE_MBEAN_CATEGORY = "HL7PipelineMetrics";
+
     public final static String HL7_ID_GENERATOR = "hl7_id_generator";
 
     public final static String HL7_INBOUND_MSG_ID = "HL7_INBOUND_MSG_ID";
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.inbound.endpoint.protocol.hl7.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue depth and ACK latency of the pipelined connections of a HL7 inbound endpoint
+ */
+public class MLLPPipelineMetrics implements MLLPPipelineMetricsMBean {
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong ackCount = new AtomicLong();
+    private final AtomicLong totalAckLatency = new AtomicLong();
+    private final AtomicLong maxAckLatency = new AtomicLong();
+
+    void requestQueued() {
+        int depth = queueDepth.incrementAndGet();
+        int max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)) {
+            // retry until the maximum is updated
+        }
+    }
+
+    void ackSent(long latencyNanos) {
+        queueDepth.decrementAndGet();
+        ackCount.incrementAndGet();
+        totalAckLatency.addAndGet(latencyNanos);
+        long max;
+        while (latencyNanos > (max = maxAckLatency.get()) && !maxAckLatency.compareAndSet(max, latencyNanos)) {
+            // retry until the maximum is updated
+        }
+    }
+
+    void requestsDropped(int count) {
+        queueDepth.addAndGet(-count);
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @Override
+    public long getAckCount() {
+        return ackCount.get();
+    }
+
+    @Override
+    public double getAverageAckLatency() {
+        long count = ackCount.get();
+        return count == 0 ? 0 : (double) totalAckLatency.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getMaxAckLatency() {
+        return (double) maxAckLatency.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "queue depth: " + getQueueDepth() + ", max queue depth: " + getMaxQueueDepth() + ", ACKs: "
+                + getAckCount() + ", average ACK latency: " + getAverageAckLatency() + " ms, max ACK latency: "
+                + getMaxAckLatency() + " ms";
+    }
+}
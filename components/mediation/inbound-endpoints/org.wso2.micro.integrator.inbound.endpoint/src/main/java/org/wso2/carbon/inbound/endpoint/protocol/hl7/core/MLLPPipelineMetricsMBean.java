@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.inbound.endpoint.protocol.hl7.core;
+
+/**
+ * The JMX view of the queue depth and ACK latency of the pipelined connections of a HL7 inbound endpoint
+ */
+public interface MLLPPipelineMetricsMBean {
+
+    /**
+     * The number of requests received on the pipelined connections whose ACK is not sent yet
+     */
+    int getQueueDepth();
+
+    int getMaxQueueDepth();
+
+    long getAckCount();
+
+    /**
+     * The average time in milliseconds from receiving a request until its ACK is written
+     */
+    double getAverageAckLatency();
+
+    /**
+     * The maximum time in milliseconds from receiving a request until its ACK is written
+     */
+    double getMaxAckLatency();
+}
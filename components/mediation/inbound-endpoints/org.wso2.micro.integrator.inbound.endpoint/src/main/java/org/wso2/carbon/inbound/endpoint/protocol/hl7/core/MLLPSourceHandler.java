@@ -21,6 +21,7 @@ package org.wso2.carbon.inbound.endpoint.protocol.hl7.core;
 import ca.uhn.hl7v2.HL7Exception;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.http.nio.reactor.EventMask;
 import org.apache.http.nio.reactor.IOEventDispatch;
 import org.apache.http.nio.reactor.IOSession;
 import org.apache.synapse.transport.passthru.util.BufferFactory;
@@ -28,6 +29,7 @@ import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.codec.HL7Codec;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPContext;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPContextFactory;
+import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPPipeline;
 import org.wso2.carbon.inbound.endpoint.protocol.hl7.util.HL7MessageUtils;
 
 import java.io.IOException;
@@ -70,6 +72,11 @@ public class MLLPSourceHandler implements IOEventDispatch {
 
         MLLPContext mllpContext = (MLLPContext) session.getAttribute(MLLPConstants.MLLP_CONTEXT);
 
+        if (mllpContext.isPipelined()) {
+            readPipelined(session, mllpContext, ch);
+            return;
+        }
+
         inputBuffer.clear();
         try {
             int read;
@@ -121,6 +128,96 @@ public class MLLPSourceHandler implements IOEventDispatch {
 
     }
 
+    /**
+     * Read the requests of a pipelined connection. Reading is suspended while the maximum number of requests is in
+     * flight, keeping the bytes which are already read until the responses are written.
+     */
+    private void readPipelined(IOSession session, MLLPContext mllpContext, ReadableByteChannel ch) {
+        MLLPPipeline pipeline = mllpContext.getPipeline();
+        inputBuffer.clear();
+        try {
+            int read;
+            while ((read = ch.read(inputBuffer.getByteBuffer())) > 0) {
+                inputBuffer.flip();
+                ByteBuffer buffer = inputBuffer.getByteBuffer();
+                if (!decodePipelined(session, mllpContext, buffer)) {
+                    return;
+                }
+                if (!pipeline.hasCapacity()) {
+                    if (buffer.hasRemaining()) {
+                        ByteBuffer pendingInput = ByteBuffer.allocate(buffer.remaining());
+                        pendingInput.put(buffer);
+                        pendingInput.flip();
+                        pipeline.setPendingInput(pendingInput);
+                    }
+                    mllpContext.suspendInput();
+                    return;
+                }
+                inputBuffer.clear();
+            }
+
+            if (read < 0) {
+                clearInputBuffers(mllpContext);
+                session.close();
+            }
+        } catch (IOException e) {
+            shutdownConnection(session, mllpContext, e);
+        }
+    }
+
+    /**
+     * Decode and dispatch the requests in the buffer as long as the pipeline has capacity
+     *
+     * @return false if the connection is shut down
+     */
+    private boolean decodePipelined(IOSession session, MLLPContext mllpContext, ByteBuffer buffer) {
+        MLLPPipeline pipeline = mllpContext.getPipeline();
+        HL7Codec codec = mllpContext.getCodec();
+        while (buffer.hasRemaining() && pipeline.hasCapacity()) {
+            try {
+                codec.decode(buffer, mllpContext);
+            } catch (MLLProtocolException e) {
+                handleException(session, mllpContext, e);
+                buffer.position(buffer.limit());
+                codec.setState(HL7Codec.READ_HEADER);
+                return true;
+            } catch (HL7Exception e) {
+                handleException(session, mllpContext, e);
+                codec.setState(HL7Codec.READ_HEADER);
+                MLLPPipeline.Request request = pipeline.add(null, mllpContext.getRequestMessage());
+                hl7Processor.getPipelineMetrics().requestQueued();
+                if (mllpContext.isAutoAck()) {
+                    if (pipeline.complete(request, HL7MessageUtils.createDefaultNack(e.getMessage()), true, false)) {
+                        mllpContext.requestPipelineOutput();
+                    }
+                } else {
+                    hl7Processor.processError(mllpContext, request, e);
+                }
+                continue;
+            } catch (IOException e) {
+                shutdownConnection(session, mllpContext, e);
+                return false;
+            }
+
+            if (codec.isReadComplete()) {
+                codec.setState(HL7Codec.READ_HEADER);
+                MLLPPipeline.Request request = pipeline.add(mllpContext.getHl7Message(),
+                                                            mllpContext.getRequestMessage());
+                hl7Processor.getPipelineMetrics().requestQueued();
+                try {
+                    hl7Processor.processRequest(mllpContext, request);
+                } catch (Exception e) {
+                    shutdownConnection(session, mllpContext, e);
+                    return false;
+                }
+                if (mllpContext.isAutoAck() && pipeline.complete(request, null, false, false)) {
+                    mllpContext.requestPipelineOutput();
+                }
+            }
+        }
+        return true;
+    }
+
     private void clearInputBuffers(MLLPContext context) {
         bufferFactory.release(inputBuffer);
         inputBuffer = bufferFactory.getBuffer();
@@ -130,9 +227,73 @@ public class MLLPSourceHandler implements IOEventDispatch {
     @Override
     public void outputReady(IOSession session) {
         MLLPContext mllpContext = (MLLPContext) session.getAttribute(MLLPConstants.MLLP_CONTEXT);
+        if (mllpContext.isPipelined()) {
+            writePipelined(session, mllpContext);
+            return;
+        }
         writeOut(session, mllpContext);
     }
 
+    /**
+     * Write the ready responses of a pipelined connection in the order of the requests, then continue with the
+     * requests held back while the pipeline was full.
+     */
+    private void writePipelined(IOSession session, MLLPContext mllpContext) {
+        MLLPPipeline pipeline = mllpContext.getPipeline();
+        MLLPPipelineMetrics metrics = hl7Processor.getPipelineMetrics();
+        try {
+            while (true) {
+                ByteBuffer frame = pipeline.getPendingOutput();
+                if (frame == null || !frame.hasRemaining()) {
+                    MLLPPipeline.Request request;
+                    synchronized (pipeline) {
+                        request = pipeline.pollCompleted();
+                        if (request == null) {
+                            // cleared under the pipeline lock, so that a completing response requests output again
+                            session.clearEvent(EventMask.WRITE);
+                        }
+                    }
+                    if (request == null) {
+                        pipeline.setPendingOutput(null);
+                        break;
+                    }
+                    metrics.ackSent(System.nanoTime() - request.getReceivedTime());
+                    if (log.isDebugEnabled()) {
+                        log.debug("HL7 pipeline of " + session.getRemoteAddress() + " " + metrics);
+                    }
+                    frame = mllpContext.getCodec().encodeFrame(request, mllpContext.isAutoAck());
+                    pipeline.setPendingOutput(frame);
+                    if (frame == null) {
+                        log.warn("No HL7 response to send for the message " + request.getMessageId() + ".");
+                        continue;
+                    }
+                }
+                session.channel().write(frame);
+                if (frame.hasRemaining()) {
+                    // the rest is written when the channel is writable again
+                    return;
+                }
+            }
+        } catch (HL7Exception e) {
+            shutdownConnection(session, mllpContext, e);
+            return;
+        } catch (IOException e) {
+            shutdownConnection(session, mllpContext, e);
+            return;
+        }
+
+        ByteBuffer pendingInput = pipeline.getPendingInput();
+        if (pendingInput != null) {
+            if (!decodePipelined(session, mllpContext, pendingInput) || pendingInput.hasRemaining()) {
+                return;
+            }
+            pipeline.setPendingInput(null);
+        }
+        if (pipeline.hasCapacity()) {
+            mllpContext.resumeInput();
+        }
+    }
+
     private void writeOut(IOSession session, MLLPContext mllpContext) {
 
         outputBuffer.clear();
@@ -195,6 +356,10 @@ public class MLLPSourceHandler implements IOEventDispatch {
             handleException(session, mllpContext, e);
         }
 
+        if (mllpContext != null && mllpContext.isPipelined()) {
+            hl7Processor.getPipelineMetrics().requestsDropped(mllpContext.getPipeline().clear());
+        }
+
         bufferFactory.release(inputBuffer);
         bufferFactory.release(outputBuffer);
         session.close();
@@ -26,6 +26,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.nio.util.HeapByteBufferAllocator;
 import org.apache.synapse.SynapseException;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.inbound.InboundProcessorParams;
 import org.apache.synapse.transport.passthru.util.BufferFactory;
 import org.wso2.carbon.inbound.endpoint.common.AbstractInboundEndpointManager;
@@ -72,7 +73,14 @@ public class HL7EndpointManager extends AbstractInboundEndpointManager {
         HL7Processor hl7Processor = new HL7Processor(parameters);
         parameters.put(MLLPConstants.HL7_REQ_PROC, hl7Processor);
 
-        return InboundHL7IOReactor.bind(port, hl7Processor);
+        if (!InboundHL7IOReactor.bind(port, hl7Processor)) {
+            return false;
+        }
+        if (hl7Processor.getMaxInFlightMessages() > 1) {
+            MBeanRegistrar.getInstance().registerMBean(hl7Processor.getPipelineMetrics(),
+                                                       MLLPConstants.HL7_PIPELINE_MBEAN_CATEGORY, name);
+        }
+        return true;
     }
 
     @Override
@@ -102,7 +110,11 @@ public class HL7EndpointManager extends AbstractInboundEndpointManager {
     @Override
     public void closeEndpoint(int port) {
 
+        String name = dataStore.getListeningEndpointName(port, Constants.SUPER_TENANT_DOMAIN_NAME);
         dataStore.unregisterListeningEndpoint(port, Constants.SUPER_TENANT_DOMAIN_NAME);
+        if (name != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean(MLLPConstants.HL7_PIPELINE_MBEAN_CATEGORY, name);
+        }
 
         if (!InboundHL7IOReactor.isEndpointRunning(port)) {
             log.info("Listener Endpoint is not started");
@@ -128,6 +128,27 @@ public class HL7MessageUtils {
         return synCtx;
     }
 
+    /**
+     * Create the message context carrying the received ER7 content as it is, skipping the XML conversion of the
+     * parsed message.
+     */
+    public static MessageContext createRawSynapseMessageContext(String rawMessage, InboundProcessorParams params)
+            throws HL7Exception, AxisFault {
+
+        MessageContext synCtx = createSynapseMessageContext(
+                params.getProperties().getProperty(MLLPConstants.HL7_INBOUND_TENANT_DOMAIN));
+
+        try {
+            SOAPEnvelope envelope = fac.getDefaultEnvelope();
+            envelope.getBody().addChild(generateHL7RawMessaegElement(rawMessage));
+            synCtx.setEnvelope(envelope);
+        } catch (Exception e) {
+            throw new HL7Exception(e);
+        }
+
+        return synCtx;
+    }
+
     public static MessageContext createErrorMessageContext(String rawMessage, Exception errorMsg,
                                                            InboundProcessorParams params)
             throws AxisFault, HL7Exception {
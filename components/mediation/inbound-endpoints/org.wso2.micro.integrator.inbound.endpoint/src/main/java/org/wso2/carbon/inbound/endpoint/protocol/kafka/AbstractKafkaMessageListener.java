@@ -35,12 +35,13 @@ public abstract class AbstractKafkaMessageListener {
     protected static final Log log = LogFactory.getLog(KAFKAMessageListener.class.getName());
 
     /**
-     * the consumer types are high level and simple,high level is used for kafka high level configuration
-     * and simple is used for kafka low level configuration
+     * the consumer types are high level, simple and poll,high level is used for kafka high level configuration,
+     * simple is used for kafka low level configuration and poll is used for the kafka consumer client which
+     * mediates batches of records in parallel
      */
     public static enum CONSUMER_TYPE {
 
-        HIGHLEVEL("highlevel"), SIMPLE("simple");
+        HIGHLEVEL("highlevel"), SIMPLE("simple"), POLL("poll");
         String name;
 
         private CONSUMER_TYPE(String name) {
@@ -56,6 +56,14 @@ public class KAFKAConstants {
 
     public static final String CONSUMER_TIMEOUT = "consumer.timeout.ms";
 
+    public static final String POLL_TIMEOUT = "poll.timeout.ms";
+
+    public static final String MAX_PENDING_RECORDS = "max.pending.records";
+
+    public static final long DEFAULT_POLL_TIMEOUT = 3000;
+
+    public static final int DEFAULT_MAX_PENDING_RECORDS = 1000;
+
     public static final int SO_TIMEOUT = 100000;
 
     public static final int BUFFER_SIZE = 64 * 1024;
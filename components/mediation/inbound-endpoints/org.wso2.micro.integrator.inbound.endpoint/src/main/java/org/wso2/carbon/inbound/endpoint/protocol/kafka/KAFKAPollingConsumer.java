@@ -81,10 +81,15 @@ public class KAFKAPollingConsumer {
                 } else if (kafkaProperties.getProperty(KAFKAConstants.CONSUMER_TYPE)
                         .equalsIgnoreCase(AbstractKafkaMessageListener.CONSUMER_TYPE.SIMPLE.getName())) {
                     messageListener = new SimpleKafkaMessageListener(kafkaProperties, injectHandler);
+                    //Start a listener based on the kafka consumer client
+                } else if (kafkaProperties.getProperty(KAFKAConstants.CONSUMER_TYPE)
+                        .equalsIgnoreCase(AbstractKafkaMessageListener.CONSUMER_TYPE.POLL.getName())) {
+                    messageListener = new KafkaPollMessageListener(threadCount, topics, kafkaProperties,
+                                                                   injectHandler);
                 }
             } catch (Exception e) {
-                log.error("The consumer type should be high level or simple." + e.getMessage(), e);
-                throw new SynapseException("The consumer type should be high level or simple", e);
+                log.error("The consumer type should be high level, simple or poll." + e.getMessage(), e);
+                throw new SynapseException("The consumer type should be high level, simple or poll", e);
             }
         }
     }
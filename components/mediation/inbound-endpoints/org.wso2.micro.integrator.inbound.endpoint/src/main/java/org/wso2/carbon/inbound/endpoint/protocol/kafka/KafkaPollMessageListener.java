@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.inbound.endpoint.protocol.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.synapse.SynapseException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Kafka listener built on the kafka consumer client. Each poll returns a batch of records which is handed over to
+ * thread count single threaded workers. Records with the same key, or without a key, of a partition always go to
+ * the same worker so that their order is kept while the partitions are mediated in parallel. Offsets are committed
+ * asynchronously up to the lowest record still being mediated, and a partition is paused while it has more than
+ * the configured number of records pending in the workers.
+ * <p>
+ * The mediation of a record is complete when the inject handler returns, which is the case for sequential
+ * inbound endpoints.
+ */
+public class KafkaPollMessageListener extends AbstractKafkaMessageListener {
+
+    private static final long WORKER_SHUTDOWN_TIMEOUT = 30000;
+
+    private static final AtomicInteger workerCount = new AtomicInteger(1);
+
+    private final Map<TopicPartition, PartitionProgress> partitionProgress =
+            new ConcurrentHashMap<TopicPartition, PartitionProgress>();
+    private final Set<TopicPartition> pausedPartitions = new HashSet<TopicPartition>();
+    private Consumer<byte[], byte[]> consumer;
+    private ExecutorService[] workers;
+    private ConsumerRecords<byte[], byte[]> records = ConsumerRecords.empty();
+    private long pollTimeout = KAFKAConstants.DEFAULT_POLL_TIMEOUT;
+    private int maxPendingRecords = KAFKAConstants.DEFAULT_MAX_PENDING_RECORDS;
+    private volatile boolean destroyed;
+
+    public KafkaPollMessageListener(int threadCount, List<String> topics, Properties kafkaProperties,
+                                    InjectHandler injectHandler) {
+        this.threadCount = threadCount;
+        this.topics = topics;
+        this.kafkaProperties = kafkaProperties;
+        this.injectHandler = injectHandler;
+        try {
+            if (kafkaProperties.getProperty(KAFKAConstants.POLL_TIMEOUT) != null) {
+                this.pollTimeout = Long.parseLong(kafkaProperties.getProperty(KAFKAConstants.POLL_TIMEOUT));
+            }
+            if (kafkaProperties.getProperty(KAFKAConstants.MAX_PENDING_RECORDS) != null) {
+                this.maxPendingRecords = Integer.parseInt(
+                        kafkaProperties.getProperty(KAFKAConstants.MAX_PENDING_RECORDS));
+            }
+        } catch (NumberFormatException nfe) {
+            log.error("Invalid numeric value for the poll consumer configuration." + nfe.getMessage(), nfe);
+            throw new SynapseException("Invalid numeric value for the poll consumer configuration.", nfe);
+        }
+    }
+
+    /**
+     * Create the kafka consumer with auto commit disabled, since offsets are committed after the mediation
+     */
+    public boolean createKafkaConsumerConnector() throws Exception {
+
+        if (destroyed) {
+            return false;
+        }
+        try {
+            if (consumer == null) {
+                log.info("Creating Kafka Consumer...");
+                Properties consumerProperties = new Properties();
+                Set<String> configNames = ConsumerConfig.configNames();
+                for (String key : kafkaProperties.stringPropertyNames()) {
+                    if (configNames.contains(key)) {
+                        consumerProperties.put(key, kafkaProperties.getProperty(key));
+                    }
+                }
+                consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+                consumer = createConsumer(consumerProperties);
+                log.info("Kafka Consumer is created");
+                start();
+            }
+        } catch (KafkaException e) {
+            log.error(" Error in Creating Kafka Consumer." + e.getMessage(), e);
+            throw new SynapseException(" Error in Creating Kafka Consumer ", e);
+        }
+        return true;
+    }
+
+    /**
+     * Create the consumer client of the given configuration
+     */
+    Consumer<byte[], byte[]> createConsumer(Properties consumerProperties) {
+        return new KafkaConsumer<byte[], byte[]>(consumerProperties, new ByteArrayDeserializer(),
+                                                 new ByteArrayDeserializer());
+    }
+
+    /**
+     * Subscribe to the topics or to the topic filter and start the workers
+     */
+    public void start() throws Exception {
+
+        log.info("Starting KAFKA consumer...");
+        ConsumerRebalanceListener rebalanceListener = new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                commitCompletedOffsets(partitions, true);
+                for (TopicPartition partition : partitions) {
+                    partitionProgress.remove(partition);
+                    pausedPartitions.remove(partition);
+                }
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Kafka partitions assigned : " + partitions);
+                }
+            }
+        };
+        if (topics != null && topics.size() > 0) {
+            consumer.subscribe(topics, rebalanceListener);
+        } else if (kafkaProperties.getProperty(KAFKAConstants.TOPIC_FILTER) != null) {
+            String filter = kafkaProperties.getProperty(KAFKAConstants.TOPIC_FILTER);
+            boolean isFromWhiteList = (kafkaProperties.getProperty(KAFKAConstants.FILTER_FROM_WHITE_LIST) == null
+                    || kafkaProperties.getProperty(KAFKAConstants.FILTER_FROM_WHITE_LIST).isEmpty()) ?
+                    Boolean.TRUE :
+                    Boolean.parseBoolean(kafkaProperties.getProperty(KAFKAConstants.FILTER_FROM_WHITE_LIST));
+            if (isFromWhiteList) {
+                consumer.subscribe(Pattern.compile(filter), rebalanceListener);
+            } else {
+                consumer.subscribe(Pattern.compile("^(?!(?:" + filter + ")$).*"), rebalanceListener);
+            }
+        } else {
+            throw new SynapseException("Topics or a topic filter should be given for the Kafka consumer");
+        }
+        workers = new ExecutorService[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable,
+                    "KafkaPollWorker-" + workerCount.getAndIncrement()));
+        }
+    }
+
+    /**
+     * Commit the mediated records, resume the drained partitions and poll the next batch of records
+     */
+    @Override
+    public synchronized boolean hasNext() {
+        if (consumer == null || destroyed) {
+            return false;
+        }
+        try {
+            commitCompletedOffsets(partitionProgress.keySet(), false);
+            resumeDrainedPartitions();
+            records = consumer.poll(Duration.ofMillis(pollTimeout));
+            return !records.isEmpty();
+        } catch (WakeupException | InterruptException e) {
+            //Polling is interrupted when the listener is destroyed
+            if (log.isDebugEnabled()) {
+                log.debug("Kafka listener is interrupted by server shutdown.", e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Hand over the polled batch to the workers and pause the partitions which have too many pending records
+     */
+    @Override
+    public synchronized void injectMessageToESB(String name) {
+        Set<TopicPartition> saturated = new HashSet<TopicPartition>();
+        for (TopicPartition partition : records.partitions()) {
+            PartitionProgress progress = partitionProgress.get(partition);
+            if (progress == null) {
+                progress = new PartitionProgress();
+                partitionProgress.put(partition, progress);
+            }
+            for (ConsumerRecord<byte[], byte[]> record : records.records(partition)) {
+                progress.dispatched(record.offset());
+                workers[getWorkerIndex(record)].execute(new RecordMediator(record, progress, name));
+            }
+            if (progress.getPendingCount() >= maxPendingRecords && pausedPartitions.add(partition)) {
+                saturated.add(partition);
+            }
+        }
+        records = ConsumerRecords.empty();
+        if (!saturated.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Pausing the saturated Kafka partitions : " + saturated);
+            }
+            consumer.pause(saturated);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        destroyed = true;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        boolean interrupted = false;
+        synchronized (this) {
+            if (workers != null) {
+                for (ExecutorService worker : workers) {
+                    worker.shutdown();
+                }
+                try {
+                    for (ExecutorService worker : workers) {
+                        worker.awaitTermination(WORKER_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (consumer != null) {
+                try {
+                    try {
+                        commitCompletedOffsets(partitionProgress.keySet(), true);
+                    } catch (WakeupException e) {
+                        //The wakeup was not consumed by a poll, hence retry once it is cleared
+                        commitCompletedOffsets(partitionProgress.keySet(), true);
+                    }
+                } catch (Exception e) {
+                    log.error("Error while committing the Kafka offsets." + e.getMessage(), e);
+                }
+                consumer.close();
+                consumer = null;
+                log.info("Shutdown the kafka consumer");
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Route the records of a partition by key, so that the records having the same key are mediated in order
+     */
+    private int getWorkerIndex(ConsumerRecord<byte[], byte[]> record) {
+        int hash = 31 * record.topic().hashCode() + record.partition();
+        if (record.key() != null) {
+            hash = 31 * hash + Arrays.hashCode(record.key());
+        }
+        return (hash & Integer.MAX_VALUE) % workers.length;
+    }
+
+    private void resumeDrainedPartitions() {
+        Set<TopicPartition> drained = new HashSet<TopicPartition>();
+        for (Iterator<TopicPartition> iterator = pausedPartitions.iterator(); iterator.hasNext(); ) {
+            TopicPartition partition = iterator.next();
+            PartitionProgress progress = partitionProgress.get(partition);
+            if (progress == null || progress.getPendingCount() <= maxPendingRecords / 2) {
+                drained.add(partition);
+                iterator.remove();
+            }
+        }
+        if (!drained.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Resuming the drained Kafka partitions : " + drained);
+            }
+            consumer.resume(drained);
+        }
+    }
+
+    private void commitCompletedOffsets(Collection<TopicPartition> partitions, boolean sync) {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<TopicPartition, OffsetAndMetadata>();
+        for (TopicPartition partition : partitions) {
+            PartitionProgress progress = partitionProgress.get(partition);
+            if (progress != null) {
+                long offset = progress.getCompletedOffset();
+                if (offset > progress.committedOffset) {
+                    progress.committedOffset = offset;
+                    offsets.put(partition, new OffsetAndMetadata(offset));
+                }
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        if (sync) {
+            consumer.commitSync(offsets);
+            return;
+        }
+        consumer.commitAsync(offsets, (committed, exception) -> {
+            if (exception != null) {
+                log.warn("Error while committing the Kafka offsets " + offsets + ". " + exception.getMessage());
+                //Let the next commit retry the failed offsets
+                for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+                    PartitionProgress progress = partitionProgress.get(entry.getKey());
+                    if (progress != null && progress.committedOffset == entry.getValue().offset()) {
+                        progress.committedOffset = -1;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Mediate a single record and mark it as completed in its partition
+     */
+    private class RecordMediator implements Runnable {
+
+        private final ConsumerRecord<byte[], byte[]> record;
+        private final PartitionProgress progress;
+        private final String name;
+
+        RecordMediator(ConsumerRecord<byte[], byte[]> record, PartitionProgress progress, String name) {
+            this.record = record;
+            this.progress = progress;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (record.value() != null) {
+                    injectHandler.invoke(record.value(), name);
+                } else if (log.isDebugEnabled()) {
+                    log.debug("Skipping the Kafka record without a value at offset " + record.offset());
+                }
+            } catch (Exception e) {
+                log.error("Error while mediating the Kafka record of " + record.topic() + "-" + record.partition()
+                                  + " at offset " + record.offset() + ". " + e.getMessage(), e);
+            } finally {
+                progress.completed(record.offset());
+            }
+        }
+    }
+
+    /**
+     * Tracks the records of a partition which are handed over to the workers but not mediated yet. Records are
+     * dispatched and committed by the polling thread and completed by the workers.
+     */
+    private static class PartitionProgress {
+
+        private final ConcurrentSkipListSet<Long> pendingOffsets = new ConcurrentSkipListSet<Long>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private long nextOffset = -1;
+        private long committedOffset = -1;
+
+        void dispatched(long offset) {
+            pendingOffsets.add(offset);
+            pendingCount.incrementAndGet();
+            nextOffset = offset + 1;
+        }
+
+        void completed(long offset) {
+            pendingOffsets.remove(offset);
+            pendingCount.decrementAndGet();
+        }
+
+        int getPendingCount() {
+            return pendingCount.get();
+        }
+
+        /**
+         * All the records before the lowest pending offset are mediated, hence it is the offset to commit
+         */
+        long getCompletedOffset() {
+            Iterator<Long> iterator = pendingOffsets.iterator();
+            return iterator.hasNext() ? iterator.next() : nextOffset;
+        }
+    }
+}
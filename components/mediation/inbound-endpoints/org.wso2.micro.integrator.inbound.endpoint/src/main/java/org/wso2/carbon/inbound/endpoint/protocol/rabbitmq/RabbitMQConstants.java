@@ -58,6 +58,7 @@ public class RabbitMQConstants {
 
     public static final String CONSUMER_QOS = "rabbitmq.channel.consumer.qos";
     public static final String CONSUMER_TAG = "rabbitmq.consumer.tag";
+    public static final String CONSUMER_CONCURRENT = "rabbitmq.channel.consumer.concurrent";
 
     public static final String MESSAGE_MAX_DEAD_LETTERED_COUNT = "rabbitmq.message.max.dead.lettered.count";
     public static final String MESSAGE_ERROR_EXCHANGE_NAME = "rabbitmq.message.error.exchange.name";
@@ -66,6 +67,7 @@ public class RabbitMQConstants {
     public static final int DEFAULT_RETRY_INTERVAL = 30000;
     public static final int DEFAULT_RETRY_COUNT = 3;
     public static final int DEFAULT_CONSUMER_QOS = 0;
+    public static final int DEFAULT_CONCURRENT_CONSUMER_WORKERS = 10;
 }
 
 
@@ -38,6 +38,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The actual tasks that perform message consuming
@@ -45,6 +53,7 @@ import java.util.Properties;
 public class RabbitMQConsumer implements Consumer {
 
     private static final Log log = LogFactory.getLog(RabbitMQConsumer.class);
+    private static final AtomicInteger workerCount = new AtomicInteger(1);
     private RabbitMQConnectionFactory rabbitMQConnectionFactory;
     private volatile Map<String, String> rabbitMQProperties = new HashMap<>();
     private RabbitMQInjectHandler injectHandler;
@@ -55,6 +64,9 @@ public class RabbitMQConsumer implements Consumer {
     private long requeueDelay;
     private boolean autoAck;
     private String inboundName;
+    private ExecutorService workerPool;
+    private ScheduledExecutorService requeueScheduler;
+    private DeliveryTracker deliveryTracker;
 
     public RabbitMQConsumer(RabbitMQConnectionFactory rabbitMQConnectionFactory, Properties properties,
                             RabbitMQInjectHandler injectHandler) {
@@ -87,11 +99,6 @@ public class RabbitMQConsumer implements Consumer {
         channel = connection.createChannel();
         ((Recoverable) this.channel).addRecoveryListener(new RabbitMQRecoveryListener());
 
-        // set the qos value
-        int qos = NumberUtils.toInt(rabbitMQProperties.get(RabbitMQConstants.CONSUMER_QOS),
-                RabbitMQConstants.DEFAULT_CONSUMER_QOS);
-        channel.basicQos(qos);
-
         // declaring queue, exchange and binding
         queueName = rabbitMQProperties.get(RabbitMQConstants.QUEUE_NAME);
         String exchangeName = rabbitMQProperties.get(RabbitMQConstants.EXCHANGE_NAME);
@@ -110,6 +117,31 @@ public class RabbitMQConsumer implements Consumer {
         }
         RabbitMQUtils.bindQueueToExchange(channel, queueName, exchangeName, rabbitMQProperties);
 
+        consume(channel);
+    }
+
+    /**
+     * Set the qos of the channel and start consuming the queue, which has been declared already. The qos is set
+     * after the declarations, as they may replace the channel
+     *
+     * @param channel the channel to consume from
+     * @throws IOException
+     */
+    void consume(Channel channel) throws IOException {
+        this.channel = channel;
+
+        // set the qos value
+        int qos = NumberUtils.toInt(rabbitMQProperties.get(RabbitMQConstants.CONSUMER_QOS),
+                RabbitMQConstants.DEFAULT_CONSUMER_QOS);
+        boolean concurrent = BooleanUtils.toBoolean(rabbitMQProperties.get(RabbitMQConstants.CONSUMER_CONCURRENT));
+        if (concurrent && qos <= 0) {
+            // an unlimited prefetch would push the whole queue into the memory of the worker pool
+            qos = RabbitMQConstants.DEFAULT_CONCURRENT_CONSUMER_WORKERS;
+            log.warn("The " + RabbitMQConstants.CONSUMER_QOS + " is not set for the concurrent consumer of the inbound "
+                    + "endpoint: " + inboundName + ". Hence the prefetch count is limited to " + qos + ".");
+        }
+        channel.basicQos(qos);
+
         // get max dead-lettered count
         maxDeadLetteredCount =
                 NumberUtils.toLong(rabbitMQProperties.get(RabbitMQConstants.MESSAGE_MAX_DEAD_LETTERED_COUNT));
@@ -124,6 +156,11 @@ public class RabbitMQConsumer implements Consumer {
         autoAck = BooleanUtils.toBooleanDefaultIfNull(BooleanUtils.toBooleanObject(rabbitMQProperties
                 .get(RabbitMQConstants.QUEUE_AUTO_ACK)), true);
 
+        // deliveries are mediated by a worker pool sized from the qos in the concurrent mode
+        if (concurrent) {
+            initWorkers(qos);
+        }
+
         if (StringUtils.isNotEmpty(consumerTag)) {
             channel.basicConsume(queueName, autoAck, consumerTag, this);
         } else {
@@ -131,6 +168,30 @@ public class RabbitMQConsumer implements Consumer {
         }
     }
 
+    /**
+     * Create the workers which mediate the deliveries, the scheduler which delays the requeues and the tracker
+     * which batches the acknowledgements of the channel
+     *
+     * @param qos the prefetch count of the channel, which is greater than zero
+     */
+    private void initWorkers(int qos) {
+        int workers = qos;
+        if (workerPool == null) {
+            // the prefetch count bounds the deliveries in flight, except with auto acknowledgement where the broker
+            // ignores it. The bounded queue then makes the connection thread mediate the delivery itself, which
+            // stops the consumption until the workers catch up
+            workerPool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(workers), runnable -> new Thread(runnable,
+                    "RabbitMQInboundWorker-" + workerCount.getAndIncrement()), new ThreadPoolExecutor.CallerRunsPolicy());
+            requeueScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable,
+                    "RabbitMQInboundRequeue-" + workerCount.getAndIncrement()));
+        }
+        // acknowledge once half of the prefetch window is completed, so the broker keeps delivering meanwhile
+        deliveryTracker = autoAck ? null : new DeliveryTracker(Math.max(1, qos / 2));
+        log.info("Consuming queue: " + queueName + " concurrently with " + workers + " workers for inbound endpoint: "
+                + inboundName);
+    }
+
     /**
      * Called when the consumer is registered by a call to any of the {@link Channel#basicConsume} methods.
      *
@@ -210,15 +271,64 @@ public class RabbitMQConsumer implements Consumer {
     @Override
     public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
             throws IOException {
-        AcknowledgementMode acknowledgementMode = injectHandler.onMessage(properties, body, inboundName);
+        if (workerPool == null) {
+            acknowledge(envelope, properties, body, injectHandler.onMessage(properties, body, inboundName));
+            return;
+        }
+        if (deliveryTracker != null) {
+            deliveryTracker.delivered(envelope.getDeliveryTag());
+        }
+        workerPool.execute(() -> {
+            boolean settled = false;
+            try {
+                acknowledge(envelope, properties, body, injectHandler.onMessage(properties, body, inboundName));
+                settled = true;
+            } catch (Exception e) {
+                log.error("Error occurred while processing the message with delivery tag: "
+                        + envelope.getDeliveryTag() + " on the queue: " + queueName, e);
+            } finally {
+                if (!settled && deliveryTracker != null) {
+                    // a delivery left pending would hold back the acknowledgements of all the later deliveries
+                    deliveryTracker.abandon(envelope.getDeliveryTag());
+                }
+            }
+        });
+    }
+
+    /**
+     * Acknowledge, requeue or reject the message according to the result of the mediation
+     *
+     * @param envelope            packaging data for the message
+     * @param properties          content header data for the message
+     * @param body                the message body
+     * @param acknowledgementMode the acknowledgement mode returned by the mediation
+     * @throws IOException
+     */
+    private void acknowledge(Envelope envelope, AMQP.BasicProperties properties, byte[] body,
+                             AcknowledgementMode acknowledgementMode) throws IOException {
         switch (acknowledgementMode) {
             case REQUEUE_TRUE:
+                if (requeueScheduler != null) {
+                    // delay the requeue without holding the worker
+                    requeueScheduler.schedule(() -> {
+                        try {
+                            reject(envelope.getDeliveryTag(), true);
+                        } catch (Exception e) {
+                            log.error("Error occurred while requeueing the message with delivery tag: "
+                                    + envelope.getDeliveryTag() + " on the queue: " + queueName, e);
+                            if (deliveryTracker != null) {
+                                deliveryTracker.abandon(envelope.getDeliveryTag());
+                            }
+                        }
+                    }, requeueDelay, TimeUnit.MILLISECONDS);
+                    break;
+                }
                 try {
                     Thread.sleep(requeueDelay);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
-                channel.basicReject(envelope.getDeliveryTag(), true);
+                reject(envelope.getDeliveryTag(), true);
                 break;
             case REQUEUE_FALSE:
                 List<HashMap<String, Object>> xDeathHeader =
@@ -227,7 +337,7 @@ public class RabbitMQConsumer implements Consumer {
                 if (xDeathHeader != null && xDeathHeader.size() > 0 && maxDeadLetteredCount != -1) {
                     Long count = (Long) xDeathHeader.get(0).get("count");
                     if (count <= maxDeadLetteredCount) {
-                        channel.basicReject(envelope.getDeliveryTag(), false);
+                        reject(envelope.getDeliveryTag(), false);
                         log.info("The rejected message with message id: " + properties.getMessageId() + " and " +
                                 "delivery tag: " + envelope.getDeliveryTag() + " on the queue: " +
                                 queueName + " is dead-lettered " + count + " time(s).");
@@ -237,7 +347,7 @@ public class RabbitMQConsumer implements Consumer {
                     }
                 } else {
                     // the message might be dead-lettered or discard if an error occurred in the mediation flow
-                    channel.basicReject(envelope.getDeliveryTag(), false);
+                    reject(envelope.getDeliveryTag(), false);
                     log.info("The rejected message with message id: " + properties.getMessageId() + " and " +
                             "delivery tag: " + envelope.getDeliveryTag() + " on the queue: " +
                             queueName + " will discard or dead-lettered.");
@@ -245,12 +355,28 @@ public class RabbitMQConsumer implements Consumer {
                 break;
             default:
                 if (!autoAck) {
-                    channel.basicAck(envelope.getDeliveryTag(), false);
+                    ack(envelope.getDeliveryTag());
                 }
                 break;
         }
     }
 
+    private void ack(long deliveryTag) throws IOException {
+        if (deliveryTracker != null) {
+            deliveryTracker.ack(deliveryTag);
+        } else {
+            channel.basicAck(deliveryTag, false);
+        }
+    }
+
+    private void reject(long deliveryTag, boolean requeue) throws IOException {
+        if (deliveryTracker != null) {
+            deliveryTracker.reject(deliveryTag, requeue);
+        } else {
+            channel.basicReject(deliveryTag, requeue);
+        }
+    }
+
     /**
      * The message will publish to the exchange with routing key or discard
      *
@@ -268,20 +394,20 @@ public class RabbitMQConsumer implements Consumer {
         if (StringUtils.isNotEmpty(routingKey) && StringUtils.isNotEmpty(exchangeName)) {
             // publish message to the given exchange with the routing key
             channel.basicPublish(exchangeName, routingKey, properties, body);
-            channel.basicAck(envelope.getDeliveryTag(), false);
+            ack(envelope.getDeliveryTag());
             log.info("The max dead lettered count exceeded. Hence message with message id: " +
                     properties.getMessageId() + " and delivery tag: " + envelope.getDeliveryTag() +
                     " publish to the exchange: " + exchangeName + " with the routing key: " + routingKey + ".");
         } else if (StringUtils.isNotEmpty(routingKey) && StringUtils.isEmpty(exchangeName)) {
             // publish message to the default exchange with the routing key
             channel.basicPublish("", routingKey, properties, body);
-            channel.basicAck(envelope.getDeliveryTag(), false);
+            ack(envelope.getDeliveryTag());
             log.info("The max dead lettered count exceeded. Hence message with message id: " +
                     properties.getMessageId() + " and delivery tag: " + envelope.getDeliveryTag() + " publish to the " +
                     "default exchange with the routing key: " + routingKey + ".");
         } else {
             // discard the message
-            channel.basicAck(envelope.getDeliveryTag(), false);
+            ack(envelope.getDeliveryTag());
             log.info("The max dead lettered count exceeded. " +
                     "No 'rabbitmq.message.error.queue.routing.key' specified for publishing the message. " +
                     "Hence the message with message id: " + properties.getMessageId() + " and delivery tag: " +
@@ -293,6 +419,12 @@ public class RabbitMQConsumer implements Consumer {
      * Return connection back to the pool when undeploying the listener proxy
      */
     public void close() {
+        if (workerPool != null) {
+            workerPool.shutdown();
+            requeueScheduler.shutdownNow();
+            workerPool = null;
+            requeueScheduler = null;
+        }
         if (connection != null) {
             try {
                 connection.abort();
@@ -315,4 +447,77 @@ public class RabbitMQConsumer implements Consumer {
     protected void requestShutdown() {
         close();
     }
+
+    /**
+     * Tracks the deliveries which are being mediated concurrently and acknowledges the completed ones with a single
+     * multiple acknowledgement once the completed delivery tags are contiguous. Rejections are sent right away.
+     */
+    private class DeliveryTracker {
+
+        private final TreeSet<Long> pendingTags = new TreeSet<>();
+        private final TreeSet<Long> completedTags = new TreeSet<>();
+        private final int batchSize;
+
+        DeliveryTracker(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        synchronized void delivered(long deliveryTag) {
+            pendingTags.add(deliveryTag);
+        }
+
+        synchronized void ack(long deliveryTag) throws IOException {
+            pendingTags.remove(deliveryTag);
+            completedTags.add(deliveryTag);
+            flush();
+        }
+
+        synchronized void reject(long deliveryTag, boolean requeue) throws IOException {
+            channel.basicReject(deliveryTag, requeue);
+            pendingTags.remove(deliveryTag);
+            flush();
+        }
+
+        /**
+         * Requeue a delivery whose processing failed before it was acknowledged or rejected, so that it no longer
+         * holds back the acknowledgement of the later deliveries
+         *
+         * @param deliveryTag the delivery tag of the failed delivery
+         */
+        synchronized void abandon(long deliveryTag) {
+            if (!pendingTags.remove(deliveryTag)) {
+                return;
+            }
+            try {
+                channel.basicReject(deliveryTag, true);
+            } catch (Exception e) {
+                log.error("Error occurred while requeueing the failed message with delivery tag: " + deliveryTag
+                        + " on the queue: " + queueName, e);
+            }
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("Error occurred while acknowledging the messages on the queue: " + queueName, e);
+            }
+        }
+
+        /**
+         * Acknowledge the completed tags below the lowest pending tag, once there are enough of them or nothing is
+         * pending anymore
+         */
+        private void flush() throws IOException {
+            if (completedTags.isEmpty()) {
+                return;
+            }
+            Long lastTag = pendingTags.isEmpty() ? completedTags.last() : completedTags.lower(pendingTags.first());
+            if (lastTag == null) {
+                return;
+            }
+            if (!pendingTags.isEmpty() && completedTags.headSet(lastTag, true).size() < batchSize) {
+                return;
+            }
+            channel.basicAck(lastTag, true);
+            completedTags.headSet(lastTag, true).clear();
+        }
+    }
 }
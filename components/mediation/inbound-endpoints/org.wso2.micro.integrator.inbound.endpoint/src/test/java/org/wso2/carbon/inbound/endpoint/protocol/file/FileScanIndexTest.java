@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.inbound.endpoint.protocol.file;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.VFS;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class FileScanIndexTest {
+
+    private Path directory;
+    private Path indexFile;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("file-scan-index");
+        indexFile = directory.resolve("index").resolve("test.index");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Test that the recorded entries are not scanned again after the index is reloaded, until the files change
+     */
+    @Test
+    public void testPersistAndReload() throws IOException {
+        FileObject first = createFile("a.txt", "first");
+        FileObject second = createFile("b = \u00e9.txt", "second");
+        FileScanIndex index = new FileScanIndex(indexFile);
+        Assert.assertTrue(index.isChanged("a.txt", first));
+        index.update("a.txt", first);
+        index.update("b = \u00e9.txt", second);
+        index.persist();
+
+        FileScanIndex reloaded = new FileScanIndex(indexFile);
+        Assert.assertFalse(reloaded.isChanged("a.txt", first));
+        Assert.assertFalse("An entry with special characters in its name is not restored",
+                           reloaded.isChanged("b = \u00e9.txt", second));
+
+        first = createFile("a.txt", "first and modified");
+        Assert.assertTrue("A modified file is not scanned again", reloaded.isChanged("a.txt", first));
+    }
+
+    /**
+     * Test that the dropped entries stay dropped after the index is reloaded
+     */
+    @Test
+    public void testRemoveAndReload() throws IOException {
+        FileObject first = createFile("a.txt", "first");
+        FileObject second = createFile("b.txt", "second");
+        FileScanIndex index = new FileScanIndex(indexFile);
+        index.update("a.txt", first);
+        index.update("b.txt", second);
+        index.persist();
+        index.retainAll(Collections.singleton("b.txt"));
+        index.persist();
+
+        FileScanIndex reloaded = new FileScanIndex(indexFile);
+        Assert.assertTrue(reloaded.isChanged("a.txt", first));
+        Assert.assertFalse(reloaded.isChanged("b.txt", second));
+    }
+
+    /**
+     * Test that persisting appends only the changes since the index was last persisted
+     */
+    @Test
+    public void testPersistAppendsChanges() throws IOException {
+        FileScanIndex index = new FileScanIndex(indexFile);
+        index.update("a.txt", createFile("a.txt", "first"));
+        index.update("b.txt", createFile("b.txt", "second"));
+        index.persist();
+        List<String> persisted = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        Assert.assertEquals(2, persisted.size());
+
+        index.persist();
+        Assert.assertEquals("An unchanged index is written again", 2, readLines().size());
+
+        index.update("c.txt", createFile("c.txt", "third"));
+        index.persist();
+        List<String> appended = readLines();
+        Assert.assertEquals(3, appended.size());
+        Assert.assertEquals(persisted, appended.subList(0, 2));
+    }
+
+    /**
+     * Test that the log of changes is compacted to the current entries once it has grown large
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        FileObject first = createFile("a.txt", "first");
+        FileObject second = createFile("b.txt", "second");
+        FileScanIndex index = new FileScanIndex(indexFile);
+        index.update("b.txt", second);
+        for (int i = 0; i < 2000; i++) {
+            if (i % 2 == 0) {
+                index.update("a.txt", first);
+            } else {
+                index.remove("a.txt");
+            }
+            index.persist();
+        }
+        Assert.assertTrue("The index is not compacted", readLines().size() <= 1000);
+
+        FileScanIndex reloaded = new FileScanIndex(indexFile);
+        Assert.assertTrue(reloaded.isChanged("a.txt", first));
+        Assert.assertFalse(reloaded.isChanged("b.txt", second));
+    }
+
+    /**
+     * Test that a line cut short while appending only causes the file to be scanned again
+     */
+    @Test
+    public void testTruncatedLine() throws IOException {
+        FileObject first = createFile("a.txt", "first");
+        FileScanIndex index = new FileScanIndex(indexFile);
+        index.update("a.txt", first);
+        index.persist();
+        Files.write(indexFile, "b%2".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FileScanIndex reloaded = new FileScanIndex(indexFile);
+        Assert.assertFalse(reloaded.isChanged("a.txt", first));
+    }
+
+    private List<String> readLines() throws IOException {
+        return Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+    }
+
+    private FileObject createFile(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return resolve(file);
+    }
+
+    private static FileObject resolve(Path file) throws FileSystemException {
+        FileObject fileObject = VFS.getManager().resolveFile(file.toUri().toString());
+        fileObject.refresh();
+        return fileObject;
+    }
+}
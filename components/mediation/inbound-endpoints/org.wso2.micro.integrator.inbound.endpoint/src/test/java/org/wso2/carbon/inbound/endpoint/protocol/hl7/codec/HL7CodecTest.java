@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.inbound.endpoint.protocol.hl7.codec;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPContext;
+import org.wso2.carbon.inbound.endpoint.protocol.hl7.core.MLLPConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+
+public class HL7CodecTest extends TestCase {
+
+    private static final String MESSAGE = "MSH|^~\\&|SENDER|SENDER_FAC|RECEIVER|RECEIVER_FAC|20240101120000||ADT^A01"
+            + "|MSG00001|P|2.4\rEVN|A01|20240101120000\rPID|1||12345||DOE^JOHN\r";
+
+    /**
+     * Test decoding a frame received in a single buffer
+     */
+    @Test
+    public void testDecodeSingleBuffer() throws Exception {
+        MLLPContext context = createContext();
+        ByteBuffer buffer = ByteBuffer.wrap(frame(MESSAGE.getBytes(MLLPConstants.UTF8_CHARSET)));
+
+        context.getCodec().decode(buffer, context);
+
+        Assert.assertTrue(context.getCodec().isReadComplete());
+        Assert.assertFalse(buffer.hasRemaining());
+        Assert.assertEquals(MESSAGE, context.getRequestMessage());
+        Assert.assertNotNull(context.getHl7Message());
+    }
+
+    /**
+     * Test decoding a frame whose content is split over several buffers
+     */
+    @Test
+    public void testDecodeSplitContent() throws Exception {
+        MLLPContext context = createContext();
+        byte[] frame = frame(MESSAGE.getBytes(MLLPConstants.UTF8_CHARSET));
+
+        decodeInChunks(context, frame, 7);
+
+        Assert.assertTrue(context.getCodec().isReadComplete());
+        Assert.assertEquals(MESSAGE, context.getRequestMessage());
+    }
+
+    /**
+     * Test decoding a frame whose trailer bytes arrive in two buffers
+     */
+    @Test
+    public void testDecodeSplitTrailer() throws Exception {
+        MLLPContext context = createContext();
+        byte[] frame = frame(MESSAGE.getBytes(MLLPConstants.UTF8_CHARSET));
+        ByteBuffer first = ByteBuffer.wrap(frame, 0, frame.length - 1).slice();
+        ByteBuffer second = ByteBuffer.wrap(frame, frame.length - 1, 1).slice();
+
+        context.getCodec().decode(first, context);
+        Assert.assertFalse("The frame completed without the last trailer byte", context.getCodec().isReadComplete());
+        Assert.assertFalse(first.hasRemaining());
+
+        context.getCodec().decode(second, context);
+        Assert.assertTrue(context.getCodec().isReadComplete());
+        Assert.assertFalse(second.hasRemaining());
+        Assert.assertEquals(MESSAGE, context.getRequestMessage());
+    }
+
+    /**
+     * Test that the buffer is left right after the trailer when it also holds the next frame
+     */
+    @Test
+    public void testDecodeConsecutiveFrames() throws Exception {
+        MLLPContext context = createContext();
+        String secondMessage = MESSAGE.replace("MSG00001", "MSG00002");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] firstFrame = frame(MESSAGE.getBytes(MLLPConstants.UTF8_CHARSET));
+        out.write(firstFrame);
+        out.write(frame(secondMessage.getBytes(MLLPConstants.UTF8_CHARSET)));
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+
+        context.getCodec().decode(buffer, context);
+        Assert.assertEquals(MESSAGE, context.getRequestMessage());
+        Assert.assertEquals(firstFrame.length, buffer.position());
+
+        context.getCodec().setState(HL7Codec.READ_HEADER);
+        context.getCodec().decode(buffer, context);
+        Assert.assertEquals(secondMessage, context.getRequestMessage());
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Test that a multi-byte character split over two buffers is decoded once the frame is complete
+     */
+    @Test
+    public void testDecodeSplitMultiByteCharacter() throws Exception {
+        MLLPContext context = createContext();
+        String message = MESSAGE.replace("DOE^JOHN", "D\u00D6E^JOHN");
+        byte[] frame = frame(message.getBytes(MLLPConstants.UTF8_CHARSET));
+        int split = indexOf(frame, (byte) 0xC3) + 1;
+        ByteBuffer first = ByteBuffer.wrap(frame, 0, split).slice();
+        ByteBuffer second = ByteBuffer.wrap(frame, split, frame.length - split).slice();
+
+        context.getCodec().decode(first, context);
+        context.getCodec().decode(second, context);
+
+        Assert.assertTrue(context.getCodec().isReadComplete());
+        Assert.assertEquals(message, context.getRequestMessage());
+    }
+
+    /**
+     * Test that malformed content is reported instead of being replaced
+     */
+    @Test
+    public void testDecodeMalformedInput() throws Exception {
+        MLLPContext context = createContext();
+        byte[] content = MESSAGE.getBytes(MLLPConstants.UTF8_CHARSET);
+        content[indexOf(content, (byte) 'J')] = (byte) 0xFF;
+
+        try {
+            context.getCodec().decode(ByteBuffer.wrap(frame(content)), context);
+            Assert.fail("Malformed content was decoded");
+        } catch (CharacterCodingException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that appending a range of a buffer leaves its position unchanged
+     */
+    @Test
+    public void testMessageBufferAppend() throws Exception {
+        HL7MessageBuffer messageBuffer = new HL7MessageBuffer();
+        ByteBuffer buffer = ByteBuffer.wrap("abcdef".getBytes(MLLPConstants.UTF8_CHARSET));
+        buffer.position(1);
+
+        messageBuffer.append(buffer, 2, 5);
+        messageBuffer.append((byte) 'x');
+
+        Assert.assertEquals(1, buffer.position());
+        Assert.assertEquals(4, messageBuffer.length());
+        Assert.assertEquals("cdex", messageBuffer.decode(MLLPConstants.UTF8_CHARSET.newDecoder()));
+
+        messageBuffer.clear();
+        Assert.assertEquals(0, messageBuffer.length());
+        Assert.assertEquals("", messageBuffer.decode(MLLPConstants.UTF8_CHARSET.newDecoder()));
+    }
+
+    private static MLLPContext createContext() {
+        return new MLLPContext(null, MLLPConstants.UTF8_CHARSET.newDecoder(), true, false, null, null);
+    }
+
+    private static void decodeInChunks(MLLPContext context, byte[] frame, int chunkSize) throws Exception {
+        for (int offset = 0; offset < frame.length; offset += chunkSize) {
+            ByteBuffer chunk = ByteBuffer.wrap(frame, offset, Math.min(chunkSize, frame.length - offset)).slice();
+            context.getCodec().decode(chunk, context);
+            Assert.assertFalse(chunk.hasRemaining());
+        }
+    }
+
+    private static byte[] frame(byte[] content) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(MLLPConstants.HL7_HEADER);
+        out.write(content);
+        out.write(MLLPConstants.HL7_TRAILER);
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] bytes, byte b) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
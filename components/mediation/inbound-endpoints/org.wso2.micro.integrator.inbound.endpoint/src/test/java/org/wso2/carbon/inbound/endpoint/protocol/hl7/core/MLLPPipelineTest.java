@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.inbound.endpoint.protocol.hl7.core;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.wso2.carbon.inbound.endpoint.protocol.hl7.context.MLLPPipeline;
+
+import java.util.concurrent.TimeUnit;
+
+public class MLLPPipelineTest extends TestCase {
+
+    /**
+     * Test that the responses are released in the order of the requests, whatever order they complete in
+     */
+    @Test
+    public void testCompletedInRequestOrder() {
+        MLLPPipeline pipeline = new MLLPPipeline(3);
+        MLLPPipeline.Request first = pipeline.add(null, "first");
+        MLLPPipeline.Request second = pipeline.add(null, "second");
+        MLLPPipeline.Request third = pipeline.add(null, "third");
+
+        Assert.assertTrue(pipeline.complete(third, null, false, false));
+        Assert.assertNull("A response was released before the earlier requests completed", pipeline.pollCompleted());
+        Assert.assertTrue(pipeline.complete(second, null, true, false));
+        Assert.assertNull("A response was released before the head of the pipeline completed",
+                          pipeline.pollCompleted());
+
+        Assert.assertTrue(pipeline.complete(first, null, false, true));
+        Assert.assertSame(first, pipeline.pollCompleted());
+        Assert.assertSame(second, pipeline.pollCompleted());
+        Assert.assertSame(third, pipeline.pollCompleted());
+        Assert.assertNull(pipeline.pollCompleted());
+        Assert.assertEquals(0, pipeline.size());
+
+        Assert.assertTrue(first.isApplicationAck());
+        Assert.assertTrue(second.isNack());
+        Assert.assertFalse(third.isNack());
+    }
+
+    /**
+     * Test that a request keeps its first response, e.g. when the response arrives after a timeout NACK
+     */
+    @Test
+    public void testCompleteOnlyOnce() {
+        MLLPPipeline pipeline = new MLLPPipeline(1);
+        MLLPPipeline.Request request = pipeline.add(null, "request");
+
+        Assert.assertTrue(pipeline.complete(request, null, true, false));
+        Assert.assertFalse("A completed request was completed again", pipeline.complete(request, null, false, true));
+        Assert.assertTrue(request.isNack());
+        Assert.assertFalse(request.isApplicationAck());
+    }
+
+    /**
+     * Test that the pipeline holds back requests at its maximum depth and frees the slot of a written response
+     */
+    @Test
+    public void testCapacity() {
+        MLLPPipeline pipeline = new MLLPPipeline(2);
+        MLLPPipeline.Request first = pipeline.add(null, "first");
+        Assert.assertTrue(pipeline.hasCapacity());
+        pipeline.add(null, "second");
+        Assert.assertFalse(pipeline.hasCapacity());
+
+        pipeline.complete(first, null, false, false);
+        Assert.assertFalse("A completed but unwritten response freed its slot", pipeline.hasCapacity());
+        pipeline.pollCompleted();
+        Assert.assertTrue(pipeline.hasCapacity());
+    }
+
+    /**
+     * Test finding a request by the message id used to correlate its response
+     */
+    @Test
+    public void testGetByMessageId() {
+        MLLPPipeline pipeline = new MLLPPipeline(2);
+        MLLPPipeline.Request first = pipeline.add(null, "first");
+        MLLPPipeline.Request second = pipeline.add(null, "second");
+        first.setMessageId("id-1");
+        second.setMessageId("id-2");
+
+        Assert.assertSame(second, pipeline.get("id-2"));
+        Assert.assertNull(pipeline.get("id-3"));
+    }
+
+    /**
+     * Test that closing the connection drops the requests in flight
+     */
+    @Test
+    public void testClear() {
+        MLLPPipeline pipeline = new MLLPPipeline(3);
+        MLLPPipeline.Request first = pipeline.add(null, "first");
+        pipeline.add(null, "second");
+        pipeline.complete(first, null, false, false);
+
+        Assert.assertEquals(2, pipeline.clear());
+        Assert.assertNull(pipeline.pollCompleted());
+        Assert.assertEquals(0, pipeline.size());
+    }
+
+    /**
+     * Test the queue depth and ACK latency metrics
+     */
+    @Test
+    public void testMetrics() {
+        MLLPPipelineMetrics metrics = new MLLPPipelineMetrics();
+        metrics.requestQueued();
+        metrics.requestQueued();
+        metrics.requestQueued();
+        Assert.assertEquals(3, metrics.getQueueDepth());
+        Assert.assertEquals(0.0, metrics.getAverageAckLatency());
+
+        metrics.ackSent(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.ackSent(TimeUnit.MILLISECONDS.toNanos(4));
+        Assert.assertEquals(1, metrics.getQueueDepth());
+        Assert.assertEquals(2, metrics.getAckCount());
+        Assert.assertEquals(3.0, metrics.getAverageAckLatency(), 0.001);
+        Assert.assertEquals(4.0, metrics.getMaxAckLatency(), 0.001);
+
+        metrics.requestsDropped(1);
+        metrics.requestQueued();
+        Assert.assertEquals(1, metrics.getQueueDepth());
+        Assert.assertEquals(3, metrics.getMaxQueueDepth());
+    }
+}
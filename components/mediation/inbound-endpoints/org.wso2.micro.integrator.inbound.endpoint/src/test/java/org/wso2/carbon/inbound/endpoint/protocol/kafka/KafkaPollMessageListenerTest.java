@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.inbound.endpoint.protocol.kafka;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class KafkaPollMessageListenerTest extends TestCase {
+
+    private static final String TOPIC = "orders";
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition(TOPIC, 0);
+
+    private static final TopicPartition PARTITION_1 = new TopicPartition(TOPIC, 1);
+
+    private static final long TIMEOUT = 10000;
+
+    private RecordingConsumer consumer;
+
+    private KafkaPollMessageListener listener;
+
+    @Override
+    protected void tearDown() {
+        if (listener != null) {
+            listener.destroy();
+        }
+    }
+
+    /**
+     * Test that the committed offset of a partition stops at its lowest record which is still being mediated,
+     * while the other partitions are mediated and committed in parallel
+     */
+    @Test
+    public void testCommitsUpToLowestPendingRecord() throws Exception {
+        //The keyless records of the two partitions go to different workers
+        BlockingInjectHandler injectHandler = new BlockingInjectHandler("0-1");
+        createListener(2, new Properties(), injectHandler);
+        addRecords(PARTITION_0, 0, 3);
+        addRecords(PARTITION_1, 0, 2);
+
+        Assert.assertTrue(listener.hasNext());
+        listener.injectMessageToESB("orderSequence");
+        awaitWhilePolling(() -> consumer.getCommittedOffset(PARTITION_1) == 2
+                && injectHandler.getInjected().contains("0-1"));
+        //The record before the blocked one is mediated once the blocked one is injected
+        Assert.assertFalse(listener.hasNext());
+        Assert.assertEquals(1, consumer.getCommittedOffset(PARTITION_0));
+
+        injectHandler.release(1);
+        awaitWhilePolling(() -> consumer.getCommittedOffset(PARTITION_0) == 3);
+        Assert.assertEquals(Arrays.asList("0-0", "0-1", "0-2"), injectHandler.getInjected(PARTITION_0));
+        Assert.assertEquals(Arrays.asList("1-0", "1-1"), injectHandler.getInjected(PARTITION_1));
+
+        long previous = -1;
+        for (Commit commit : consumer.getCommits()) {
+            Assert.assertFalse("Offsets must be committed asynchronously while polling", commit.sync);
+            Long offset = commit.offsets.get(PARTITION_0);
+            if (offset != null) {
+                Assert.assertTrue("Committed offsets must increase, but were " + consumer.getCommits(),
+                                  offset > previous);
+                previous = offset;
+            }
+        }
+    }
+
+    /**
+     * Test that the records which are pending in the workers are mediated and committed synchronously before the
+     * consumer is closed
+     */
+    @Test
+    public void testCommitsSynchronouslyOnDestroy() throws Exception {
+        BlockingInjectHandler injectHandler = new BlockingInjectHandler(null);
+        createListener(1, new Properties(), injectHandler);
+        addRecords(PARTITION_0, 0, 5);
+
+        Assert.assertTrue(listener.hasNext());
+        listener.injectMessageToESB("orderSequence");
+        listener.destroy();
+
+        Assert.assertEquals(5, injectHandler.getInjected().size());
+        Assert.assertTrue(consumer.closed());
+        List<Commit> commits = consumer.getCommits();
+        Commit lastCommit = commits.get(commits.size() - 1);
+        Assert.assertTrue(lastCommit.sync);
+        Assert.assertEquals(Long.valueOf(5), lastCommit.offsets.get(PARTITION_0));
+        Assert.assertFalse(listener.hasNext());
+    }
+
+    /**
+     * Test that the offsets of a failed asynchronous commit are committed again by the next poll
+     */
+    @Test
+    public void testRetriesFailedCommit() throws Exception {
+        BlockingInjectHandler injectHandler = new BlockingInjectHandler(null);
+        createListener(1, new Properties(), injectHandler);
+        addRecords(PARTITION_0, 0, 2);
+        consumer.commitFailure = new KafkaException("Commit failed");
+
+        Assert.assertTrue(listener.hasNext());
+        listener.injectMessageToESB("orderSequence");
+        awaitWhilePolling(() -> consumer.getFailedOffset(PARTITION_0) == 2);
+        Assert.assertEquals(-1, consumer.getCommittedOffset(PARTITION_0));
+
+        consumer.commitFailure = null;
+        Assert.assertFalse(listener.hasNext());
+        Assert.assertEquals(2, consumer.getCommittedOffset(PARTITION_0));
+    }
+
+    /**
+     * Test that a partition is paused once it has the maximum number of pending records, that its records are not
+     * polled while it is paused, and that it is resumed once it drains to half of the maximum
+     */
+    @Test
+    public void testPausesSaturatedPartitionUntilDrained() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(KAFKAConstants.MAX_PENDING_RECORDS, "4");
+        BlockingInjectHandler injectHandler = new BlockingInjectHandler("0-");
+        createListener(2, properties, injectHandler);
+        addRecords(PARTITION_0, 0, 6);
+        addRecords(PARTITION_1, 0, 2);
+
+        Assert.assertTrue(listener.hasNext());
+        listener.injectMessageToESB("orderSequence");
+        Assert.assertEquals(Collections.singleton(PARTITION_0), consumer.paused());
+
+        addRecords(PARTITION_0, 6, 1);
+        addRecords(PARTITION_1, 2, 1);
+        Assert.assertTrue(listener.hasNext());
+        listener.injectMessageToESB("orderSequence");
+        Assert.assertEquals(6, consumer.position(PARTITION_0));
+        Assert.assertEquals(3, consumer.position(PARTITION_1));
+
+        /* 3 pending records are still more than half of the maximum */
+        injectHandler.release(3);
+        injectHandler.awaitInjected("0-3");
+        Assert.assertFalse(listener.hasNext());
+        Assert.assertEquals(Collections.singleton(PARTITION_0), consumer.paused());
+
+        injectHandler.release(1);
+        injectHandler.awaitInjected("0-4");
+        Assert.assertTrue(listener.hasNext());
+        Assert.assertTrue(consumer.paused().isEmpty());
+        listener.injectMessageToESB("orderSequence");
+        Assert.assertEquals(7, consumer.position(PARTITION_0));
+
+        injectHandler.release(3);
+        awaitWhilePolling(() -> consumer.getCommittedOffset(PARTITION_0) == 7
+                && consumer.getCommittedOffset(PARTITION_1) == 3);
+        Assert.assertEquals(Arrays.asList("0-0", "0-1", "0-2", "0-3", "0-4", "0-5", "0-6"),
+                            injectHandler.getInjected(PARTITION_0));
+        Assert.assertEquals(Arrays.asList("1-0", "1-1", "1-2"), injectHandler.getInjected(PARTITION_1));
+    }
+
+    private void createListener(int threadCount, Properties properties, InjectHandler injectHandler)
+            throws Exception {
+        properties.setProperty(KAFKAConstants.POLL_TIMEOUT, "10");
+        consumer = new RecordingConsumer();
+        listener = new KafkaPollMessageListener(threadCount, Collections.singletonList(TOPIC), properties,
+                                                injectHandler) {
+            @Override
+            Consumer<byte[], byte[]> createConsumer(Properties consumerProperties) {
+                Assert.assertEquals("false", consumerProperties.getProperty("enable.auto.commit"));
+                return consumer;
+            }
+        };
+        Assert.assertTrue(listener.createKafkaConsumerConnector());
+        Assert.assertEquals(Collections.singleton(TOPIC), consumer.subscription());
+        consumer.rebalance(Arrays.asList(PARTITION_0, PARTITION_1));
+        Map<TopicPartition, Long> beginningOffsets = new HashMap<TopicPartition, Long>();
+        beginningOffsets.put(PARTITION_0, 0L);
+        beginningOffsets.put(PARTITION_1, 0L);
+        consumer.updateBeginningOffsets(beginningOffsets);
+    }
+
+    /**
+     * Add keyless records, whose values are the partition and the offset of the record
+     */
+    private void addRecords(TopicPartition partition, long offset, int count) {
+        for (long i = offset; i < offset + count; i++) {
+            byte[] value = (partition.partition() + "-" + i).getBytes(StandardCharsets.UTF_8);
+            consumer.addRecord(new ConsumerRecord<byte[], byte[]>(TOPIC, partition.partition(), i, null, value));
+        }
+    }
+
+    /**
+     * Keep polling, which commits the mediated records, until the condition holds
+     */
+    private void awaitWhilePolling(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            Assert.assertFalse("A record was polled while waiting", listener.hasNext());
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("Timed out waiting for the mediation, the commits were " + consumer.getCommits());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static class Commit {
+
+        private final boolean sync;
+        private final Map<TopicPartition, Long> offsets = new HashMap<TopicPartition, Long>();
+
+        Commit(boolean sync, Map<TopicPartition, OffsetAndMetadata> offsets) {
+            this.sync = sync;
+            for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+                this.offsets.put(entry.getKey(), entry.getValue().offset());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return (sync ? "sync " : "async ") + offsets;
+        }
+    }
+
+    /**
+     * Mock consumer which records the commits, and fails the asynchronous commits while a failure is set
+     */
+    private static class RecordingConsumer extends MockConsumer<byte[], byte[]> {
+
+        private final List<Commit> commits = new ArrayList<Commit>();
+        private final Map<TopicPartition, Long> committedOffsets = new HashMap<TopicPartition, Long>();
+        private final Map<TopicPartition, Long> failedOffsets = new HashMap<TopicPartition, Long>();
+        private volatile KafkaException commitFailure;
+        private boolean committingSync;
+
+        RecordingConsumer() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+            commits.add(new Commit(true, offsets));
+            committingSync = true;
+            try {
+                super.commitSync(offsets);
+            } finally {
+                committingSync = false;
+            }
+            record(committedOffsets, offsets);
+        }
+
+        @Override
+        public synchronized void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                             OffsetCommitCallback callback) {
+            if (committingSync) {
+                super.commitAsync(offsets, callback);
+                return;
+            }
+            if (commitFailure != null) {
+                record(failedOffsets, offsets);
+                callback.onComplete(offsets, commitFailure);
+                return;
+            }
+            commits.add(new Commit(false, offsets));
+            record(committedOffsets, offsets);
+            super.commitAsync(offsets, callback);
+        }
+
+        synchronized List<Commit> getCommits() {
+            return new ArrayList<Commit>(commits);
+        }
+
+        synchronized long getCommittedOffset(TopicPartition partition) {
+            Long offset = committedOffsets.get(partition);
+            return offset != null ? offset : -1;
+        }
+
+        synchronized long getFailedOffset(TopicPartition partition) {
+            Long offset = failedOffsets.get(partition);
+            return offset != null ? offset : -1;
+        }
+
+        private static void record(Map<TopicPartition, Long> recorded,
+                                   Map<TopicPartition, OffsetAndMetadata> offsets) {
+            for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+                recorded.put(entry.getKey(), entry.getValue().offset());
+            }
+        }
+    }
+
+    /**
+     * Inject handler which records the injected values, and blocks the values starting with a given prefix until
+     * they are released
+     */
+    private static class BlockingInjectHandler implements InjectHandler {
+
+        private final List<String> injected = new ArrayList<String>();
+        private final Semaphore permits = new Semaphore(0);
+        private final String blockedPrefix;
+
+        BlockingInjectHandler(String blockedPrefix) {
+            this.blockedPrefix = blockedPrefix;
+        }
+
+        @Override
+        public boolean invoke(Object object, String name) {
+            String value = new String((byte[]) object, StandardCharsets.UTF_8);
+            synchronized (this) {
+                injected.add(value);
+                notifyAll();
+            }
+            if (blockedPrefix != null && value.startsWith(blockedPrefix)) {
+                try {
+                    if (!permits.tryAcquire(TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        throw new IllegalStateException("The record " + value + " was not released");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void release(int count) {
+            permits.release(count);
+        }
+
+        synchronized List<String> getInjected() {
+            return new ArrayList<String>(injected);
+        }
+
+        synchronized List<String> getInjected(TopicPartition partition) {
+            List<String> values = new ArrayList<String>();
+            for (String value : injected) {
+                if (value.startsWith(partition.partition() + "-")) {
+                    values.add(value);
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Wait until the value is injected, when the records before it in its worker are mediated
+         */
+        synchronized void awaitInjected(String value) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (!injected.contains(value)) {
+                long remaining = deadline - System.currentTimeMillis();
+                Assert.assertTrue("Timed out waiting for " + value + ", injected " + injected, remaining > 0);
+                wait(remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.inbound.endpoint.protocol.rabbitmq;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the acknowledgements of the concurrent consumer against a mocked channel
+ */
+public class RabbitMQConsumerTest extends TestCase {
+
+    private static final long TIMEOUT = 10000;
+
+    private Channel channel;
+
+    private RabbitMQInjectHandler injectHandler;
+
+    private RabbitMQConsumer consumer;
+
+    @Override
+    protected void setUp() {
+        channel = mock(Channel.class);
+        injectHandler = mock(RabbitMQInjectHandler.class);
+    }
+
+    @Override
+    protected void tearDown() {
+        if (consumer != null) {
+            consumer.close();
+        }
+    }
+
+    /**
+     * Test that the completed deliveries are acknowledged with a single multiple acknowledgement, which is held back
+     * until the lower deliveries still being mediated are completed
+     */
+    @Test
+    public void testAcknowledgementsHeldBelowLowestPendingDelivery() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(injectHandler.onMessage(any(AMQP.BasicProperties.class), any(byte[].class), any()))
+                .thenAnswer(new MediationAnswer("1", release, AcknowledgementMode.ACKNOWLEDGE));
+        createConsumer(4, 0);
+
+        deliver(1);
+        deliver(2);
+        deliver(3);
+        verify(injectHandler, timeout(TIMEOUT).times(3)).onMessage(any(AMQP.BasicProperties.class),
+                any(byte[].class), any());
+        verify(channel, after(500).never()).basicAck(anyLong(), anyBoolean());
+
+        release.countDown();
+        verify(channel, timeout(TIMEOUT)).basicAck(3L, true);
+        verify(channel, never()).basicAck(1L, true);
+        verify(channel, never()).basicAck(2L, true);
+        verify(channel, never()).basicAck(anyLong(), eq(false));
+    }
+
+    /**
+     * Test that a delivery whose mediation fails is requeued, so that it does not hold back the acknowledgement of
+     * the later deliveries
+     */
+    @Test
+    public void testFailedDeliveryAbandoned() throws Exception {
+        when(injectHandler.onMessage(any(AMQP.BasicProperties.class), any(byte[].class), any()))
+                .thenAnswer(invocation -> {
+                    if ("1".equals(getBody(invocation))) {
+                        throw new IllegalStateException("Mediation failed");
+                    }
+                    return AcknowledgementMode.ACKNOWLEDGE;
+                });
+        createConsumer(4, 0);
+
+        deliver(1);
+        deliver(2);
+        verify(channel, timeout(TIMEOUT)).basicReject(1L, true);
+        verify(channel, timeout(TIMEOUT)).basicAck(2L, true);
+    }
+
+    /**
+     * Test that a delayed requeue is scheduled without holding the worker, which mediates the next delivery meanwhile
+     */
+    @Test
+    public void testDelayedRequeueDoesNotBlockWorker() throws Exception {
+        when(injectHandler.onMessage(any(AMQP.BasicProperties.class), any(byte[].class), any()))
+                .thenAnswer(new MediationAnswer("1", null, AcknowledgementMode.REQUEUE_TRUE));
+        // a single worker, which would be blocked for a minute by a requeue delay on the worker thread
+        createConsumer(1, TimeUnit.MINUTES.toMillis(1));
+
+        deliver(1);
+        deliver(2);
+        verify(injectHandler, timeout(TIMEOUT).times(2)).onMessage(any(AMQP.BasicProperties.class),
+                any(byte[].class), any());
+        verify(channel, never()).basicReject(anyLong(), anyBoolean());
+        // the acknowledgement of the second delivery waits for the requeue of the first one
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    /**
+     * Test that a requeue is sent once its delay has elapsed, after which the later deliveries are acknowledged
+     */
+    @Test
+    public void testDelayedRequeue() throws Exception {
+        when(injectHandler.onMessage(any(AMQP.BasicProperties.class), any(byte[].class), any()))
+                .thenAnswer(new MediationAnswer("1", null, AcknowledgementMode.REQUEUE_TRUE));
+        createConsumer(2, 100);
+
+        deliver(1);
+        deliver(2);
+        verify(channel, timeout(TIMEOUT)).basicReject(1L, true);
+        verify(channel, timeout(TIMEOUT)).basicAck(2L, true);
+    }
+
+    /**
+     * Test that the prefetch count of the concurrent consumer falls back to the default number of workers when the
+     * qos is not set, while the sequential consumer keeps an unlimited prefetch
+     */
+    @Test
+    public void testQosFallback() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(RabbitMQConstants.CONSUMER_CONCURRENT, "true");
+        properties.setProperty(RabbitMQConstants.QUEUE_AUTO_ACK, "false");
+        consumer = new RabbitMQConsumer(null, properties, injectHandler);
+        consumer.consume(channel);
+        verify(channel).basicQos(10);
+        consumer.close();
+
+        Channel sequentialChannel = mock(Channel.class);
+        consumer = new RabbitMQConsumer(null, new Properties(), injectHandler);
+        consumer.consume(sequentialChannel);
+        verify(sequentialChannel).basicQos(RabbitMQConstants.DEFAULT_CONSUMER_QOS);
+        verify(sequentialChannel, times(1)).basicConsume(any(), anyBoolean(), any(RabbitMQConsumer.class));
+    }
+
+    private void createConsumer(int qos, long requeueDelay) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(RabbitMQConstants.QUEUE_NAME, "orders");
+        properties.setProperty(RabbitMQConstants.CONSUMER_CONCURRENT, "true");
+        properties.setProperty(RabbitMQConstants.CONSUMER_QOS, String.valueOf(qos));
+        properties.setProperty(RabbitMQConstants.QUEUE_AUTO_ACK, "false");
+        properties.setProperty(RabbitMQConstants.MESSAGE_REQUEUE_DELAY, String.valueOf(requeueDelay));
+        consumer = new RabbitMQConsumer(null, properties, injectHandler);
+        consumer.setInboundName("RabbitMQConsumerTest");
+        consumer.consume(channel);
+        verify(channel).basicQos(qos);
+    }
+
+    private void deliver(long deliveryTag) throws Exception {
+        consumer.handleDelivery("consumer", new Envelope(deliveryTag, false, "", "orders"),
+                new AMQP.BasicProperties(), String.valueOf(deliveryTag).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String getBody(InvocationOnMock invocation) {
+        return new String((byte[]) invocation.getArgument(1), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Mediates the delivery with the given body after the latch is released, if any, with the given acknowledgement
+     * mode, and acknowledges the other deliveries right away
+     */
+    private static class MediationAnswer implements Answer<AcknowledgementMode> {
+
+        private final String body;
+
+        private final CountDownLatch latch;
+
+        private final AcknowledgementMode acknowledgementMode;
+
+        MediationAnswer(String body, CountDownLatch latch, AcknowledgementMode acknowledgementMode) {
+            this.body = body;
+            this.latch = latch;
+            this.acknowledgementMode = acknowledgementMode;
+        }
+
+        @Override
+        public AcknowledgementMode answer(InvocationOnMock invocation) throws Throwable {
+            if (!body.equals(getBody(invocation))) {
+                return AcknowledgementMode.ACKNOWLEDGE;
+            }
+            if (latch != null && !latch.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("The delivery was not released");
+            }
+            return acknowledgementMode;
+        }
+    }
+}
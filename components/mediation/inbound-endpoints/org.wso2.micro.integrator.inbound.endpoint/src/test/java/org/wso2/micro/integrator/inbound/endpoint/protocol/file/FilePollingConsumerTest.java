@@ -500,6 +500,42 @@ public class FilePollingConsumerTest {
         Assert.assertTrue("File exceeding size limit is processed.", (Files.exists(Paths.get(inPath + "/large.txt"))));
     }
 
+    /**
+     * transport.vfs.FileURI = <in_location>
+     * transport.vfs.IncrementalScan = true
+     * transport.vfs.IncrementalScanBatchSize = 1
+     *
+     * @throws IOException if an error occurs while creating the required directory structure
+     */
+    @Test
+    public void testIncrementalPollingFilesInBatches() throws IOException {
+
+        String inPath = getInFilePath("testIncrementalScan");
+        createFilesInPath(inPath);
+        File nonMatchingFile = new File(inPath + File.separator + "c.xml");
+        assert nonMatchingFile.createNewFile();
+        String indexPath = getBaseFilePath("testIncrementalScan") + "/index/";
+        clearPath(indexPath);
+
+        Properties vfsProperties = getVfsProperties(inPath, ".*.txt", null, null);
+        vfsProperties.put("transport.vfs.IncrementalScan", "true");
+        vfsProperties.put("transport.vfs.IncrementalScanBatchSize", "1");
+        vfsProperties.put("transport.vfs.IncrementalScanIndexDirectory", indexPath);
+        FilePollingConsumer pollingConsumer = new FilePollingConsumer(vfsProperties, null, null, 10);
+        TestFileInjectHandler fileInjectHandler = new TestFileInjectHandler(null, null, false, null, null);
+        pollingConsumer.registerHandler(fileInjectHandler);
+
+        pollingConsumer.poll();
+        Assert.assertTrue("More files than the batch size are processed.",
+                          fileInjectHandler.getFileNames().size() <= 1);
+        pollingConsumer.poll();
+        pollingConsumer.poll();
+        Assert.assertEquals(2, fileInjectHandler.getFileNames().size());
+        Assert.assertTrue("Non matching file is removed.", (Files.exists(Paths.get(inPath + "/c.xml"))));
+        Assert.assertEquals("File scan index is not persisted.", 1, Objects.requireNonNull(
+                new File(indexPath).list((dir, fileName) -> fileName.endsWith(".index"))).length);
+    }
+
     private TestFileInjectHandler poll(String inPath, String fileNamePattern, String moveAfterProcess,
                                        String moveAfterFailure, Properties additionalProperties, boolean mockFailure) {
         Properties vfsProperties = getVfsProperties(inPath, fileNamePattern, moveAfterProcess, moveAfterFailure);
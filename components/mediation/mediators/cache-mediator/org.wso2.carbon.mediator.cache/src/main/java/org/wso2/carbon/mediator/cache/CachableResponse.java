@@ -18,9 +18,12 @@
 package org.wso2.carbon.mediator.cache;
 
 import org.apache.axiom.soap.SOAPEnvelope;
+import org.wso2.carbon.mediator.cache.store.OffHeapPayload;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -43,6 +46,17 @@ public class CachableResponse implements Serializable {
      */
     private SOAPEnvelope responseEnvelope = null;
 
+    /**
+     * The serialized size of the response envelope in bytes, if the envelope has been serialized
+     */
+    private long responseEnvelopeSize = 0;
+
+    /**
+     * The response body (json payload or serialized envelope) when it is stored off-heap instead of in the
+     * responsePayload or the responseEnvelope. This is local to the node, hence not serialized.
+     */
+    private transient volatile OffHeapPayload offHeapPayload = null;
+
     /**
      * This holds the hash value of the request payload which is calculated form the specified DigestGenerator, and is
      * used to index the cached response
@@ -115,14 +129,141 @@ public class CachableResponse implements Serializable {
      */
     private boolean addAgeHeaderEnabled;
 
+    /**
+     * The time at which the response was stored by the collector, from which its freshness is calculated.
+     */
+    private long storedTime;
+
+    /**
+     * The period in seconds after the timeout, for which the response is served when the backend fails.
+     */
+    private long errorGracePeriod = CachingConstants.DEFAULT_GRACE_PERIOD;
+
+    /**
+     * The token of the request which is fetching this response from the backend, or null if none is fetched.
+     */
+    private transient Object pendingFetch;
+
+    /**
+     * The time at which the pending fetch was started.
+     */
+    private transient long fetchStartedTime;
+
+    /**
+     * Creates a new response with the configuration of this response but without its content. The collector stores
+     * the fetched response in such a copy, so that requests still served with this response never see it half
+     * updated.
+     *
+     * @return a new response with the same configuration
+     */
+    public CachableResponse copyConfiguration() {
+        CachableResponse response = new CachableResponse();
+        response.requestHash = requestHash;
+        response.timeout = timeout;
+        response.maxMessageSize = maxMessageSize;
+        response.protocolType = protocolType;
+        response.httpMethod = httpMethod;
+        response.hTTPMethodsToCache = hTTPMethodsToCache;
+        response.responseCodePattern = responseCodePattern;
+        response.cacheControlEnabled = cacheControlEnabled;
+        response.addAgeHeaderEnabled = addAgeHeaderEnabled;
+        response.errorGracePeriod = errorGracePeriod;
+        return response;
+    }
+
     /**
      * Sets the responsePayload and the headerProperties to null
      */
     public void clean() {
         responsePayload = null;
+        responseEnvelopeSize = 0;
+        setOffHeapPayload(null);
         headerProperties = null;
     }
 
+    /**
+     * This method gives the approximate size of the cached response, which is the size of the payload together with
+     * the UTF-8 encoded size of the HTTP Header Properties. The size of an xml response is only known if its envelope has been
+     * serialized when caching it.
+     *
+     * @return approximate size of the cached response in bytes
+     */
+    public long getSize() {
+        long size = responsePayload != null ? responsePayload.length : responseEnvelopeSize;
+        Map<String, Object> headers = headerProperties;
+        if (headers != null) {
+            // The header properties are a synchronized map, which has to be locked while iterating
+            synchronized (headers) {
+                for (Map.Entry<String, Object> header : headers.entrySet()) {
+                    size += header.getKey().getBytes(StandardCharsets.UTF_8).length;
+                    if (header.getValue() != null) {
+                        size += header.getValue().toString().getBytes(StandardCharsets.UTF_8).length;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Checks whether a response has been stored, which is the case if a payload, an envelope or a live off-heap body
+     * is held.
+     *
+     * @return true if a response has been stored
+     */
+    public boolean hasResponse() {
+        OffHeapPayload payload = offHeapPayload;
+        return responsePayload != null || responseEnvelope != null || (payload != null && !payload.isReleased());
+    }
+
+    /**
+     * Checks whether the stored response has outlived the timeout.
+     *
+     * @return true if the response is older than the timeout
+     */
+    public boolean isStale() {
+        return System.currentTimeMillis() - storedTime >= TimeUnit.SECONDS.toMillis(timeout);
+    }
+
+    /**
+     * Checks whether the stored response is still within the given grace period after the timeout.
+     *
+     * @param gracePeriod the grace period in seconds
+     * @return true if the response is younger than the timeout together with the grace period
+     */
+    public boolean isWithinGracePeriod(long gracePeriod) {
+        return System.currentTimeMillis() - storedTime < TimeUnit.SECONDS.toMillis(timeout + gracePeriod);
+    }
+
+    /**
+     * Marks that a request is fetching this response from the backend, unless another request is already doing so. A
+     * fetch which has been pending for longer than the given timeout is assumed to have failed and is taken over.
+     *
+     * @param pendingFetchTimeout the time in milliseconds after which a pending fetch is taken over
+     * @return the token with which the caller completes the fetch, or null if another request is fetching it
+     */
+    public synchronized Object startFetch(long pendingFetchTimeout) {
+        long now = System.currentTimeMillis();
+        if (pendingFetch != null && now - fetchStartedTime < pendingFetchTimeout) {
+            return null;
+        }
+        pendingFetch = new Object();
+        fetchStartedTime = now;
+        return pendingFetch;
+    }
+
+    /**
+     * Marks that the pending fetch has completed, if it is still owned by the given token. A fetch which has been
+     * taken over is only completed by the request which took it over.
+     *
+     * @param token the token returned when the fetch was started
+     */
+    public synchronized void completeFetch(Object token) {
+        if (pendingFetch == token) {
+            pendingFetch = null;
+        }
+    }
+
     /**
      * This method gives the cached response payload for json as a byte array
      *
@@ -155,6 +296,40 @@ public class CachableResponse implements Serializable {
         this.responseEnvelope = responseEnvelope;
     }
 
+    /**
+     * @return the response body stored off-heap, or null if the body is kept on the heap
+     */
+    public OffHeapPayload getOffHeapPayload() {
+        return offHeapPayload;
+    }
+
+    /**
+     * Sets the response body stored off-heap, releasing the body previously stored for this response.
+     *
+     * @param offHeapPayload the response body stored off-heap, or null if the body is kept on the heap
+     */
+    public void setOffHeapPayload(OffHeapPayload offHeapPayload) {
+        OffHeapPayload previous = this.offHeapPayload;
+        this.offHeapPayload = offHeapPayload;
+        if (previous != null && previous != offHeapPayload) {
+            previous.release();
+        }
+    }
+
+    /**
+     * @return serialized size of the response envelope in bytes, or 0 if it is not known
+     */
+    public long getResponseEnvelopeSize() {
+        return responseEnvelopeSize;
+    }
+
+    /**
+     * @param responseEnvelopeSize serialized size of the response envelope in bytes
+     */
+    public void setResponseEnvelopeSize(long responseEnvelopeSize) {
+        this.responseEnvelopeSize = responseEnvelopeSize;
+    }
+
     /**
      * This method gives the hash value of the request payload stored in the cache
      *
@@ -393,4 +568,40 @@ public class CachableResponse implements Serializable {
         this.addAgeHeaderEnabled = addAgeHeaderEnabled;
     }
 
+    /**
+     * This method returns the time at which the response was stored.
+     *
+     * @return the time at which the response was stored.
+     */
+    public long getStoredTime() {
+        return storedTime;
+    }
+
+    /**
+     * This method sets the time at which the response was stored.
+     *
+     * @param storedTime the time at which the response was stored.
+     */
+    public void setStoredTime(long storedTime) {
+        this.storedTime = storedTime;
+    }
+
+    /**
+     * This method returns the period in seconds after the timeout, for which the response is served on backend errors.
+     *
+     * @return the error grace period in seconds.
+     */
+    public long getErrorGracePeriod() {
+        return errorGracePeriod;
+    }
+
+    /**
+     * This method sets the period in seconds after the timeout, for which the response is served on backend errors.
+     *
+     * @param errorGracePeriod the error grace period in seconds.
+     */
+    public void setErrorGracePeriod(long errorGracePeriod) {
+        this.errorGracePeriod = errorGracePeriod;
+    }
+
 }
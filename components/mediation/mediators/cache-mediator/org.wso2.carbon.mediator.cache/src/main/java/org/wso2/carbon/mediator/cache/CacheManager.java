@@ -18,8 +18,11 @@
 package org.wso2.carbon.mediator.cache;
 
 import com.google.common.cache.LoadingCache;
+import org.wso2.carbon.mediator.cache.store.OffHeapStore;
 
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -33,6 +36,17 @@ public class CacheManager {
      */
     private Map<String, LoadingCache<String, CachableResponse>> cacheMap = new ConcurrentHashMap<>();
 
+    /**
+     * Maps the id with the off-heap store of the response bodies, if the mediator has one
+     */
+    private Map<String, OffHeapStore> offHeapStoreMap = new ConcurrentHashMap<>();
+
+    /**
+     * Maps the id of the mediator and the request hash with the backend call which is fetching the response, so that
+     * only a single request per request hash goes to the backend
+     */
+    private Map<String, CompletableFuture<Void>> pendingFetchMap = new ConcurrentHashMap<>();
+
     /**
      * @param id the id of the mediator
      * @return the relevant cache of the mediator
@@ -52,12 +66,87 @@ public class CacheManager {
     }
 
     /**
-     * removes the LoadingCache associated with the id in the CacheManager
+     * @param id the id of the mediator
+     * @return the off-heap store of the response bodies of the mediator, or null if it has none
+     */
+    OffHeapStore getOffHeapStore(String id) {
+        return offHeapStoreMap.get(id);
+    }
+
+    /**
+     * Insert id and the off-heap store of the response bodies to the CacheManager
+     *
+     * @param id    the id of the cache mediator
+     * @param store the off-heap store related to the id
+     */
+    void putOffHeapStore(String id, OffHeapStore store) {
+        offHeapStoreMap.put(id, store);
+    }
+
+    /**
+     * Registers the given fetch as the backend call for the request hash, unless another request is already fetching
+     * the response.
+     *
+     * @param id          the id of the cache mediator
+     * @param requestHash the request hash of the response
+     * @param fetch       the fetch to be completed once the response reaches the collector
+     * @return the fetch of the request which is already fetching the response, or null if the given fetch is
+     * registered
+     */
+    CompletableFuture<Void> startFetch(String id, String requestHash, CompletableFuture<Void> fetch) {
+        return pendingFetchMap.putIfAbsent(getFetchKey(id, requestHash), fetch);
+    }
+
+    /**
+     * Completes the given fetch, releasing the requests waiting on it, and lets the next request which misses the
+     * cache fetch the response again.
+     *
+     * @param id          the id of the cache mediator
+     * @param requestHash the request hash of the response
+     * @param fetch       the fetch returned when it was registered
+     */
+    void completeFetch(String id, String requestHash, CompletableFuture<Void> fetch) {
+        pendingFetchMap.remove(getFetchKey(id, requestHash), fetch);
+        fetch.complete(null);
+    }
+
+    /**
+     * Removes a fetch which has not completed in time, as its response may never reach the collector. The requests
+     * waiting on it are left to time out by themselves.
+     *
+     * @param id          the id of the cache mediator
+     * @param requestHash the request hash of the response
+     * @param fetch       the fetch which has been waited on
+     */
+    void abandonFetch(String id, String requestHash, CompletableFuture<Void> fetch) {
+        pendingFetchMap.remove(getFetchKey(id, requestHash), fetch);
+    }
+
+    private String getFetchKey(String id, String requestHash) {
+        return id + ":" + requestHash;
+    }
+
+    /**
+     * removes the LoadingCache, the off-heap store and the pending fetches associated with the id in the
+     * CacheManager
      *
      * @param id the id of the cache mediator
      */
     void remove(String id) {
         cacheMap.remove(id);
+        OffHeapStore store = offHeapStoreMap.remove(id);
+        if (store != null) {
+            store.close();
+        }
+        String keyPrefix = getFetchKey(id, "");
+        for (Iterator<Map.Entry<String, CompletableFuture<Void>>> iterator = pendingFetchMap.entrySet().iterator();
+             iterator.hasNext(); ) {
+            Map.Entry<String, CompletableFuture<Void>> entry = iterator.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                iterator.remove();
+                entry.getValue().complete(null);
+            }
+        }
     }
 
     /**
@@ -65,6 +154,14 @@ public class CacheManager {
      */
     void clean() {
         cacheMap.clear();
+        for (OffHeapStore store : offHeapStoreMap.values()) {
+            store.close();
+        }
+        offHeapStoreMap.clear();
+        for (CompletableFuture<Void> fetch : pendingFetchMap.values()) {
+            fetch.complete(null);
+        }
+        pendingFetchMap.clear();
     }
 
 }
@@ -20,11 +20,18 @@ package org.wso2.carbon.mediator.cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMXMLBuilderFactory;
 import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.Constants;
 import org.apache.axis2.context.ConfigurationContext;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
@@ -44,9 +51,14 @@ import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.util.FixedByteArrayOutputStream;
 import org.apache.synapse.util.MessageHelper;
 import org.wso2.carbon.mediator.cache.digest.DigestGenerator;
+import org.wso2.carbon.mediator.cache.store.OffHeapPayload;
+import org.wso2.carbon.mediator.cache.store.OffHeapStore;
 import org.wso2.carbon.mediator.cache.util.HttpCachingFilter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.Collections;
 import java.util.Comparator;
@@ -55,8 +67,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.management.InstanceAlreadyExistsException;
@@ -130,6 +144,43 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
      */
     private int inMemoryCacheSize = CachingConstants.DEFAULT_SIZE;
 
+    /**
+     * The maximum total size of the messages cached in memory in bytes. If this is -1 then the total size is not
+     * bounded.
+     */
+    private long maxMemorySize = CachingConstants.DEFAULT_SIZE;
+
+    /**
+     * The size of the off-heap store of the cached message bodies in bytes. If this is -1 then the bodies are kept on
+     * the heap.
+     */
+    private long offHeapSize = CachingConstants.DEFAULT_SIZE;
+
+    /**
+     * The period in seconds after the timeout, for which an expired response is served while a single request
+     * refreshes it from the backend.
+     */
+    private long staleGracePeriod = CachingConstants.DEFAULT_GRACE_PERIOD;
+
+    /**
+     * The period in seconds after the timeout, for which an expired response is served when the backend responds with
+     * an error.
+     */
+    private long errorGracePeriod = CachingConstants.DEFAULT_GRACE_PERIOD;
+
+    /**
+     * The time in seconds after which a request revalidating a stale response is assumed to have failed, so that
+     * another request revalidates it.
+     */
+    private long revalidationTimeout = CachingConstants.DEFAULT_REVALIDATION_TIMEOUT;
+
+    /**
+     * The time in seconds for which the requests missing the cache wait for a request which is already fetching the
+     * same response from the backend. The waiting requests hold their threads, hence this is 0 by default, which
+     * sends every request missing the cache to the backend.
+     */
+    private long coalescingTimeout = CachingConstants.DEFAULT_COALESCING_TIMEOUT;
+
     /**
      * The compiled pattern for the regex of the responseCodes.
      */
@@ -224,6 +275,7 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
     /**
      * {@inheritDoc}
      */
+    @SuppressWarnings("unchecked")
     public boolean mediate(MessageContext synCtx) {
         if (synCtx.getEnvironment().isDebuggerEnabled()) {
             if (super.divertMediationRoute(synCtx)) {
@@ -248,7 +300,23 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
         boolean result = true;
         try {
             if (synCtx.isResponse()) {
-                processResponseMessage(synCtx, cfgCtx, synLog);
+                try {
+                    processResponseMessage(synCtx, cfgCtx, synLog);
+                } finally {
+                    // Lets the next request revalidate, if this response was fetched to revalidate a stale response
+                    CachableResponse response = (CachableResponse) synCtx.getProperty(CachingConstants.CACHED_OBJECT);
+                    Object revalidationToken = synCtx.getProperty(CachingConstants.REVALIDATION_TOKEN);
+                    if (response != null && revalidationToken != null) {
+                        response.completeFetch(revalidationToken);
+                    }
+                    // Releases the requests waiting for this response, whether it has been cached or not
+                    CompletableFuture<Void> pendingFetch =
+                            (CompletableFuture<Void>) synCtx.getProperty(CachingConstants.PENDING_FETCH);
+                    if (pendingFetch != null) {
+                        cacheManager.completeFetch((String) synCtx.getProperty(CachingConstants.CACHE_ID),
+                                (String) synCtx.getProperty(CachingConstants.REQUEST_HASH), pendingFetch);
+                    }
+                }
             } else {
                 result = processRequestMessage(synCtx, synLog);
             }
@@ -300,16 +368,57 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
         }
         CachableResponse cachedResponse = getMediatorCache().get(requestHash);
         synCtx.setProperty(CachingConstants.CACHED_OBJECT, cachedResponse);
+        // The collector stores the fetched response in this cache, where it may also be weighed or have its body in
+        // the off-heap store of this cache
+        synCtx.setProperty(CachingConstants.CACHE_ID, id);
+        if (maxMemorySize > -1) {
+            synCtx.setProperty(CachingConstants.CACHE_WEIGHED, Boolean.TRUE);
+        }
         //This is used to store the http method of the request.
         String httpMethod = (String) msgCtx.getProperty(Constants.Configuration.HTTP_METHOD);
-        cachedResponse.setHttpMethod(httpMethod);
-        cachedResponse.setProtocolType(protocolType);
-        cachedResponse.setResponseCodePattern(responseCodePattern);
-        cachedResponse.setHTTPMethodsToCache(hTTPMethodsToCache);
-        cachedResponse.setMaxMessageSize(maxMessageSize);
-        cachedResponse.setCacheControlEnabled(cacheControlEnabled);
-        cachedResponse.setAddAgeHeaderEnabled(addAgeHeaderEnabled);
-        if (cachedResponse.getResponsePayload() != null || cachedResponse.getResponseEnvelope() != null) {
+        configureCachedResponse(cachedResponse, httpMethod);
+        boolean hit = cachedResponse.hasResponse();
+        if (hit && (staleGracePeriod > 0 || errorGracePeriod > 0) && cachedResponse.isStale()) {
+            if (staleGracePeriod > 0 && cachedResponse.isWithinGracePeriod(staleGracePeriod)) {
+                // Only a single request revalidates the stale response, while the others are served with it
+                Object revalidationToken =
+                        cachedResponse.startFetch(TimeUnit.SECONDS.toMillis(revalidationTimeout));
+                if (revalidationToken != null) {
+                    synCtx.setProperty(CachingConstants.REVALIDATION_TOKEN, revalidationToken);
+                    hit = false;
+                }
+            } else {
+                hit = false;
+            }
+        }
+        if (!hit && coalescingTimeout > 0 && synCtx.getProperty(CachingConstants.REVALIDATION_TOKEN) == null) {
+            // Only a single request per request hash goes to the backend, while the others wait for its response
+            CompletableFuture<Void> fetch = new CompletableFuture<>();
+            CompletableFuture<Void> pendingFetch = cacheManager.startFetch(id, requestHash, fetch);
+            if (pendingFetch == null) {
+                synCtx.setProperty(CachingConstants.PENDING_FETCH, fetch);
+            } else {
+                if (synLog.isTraceOrDebugEnabled()) {
+                    synLog.traceOrDebug("Waiting for the response being fetched for the request hash : " +
+                            requestHash);
+                }
+                try {
+                    pendingFetch.get(coalescingTimeout, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (TimeoutException e) {
+                    // The response of the fetch may never reach the collector, hence the next request fetches it
+                    cacheManager.abandonFetch(id, requestHash, pendingFetch);
+                }
+                // The collector publishes the fetched response as a new object, hence it is looked up again. The
+                // request goes to the backend itself if the response could not be fetched in time
+                cachedResponse = getMediatorCache().get(requestHash);
+                synCtx.setProperty(CachingConstants.CACHED_OBJECT, cachedResponse);
+                configureCachedResponse(cachedResponse, httpMethod);
+                hit = cachedResponse.hasResponse() && !cachedResponse.isStale();
+            }
+        }
+        if (hit) {
             // get the response from the cache and attach to the context and change the
             // direction of the message
             if (synLog.isTraceOrDebugEnabled()) {
@@ -323,25 +432,53 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
             }
             // mark as a response and replace envelope from cache
             synCtx.setResponse(true);
-            replaceEnvelopeWithCachedResponse(synCtx, synLog, msgCtx, cachedResponse);
+            if (!replaceEnvelopeWithCachedResponse(synCtx, synLog, msgCtx, cachedResponse)) {
+                // The off-heap body has been evicted after the lookup, hence the request goes to the backend
+                synCtx.setResponse(false);
+                return true;
+            }
             return false;
         }
         return true;
     }
 
+    /**
+     * Sets the configuration of this mediator and the http method of the request on the cached response, which the
+     * collector uses to decide whether the fetched response is cached.
+     *
+     * @param cachedResponse the cached response of the request.
+     * @param httpMethod     the http method of the request.
+     */
+    private void configureCachedResponse(CachableResponse cachedResponse, String httpMethod) {
+        cachedResponse.setHttpMethod(httpMethod);
+        cachedResponse.setProtocolType(protocolType);
+        cachedResponse.setResponseCodePattern(responseCodePattern);
+        cachedResponse.setHTTPMethodsToCache(hTTPMethodsToCache);
+        cachedResponse.setMaxMessageSize(maxMessageSize);
+        cachedResponse.setCacheControlEnabled(cacheControlEnabled);
+        cachedResponse.setAddAgeHeaderEnabled(addAgeHeaderEnabled);
+        cachedResponse.setErrorGracePeriod(errorGracePeriod);
+    }
+
     /**
      * This method returns the existing cached response.
      * @param synCtx Message context.
      * @param synLog Synapse log.
      * @param msgCtx Axis2 contex.
      * @param cachedResponse Cached response.
+     * @return false if the body of the response has been evicted from the off-heap store.
      */
-    private void replaceEnvelopeWithCachedResponse(MessageContext synCtx, SynapseLog synLog,
+    private boolean replaceEnvelopeWithCachedResponse(MessageContext synCtx, SynapseLog synLog,
                                                    org.apache.axis2.context.MessageContext msgCtx, CachableResponse cachedResponse) {
         Map<String, Object> headerProperties;
+        OffHeapPayload offHeapPayload = cachedResponse.getOffHeapPayload();
         try {
             if (cachedResponse.isJson()) {
-                byte[] payload = cachedResponse.getResponsePayload();
+                byte[] payload = offHeapPayload != null ? offHeapPayload.toByteArray() :
+                        cachedResponse.getResponsePayload();
+                if (payload == null) {
+                    return false;
+                }
                 OMElement response = JsonUtil.getNewJsonPayload(msgCtx, payload, 0,
                         payload.length, false, false);
                 if (msgCtx.getEnvelope().getBody().getFirstElement() != null) {
@@ -349,8 +486,18 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
                 }
                 msgCtx.getEnvelope().getBody().addChild(response);
 
+            } else if (offHeapPayload != null) {
+                SOAPEnvelope envelope = readEnvelope(offHeapPayload);
+                if (envelope == null) {
+                    return false;
+                }
+                msgCtx.setEnvelope(envelope);
             } else {
-                msgCtx.setEnvelope(MessageHelper.cloneSOAPEnvelope(cachedResponse.getResponseEnvelope()));
+                SOAPEnvelope envelope = cachedResponse.getResponseEnvelope();
+                if (envelope == null) {
+                    return false;
+                }
+                msgCtx.setEnvelope(MessageHelper.cloneSOAPEnvelope(envelope));
             }
         } catch (AxisFault e) {
             handleException("Error creating response OM from cache : " + id, synCtx);
@@ -413,6 +560,29 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
             Axis2Sender.sendBack(synCtx);
 
         }
+        return true;
+    }
+
+    /**
+     * Builds the cached response envelope directly from its serialized form in the off-heap store.
+     *
+     * @param offHeapPayload the serialized envelope.
+     * @return the envelope, or null if the body has been evicted from the off-heap store.
+     */
+    private SOAPEnvelope readEnvelope(OffHeapPayload offHeapPayload) {
+        InputStream inputStream = offHeapPayload.openStream();
+        if (inputStream == null) {
+            return null;
+        }
+        try {
+            SOAPEnvelope envelope = OMXMLBuilderFactory.createSOAPModelBuilder(inputStream,
+                    StandardCharsets.UTF_8.name()).getSOAPEnvelope();
+            // The envelope is built completely, as the memory is reused once the stream is closed
+            envelope.build();
+            return envelope;
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
     }
 
     /**
@@ -430,8 +600,12 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
         }
         org.apache.axis2.context.MessageContext msgCtx = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
         CachableResponse response = (CachableResponse) synCtx.getProperty(CachingConstants.CACHED_OBJECT);
+        String cacheId = (String) synCtx.getProperty(CachingConstants.CACHE_ID);
+        OffHeapStore offHeapStore = cacheId != null ? cacheManager.getOffHeapStore(cacheId) : null;
 
         if (response != null) {
+            // The fetched response is stored in a new object, as the cached one may still be served to other requests
+            CachableResponse newResponse = response.copyConfiguration();
             boolean toCache = true;
             if (CachingConstants.HTTP_PROTOCOL_TYPE.equals(response.getProtocolType())) {
                 Object httpStatus = msgCtx.getProperty(NhttpConstants.HTTP_SC);
@@ -439,7 +613,7 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
                 //Honor no-store header if cacheControlEnabled.
                 // If "no-store" header presents in the response, returned response can not be cached.
                 if (response.isCacheControlEnabled() && HttpCachingFilter.isNoStore(msgCtx)) {
-                    response.clean();
+                    invalidate(cacheId, response);
                     return;
                 }
                 //Need to check the data type of HTTP_SC to avoid classcast exceptions.
@@ -452,14 +626,30 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
                 if (statusCode != null) {
                     //If status code is SC_NOT_MODIFIED then return the cached response.
                     if (statusCode.equals(SC_NOT_MODIFIED)) {
-                        replaceEnvelopeWithCachedResponse(synCtx, synLog, msgCtx, response);
+                        if (!replaceEnvelopeWithCachedResponse(synCtx, synLog, msgCtx, response)) {
+                            synLog.auditWarn("The cached response to be revalidated has been evicted from the " +
+                                    "off-heap store, hence the not modified response is sent as it is");
+                        }
+                        return;
+                    }
+                    //If the backend failed, then return the expired response within the error grace period.
+                    if (statusCode.startsWith("5") && response.getErrorGracePeriod() > 0 && response.hasResponse()
+                            && response.isWithinGracePeriod(response.getErrorGracePeriod())) {
+                        if (synLog.isTraceOrDebugEnabled()) {
+                            synLog.traceOrDebug("The backend responded with the status code " + statusCode +
+                                    ", hence the expired response is returned from the cache");
+                        }
+                        if (!replaceEnvelopeWithCachedResponse(synCtx, synLog, msgCtx, response)) {
+                            synLog.auditWarn("The expired response has been evicted from the off-heap store, hence " +
+                                    "the failed response is sent as it is");
+                        }
                         return;
                     }
                     // Now create matcher object.
                     Matcher m = response.getResponseCodePattern().matcher(statusCode);
                     if (m.matches()) {
-                        response.setStatusCode(statusCode);
-                        response.setStatusReason((String) msgCtx.getProperty(PassThroughConstants.HTTP_SC_DESC));
+                        newResponse.setStatusCode(statusCode);
+                        newResponse.setStatusReason((String) msgCtx.getProperty(PassThroughConstants.HTTP_SC_DESC));
                     } else {
                         toCache = false;
                     }
@@ -485,37 +675,74 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
                                 "Message size exceeds the upper bound for caching, request will not be cached");
                         return;
                     }
-                    response.setResponsePayload(responsePayload);
-                    response.setResponseEnvelope(null);
-                    response.setJson(true);
+                    // The body is kept on the heap if it cannot be stored off-heap
+                    OffHeapPayload offHeapPayload =
+                            offHeapStore != null ? offHeapStore.store(responsePayload) : null;
+                    newResponse.setOffHeapPayload(offHeapPayload);
+                    newResponse.setResponsePayload(offHeapPayload == null ? responsePayload : null);
+                    newResponse.setResponseEnvelope(null);
+                    newResponse.setJson(true);
                 } else {
-                    SOAPEnvelope clonedEnvelope = MessageHelper.cloneSOAPEnvelope(synCtx.getEnvelope());
-                    if (response.getMaxMessageSize() > -1) {
-                        FixedByteArrayOutputStream fbaos = new FixedByteArrayOutputStream(
-                                response.getMaxMessageSize());
-                        try {
-                            clonedEnvelope.serialize(fbaos);
-                        } catch (XMLStreamException e) {
-                            handleException("Error in checking the message size", e, synCtx);
-                        } catch (SynapseException syne) {
+                    OffHeapPayload offHeapPayload = null;
+                    if (offHeapStore != null) {
+                        byte[] serializedEnvelope = serializeEnvelope(synCtx);
+                        if (response.getMaxMessageSize() > -1 &&
+                                serializedEnvelope.length > response.getMaxMessageSize()) {
                             synLog.traceOrDebug(
                                     "Message size exceeds the upper bound for caching, request will not be cached");
                             return;
-                        } finally {
+                        }
+                        offHeapPayload = offHeapStore.store(serializedEnvelope);
+                    }
+                    if (offHeapPayload != null) {
+                        newResponse.setOffHeapPayload(offHeapPayload);
+                        newResponse.setResponsePayload(null);
+                        newResponse.setResponseEnvelope(null);
+                        newResponse.setResponseEnvelopeSize(0);
+                    } else {
+                        SOAPEnvelope clonedEnvelope = MessageHelper.cloneSOAPEnvelope(synCtx.getEnvelope());
+                        long envelopeSize = 0;
+                        if (response.getMaxMessageSize() > -1) {
+                            FixedByteArrayOutputStream fbaos = new FixedByteArrayOutputStream(
+                                    response.getMaxMessageSize());
+                            try {
+                                CountingOutputStream countingStream = new CountingOutputStream(fbaos);
+                                clonedEnvelope.serialize(countingStream);
+                                envelopeSize = countingStream.getByteCount();
+                            } catch (XMLStreamException e) {
+                                handleException("Error in checking the message size", e, synCtx);
+                            } catch (SynapseException syne) {
+                                synLog.traceOrDebug(
+                                        "Message size exceeds the upper bound for caching, request will not be cached");
+                                return;
+                            } finally {
+                                try {
+                                    fbaos.close();
+                                } catch (IOException e) {
+                                    handleException("Error occurred while closing the FixedByteArrayOutputStream ", e,
+                                            synCtx);
+                                }
+                            }
+                        } else if (synCtx.getProperty(CachingConstants.CACHE_WEIGHED) != null) {
+                            // The size of the envelope is only needed when the response is weighed
                             try {
-                                fbaos.close();
-                            } catch (IOException e) {
-                                handleException("Error occurred while closing the FixedByteArrayOutputStream ", e,
-                                        synCtx);
+                                CountingOutputStream countingStream =
+                                        new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+                                clonedEnvelope.serialize(countingStream);
+                                envelopeSize = countingStream.getByteCount();
+                            } catch (XMLStreamException e) {
+                                handleException("Error in calculating the message size", e, synCtx);
                             }
                         }
-                    }
-
-                    response.setResponsePayload(null);
-                    response.setResponseEnvelope(clonedEnvelope);
-                    response.setJson(false);
 
+                        newResponse.setOffHeapPayload(null);
+                        newResponse.setResponsePayload(null);
+                        newResponse.setResponseEnvelope(clonedEnvelope);
+                        newResponse.setResponseEnvelopeSize(envelopeSize);
+                    }
+                    newResponse.setJson(false);
                 }
+                newResponse.setStoredTime(System.currentTimeMillis());
 
                 if (synLog.isTraceOrDebugEnabled()) {
                     synLog.traceOrDebug("Storing the response message into the cache with ID : "
@@ -542,7 +769,7 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
                 //Store the response fetched time.
                 if (response.isCacheControlEnabled() || response.isAddAgeHeaderEnabled()) {
                     try {
-                        HttpCachingFilter.setResponseCachedTime(headers, response);
+                        HttpCachingFilter.setResponseCachedTime(headers, newResponse);
                     } catch (ParseException e) {
                         synLog.auditWarn("Error occurred while parsing the date." + e.getMessage());
                     }
@@ -554,11 +781,23 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
                 }
                 headerProperties.put(Constants.Configuration.MESSAGE_TYPE, messageType);
                 headerProperties.put(CachingConstants.CACHE_KEY, response.getRequestHash());
-                response.setHeaderProperties(headerProperties);
+                newResponse.setHeaderProperties(headerProperties);
                 msgCtx.setProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS, headerProperties);
 
+                LoadingCache<String, CachableResponse> cache = cacheId != null ? cacheManager.get(cacheId) : null;
+                if (cache != null) {
+                    // Publishes the new response, which is weighed with its payload and headers and expires from now.
+                    // The body of the replaced response is released once the requests reading it are done
+                    CachableResponse replaced = cache.asMap().put(newResponse.getRequestHash(), newResponse);
+                    if (replaced != null && replaced != newResponse) {
+                        replaced.setOffHeapPayload(null);
+                    }
+                } else {
+                    newResponse.setOffHeapPayload(null);
+                }
+
             } else {
-                response.clean();
+                invalidate(cacheId, response);
             }
         } else {
             synLog.auditWarn("A response message without a valid mapping to the " +
@@ -567,6 +806,37 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
 
     }
 
+    /**
+     * Removes the cached response, when the fetched response must not be stored. The cached response is not cleaned
+     * itself, as other requests may still be served with it as a stale response.
+     *
+     * @param cacheId  the id of the cache which holds the response.
+     * @param response the cached response of the request.
+     */
+    private void invalidate(String cacheId, CachableResponse response) {
+        LoadingCache<String, CachableResponse> cache = cacheId != null ? cacheManager.get(cacheId) : null;
+        if (cache != null) {
+            // A response which has been published by another request meanwhile is left in the cache
+            cache.asMap().remove(response.getRequestHash(), response);
+        }
+    }
+
+    /**
+     * Serializes the response envelope to be stored in the off-heap store.
+     *
+     * @param synCtx the response message.
+     * @return the serialized envelope.
+     */
+    private byte[] serializeEnvelope(MessageContext synCtx) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            synCtx.getEnvelope().serialize(outputStream);
+        } catch (XMLStreamException e) {
+            handleException("Error in serializing the message to be cached", e, synCtx);
+        }
+        return outputStream.toByteArray();
+    }
+
     /**
      * Creates default cache to keep mediator cache.
      *
@@ -575,24 +845,36 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
     public LoadingCache<String, CachableResponse> getMediatorCache() {
         LoadingCache<String, CachableResponse> cache = cacheManager.get(id);
         if (cache == null) {
-            if (inMemoryCacheSize > -1) {
-                cache = CacheBuilder.newBuilder().expireAfterWrite(timeout,
-                        TimeUnit.SECONDS).maximumSize(inMemoryCacheSize)
-                        .build(new CacheLoader<String, CachableResponse>() {
-                            @Override
-                            public CachableResponse load(String requestHash) throws Exception {
-                                return cacheNewResponse(requestHash);
-                            }
-                        });
-            } else {
-                cache = CacheBuilder.newBuilder().expireAfterWrite(timeout,
-                        TimeUnit.SECONDS).build(
-                        new CacheLoader<String, CachableResponse>() {
-                            @Override
-                            public CachableResponse load(String requestHash) throws Exception {
-                                return cacheNewResponse(requestHash);
+            CacheBuilder<String, CachableResponse> cacheBuilder = CacheBuilder.newBuilder()
+                    .expireAfterWrite(timeout + Math.max(staleGracePeriod, errorGracePeriod), TimeUnit.SECONDS)
+                    .removalListener(new RemovalListener<String, CachableResponse>() {
+                        @Override
+                        public void onRemoval(RemovalNotification<String, CachableResponse> notification) {
+                            // Releasing is idempotent, so a replaced response is released here as well as by the
+                            // collector which replaced it
+                            if (notification.getValue() != null) {
+                                notification.getValue().setOffHeapPayload(null);
                             }
-                        });
+                        }
+                    });
+            if (maxMemorySize > -1) {
+                cacheBuilder.maximumWeight(maxMemorySize).weigher(new Weigher<String, CachableResponse>() {
+                    @Override
+                    public int weigh(String requestHash, CachableResponse response) {
+                        return (int) Math.min(requestHash.length() + response.getSize(), Integer.MAX_VALUE);
+                    }
+                });
+            } else if (inMemoryCacheSize > -1) {
+                cacheBuilder.maximumSize(inMemoryCacheSize);
+            }
+            cache = cacheBuilder.build(new CacheLoader<String, CachableResponse>() {
+                @Override
+                public CachableResponse load(String requestHash) throws Exception {
+                    return cacheNewResponse(requestHash);
+                }
+            });
+            if (offHeapSize > -1) {
+                cacheManager.putOffHeapStore(id, new OffHeapStore(offHeapSize));
             }
             cacheManager.put(id, cache);
         }
@@ -800,6 +1082,115 @@ public class CacheMediator extends AbstractMediator implements ManagedLifecycle,
         this.inMemoryCacheSize = inMemoryCacheSize;
     }
 
+    /**
+     * This method gives the size of the off-heap store of the cached message bodies.
+     *
+     * @return size of the off-heap store in bytes, or -1 if the bodies are kept on the heap.
+     */
+    public long getOffHeapSize() {
+        return offHeapSize;
+    }
+
+    /**
+     * This method sets the size of the off-heap store of the cached message bodies.
+     *
+     * @param offHeapSize size of the off-heap store in bytes, or -1 to keep the bodies on the heap.
+     */
+    public void setOffHeapSize(long offHeapSize) {
+        this.offHeapSize = offHeapSize;
+    }
+
+    /**
+     * This method gives the maximum total size of the messages cached in memory.
+     *
+     * @return maximum total size of the cached messages in bytes.
+     */
+    public long getMaxMemorySize() {
+        return maxMemorySize;
+    }
+
+    /**
+     * This method sets the maximum total size of the messages cached in memory.
+     *
+     * @param maxMemorySize maximum total size of the cached messages in bytes, or -1 if it is not bounded.
+     */
+    public void setMaxMemorySize(long maxMemorySize) {
+        this.maxMemorySize = maxMemorySize;
+    }
+
+    /**
+     * This method gives the period after the timeout for which an expired response is served while it is refreshed.
+     *
+     * @return the stale grace period in seconds.
+     */
+    public long getStaleGracePeriod() {
+        return staleGracePeriod;
+    }
+
+    /**
+     * This method sets the period after the timeout for which an expired response is served while it is refreshed.
+     *
+     * @param staleGracePeriod the stale grace period in seconds, or 0 if expired responses are not served.
+     */
+    public void setStaleGracePeriod(long staleGracePeriod) {
+        this.staleGracePeriod = staleGracePeriod;
+    }
+
+    /**
+     * This method gives the period after the timeout for which an expired response is served on backend errors.
+     *
+     * @return the error grace period in seconds.
+     */
+    public long getErrorGracePeriod() {
+        return errorGracePeriod;
+    }
+
+    /**
+     * This method sets the period after the timeout for which an expired response is served on backend errors.
+     *
+     * @param errorGracePeriod the error grace period in seconds, or 0 if expired responses are not served.
+     */
+    public void setErrorGracePeriod(long errorGracePeriod) {
+        this.errorGracePeriod = errorGracePeriod;
+    }
+
+    /**
+     * This method gives the time for which a request waits for the same response being fetched by another request.
+     *
+     * @return the coalescing timeout in seconds.
+     */
+    public long getCoalescingTimeout() {
+        return coalescingTimeout;
+    }
+
+    /**
+     * This method sets the time for which a request waits for the same response being fetched by another request.
+     *
+     * @param coalescingTimeout the coalescing timeout in seconds, or 0 if the requests are not coalesced.
+     */
+    public void setCoalescingTimeout(long coalescingTimeout) {
+        this.coalescingTimeout = coalescingTimeout;
+    }
+
+    /**
+     * This method gives the time after which a request revalidating a stale response is assumed to have failed.
+     *
+     * @return the revalidation timeout in seconds.
+     */
+    public long getRevalidationTimeout() {
+        return revalidationTimeout;
+    }
+
+    /**
+     * This method sets the time after which a request revalidating a stale response is assumed to have failed.
+     *
+     * @param revalidationTimeout the revalidation timeout in seconds, which should not be less than the timeout of
+     *                            the endpoint.
+     */
+    public void setRevalidationTimeout(long revalidationTimeout) {
+        this.revalidationTimeout = revalidationTimeout;
+    }
+
     /**
      * This method gives the HTTP method that needs to be cached.
      *
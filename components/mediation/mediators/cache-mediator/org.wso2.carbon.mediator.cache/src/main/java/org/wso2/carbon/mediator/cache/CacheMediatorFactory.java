@@ -26,6 +26,7 @@ import org.apache.synapse.config.xml.SequenceMediatorFactory;
 import org.apache.synapse.config.xml.XMLConfigConstants;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.wso2.carbon.mediator.cache.digest.DigestGenerator;
+import org.wso2.carbon.mediator.cache.store.OffHeapStore;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -52,6 +53,26 @@ public class CacheMediatorFactory extends AbstractMediatorFactory {
      */
     private static final QName ATT_MAX_MSG_SIZE = new QName(CachingConstants.MAX_MESSAGE_SIZE_STRING);
 
+    /**
+     * QName of the stale grace period.
+     */
+    private static final QName ATT_STALE_GRACE_PERIOD = new QName(CachingConstants.STALE_GRACE_PERIOD_STRING);
+
+    /**
+     * QName of the error grace period.
+     */
+    private static final QName ATT_ERROR_GRACE_PERIOD = new QName(CachingConstants.ERROR_GRACE_PERIOD_STRING);
+
+    /**
+     * QName of the revalidation timeout.
+     */
+    private static final QName ATT_REVALIDATION_TIMEOUT = new QName(CachingConstants.REVALIDATION_TIMEOUT_STRING);
+
+    /**
+     * QName of the coalescing timeout.
+     */
+    private static final QName ATT_COALESCING_TIMEOUT = new QName(CachingConstants.COALESCING_TIMEOUT_STRING);
+
     /**
      * QName of the onCacheHit mediator sequence reference.
      */
@@ -119,6 +140,16 @@ public class CacheMediatorFactory extends AbstractMediatorFactory {
      */
     private static final QName ATT_SIZE = new QName(CachingConstants.MAX_SIZE_STRING);
 
+    /**
+     * QName of the maximum total size of the cached messages in bytes.
+     */
+    private static final QName ATT_MEMORY_SIZE = new QName(CachingConstants.MAX_MEMORY_SIZE_STRING);
+
+    /**
+     * QName of the size of the off-heap store of the cached messages in bytes.
+     */
+    private static final QName ATT_OFF_HEAP_SIZE = new QName(CachingConstants.OFF_HEAP_SIZE_STRING);
+
     /**
      * QName of the enableCacheControl.
      */
@@ -182,6 +213,27 @@ public class CacheMediatorFactory extends AbstractMediatorFactory {
                     cache.setMaxMessageSize(-1);
                 }
 
+                OMAttribute staleGracePeriodAttr = elem.getAttribute(ATT_STALE_GRACE_PERIOD);
+                if (staleGracePeriodAttr != null && staleGracePeriodAttr.getAttributeValue() != null) {
+                    cache.setStaleGracePeriod(Long.parseLong(staleGracePeriodAttr.getAttributeValue().trim()));
+                }
+
+                OMAttribute errorGracePeriodAttr = elem.getAttribute(ATT_ERROR_GRACE_PERIOD);
+                if (errorGracePeriodAttr != null && errorGracePeriodAttr.getAttributeValue() != null) {
+                    cache.setErrorGracePeriod(Long.parseLong(errorGracePeriodAttr.getAttributeValue().trim()));
+                }
+
+                OMAttribute revalidationTimeoutAttr = elem.getAttribute(ATT_REVALIDATION_TIMEOUT);
+                if (revalidationTimeoutAttr != null && revalidationTimeoutAttr.getAttributeValue() != null) {
+                    cache.setRevalidationTimeout(
+                            Long.parseLong(revalidationTimeoutAttr.getAttributeValue().trim()));
+                }
+
+                OMAttribute coalescingTimeoutAttr = elem.getAttribute(ATT_COALESCING_TIMEOUT);
+                if (coalescingTimeoutAttr != null && coalescingTimeoutAttr.getAttributeValue() != null) {
+                    cache.setCoalescingTimeout(Long.parseLong(coalescingTimeoutAttr.getAttributeValue().trim()));
+                }
+
                 OMAttribute idAttribute = elem.getAttribute(ATT_ID);
                 if (idAttribute != null && idAttribute.getAttributeValue() != null) {
                     cache.setId(idAttribute.getAttributeValue().trim());
@@ -357,6 +409,35 @@ public class CacheMediatorFactory extends AbstractMediatorFactory {
                         cache.setInMemoryCacheSize(-1);
                     }
 
+                    OMAttribute memorySizeAttr = implElem.getAttribute(ATT_MEMORY_SIZE);
+                    if (memorySizeAttr != null && memorySizeAttr.getAttributeValue() != null) {
+                        if (cache.getInMemoryCacheSize() > -1) {
+                            handleException("Only one of the " + CachingConstants.MAX_SIZE_STRING + " and "
+                                    + CachingConstants.MAX_MEMORY_SIZE_STRING + " attributes can be specified");
+                        }
+                        long maxMemorySize = Long.parseLong(memorySizeAttr.getAttributeValue().trim());
+                        if (maxMemorySize < -1) {
+                            handleException("The " + CachingConstants.MAX_MEMORY_SIZE_STRING + " must be -1 or a "
+                                    + "positive number of bytes: " + maxMemorySize);
+                        }
+                        cache.setMaxMemorySize(maxMemorySize);
+                    } else {
+                        cache.setMaxMemorySize(-1);
+                    }
+
+                    OMAttribute offHeapSizeAttr = implElem.getAttribute(ATT_OFF_HEAP_SIZE);
+                    if (offHeapSizeAttr != null && offHeapSizeAttr.getAttributeValue() != null) {
+                        long offHeapSize = Long.parseLong(offHeapSizeAttr.getAttributeValue().trim());
+                        if (offHeapSize != -1 && offHeapSize < OffHeapStore.DEFAULT_BLOCK_SIZE) {
+                            handleException("The " + CachingConstants.OFF_HEAP_SIZE_STRING + " must be -1 or at "
+                                    + "least one block of " + OffHeapStore.DEFAULT_BLOCK_SIZE + " bytes: "
+                                    + offHeapSize);
+                        }
+                        cache.setOffHeapSize(offHeapSize);
+                    } else {
+                        cache.setOffHeapSize(-1);
+                    }
+
                     OMAttribute typeAttribute = implElem.getAttribute(ATT_TYPE);
                     if (typeAttribute != null && typeAttribute.getAttributeValue() != null) {
                         cache.setImplementationType(typeAttribute.getAttributeValue().trim());
@@ -70,6 +70,30 @@ public class CacheMediatorSerializer extends AbstractMediatorSerializer {
                                               Integer.toString(cacheMediator.getMaxMessageSize())));
             }
 
+            if (cacheMediator.getStaleGracePeriod() > 0) {
+                cacheElem.addAttribute(
+                        fac.createOMAttribute(CachingConstants.STALE_GRACE_PERIOD_STRING, nullNS,
+                                              Long.toString(cacheMediator.getStaleGracePeriod())));
+            }
+
+            if (cacheMediator.getErrorGracePeriod() > 0) {
+                cacheElem.addAttribute(
+                        fac.createOMAttribute(CachingConstants.ERROR_GRACE_PERIOD_STRING, nullNS,
+                                              Long.toString(cacheMediator.getErrorGracePeriod())));
+            }
+
+            if (cacheMediator.getRevalidationTimeout() != CachingConstants.DEFAULT_REVALIDATION_TIMEOUT) {
+                cacheElem.addAttribute(
+                        fac.createOMAttribute(CachingConstants.REVALIDATION_TIMEOUT_STRING, nullNS,
+                                              Long.toString(cacheMediator.getRevalidationTimeout())));
+            }
+
+            if (cacheMediator.getCoalescingTimeout() > 0) {
+                cacheElem.addAttribute(
+                        fac.createOMAttribute(CachingConstants.COALESCING_TIMEOUT_STRING, nullNS,
+                                              Long.toString(cacheMediator.getCoalescingTimeout())));
+            }
+
             if (isPreviousCacheImplementation) {
                 if (!cacheMediator.getId().trim().isEmpty()) {
                     cacheElem.addAttribute(
@@ -172,10 +196,20 @@ public class CacheMediatorSerializer extends AbstractMediatorSerializer {
                 cacheElem.addChild(protocolElem);
             }
 
-            if (cacheMediator.getInMemoryCacheSize() > -1) {
+            if (cacheMediator.getInMemoryCacheSize() > -1 || cacheMediator.getMaxMemorySize() > -1 ||
+                    cacheMediator.getOffHeapSize() > -1) {
                 OMElement implElem = fac.createOMElement(CachingConstants.IMPLEMENTATION_STRING, synNS);
-                implElem.addAttribute(fac.createOMAttribute(CachingConstants.MAX_SIZE_STRING, nullNS,
-                                                            Integer.toString(cacheMediator.getInMemoryCacheSize())));
+                if (cacheMediator.getInMemoryCacheSize() > -1) {
+                    implElem.addAttribute(fac.createOMAttribute(CachingConstants.MAX_SIZE_STRING, nullNS,
+                            Integer.toString(cacheMediator.getInMemoryCacheSize())));
+                } else if (cacheMediator.getMaxMemorySize() > -1) {
+                    implElem.addAttribute(fac.createOMAttribute(CachingConstants.MAX_MEMORY_SIZE_STRING, nullNS,
+                            Long.toString(cacheMediator.getMaxMemorySize())));
+                }
+                if (cacheMediator.getOffHeapSize() > -1) {
+                    implElem.addAttribute(fac.createOMAttribute(CachingConstants.OFF_HEAP_SIZE_STRING, nullNS,
+                            Long.toString(cacheMediator.getOffHeapSize())));
+                }
                 if (isPreviousCacheImplementation) {
                     implElem.addAttribute(fac.createOMAttribute(CachingConstants.TYPE_STRING, nullNS,
                             cacheMediator.getImplementationType()));
@@ -74,6 +74,28 @@ public class CachingConstants {
      */
     public static final String CACHED_OBJECT = "CachableResponse";
 
+    /**
+     * String key to store the id of the cache which holds the cached response in the message context.
+     */
+    public static final String CACHE_ID = "CacheMediatorId";
+
+    /**
+     * The property which marks that the responses are weighed by their size in the cache of the request.
+     */
+    public static final String CACHE_WEIGHED = "CacheMediatorWeighed";
+
+    /**
+     * The property which holds the token of the revalidation started by a request, so that only the collector of
+     * that request completes the revalidation.
+     */
+    public static final String REVALIDATION_TOKEN = "CacheRevalidationToken";
+
+    /**
+     * The property which holds the pending fetch registered by a request which missed the cache, so that the
+     * collector of that request releases the requests waiting for the same response.
+     */
+    public static final String PENDING_FETCH = "CachePendingFetch";
+
     /**
      * The the header that would be used to return the hashed value to invalidate this value.
      */
@@ -94,6 +116,22 @@ public class CachingConstants {
      */
     public static final boolean DEFAULT_ADD_AGE_HEADER = false;
 
+    /**
+     * The default value for the staleGracePeriod and errorGracePeriod, which disables them.
+     */
+    public static final long DEFAULT_GRACE_PERIOD = 0;
+
+    /**
+     * The default time in seconds after which a request revalidating a stale response is assumed to have failed, as
+     * its response never reached the collector.
+     */
+    public static final long DEFAULT_REVALIDATION_TIMEOUT = 120;
+
+    /**
+     * The default value for the coalescingTimeout, which disables the coalescing of requests missing the cache.
+     */
+    public static final long DEFAULT_COALESCING_TIMEOUT = 0;
+
     /**
      * Headers which need to be permanently excluded in hashing due to its dynamic nature.
      */
@@ -107,6 +145,10 @@ public class CachingConstants {
     public static final String TIMEOUT_STRING = "timeout";
     public static final String COLLECTOR_STRING = "collector";
     public static final String MAX_MESSAGE_SIZE_STRING = "maxMessageSize";
+    public static final String STALE_GRACE_PERIOD_STRING = "staleGracePeriod";
+    public static final String ERROR_GRACE_PERIOD_STRING = "errorGracePeriod";
+    public static final String REVALIDATION_TIMEOUT_STRING = "revalidationTimeout";
+    public static final String COALESCING_TIMEOUT_STRING = "coalescingTimeout";
     public static final String ON_CACHE_HIT_STRING = "onCacheHit";
     public static final String SEQUENCE_STRING = "sequence";
     public static final String PROTOCOL_STRING = "protocol";
@@ -118,6 +160,8 @@ public class CachingConstants {
     public static final String HASH_GENERATOR_STRING = "hashGenerator";
     public static final String IMPLEMENTATION_STRING = "implementation";
     public static final String MAX_SIZE_STRING = "maxSize";
+    public static final String MAX_MEMORY_SIZE_STRING = "maxMemorySize";
+    public static final String OFF_HEAP_SIZE_STRING = "offHeapSize";
     public static final String ENABLE_CACHE_CONTROL_STRING = "enableCacheControl";
     public static final String INCLUDE_AGE_HEADER_STRING = "includeAgeHeader";
     public static final String IF_NONE_MATCH = "IF-None-Match";
@@ -598,7 +598,7 @@ public class HttpRequestHashGenerator implements DigestGenerator {
         }
     }
 
-    private Map<String, String> getTransportHeaders(MessageContext msgContext) {
+    Map<String, String> getTransportHeaders(MessageContext msgContext) {
         //cloning transport headers from message context and making them case insensitive
         Map<String, String> transportHeaders =
                 new TreeMap<String, String>(new Comparator<String>() {
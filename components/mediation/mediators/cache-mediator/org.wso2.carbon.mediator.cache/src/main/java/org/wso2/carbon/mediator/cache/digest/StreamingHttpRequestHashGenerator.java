@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.mediator.cache.digest;
+
+import com.google.common.io.BaseEncoding;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.util.StAXUtils;
+import org.apache.axiom.soap.SOAP11Constants;
+import org.apache.axiom.soap.SOAP12Constants;
+import org.apache.axis2.Constants;
+import org.apache.axis2.context.MessageContext;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.wso2.carbon.mediator.cache.CachingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The {@link DigestGenerator} for the HTTP protocol type which hashes the request payload as a stream, without
+ * building an OM tree to walk. The hash is calculated with SHA-256 over the To address, the headers selected with the
+ * same include and exclude rules as the {@link HttpRequestHashGenerator}, and the payload of the requests other than
+ * GET, DELETE and HEAD.
+ * <p/>
+ * A json payload is hashed as its json stream and an xml payload as the StAX events of the first element of its body.
+ * If the request has not been built yet, its raw bytes are read from the pass through pipe and hashed in the same way,
+ * the json bytes as they are and the xml bytes through a StAX reader, and the message is then built lazily from those
+ * bytes, so that a cache hit never builds the request. Hence the same request gives the same key whether or not it
+ * has been built when it reaches the cache mediator. A raw payload of any other content type is built before it is
+ * hashed.
+ */
+public class StreamingHttpRequestHashGenerator extends HttpRequestHashGenerator {
+
+    static final long serialVersionUID = 42L;
+
+    /**
+     * Log object to use when logging is required in this class.
+     */
+    private static final Log log = LogFactory.getLog(StreamingHttpRequestHashGenerator.class);
+
+    /**
+     * String representing the SHA-256 digest algorithm.
+     */
+    private static final String SHA256_DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * This value can be specified for the headersToExcludeInHash property to avoid all the headers when caching.
+     */
+    private static final String EXCLUDE_ALL_VAL = "*";
+
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Separates the hashed fields, so that adjacent fields cannot be shifted into each other.
+     */
+    private static final byte SEPARATOR = 0;
+    private static final byte START_ELEMENT = 1;
+    private static final byte END_ELEMENT = 2;
+    private static final byte ATTRIBUTE = 3;
+    private static final byte TEXT = 4;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDigest(MessageContext msgContext) throws CachingException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(SHA256_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            handleException("Can not locate the algorithm provided for the digest generation : " +
+                    SHA256_DIGEST_ALGORITHM, e);
+            return null;
+        }
+        if (msgContext.getTo() != null) {
+            update(md, msgContext.getTo().getAddress());
+        }
+        md.update(SEPARATOR);
+
+        Map<String, String> hashedHeaders = getHeadersToHash(msgContext);
+        if (hashedHeaders != null) {
+            for (Map.Entry<String, String> header : hashedHeaders.entrySet()) {
+                if (!header.getKey().equalsIgnoreCase("Date") && !header.getKey().equalsIgnoreCase("User-Agent")) {
+                    update(md, header.getKey());
+                    md.update(SEPARATOR);
+                    if (header.getValue() != null) {
+                        update(md, header.getValue());
+                    }
+                    md.update(SEPARATOR);
+                }
+            }
+        }
+        md.update(SEPARATOR);
+
+        String method = (String) msgContext.getProperty(Constants.Configuration.HTTP_METHOD);
+        boolean isGet = msgContext.isDoingREST() && (PassThroughConstants.HTTP_GET.equals(method) ||
+                PassThroughConstants.HTTP_DELETE.equals(method) ||
+                PassThroughConstants.HTTP_HEAD.equals(method));
+        if (!isGet) {
+            try {
+                updatePayload(md, msgContext);
+            } catch (IOException e) {
+                handleException("Error in reading the payload to calculate the digest", e);
+            } catch (XMLStreamException e) {
+                handleException("Error in reading the xml payload to calculate the digest", e);
+            }
+        }
+        return BaseEncoding.base16().lowerCase().encode(md.digest());
+    }
+
+    /**
+     * Returns the transport headers to be hashed, or null if all the headers are excluded.
+     */
+    private Map<String, String> getHeadersToHash(MessageContext msgContext) {
+        boolean allHeaders = ArrayUtils.isNotEmpty(headers) && EXCLUDE_ALL_VAL.equals(headers[0]);
+        if (isIncludeHeadersMode) {
+            Map<String, String> transportHeaders = getTransportHeaders(msgContext);
+            if (!allHeaders) {
+                // remove headers except the provided ones
+                Map<String, String> tmpHeaders = new HashMap<>();
+                for (String header : headers) {
+                    tmpHeaders.put(header, transportHeaders.get(header));
+                }
+                transportHeaders.clear();
+                transportHeaders.putAll(tmpHeaders);
+            }
+            return transportHeaders;
+        } else if (!allHeaders) {
+            Map<String, String> transportHeaders = getTransportHeaders(msgContext);
+            for (String header : headers) {
+                transportHeaders.remove(header);
+            }
+            return transportHeaders;
+        }
+        return null;
+    }
+
+    private void updatePayload(MessageDigest md, MessageContext msgContext) throws IOException, XMLStreamException {
+        byte[] rawPayload = readRawPayload(msgContext);
+        if (rawPayload != null) {
+            String contentType = getContentType(msgContext);
+            boolean hashed = true;
+            if (contentType != null && contentType.contains("json")) {
+                md.update(rawPayload);
+            } else if (contentType != null && contentType.contains("xml")) {
+                updateFromRawXml(md, rawPayload);
+            } else {
+                hashed = false;
+            }
+            // The pipe can only be read once, hence the message is built, lazily, from the bytes read
+            buildMessage(msgContext, rawPayload);
+            if (hashed) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Hashed " + rawPayload.length + " bytes of the raw request payload");
+                }
+                return;
+            }
+        }
+        if (JsonUtil.hasAJsonPayload(msgContext)) {
+            InputStream inputStream = JsonUtil.getJsonPayload(msgContext);
+            if (inputStream != null) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int length;
+                while ((length = inputStream.read(buffer)) != -1) {
+                    md.update(buffer, 0, length);
+                }
+            }
+        } else if (msgContext.getEnvelope() != null && msgContext.getEnvelope().getBody() != null) {
+            OMElement payload = msgContext.getEnvelope().getBody().getFirstElement();
+            if (payload != null) {
+                XMLStreamReader reader = payload.getXMLStreamReader();
+                try {
+                    updateFromElement(md, reader);
+                } finally {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the payload of a request which has not been built yet from the pass through pipe.
+     *
+     * @param msgContext the request
+     * @return the raw payload, or null if the request has already been built or it has no pipe
+     * @throws IOException if the payload can't be read
+     */
+    protected byte[] readRawPayload(MessageContext msgContext) throws IOException {
+        Pipe pipe = (Pipe) msgContext.getProperty(PassThroughConstants.PASS_THROUGH_PIPE);
+        if (pipe == null || Boolean.TRUE.equals(msgContext.getProperty(PassThroughConstants.MESSAGE_BUILDER_INVOKED))) {
+            return null;
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        InputStream inputStream = pipe.getInputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            payload.write(buffer, 0, length);
+        }
+        return payload.toByteArray();
+    }
+
+    /**
+     * Builds the message, lazily, from the raw payload read from the pass through pipe.
+     *
+     * @param msgContext the request
+     * @param rawPayload the raw payload of the request
+     * @throws IOException if the message can't be built
+     */
+    protected void buildMessage(MessageContext msgContext, byte[] rawPayload) throws IOException {
+        try {
+            RelayUtils.buildMessage(msgContext, false, new ByteArrayInputStream(rawPayload));
+        } catch (XMLStreamException e) {
+            throw new IOException("Error in building the request from its raw payload", e);
+        }
+    }
+
+    private String getContentType(MessageContext msgContext) {
+        Object contentType = msgContext.getProperty(Constants.Configuration.CONTENT_TYPE);
+        if (contentType == null) {
+            contentType = getTransportHeaders(msgContext).get(CONTENT_TYPE_HEADER);
+        }
+        return contentType != null ? contentType.toString().toLowerCase(Locale.ENGLISH) : null;
+    }
+
+    /**
+     * Hashes a raw xml payload in the same way as the built message, which is by the first element of the body of a
+     * SOAP envelope, or by the root element of a plain xml payload.
+     */
+    private void updateFromRawXml(MessageDigest md, byte[] rawPayload) throws XMLStreamException {
+        XMLStreamReader reader = StAXUtils.createXMLStreamReader(new ByteArrayInputStream(rawPayload));
+        try {
+            while (reader.hasNext() && reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                reader.next();
+            }
+            if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                return;
+            }
+            String namespace = reader.getNamespaceURI();
+            if ("Envelope".equals(reader.getLocalName()) && (SOAP11Constants.SOAP_ENVELOPE_NAMESPACE_URI.equals(
+                    namespace) || SOAP12Constants.SOAP_ENVELOPE_NAMESPACE_URI.equals(namespace))) {
+                // Skip to the content of the body, the events of which are hashed up to the end of the first element
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Body".equals(reader.getLocalName())
+                            && namespace.equals(reader.getNamespaceURI())) {
+                        reader.next();
+                        updateFromElement(md, reader);
+                        return;
+                    }
+                }
+            } else {
+                updateFromElement(md, reader);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Hashes the elements, attributes and text of the first element read from the given reader, starting with its
+     * current event. The adjacent text events are hashed together, since the readers of the raw and the built payload
+     * may split the text differently.
+     */
+    private void updateFromElement(MessageDigest md, XMLStreamReader reader) throws XMLStreamException {
+        int depth = 0;
+        StringBuilder text = new StringBuilder();
+        int event = reader.getEventType();
+        while (true) {
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    updateText(md, text);
+                    md.update(START_ELEMENT);
+                    updateName(md, reader.getNamespaceURI(), reader.getLocalName());
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        md.update(ATTRIBUTE);
+                        updateName(md, reader.getAttributeNamespace(i), reader.getAttributeLocalName(i));
+                        update(md, reader.getAttributeValue(i));
+                        md.update(SEPARATOR);
+                    }
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == 0) {
+                        // The end of the enclosing element, which has no element to hash
+                        return;
+                    }
+                    updateText(md, text);
+                    md.update(END_ELEMENT);
+                    if (--depth == 0) {
+                        return;
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (depth > 0) {
+                        text.append(reader.getText());
+                    }
+                    break;
+                default:
+                    // Comments, processing instructions and the document events do not change the payload
+                    break;
+            }
+            if (!reader.hasNext()) {
+                return;
+            }
+            event = reader.next();
+        }
+    }
+
+    private void updateText(MessageDigest md, StringBuilder text) {
+        if (text.length() > 0) {
+            md.update(TEXT);
+            update(md, text.toString());
+            text.setLength(0);
+        }
+    }
+
+    private void updateName(MessageDigest md, String namespace, String localName) {
+        if (namespace != null) {
+            update(md, namespace);
+        }
+        md.update(SEPARATOR);
+        update(md, localName);
+        md.update(SEPARATOR);
+    }
+
+    private void update(MessageDigest md, String value) {
+        md.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleException(String message, Throwable cause) throws CachingException {
+        log.debug(message, cause);
+        throw new CachingException(message, cause);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.mediator.cache.store;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle of a response body kept in an {@link OffHeapStore}. Only this handle is kept on the heap.
+ * <p/>
+ * The body is released when the cached response holding it is removed from the cache, or when the store evicts it to
+ * make room for another body. The memory of the body is reused only after the requests which were reading it at the
+ * time have finished.
+ */
+public final class OffHeapPayload {
+
+    private final OffHeapStore store;
+    private final int[] blocks;
+    private final int length;
+
+    /**
+     * One reference is held by the cache until the body is released, and one by each reader.
+     */
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    OffHeapPayload(OffHeapStore store, int[] blocks, int length) {
+        this.store = store;
+        this.blocks = blocks;
+        this.length = length;
+    }
+
+    /**
+     * @return length of the body in bytes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return number of blocks holding the body
+     */
+    int getBlockCount() {
+        return blocks.length;
+    }
+
+    /**
+     * @return whether the body has been released and can no longer be read
+     */
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    /**
+     * Copies the body to the heap.
+     *
+     * @return the body, or null if it has been released
+     */
+    public byte[] toByteArray() {
+        if (released.get() || !reference()) {
+            return null;
+        }
+        try {
+            store.recordRead(this);
+            byte[] data = new byte[length];
+            int offset = 0;
+            for (int block : blocks) {
+                int blockLength = Math.min(store.getBlockSize(), length - offset);
+                store.getBlock(block).get(data, offset, blockLength);
+                offset += blockLength;
+            }
+            return data;
+        } finally {
+            dereference();
+        }
+    }
+
+    /**
+     * Opens a stream which reads the body directly from the off-heap memory. The stream must be closed for the memory
+     * of a released body to be reused.
+     *
+     * @return stream of the body, or null if it has been released
+     */
+    public InputStream openStream() {
+        if (released.get() || !reference()) {
+            return null;
+        }
+        store.recordRead(this);
+        return new PayloadInputStream();
+    }
+
+    /**
+     * Releases the body, its memory is reused once it is no longer being read.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            store.remove(this);
+            dereference();
+        }
+    }
+
+    /**
+     * Marks the body as released without returning its memory, used when the whole store is closed.
+     */
+    void markReleased() {
+        released.set(true);
+    }
+
+    private boolean reference() {
+        while (true) {
+            int count = references.get();
+            if (count == 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void dereference() {
+        if (references.decrementAndGet() == 0) {
+            store.free(blocks);
+        }
+    }
+
+    /**
+     * Reads the body block by block.
+     */
+    private class PayloadInputStream extends InputStream {
+
+        private int blockIndex;
+        private ByteBuffer block;
+        private int remaining = length;
+        private boolean closed;
+
+        @Override
+        public int read() {
+            if (!nextBlock()) {
+                return -1;
+            }
+            remaining--;
+            return block.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextBlock()) {
+                return -1;
+            }
+            int count = Math.min(len, Math.min(block.remaining(), remaining));
+            block.get(buffer, offset, count);
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return closed ? 0 : remaining;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                remaining = 0;
+                dereference();
+            }
+        }
+
+        /**
+         * Moves to the next block if the current one has been read, returns false at the end of the body.
+         */
+        private boolean nextBlock() {
+            if (closed || remaining == 0) {
+                return false;
+            }
+            if (block == null || !block.hasRemaining()) {
+                block = store.getBlock(blocks[blockIndex++]);
+            }
+            return true;
+        }
+    }
+}
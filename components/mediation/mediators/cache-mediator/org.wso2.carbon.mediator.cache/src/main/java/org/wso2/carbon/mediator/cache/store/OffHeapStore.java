@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.mediator.cache.store;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stores cached response bodies outside the Java heap, so that a large response cache does not add to the garbage
+ * collection pauses. The memory is allocated as direct {@link ByteBuffer} slabs, on demand up to the capacity of the
+ * store, and divided into fixed size blocks. A body is stored in as many blocks as it needs, which are not required to
+ * be contiguous.
+ * <p/>
+ * When there are not enough free blocks for a new body, the least recently read bodies are evicted. The blocks of an
+ * evicted body are reused once the requests reading it at the time have finished.
+ */
+public class OffHeapStore {
+
+    /**
+     * The default size of a block in bytes.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    /**
+     * The maximum size of a slab in bytes.
+     */
+    private static final int MAX_SLAB_SIZE = 16 * 1024 * 1024;
+
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final int totalBlocks;
+    private final ByteBuffer[] slabs;
+
+    /**
+     * Stack of the blocks which have been freed, the blocks which have never been used are not in the stack.
+     */
+    private final int[] freeBlocks;
+    private int freeBlockCount;
+    private int usedBlockCount;
+
+    /**
+     * The stored bodies in the order of their last read.
+     */
+    private final LinkedHashMap<OffHeapPayload, Boolean> payloads = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean closed;
+
+    /**
+     * @param capacity maximum amount of memory used by the store in bytes
+     */
+    public OffHeapStore(long capacity) {
+        this(capacity, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param capacity  maximum amount of memory used by the store in bytes
+     * @param blockSize size of the blocks the memory is divided into in bytes
+     */
+    public OffHeapStore(long capacity, int blockSize) {
+        if (blockSize <= 0 || capacity < blockSize) {
+            throw new IllegalArgumentException("The capacity " + capacity + " of the off-heap store must be at " +
+                    "least one block of " + blockSize + " bytes");
+        }
+        this.blockSize = blockSize;
+        this.totalBlocks = (int) Math.min(capacity / blockSize, Integer.MAX_VALUE);
+        this.blocksPerSlab = Math.max(1, MAX_SLAB_SIZE / blockSize);
+        this.slabs = new ByteBuffer[(totalBlocks + blocksPerSlab - 1) / blocksPerSlab];
+        this.freeBlocks = new int[totalBlocks];
+    }
+
+    /**
+     * Copies the given body into the store.
+     *
+     * @param data body to be stored
+     * @return handle of the stored body, or null if the body cannot be stored because it is larger than the store or
+     * the memory is still being read by earlier requests, in which case at most the bodies needed to make room for it
+     * are evicted
+     */
+    public OffHeapPayload store(byte[] data) {
+        int[] blocks = new int[(data.length + blockSize - 1) / blockSize];
+        if (blocks.length > totalBlocks) {
+            return null;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            // The blocks of an evicted body which is still being read are not freed yet, so the eviction stops once
+            // such blocks would make enough room, rather than going on to evict every other body as well
+            int evictable = payloads.size();
+            int pendingBlocks = 0;
+            int availableBlocks;
+            while ((availableBlocks = freeBlockCount + (totalBlocks - usedBlockCount)) < blocks.length) {
+                Iterator<OffHeapPayload> iterator = payloads.keySet().iterator();
+                if (evictable-- == 0 || availableBlocks + pendingBlocks >= blocks.length || !iterator.hasNext()) {
+                    return null;
+                }
+                OffHeapPayload eldest = iterator.next();
+                iterator.remove();
+                eldest.release();
+                if (freeBlockCount + (totalBlocks - usedBlockCount) == availableBlocks) {
+                    pendingBlocks += eldest.getBlockCount();
+                }
+            }
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = allocateBlock();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // The blocks are not reachable by any other thread until the payload is published
+        int offset = 0;
+        for (int block : blocks) {
+            int length = Math.min(blockSize, data.length - offset);
+            getBlock(block).put(data, offset, length);
+            offset += length;
+        }
+        OffHeapPayload payload = new OffHeapPayload(this, blocks, data.length);
+        lock.lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            payloads.put(payload, Boolean.TRUE);
+        } finally {
+            lock.unlock();
+        }
+        return payload;
+    }
+
+    /**
+     * Releases all the stored bodies. The memory of the store is reclaimed by the garbage collector once the store is
+     * no longer referenced.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (OffHeapPayload payload : payloads.keySet()) {
+                payload.markReleased();
+            }
+            payloads.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return capacity of the store in bytes
+     */
+    public long getCapacity() {
+        return (long) totalBlocks * blockSize;
+    }
+
+    /**
+     * @return amount of memory holding stored bodies in bytes, including the evicted bodies which are still being read
+     */
+    public long getUsedSize() {
+        lock.lock();
+        try {
+            return (long) (usedBlockCount - freeBlockCount) * blockSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns a buffer positioned at the start of the given block and limited to it. The buffer is not shared with
+     * any other reader or writer.
+     */
+    ByteBuffer getBlock(int block) {
+        ByteBuffer buffer = slabs[block / blocksPerSlab].duplicate();
+        int start = (block % blocksPerSlab) * blockSize;
+        buffer.limit(start + blockSize);
+        buffer.position(start);
+        return buffer;
+    }
+
+    /**
+     * Moves the given body to the most recently read end of the eviction order. This is skipped when the store is
+     * busy, as the order need not be exact.
+     */
+    void recordRead(OffHeapPayload payload) {
+        if (lock.tryLock()) {
+            try {
+                payloads.get(payload);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes a released body from the eviction order.
+     */
+    void remove(OffHeapPayload payload) {
+        lock.lock();
+        try {
+            payloads.remove(payload);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the blocks of a body, which is neither in the cache nor being read any more, to the store.
+     */
+    void free(int[] blocks) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            for (int block : blocks) {
+                freeBlocks[freeBlockCount++] = block;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int allocateBlock() {
+        if (freeBlockCount > 0) {
+            return freeBlocks[--freeBlockCount];
+        }
+        int block = usedBlockCount++;
+        int slab = block / blocksPerSlab;
+        if (slabs[slab] == null) {
+            int slabBlocks = Math.min(blocksPerSlab, totalBlocks - slab * blocksPerSlab);
+            slabs[slab] = ByteBuffer.allocateDirect(slabBlocks * blockSize);
+        }
+        return block;
+    }
+}
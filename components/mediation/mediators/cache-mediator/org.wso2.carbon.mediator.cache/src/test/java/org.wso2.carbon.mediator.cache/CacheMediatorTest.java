@@ -23,20 +23,25 @@ import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.util.UUIDGenerator;
 import org.apache.axiom.util.UIDGenerator;
 import org.apache.axis2.AxisFault;
+import org.apache.axis2.addressing.EndpointReference;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.context.OperationContext;
 import org.apache.axis2.context.ServiceContext;
 import org.apache.axis2.description.InOutAxisOperation;
 import org.apache.commons.collections.map.MultiValueMap;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.config.SynapseConfigUtils;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.custommonkey.xmlunit.XMLTestCase;
 import org.custommonkey.xmlunit.XMLUnit;
+import org.wso2.carbon.mediator.cache.digest.StreamingHttpRequestHashGenerator;
 import org.wso2.carbon.mediator.cache.util.HttpCachingFilter;
 
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -45,6 +50,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -54,7 +60,7 @@ public class CacheMediatorTest extends XMLTestCase {
 
     private static final String mediatorXml =
             "<cache xmlns=\"http://ws.apache.org/ns/synapse\" collector=\"false\" timeout=\"60\" " +
-                    "maxMessageSize=\"1000\">\n" +
+                    "maxMessageSize=\"1000\" coalescingTimeout=\"5\">\n" +
                     "            <onCacheHit>\n" +
                     "               <log>\n" +
                     "                  <property name=\"name\" value=\"Riyafa\"/>\n" +
@@ -89,6 +95,7 @@ public class CacheMediatorTest extends XMLTestCase {
 
         assertFalse("Incorrect value for the collector", mediator.isCollector());
         assertEquals("Incorrect value for the timeout", mediator.getTimeout(), 60);
+        assertEquals("Incorrect value for the coalescingTimeout", mediator.getCoalescingTimeout(), 5);
         assertEquals("Incorrect value for the protocol type", mediator.getProtocolType(), "HTTP");
         assertTrue("Incorrect value for the httpMethodsToCache",
                 Arrays.equals(mediator.getHTTPMethodsToCache(), new String[]{"POST", "GET"}));
@@ -120,6 +127,43 @@ public class CacheMediatorTest extends XMLTestCase {
         }
     }
 
+    /**
+     * Test that the off-heap store size is either -1 or at least one block.
+     */
+    public void testMediatorFactoryOffHeapSize() {
+        assertEquals(-1, createMediator("<implementation/>").getOffHeapSize());
+        assertEquals(-1, createMediator("<implementation offHeapSize=\"-1\"/>").getOffHeapSize());
+        assertEquals(4096, createMediator("<implementation offHeapSize=\"4096\"/>").getOffHeapSize());
+        assertInvalidImplementation("<implementation offHeapSize=\"0\"/>");
+        assertInvalidImplementation("<implementation offHeapSize=\"4095\"/>");
+        assertInvalidImplementation("<implementation offHeapSize=\"-2\"/>");
+    }
+
+    /**
+     * Test that the maximum memory size is either -1 or a positive number of bytes.
+     */
+    public void testMediatorFactoryMaxMemorySize() {
+        assertEquals(-1, createMediator("<implementation maxMemorySize=\"-1\"/>").getMaxMemorySize());
+        assertEquals(1024, createMediator("<implementation maxMemorySize=\"1024\"/>").getMaxMemorySize());
+        assertInvalidImplementation("<implementation maxMemorySize=\"-2\"/>");
+    }
+
+    private static CacheMediator createMediator(String implementationXml) {
+        String xml = "<cache xmlns=\"http://ws.apache.org/ns/synapse\" collector=\"false\" timeout=\"60\">"
+                + implementationXml + "</cache>";
+        return (CacheMediator) new CacheMediatorFactory().createSpecificMediator(SynapseConfigUtils.stringToOM(xml),
+                new Properties());
+    }
+
+    private static void assertInvalidImplementation(String implementationXml) {
+        try {
+            createMediator(implementationXml);
+            fail("Invalid cache implementation has been accepted: " + implementationXml);
+        } catch (SynapseException ignored) {
+            // expected
+        }
+    }
+
     /**
      * Test case for isValidCacheEntry() with no-store header.
      *
@@ -220,6 +264,202 @@ public class CacheMediatorTest extends XMLTestCase {
         assertEquals(dateFormat.format(cachedResponse.getResponseFetchedTime()), responseOriginatedTime);
     }
 
+    /**
+     * Test case for getSize() method.
+     */
+    public void testGetSize() {
+        CachableResponse cachedResponse = new CachableResponse();
+        assertEquals(0, cachedResponse.getSize());
+        cachedResponse.setResponsePayload(new byte[100]);
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        cachedResponse.setHeaderProperties(headers);
+        assertEquals(100 + "Content-Type".length() + "application/json".length(), cachedResponse.getSize());
+        // Headers are counted in bytes, where each of the two non-ASCII characters below takes two bytes
+        headers.put("Content-Disposition", "attachment; filename=r\u00e9sum\u00e9.txt");
+        cachedResponse.setHeaderProperties(headers);
+        assertEquals(100 + "Content-Type".length() + "application/json".length() + "Content-Disposition".length()
+                + "attachment; filename=resume.txt".length() + 2, cachedResponse.getSize());
+        cachedResponse.clean();
+        assertEquals(0, cachedResponse.getSize());
+    }
+
+    /**
+     * Test case for the freshness of a stored response and for the single request revalidating a stale response.
+     */
+    public void testStaleResponseFetch() {
+        CachableResponse cachedResponse = new CachableResponse();
+        cachedResponse.setTimeout(10);
+        cachedResponse.setResponsePayload(new byte[1]);
+        cachedResponse.setStoredTime(System.currentTimeMillis() - 15000);
+        assertTrue(cachedResponse.hasResponse());
+        assertTrue(cachedResponse.isStale());
+        assertTrue(cachedResponse.isWithinGracePeriod(10));
+        assertFalse(cachedResponse.isWithinGracePeriod(5));
+
+        // Only a single request fetches the response, until it completes or is abandoned
+        Object token = cachedResponse.startFetch(60000);
+        assertNotNull(token);
+        assertNull(cachedResponse.startFetch(60000));
+        cachedResponse.completeFetch(token);
+        token = cachedResponse.startFetch(60000);
+        assertNotNull(token);
+
+        // An abandoned fetch is taken over, and only the request which took it over completes it
+        Object takenOver = cachedResponse.startFetch(0);
+        assertNotNull(takenOver);
+        cachedResponse.completeFetch(token);
+        assertNull(cachedResponse.startFetch(60000));
+        cachedResponse.completeFetch(takenOver);
+        assertNotNull(cachedResponse.startFetch(60000));
+    }
+
+    /**
+     * Test case for the single backend call per request hash, on which the other requests missing the cache wait.
+     */
+    public void testPendingFetch() {
+        CacheManager cacheManager = new CacheManager();
+        CompletableFuture<Void> fetch = new CompletableFuture<>();
+        assertNull(cacheManager.startFetch("cache", "hash", fetch));
+        assertSame(fetch, cacheManager.startFetch("cache", "hash", new CompletableFuture<Void>()));
+        assertNull(cacheManager.startFetch("cache", "other", new CompletableFuture<Void>()));
+        assertNull(cacheManager.startFetch("other", "hash", new CompletableFuture<Void>()));
+
+        // Completing the fetch releases the waiting requests and lets the next request fetch the response again
+        cacheManager.completeFetch("cache", "hash", fetch);
+        assertTrue(fetch.isDone());
+        CompletableFuture<Void> nextFetch = new CompletableFuture<>();
+        assertNull(cacheManager.startFetch("cache", "hash", nextFetch));
+
+        // An abandoned fetch is only removed, and a stale abandon does not remove the fetch which replaced it
+        cacheManager.abandonFetch("cache", "hash", nextFetch);
+        assertFalse(nextFetch.isDone());
+        CompletableFuture<Void> takenOver = new CompletableFuture<>();
+        assertNull(cacheManager.startFetch("cache", "hash", takenOver));
+        cacheManager.abandonFetch("cache", "hash", nextFetch);
+        assertSame(takenOver, cacheManager.startFetch("cache", "hash", new CompletableFuture<Void>()));
+
+        // Removing the cache releases its pending fetches
+        cacheManager.remove("cache");
+        assertTrue(takenOver.isDone());
+        assertNull(cacheManager.startFetch("cache", "hash", new CompletableFuture<Void>()));
+    }
+
+    /**
+     * Test case for the response published by the collector, which must not share the content of the cached response.
+     */
+    public void testCopyConfiguration() {
+        CachableResponse cachedResponse = new CachableResponse();
+        cachedResponse.setRequestHash("hash");
+        cachedResponse.setTimeout(10);
+        cachedResponse.setMaxMessageSize(1024);
+        cachedResponse.setHttpMethod("GET");
+        cachedResponse.setErrorGracePeriod(5);
+        cachedResponse.setResponsePayload(new byte[1]);
+        cachedResponse.setStatusCode("200");
+
+        CachableResponse newResponse = cachedResponse.copyConfiguration();
+        assertEquals("hash", newResponse.getRequestHash());
+        assertEquals(10, newResponse.getTimeout());
+        assertEquals(1024, newResponse.getMaxMessageSize());
+        assertEquals("GET", newResponse.getHttpMethod());
+        assertEquals(5, newResponse.getErrorGracePeriod());
+        assertFalse(newResponse.hasResponse());
+        assertNull(newResponse.getStatusCode());
+
+        newResponse.setResponsePayload(new byte[2]);
+        assertEquals(1, cachedResponse.getResponsePayload().length);
+    }
+
+    /**
+     * Test case for the digest of a built xml payload calculated by the StreamingHttpRequestHashGenerator.
+     *
+     * @throws AxisFault when exception happens on message context creation.
+     */
+    public void testStreamingHashGenerator() throws AxisFault {
+        StreamingHttpRequestHashGenerator generator = new StreamingHttpRequestHashGenerator();
+        String first = generator.getDigest(createRequest("<order id=\"1\"><item>book</item></order>"));
+        String second = generator.getDigest(createRequest("<order id=\"1\"><item>book</item></order>"));
+        String third = generator.getDigest(createRequest("<order id=\"2\"><item>book</item></order>"));
+        assertEquals(first, second);
+        assertFalse(first.equals(third));
+    }
+
+    /**
+     * Test case for the digest of a raw xml payload, which has not been built, calculated by the
+     * StreamingHttpRequestHashGenerator, which must be the same as the digest of the built payload.
+     *
+     * @throws Exception when exception happens on message context creation or digest generation.
+     */
+    public void testStreamingHashGeneratorRawXml() throws Exception {
+        String payload = "<order id=\"1\">\n    <item>book</item>\n    <note><![CDATA[gift & wrap]]></note>\n</order>";
+        String built = new StreamingHttpRequestHashGenerator().getDigest(createRequest(payload));
+
+        RawPayloadHashGenerator plainGenerator = new RawPayloadHashGenerator("<?xml version=\"1.0\"?>" + payload);
+        assertEquals(built, plainGenerator.getDigest(createRawRequest("application/xml")));
+        assertTrue(plainGenerator.isBuilt());
+
+        RawPayloadHashGenerator soapGenerator = new RawPayloadHashGenerator(
+                "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Header/>"
+                        + "<soapenv:Body>" + payload + "</soapenv:Body></soapenv:Envelope>");
+        assertEquals(built, soapGenerator.getDigest(createRawRequest("text/xml; charset=UTF-8")));
+
+        RawPayloadHashGenerator otherGenerator = new RawPayloadHashGenerator(payload.replace("book", "pen"));
+        assertFalse(built.equals(otherGenerator.getDigest(createRawRequest("application/xml"))));
+    }
+
+    /**
+     * Test case for the digest of a raw json payload, which has not been built, calculated by the
+     * StreamingHttpRequestHashGenerator, which must be the same as the digest of the built payload.
+     *
+     * @throws Exception when exception happens on message context creation or digest generation.
+     */
+    public void testStreamingHashGeneratorRawJson() throws Exception {
+        String payload = "{\"order\": {\"id\": 1, \"item\": \"book\"}}";
+        MessageContext synCtx = createMessageContext();
+        org.apache.axis2.context.MessageContext msgCtx = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+        msgCtx.setTo(new EndpointReference("http://localhost:8280/orders"));
+        msgCtx.setProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS, new HashMap<String, String>());
+        JsonUtil.getNewJsonPayload(msgCtx, payload, true, true);
+        String built = new StreamingHttpRequestHashGenerator().getDigest(msgCtx);
+
+        RawPayloadHashGenerator generator = new RawPayloadHashGenerator(payload);
+        assertEquals(built, generator.getDigest(createRawRequest("application/json")));
+        assertTrue(generator.isBuilt());
+    }
+
+    /**
+     * Create an Axis2 Message Context of a request which has not been built, with the given content type.
+     *
+     * @param contentType the content type of the request.
+     * @return msgCtx created message context.
+     * @throws AxisFault when exception happens on message context creation.
+     */
+    private org.apache.axis2.context.MessageContext createRawRequest(String contentType) throws AxisFault {
+        MessageContext synCtx = createMessageContext();
+        org.apache.axis2.context.MessageContext msgCtx = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+        msgCtx.setTo(new EndpointReference("http://localhost:8280/orders"));
+        msgCtx.setProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS, new HashMap<String, String>());
+        msgCtx.setProperty(org.apache.axis2.Constants.Configuration.CONTENT_TYPE, contentType);
+        return msgCtx;
+    }
+
+    /**
+     * Create an Axis2 Message Context of a request with the given payload.
+     *
+     * @param payload the xml payload of the request.
+     * @return msgCtx created message context.
+     * @throws AxisFault when exception happens on message context creation.
+     */
+    private org.apache.axis2.context.MessageContext createRequest(String payload) throws AxisFault {
+        MessageContext synCtx = createMessageContext();
+        org.apache.axis2.context.MessageContext msgCtx = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+        msgCtx.setTo(new EndpointReference("http://localhost:8280/orders"));
+        msgCtx.setProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS, new HashMap<String, String>());
+        msgCtx.getEnvelope().getBody().addChild(SynapseConfigUtils.stringToOM(payload));
+        return msgCtx;
+    }
+
     /**
      * Create Axis2 Message Context.
      *
@@ -255,4 +495,33 @@ public class CacheMediatorTest extends XMLTestCase {
 
         return mc;
     }
+
+    /**
+     * A StreamingHttpRequestHashGenerator which reads the given raw payload in place of the pass through pipe, and
+     * only records that the message is built from it.
+     */
+    private static class RawPayloadHashGenerator extends StreamingHttpRequestHashGenerator {
+
+        private final byte[] rawPayload;
+
+        private boolean built;
+
+        RawPayloadHashGenerator(String rawPayload) {
+            this.rawPayload = rawPayload.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected byte[] readRawPayload(org.apache.axis2.context.MessageContext msgContext) {
+            return rawPayload;
+        }
+
+        @Override
+        protected void buildMessage(org.apache.axis2.context.MessageContext msgContext, byte[] rawPayload) {
+            built = true;
+        }
+
+        boolean isBuilt() {
+            return built;
+        }
+    }
 }
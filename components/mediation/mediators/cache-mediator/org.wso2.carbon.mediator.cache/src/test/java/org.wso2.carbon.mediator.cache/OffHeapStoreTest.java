@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.mediator.cache;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.mediator.cache.store.OffHeapPayload;
+import org.wso2.carbon.mediator.cache.store.OffHeapStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Test the functionality of the {@link OffHeapStore}
+ */
+public class OffHeapStoreTest extends TestCase {
+
+    /**
+     * Test case for storing response bodies off-heap, evicting the least recently read body when the store is full.
+     */
+    public void testOffHeapStore() {
+        OffHeapStore store = new OffHeapStore(4096, 1024);
+        byte[] first = new byte[1500];
+        byte[] second = new byte[2000];
+        Arrays.fill(first, (byte) 1);
+        Arrays.fill(second, (byte) 2);
+        OffHeapPayload firstPayload = store.store(first);
+        OffHeapPayload secondPayload = store.store(second);
+        assertTrue(Arrays.equals(first, firstPayload.toByteArray()));
+        assertTrue(Arrays.equals(second, secondPayload.toByteArray()));
+
+        // The second body is the least recently read, hence evicted to make room
+        firstPayload.toByteArray();
+        OffHeapPayload thirdPayload = store.store(new byte[1024]);
+        assertNotNull(thirdPayload);
+        assertTrue(secondPayload.isReleased());
+        assertNull(secondPayload.toByteArray());
+        assertTrue(Arrays.equals(first, firstPayload.toByteArray()));
+
+        CachableResponse cachedResponse = new CachableResponse();
+        cachedResponse.setOffHeapPayload(firstPayload);
+        cachedResponse.clean();
+        assertTrue(firstPayload.isReleased());
+        assertNull(store.store(new byte[8192]));
+    }
+
+    /**
+     * Test case for the eviction stopping at a body which is still being read, instead of evicting every other body.
+     */
+    public void testEvictionOfBodyBeingRead() throws IOException {
+        OffHeapStore store = new OffHeapStore(6144, 1024);
+        OffHeapPayload firstPayload = store.store(new byte[2048]);
+        OffHeapPayload secondPayload = store.store(new byte[2048]);
+        OffHeapPayload thirdPayload = store.store(new byte[2048]);
+        InputStream stream = firstPayload.openStream();
+        secondPayload.toByteArray();
+        thirdPayload.toByteArray();
+
+        // The first body is evicted, but its blocks are not freed until it is read, so no room is made
+        assertNull(store.store(new byte[2048]));
+        assertTrue(firstPayload.isReleased());
+        assertFalse(secondPayload.isReleased());
+        assertFalse(thirdPayload.isReleased());
+        assertEquals(6144, store.getUsedSize());
+
+        stream.close();
+        assertEquals(4096, store.getUsedSize());
+        assertNotNull(store.store(new byte[2048]));
+        assertFalse(secondPayload.isReleased());
+        assertFalse(thirdPayload.isReleased());
+    }
+
+    /**
+     * Test case for the body of a cached response being released when the response is replaced.
+     */
+    public void testReleaseOfReplacedResponse() {
+        OffHeapStore store = new OffHeapStore(4096, 1024);
+        OffHeapPayload firstPayload = store.store(new byte[1024]);
+        OffHeapPayload secondPayload = store.store(new byte[1024]);
+        CachableResponse cachedResponse = new CachableResponse();
+        cachedResponse.setOffHeapPayload(firstPayload);
+        cachedResponse.setOffHeapPayload(firstPayload);
+        assertFalse(firstPayload.isReleased());
+        cachedResponse.setOffHeapPayload(secondPayload);
+        assertTrue(firstPayload.isReleased());
+        assertEquals(1024, store.getUsedSize());
+
+        // Releasing the body again, as done for a replaced response, has no effect
+        firstPayload.release();
+        assertEquals(1024, store.getUsedSize());
+    }
+}